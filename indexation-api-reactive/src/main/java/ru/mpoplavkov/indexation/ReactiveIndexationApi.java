@@ -0,0 +1,13 @@
+package ru.mpoplavkov.indexation;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ReactiveIndexationApi {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveIndexationApi.class, args);
+    }
+
+}
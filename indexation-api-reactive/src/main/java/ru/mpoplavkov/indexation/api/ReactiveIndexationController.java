@@ -0,0 +1,180 @@
+package ru.mpoplavkov.indexation.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.mpoplavkov.indexation.model.job.SubscriptionJob;
+import ru.mpoplavkov.indexation.model.query.AnyOfTerms;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.status.RootFreshness;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.service.FileSystemIndexService;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+
+/**
+ * Non-blocking variant of the {@code SimpleIndexationController} from the
+ * indexation-api module.
+ *
+ * <p>Found files are emitted as they are read from the index, so that a slow
+ * client holds only its position in the index, not a thread or the whole
+ * result. Subscriptions walk the file system, so they are performed on the
+ * bounded elastic scheduler instead of the event loop.
+ */
+@RestController
+public class ReactiveIndexationController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @ExceptionHandler({FileNotFoundException.class, IllegalArgumentException.class})
+    public ResponseEntity<String> handleBadRequest(Exception e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler({IOException.class})
+    public ResponseEntity<String> handleIOException(Exception e) {
+        return new ResponseEntity<>(INTERNAL_SERVER_ERROR);
+    }
+
+    @Autowired
+    private FileSystemIndexService fileSystemIndexService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Emits found files as a JSON array, element by element.
+     */
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<String> search(@RequestParam(value = "word") String word) {
+        Flux<String> elements = searchLazily(word)
+                .map(this::toJson)
+                .index((i, json) -> i == 0 ? json : "," + json);
+        return Flux.concat(Mono.just("["), elements, Mono.just("]"));
+    }
+
+    /**
+     * Emits found files as newline delimited JSON, one path per line.
+     */
+    @GetMapping(value = "/search/stream", produces = NDJSON)
+    public Flux<String> searchStream(@RequestParam(value = "word") String word) {
+        return searchLazily(word)
+                .map(path -> toJson(path) + "\n");
+    }
+
+    @GetMapping("/search/count")
+    public Mono<Long> count(@RequestParam(value = "word") List<String> words) {
+        return Mono.fromCallable(() -> fileSystemIndexService.count(anyOfWords(words)));
+    }
+
+    @GetMapping("/search/exists")
+    public Mono<Boolean> exists(@RequestParam(value = "word") List<String> words) {
+        return Mono.fromCallable(() -> fileSystemIndexService.exists(anyOfWords(words)));
+    }
+
+    @GetMapping("/search/top")
+    public Flux<ScoredValue<String>> searchTop(@RequestParam(value = "word") List<String> words,
+                                               @RequestParam(value = "k", defaultValue = "10") int k) {
+        return Mono.fromCallable(() -> fileSystemIndexService.searchTopK(anyOfWords(words), k))
+                .flatMapIterable(values -> values)
+                .map(v -> new ScoredValue<>(FileUtil.getCanonicalPath(v.getValue()), v.getScore()));
+    }
+
+    @GetMapping("/status")
+    public Flux<RootFreshness> status() {
+        return Flux.defer(() -> Flux.fromIterable(fileSystemIndexService.freshness()));
+    }
+
+    @PostMapping("/subscribe")
+    public Mono<Void> subscribe(@RequestParam(value = "path") String path) {
+        return Mono.<Void>fromCallable(() -> {
+            fileSystemIndexService.addToIndex(new File(path).toPath());
+            return null;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PostMapping("/unsubscribe")
+    public Mono<Void> unsubscribe(@RequestParam(value = "path") String path) {
+        return Mono.<Void>fromCallable(() -> {
+            fileSystemIndexService.removeFromIndex(new File(path).toPath());
+            return null;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Subscribes to the path in the background. Responds immediately with
+     * the job, which progress could be retrieved by its id.
+     */
+    @PostMapping("/jobs/subscribe")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<SubscriptionJob> subscribeAsync(@RequestParam(value = "path") String path) {
+        return Mono.fromCallable(() -> fileSystemIndexService.addToIndexAsync(new File(path).toPath()));
+    }
+
+    @PostMapping("/jobs/unsubscribe")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<SubscriptionJob> unsubscribeAsync(@RequestParam(value = "path") String path) {
+        return Mono.fromCallable(() -> fileSystemIndexService.removeFromIndexAsync(new File(path).toPath()));
+    }
+
+    @GetMapping("/jobs")
+    public Flux<SubscriptionJob> jobs() {
+        return Flux.defer(() -> Flux.fromIterable(fileSystemIndexService.jobs()));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public Mono<SubscriptionJob> job(@PathVariable("id") String id) {
+        return Mono.fromCallable(() -> fileSystemIndexService.job(id));
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public Mono<SubscriptionJob> cancelJob(@PathVariable("id") String id) {
+        return Mono.fromCallable(() -> fileSystemIndexService.cancelJob(id));
+    }
+
+    /**
+     * Files are read from the index only on demand of the subscriber.
+     */
+    private Flux<String> searchLazily(String word) {
+        Query query = new ExactTerm(new WordTerm(word));
+        return Flux.fromStream(() -> fileSystemIndexService.searchStream(query))
+                .map(FileUtil::getCanonicalPath);
+    }
+
+    /**
+     * Strings are written to the response as is, so they are encoded
+     * to JSON explicitly.
+     */
+    private String toJson(String value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Query anyOfWords(List<String> words) {
+        List<Term> terms = words.stream()
+                .map(WordTerm::new)
+                .collect(Collectors.toList());
+        return new AnyOfTerms(terms);
+    }
+}
@@ -0,0 +1,9 @@
+package ru.mpoplavkov.indexation.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+@Configuration
+@Import(IndexConfiguration.class)
+public class ReactiveAppConfiguration {
+}
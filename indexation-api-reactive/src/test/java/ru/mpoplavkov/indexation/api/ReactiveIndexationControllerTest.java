@@ -0,0 +1,144 @@
+package ru.mpoplavkov.indexation.api;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.mpoplavkov.indexation.model.job.SubscriptionJob;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+class ReactiveIndexationControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void shouldRespondOnSearch() {
+        webTestClient.get().uri("/search?word=a")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[]");
+    }
+
+    @Test
+    void shouldRespondWithFoundFiles(@TempDir Path dir) throws Exception {
+        Path file = Files.write(dir.resolve("file.txt"), "reactive".getBytes());
+        subscribe(dir);
+
+        webTestClient.get().uri("/search?word=reactive")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0]").isEqualTo(FileUtil.getCanonicalPath(file));
+
+        unsubscribe(dir);
+    }
+
+    @Test
+    void shouldStreamFoundFiles(@TempDir Path dir) throws Exception {
+        Path file = Files.write(dir.resolve("file.txt"), "streamed".getBytes());
+        subscribe(dir);
+
+        webTestClient.get().uri("/search/stream?word=streamed")
+                .accept(MediaType.parseMediaType("application/x-ndjson"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo(String.format("\"%s\"\n", FileUtil.getCanonicalPath(file)));
+
+        unsubscribe(dir);
+    }
+
+    @Test
+    void shouldRespondWithCountAndTopKFiles(@TempDir Path dir) throws Exception {
+        Path file = Files.write(dir.resolve("file1.txt"), "ranked ranked".getBytes());
+        Files.write(dir.resolve("file2.txt"), "ranked words".getBytes());
+        subscribe(dir);
+
+        webTestClient.get().uri("/search/count?word=ranked")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Long.class).isEqualTo(2L);
+        webTestClient.get().uri("/search/top?word=ranked&k=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].value").isEqualTo(FileUtil.getCanonicalPath(file));
+
+        unsubscribe(dir);
+    }
+
+    @Test
+    void shouldRespondWithBadRequestOnSubscribeToANonExistentPath() {
+        Path path = new File("non existent").toPath();
+        webTestClient.post().uri("/subscribe?path={path}", path.toAbsolutePath())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldTrackProgressOfSubscriptionJobs(@TempDir Path dir) throws Exception {
+        Files.write(dir.resolve("file.txt"), "background".getBytes());
+
+        String job = webTestClient.post().uri("/jobs/subscribe?path={path}", dir.toAbsolutePath())
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        String id = JsonPath.read(job, "$.id");
+        for (int i = 0; i < 100 && !isFinished(job); i++) {
+            Thread.sleep(100);
+            job = webTestClient.get().uri("/jobs/{id}", id)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(String.class)
+                    .returnResult()
+                    .getResponseBody();
+        }
+        assertEquals("COMPLETED", JsonPath.read(job, "$.state"));
+        assertEquals(1, (int) JsonPath.read(job, "$.filesProcessed"));
+
+        webTestClient.get().uri("/search/count?word=background")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Long.class).isEqualTo(1L);
+
+        unsubscribe(dir);
+    }
+
+    @Test
+    void shouldRespondWithBadRequestOnUnknownJob() {
+        webTestClient.delete().uri("/jobs/unknown")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private static boolean isFinished(String job) {
+        String state = JsonPath.read(job, "$.state");
+        return SubscriptionJob.State.valueOf(state).isFinished();
+    }
+
+    private void subscribe(Path dir) {
+        webTestClient.post().uri("/subscribe?path={path}", dir.toAbsolutePath())
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private void unsubscribe(Path dir) {
+        webTestClient.post().uri("/unsubscribe?path={path}", dir.toAbsolutePath())
+                .exchange()
+                .expectStatus().isOk();
+    }
+}
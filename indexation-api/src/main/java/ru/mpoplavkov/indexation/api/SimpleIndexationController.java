@@ -1,19 +1,40 @@
 package ru.mpoplavkov.indexation.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.mpoplavkov.indexation.model.job.SubscriptionJob;
+import ru.mpoplavkov.indexation.model.query.AnyOfTerms;
 import ru.mpoplavkov.indexation.model.query.ExactTerm;
 import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ResultPage;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.status.RootFreshness;
+import ru.mpoplavkov.indexation.model.term.Term;
 import ru.mpoplavkov.indexation.model.term.WordTerm;
 import ru.mpoplavkov.indexation.service.FileSystemIndexService;
 import ru.mpoplavkov.indexation.util.FileUtil;
+import ru.mpoplavkov.indexation.util.TraceEntry;
+import ru.mpoplavkov.indexation.util.TraceRecorder;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 
@@ -25,14 +46,31 @@ public class SimpleIndexationController {
         return ResponseEntity.badRequest().body(e.getMessage());
     }
 
+    @ExceptionHandler({IllegalArgumentException.class})
+    public ResponseEntity<String> handleIllegalArgumentException(Exception e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
     @ExceptionHandler({IOException.class})
     public ResponseEntity<String> handleIOException(Exception e) {
         return new ResponseEntity<>(INTERNAL_SERVER_ERROR);
     }
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Streamed lines are flushed in batches. The first line is flushed
+     * immediately.
+     */
+    private static final int STREAM_FLUSH_LINES = 256;
+
     @Autowired
     private FileSystemIndexService fileSystemIndexService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/search")
     public Set<String> search(@RequestParam(value = "word") String word) {
         Query query = new ExactTerm(new WordTerm(word));
@@ -43,6 +81,110 @@ public class SimpleIndexationController {
                 .collect(Collectors.toSet());
     }
 
+    /**
+     * Searches files for every word of the batch at once.
+     */
+    @PostMapping("/search/batch")
+    public Map<String, Set<String>> searchBatch(@RequestBody List<String> words) {
+        if (words.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException(
+                    String.format("Batch size should not exceed '%d', but was '%d'", MAX_BATCH_SIZE, words.size())
+            );
+        }
+        List<Query> queries = words.stream()
+                .map(word -> new ExactTerm(new WordTerm(word)))
+                .collect(Collectors.toList());
+        List<Set<Path>> results = fileSystemIndexService.searchAll(queries);
+        Map<String, Set<String>> response = new LinkedHashMap<>();
+        for (int i = 0; i < words.size(); i++) {
+            Set<String> paths = results.get(i)
+                    .stream()
+                    .map(FileUtil::getCanonicalPath)
+                    .collect(Collectors.toSet());
+            response.put(words.get(i), paths);
+        }
+        return response;
+    }
+
+    /**
+     * Retrieves one page of found files. The first page is requested by
+     * the word, next ones - by the cursor from the previous page.
+     */
+    @GetMapping("/search/page")
+    public ResultPage<String> searchPage(@RequestParam(value = "word", required = false) String word,
+                                         @RequestParam(value = "cursor", required = false) String cursor,
+                                         @RequestParam(value = "size", defaultValue = "100") int size) {
+        ResultPage<Path> page;
+        if (cursor != null) {
+            page = fileSystemIndexService.nextPage(cursor, size);
+        } else if (word != null) {
+            page = fileSystemIndexService.searchPage(new ExactTerm(new WordTerm(word)), size);
+        } else {
+            throw new IllegalArgumentException("Either word or cursor should be specified");
+        }
+        List<String> paths = page.getValues()
+                .stream()
+                .map(FileUtil::getCanonicalPath)
+                .collect(Collectors.toList());
+        return new ResultPage<>(paths, page.getCursor());
+    }
+
+    /**
+     * Streams found files as they are read from the index, one JSON string
+     * per line.
+     */
+    @GetMapping(value = "/search/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> searchStream(@RequestParam(value = "word") String word) {
+        Query query = new ExactTerm(new WordTerm(word));
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try (Stream<Path> paths = fileSystemIndexService.searchStream(query)) {
+                Iterator<Path> iterator = paths.iterator();
+                for (int written = 0; iterator.hasNext(); written++) {
+                    writer.write(objectMapper.writeValueAsString(FileUtil.getCanonicalPath(iterator.next())));
+                    writer.write('\n');
+                    if (written % STREAM_FLUSH_LINES == 0) {
+                        writer.flush();
+                    }
+                }
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    @GetMapping("/search/count")
+    public long count(@RequestParam(value = "word") List<String> words) {
+        return fileSystemIndexService.count(anyOfWords(words));
+    }
+
+    @GetMapping("/search/exists")
+    public boolean exists(@RequestParam(value = "word") List<String> words) {
+        return fileSystemIndexService.exists(anyOfWords(words));
+    }
+
+    @GetMapping("/search/top")
+    public List<ScoredValue<String>> searchTop(@RequestParam(value = "word") List<String> words,
+                                               @RequestParam(value = "k", defaultValue = "10") int k) {
+        return fileSystemIndexService
+                .searchTopK(anyOfWords(words), k)
+                .stream()
+                .map(v -> new ScoredValue<>(FileUtil.getCanonicalPath(v.getValue()), v.getScore()))
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/status")
+    public List<RootFreshness> status() {
+        return fileSystemIndexService.freshness();
+    }
+
+    @GetMapping("/trace")
+    public List<TraceEntry> trace() {
+        return TraceRecorder.dump();
+    }
+
     @PostMapping("/subscribe")
     public void subscribe(@RequestParam(value = "path") String path) throws IOException {
         File file = new File(path);
@@ -54,4 +196,42 @@ public class SimpleIndexationController {
         File file = new File(path);
         fileSystemIndexService.removeFromIndex(file.toPath());
     }
+
+    /**
+     * Subscribes to the path in the background. Responds immediately with
+     * the job, which progress could be retrieved by its id.
+     */
+    @PostMapping("/jobs/subscribe")
+    public ResponseEntity<SubscriptionJob> subscribeAsync(@RequestParam(value = "path") String path) throws IOException {
+        File file = new File(path);
+        return ResponseEntity.accepted().body(fileSystemIndexService.addToIndexAsync(file.toPath()));
+    }
+
+    @PostMapping("/jobs/unsubscribe")
+    public ResponseEntity<SubscriptionJob> unsubscribeAsync(@RequestParam(value = "path") String path) throws IOException {
+        File file = new File(path);
+        return ResponseEntity.accepted().body(fileSystemIndexService.removeFromIndexAsync(file.toPath()));
+    }
+
+    @GetMapping("/jobs")
+    public List<SubscriptionJob> jobs() {
+        return fileSystemIndexService.jobs();
+    }
+
+    @GetMapping("/jobs/{id}")
+    public SubscriptionJob job(@PathVariable("id") String id) {
+        return fileSystemIndexService.job(id);
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public SubscriptionJob cancelJob(@PathVariable("id") String id) {
+        return fileSystemIndexService.cancelJob(id);
+    }
+
+    private static Query anyOfWords(List<String> words) {
+        List<Term> terms = words.stream()
+                .map(WordTerm::new)
+                .collect(Collectors.toList());
+        return new AnyOfTerms(terms);
+    }
 }
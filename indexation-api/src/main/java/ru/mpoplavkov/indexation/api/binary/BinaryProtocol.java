@@ -0,0 +1,168 @@
+package ru.mpoplavkov.indexation.api.binary;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length-prefixed binary protocol of the search, used instead of JSON by
+ * clients, that issue lots of queries.
+ *
+ * <p>Every frame starts with its length as a 4 byte big-endian int, which
+ * doesn't include the length itself. A request frame consists of the
+ * operation code, the request id and the payload. A response frame
+ * consists of the status, the id of the request and the payload. Requests
+ * on one connection are answered in the order they were sent.
+ *
+ * <ul>
+ * <li>{@link BinaryProtocol#OP_SEARCH} - the payload of the request is the
+ * UTF-8 encoded word. The payload of the response is the number of found
+ * files, followed by their ids in the ascending order, each one encoded as
+ * a delta from the previous id. Both are varints.</li>
+ * <li>{@link BinaryProtocol#OP_PATHS} - the payload of the request is the
+ * number of ids followed by the ids, as 4 byte ints. The payload of the
+ * response is the number of paths as a varint, followed by the paths in
+ * the lexicographic order. Every path is encoded as its id (4 byte int),
+ * the length of the common prefix with the previous path and the length
+ * of the rest of the path (both varints), and the rest of the UTF-8 encoded
+ * path.</li>
+ * </ul>
+ *
+ * <p>Ids of deleted files are reused only with a new generation, so that a
+ * client could cache paths by ids and retrieve only ids, which it has never
+ * seen before. A request of paths of ids, which are not known anymore, is
+ * answered with an error.
+ * The payload of a response with the {@link BinaryProtocol#STATUS_ERROR}
+ * status is the UTF-8 encoded message.
+ */
+public final class BinaryProtocol {
+
+    private BinaryProtocol() {
+    }
+
+    public static final byte OP_SEARCH = 1;
+    public static final byte OP_PATHS = 2;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    public static final int LENGTH_FIELD_SIZE = 4;
+    public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Maximum number of paths to request at once.
+     */
+    public static final int MAX_PATHS = 100_000;
+
+    public static void writeVarInt(ByteBuf buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf.writeByte(value);
+    }
+
+    public static int readVarInt(ByteBuf buf) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buf.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Writes ids as deltas from the previous one.
+     *
+     * @param buf buffer to write to.
+     * @param ids ids in the ascending order.
+     */
+    public static void writeIds(ByteBuf buf, int[] ids) {
+        writeVarInt(buf, ids.length);
+        int previous = 0;
+        for (int id : ids) {
+            writeVarInt(buf, id - previous);
+            previous = id;
+        }
+    }
+
+    public static int[] readIds(ByteBuf buf) {
+        int[] ids = new int[readVarInt(buf)];
+        int previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            previous += readVarInt(buf);
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    /**
+     * Writes paths with their common prefixes omitted.
+     *
+     * @param buf   buffer to write to.
+     * @param ids   ids of the paths.
+     * @param paths UTF-8 encoded paths in the lexicographic order.
+     */
+    public static void writePaths(ByteBuf buf, int[] ids, byte[][] paths) {
+        writeVarInt(buf, paths.length);
+        byte[] previous = new byte[0];
+        for (int i = 0; i < paths.length; i++) {
+            byte[] path = paths[i];
+            int prefix = commonPrefixLength(previous, path);
+            buf.writeInt(ids[i]);
+            writeVarInt(buf, prefix);
+            writeVarInt(buf, path.length - prefix);
+            buf.writeBytes(path, prefix, path.length - prefix);
+            previous = path;
+        }
+    }
+
+    /**
+     * Reads paths, written by {@link BinaryProtocol#writePaths}.
+     *
+     * @param buf     buffer to read from.
+     * @param visitor receives every path along with its id.
+     */
+    public static void readPaths(ByteBuf buf, PathVisitor visitor) {
+        int count = readVarInt(buf);
+        byte[] previous = new byte[0];
+        for (int i = 0; i < count; i++) {
+            int id = buf.readInt();
+            int prefix = readVarInt(buf);
+            int suffix = readVarInt(buf);
+            byte[] path = new byte[prefix + suffix];
+            System.arraycopy(previous, 0, path, 0, prefix);
+            buf.readBytes(path, prefix, suffix);
+            visitor.visit(id, new String(path, StandardCharsets.UTF_8));
+            previous = path;
+        }
+    }
+
+    public static void writeString(ByteBuf buf, String value) {
+        buf.writeCharSequence(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the rest of the buffer as a string.
+     */
+    public static String readString(ByteBuf buf) {
+        return buf.readCharSequence(buf.readableBytes(), StandardCharsets.UTF_8).toString();
+    }
+
+    private static int commonPrefixLength(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < length && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    @FunctionalInterface
+    public interface PathVisitor {
+        void visit(int id, String path);
+    }
+}
@@ -0,0 +1,126 @@
+package ru.mpoplavkov.indexation.api.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Blocking client of the {@link BinaryProtocol}. Paths are retrieved only
+ * for ids, which were never seen by the client before, and are cached
+ * forever. The client is not thread safe.
+ */
+public class BinarySearchClient implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream input;
+    private final DataOutputStream output;
+    private final Map<Integer, String> paths = new HashMap<>();
+    private int nextRequestId;
+
+    /**
+     * Connects to the server.
+     *
+     * @param host host of the server.
+     * @param port port of the server.
+     * @throws IOException if an I/O error occurs.
+     */
+    public BinarySearchClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Searches files, containing the word.
+     *
+     * @param word the word to search.
+     * @return ids of found files in the ascending order.
+     * @throws IOException if an I/O error occurs or the server failed.
+     */
+    public int[] search(String word) throws IOException {
+        ByteBuf request = Unpooled.buffer();
+        BinaryProtocol.writeString(request, word);
+        ByteBuf response = call(BinaryProtocol.OP_SEARCH, request);
+        return BinaryProtocol.readIds(response);
+    }
+
+    /**
+     * Retrieves paths of the files by their ids. Only unknown paths are
+     * requested from the server.
+     *
+     * @param ids ids of files.
+     * @return paths of the files, in the order of the ids.
+     * @throws IOException if an I/O error occurs or the server failed.
+     */
+    public List<String> paths(int[] ids) throws IOException {
+        int[] unknown = new int[ids.length];
+        int unknownCount = 0;
+        for (int id : ids) {
+            if (!paths.containsKey(id)) {
+                unknown[unknownCount++] = id;
+            }
+        }
+        for (int from = 0; from < unknownCount; from += BinaryProtocol.MAX_PATHS) {
+            int count = Math.min(BinaryProtocol.MAX_PATHS, unknownCount - from);
+            ByteBuf request = Unpooled.buffer(BinaryProtocol.LENGTH_FIELD_SIZE * (count + 1));
+            request.writeInt(count);
+            for (int i = from; i < from + count; i++) {
+                request.writeInt(unknown[i]);
+            }
+            BinaryProtocol.readPaths(call(BinaryProtocol.OP_PATHS, request), paths::put);
+        }
+        List<String> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(paths.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of paths cached by the client.
+     */
+    public int cachedPaths() {
+        return paths.size();
+    }
+
+    private ByteBuf call(byte operation, ByteBuf payload) throws IOException {
+        int requestId = nextRequestId++;
+        output.writeInt(1 + Integer.BYTES + payload.readableBytes());
+        output.writeByte(operation);
+        output.writeInt(requestId);
+        payload.readBytes(output, payload.readableBytes());
+        output.flush();
+
+        byte[] frame = new byte[input.readInt()];
+        input.readFully(frame);
+        ByteBuf response = Unpooled.wrappedBuffer(frame);
+        byte status = response.readByte();
+        int responseId = response.readInt();
+        if (responseId != requestId) {
+            throw new IOException(
+                    String.format("Expected response to the request '%d', but got '%d'", requestId, responseId)
+            );
+        }
+        if (status != BinaryProtocol.STATUS_OK) {
+            throw new IOException(BinaryProtocol.readString(response));
+        }
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,115 @@
+package ru.mpoplavkov.indexation.api.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import lombok.extern.java.Log;
+import ru.mpoplavkov.indexation.index.PathIdIndex;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * Answers requests of the {@link BinaryProtocol}. Every request frame is
+ * answered by exactly one response frame.
+ */
+@Log
+@ChannelHandler.Sharable
+class BinarySearchHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+    private final PathIdIndex index;
+    private final TermsTransformer queryTransformer;
+    private final PathTable pathTable;
+
+    BinarySearchHandler(PathIdIndex index, TermsTransformer queryTransformer, PathTable pathTable) {
+        this.index = index;
+        this.queryTransformer = queryTransformer;
+        this.pathTable = pathTable;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf request) {
+        byte operation = request.readByte();
+        int requestId = request.readInt();
+        ByteBuf response = ctx.alloc().buffer();
+        try {
+            response.writeByte(BinaryProtocol.STATUS_OK);
+            response.writeInt(requestId);
+            switch (operation) {
+                case BinaryProtocol.OP_SEARCH:
+                    search(BinaryProtocol.readString(request), response);
+                    break;
+                case BinaryProtocol.OP_PATHS:
+                    paths(request, response);
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                            String.format("Operation '%d' is not supported", operation)
+                    );
+            }
+        } catch (RuntimeException e) {
+            log.log(Level.FINE, e, () -> String.format("Request '%d' failed", requestId));
+            response.clear();
+            response.writeByte(BinaryProtocol.STATUS_ERROR);
+            response.writeInt(requestId);
+            BinaryProtocol.writeString(response, String.valueOf(e.getMessage()));
+        }
+        ctx.writeAndFlush(response);
+    }
+
+    private void search(String word, ByteBuf response) {
+        Query query = new ExactTerm(new WordTerm(word)).transform(queryTransformer);
+        Set<Integer> found = index.searchIds(query);
+        int[] ids = new int[found.size()];
+        int i = 0;
+        for (int id : found) {
+            ids[i++] = id;
+        }
+        Arrays.sort(ids);
+        BinaryProtocol.writeIds(response, ids);
+    }
+
+    private void paths(ByteBuf request, ByteBuf response) {
+        int count = request.readInt();
+        if (count < 0 || count > BinaryProtocol.MAX_PATHS) {
+            throw new IllegalArgumentException(
+                    String.format("Number of paths should be from 0 to '%d', but was '%d'", BinaryProtocol.MAX_PATHS, count)
+            );
+        }
+        String[] paths = new String[count];
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = request.readInt();
+            paths[i] = FileUtil.getCanonicalPath(pathTable.getPath(ids[i]));
+        }
+        // neighbours in the lexicographic order share the longest prefixes
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> paths[i]));
+        int[] sortedIds = new int[count];
+        byte[][] sortedPaths = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            sortedIds[i] = ids[order[i]];
+            sortedPaths[i] = paths[order[i]].getBytes(StandardCharsets.UTF_8);
+        }
+        BinaryProtocol.writePaths(response, sortedIds, sortedPaths);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.log(Level.WARNING, cause, () -> "Closing the connection of the binary search");
+        ctx.close();
+    }
+}
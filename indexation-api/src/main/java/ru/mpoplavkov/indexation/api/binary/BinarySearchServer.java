@@ -0,0 +1,94 @@
+package ru.mpoplavkov.indexation.api.binary;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import lombok.extern.java.Log;
+import ru.mpoplavkov.indexation.index.PathIdIndex;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
+import ru.mpoplavkov.indexation.util.ExecutorsUtil;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+
+/**
+ * Netty server of the {@link BinaryProtocol}. Searches are performed on
+ * a separate group of threads, so that slow queries don't delay reads
+ * and writes of other connections.
+ */
+@Log
+public class BinarySearchServer implements Closeable {
+
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workerGroup;
+    private final EventExecutorGroup searchGroup;
+    private final Channel channel;
+
+    /**
+     * Creates the server and binds it to the given port.
+     *
+     * @param index            index to search ids of files in.
+     * @param queryTransformer transformer of terms of search queries. Should
+     *                         be the same as the one of the service.
+     * @param pathTable        table to resolve ids of found files to paths with.
+     * @param port             port to listen on. If zero, a free port is chosen.
+     * @param searchThreads    number of threads to perform searches on.
+     * @throws InterruptedException if interrupted while binding.
+     */
+    public BinarySearchServer(PathIdIndex index,
+                              TermsTransformer queryTransformer,
+                              PathTable pathTable,
+                              int port,
+                              int searchThreads) throws InterruptedException {
+        BinarySearchHandler handler = new BinarySearchHandler(index, queryTransformer, pathTable);
+        bossGroup = new NioEventLoopGroup(1, new ExecutorsUtil.DaemonThreadFactory("binary-boss"));
+        workerGroup = new NioEventLoopGroup(0, new ExecutorsUtil.DaemonThreadFactory("binary-worker"));
+        searchGroup = new DefaultEventExecutorGroup(searchThreads, new ExecutorsUtil.DaemonThreadFactory("binary-search"));
+        channel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new LengthFieldBasedFrameDecoder(
+                                        BinaryProtocol.MAX_FRAME_SIZE,
+                                        0,
+                                        BinaryProtocol.LENGTH_FIELD_SIZE,
+                                        0,
+                                        BinaryProtocol.LENGTH_FIELD_SIZE
+                                ))
+                                .addLast(new LengthFieldPrepender(BinaryProtocol.LENGTH_FIELD_SIZE))
+                                .addLast(searchGroup, handler);
+                    }
+                })
+                .bind(port)
+                .sync()
+                .channel();
+        log.info(() -> String.format("Binary search is listening on the port '%d'", getPort()));
+    }
+
+    /**
+     * @return port the server is listening on.
+     */
+    public int getPort() {
+        return ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    @Override
+    public void close() {
+        channel.close().syncUninterruptibly();
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+        searchGroup.shutdownGracefully();
+    }
+}
@@ -1,24 +1,31 @@
 package ru.mpoplavkov.indexation.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import ru.mpoplavkov.indexation.service.FileSystemIndexService;
-import ru.mpoplavkov.indexation.service.impl.FileSystemIndexServiceImpl;
-import ru.mpoplavkov.indexation.text.extractor.TermsExtractor;
-import ru.mpoplavkov.indexation.text.extractor.impl.SplitBySpaceTermsExtractor;
-import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
-import ru.mpoplavkov.indexation.text.transformer.impl.LowercaseTransformer;
-
-import java.io.IOException;
+import org.springframework.context.annotation.Import;
+import ru.mpoplavkov.indexation.api.binary.BinarySearchServer;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.index.impl.PathTableTermIndex;
+import ru.mpoplavkov.indexation.text.analyzer.impl.ChainAnalyzer;
 
 @Configuration
+@Import(IndexConfiguration.class)
 public class AppConfiguration {
 
+    @Value("${indexation.binary.search-threads:4}")
+    private int binarySearchThreads;
+
+    /**
+     * Binary search is started only if its port is configured.
+     */
     @Bean(destroyMethod = "close")
-    public FileSystemIndexService fsIndexService() throws IOException {
-        TermsExtractor extractor = new SplitBySpaceTermsExtractor();
-        TermsTransformer transformer = new LowercaseTransformer();
-        return new FileSystemIndexServiceImpl(extractor, transformer, 2);
+    @ConditionalOnProperty("indexation.binary.port")
+    public BinarySearchServer binarySearchServer(PathTableTermIndex pathTableTermIndex,
+                                                 ChainAnalyzer analyzer,
+                                                 PathTable pathTable,
+                                                 @Value("${indexation.binary.port}") int port) throws InterruptedException {
+        return new BinarySearchServer(pathTableTermIndex, analyzer, pathTable, port, binarySearchThreads);
     }
-
 }
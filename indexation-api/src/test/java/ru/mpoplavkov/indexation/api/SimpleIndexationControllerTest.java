@@ -1,22 +1,33 @@
 package ru.mpoplavkov.indexation.api;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.mpoplavkov.indexation.util.FileUtil;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+// every event is traced, so that the trace of a single file is not empty
+@SpringBootTest(properties = "indexation.trace.sample-rate=1")
 @AutoConfigureMockMvc
 class SimpleIndexationControllerTest {
 
@@ -31,6 +42,107 @@ class SimpleIndexationControllerTest {
 
     }
 
+    @Test
+    void shouldRespondOnBatchSearch(@TempDir Path dir) throws Exception {
+        Path file = Files.write(dir.resolve("file.txt"), "batched".getBytes());
+        mockMvc.perform(post(String.format("/subscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/search/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[\"batched\", \"unbatched\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batched[0]").value(FileUtil.getCanonicalPath(file)))
+                .andExpect(jsonPath("$.unbatched").isEmpty());
+
+        mockMvc.perform(post(String.format("/unsubscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRespondWithPagesOfFoundFiles(@TempDir Path dir) throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Files.write(dir.resolve(String.format("file%d.txt", i)), "paged".getBytes());
+        }
+        mockMvc.perform(post(String.format("/subscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+
+        MvcResult firstPage = mockMvc.perform(get("/search/page?word=paged&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.values.length()").value(2))
+                .andExpect(jsonPath("$.cursor").isNotEmpty())
+                .andReturn();
+        String cursor = JsonPath.read(firstPage.getResponse().getContentAsString(), "$.cursor");
+        mockMvc.perform(get(String.format("/search/page?cursor=%s&size=2", cursor)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.values.length()").value(1))
+                .andExpect(jsonPath("$.cursor").isEmpty());
+        mockMvc.perform(get(String.format("/search/page?cursor=%s&size=2", cursor)))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post(String.format("/unsubscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldStreamFoundFiles(@TempDir Path dir) throws Exception {
+        Path file = Files.write(dir.resolve("file.txt"), "streamed".getBytes());
+        mockMvc.perform(post(String.format("/subscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(get("/search/stream?word=streamed"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(String.format("\"%s\"\n", FileUtil.getCanonicalPath(file))));
+
+        mockMvc.perform(post(String.format("/unsubscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRespondWithCountAndExistenceOfFoundFiles(@TempDir Path dir) throws Exception {
+        Files.write(dir.resolve("file1.txt"), "counted".getBytes());
+        Files.write(dir.resolve("file2.txt"), "counted".getBytes());
+        mockMvc.perform(post(String.format("/subscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/search/count?word=counted"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+        mockMvc.perform(get("/search/exists?word=counted"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("true"));
+        mockMvc.perform(get("/search/exists?word=uncounted"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("false"));
+
+        mockMvc.perform(post(String.format("/unsubscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRespondWithTopKFiles(@TempDir Path dir) throws Exception {
+        Path file1 = Files.write(dir.resolve("file1.txt"), "alpha beta beta".getBytes());
+        Files.write(dir.resolve("file2.txt"), "alpha beta".getBytes());
+        mockMvc.perform(post(String.format("/subscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/search/top?word=beta&word=gamma&k=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].value").value(FileUtil.getCanonicalPath(file1)));
+        mockMvc.perform(post(String.format("/unsubscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRespondWithBadRequestOnNonPositiveK() throws Exception {
+        mockMvc.perform(get("/search/top?word=a&k=0"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldRespondOnSubscribe(@TempDir Path dir) throws Exception {
         mockMvc.perform(post(String.format("/subscribe?path=%s", dir.toAbsolutePath())))
@@ -57,4 +169,102 @@ class SimpleIndexationControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void shouldTrackProgressOfSubscriptionJobs(@TempDir Path dir) throws Exception {
+        Path file = Files.write(dir.resolve("file1.txt"), "background".getBytes());
+        Files.write(dir.resolve("file2.txt"), "job".getBytes());
+
+        String subscription = submitJob("/jobs/subscribe", dir);
+        awaitJob(subscription)
+                .andExpect(jsonPath("$.operation").value("SUBSCRIBE"))
+                .andExpect(jsonPath("$.state").value("COMPLETED"))
+                .andExpect(jsonPath("$.filesDiscovered").value(2))
+                .andExpect(jsonPath("$.filesProcessed").value(2))
+                .andExpect(jsonPath("$.bytesProcessed").value(13));
+        mockMvc.perform(get("/search?word=background"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value(FileUtil.getCanonicalPath(file)));
+
+        String unsubscription = submitJob("/jobs/unsubscribe", dir);
+        awaitJob(unsubscription)
+                .andExpect(jsonPath("$.state").value("COMPLETED"))
+                .andExpect(jsonPath("$.filesProcessed").value(2));
+        mockMvc.perform(get("/jobs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == '%s')]", subscription).exists());
+        mockMvc.perform(get("/search?word=background"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo("[]")));
+    }
+
+    @Test
+    void shouldRespondWithBadRequestOnJobForANonExistentPath() throws Exception {
+        Path path = new File("non existent").toPath();
+        mockMvc.perform(post(String.format("/jobs/subscribe?path=%s", path.toAbsolutePath())))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRespondWithBadRequestOnUnknownJob() throws Exception {
+        mockMvc.perform(get("/jobs/unknown"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/jobs/unknown"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRespondWithFreshnessOfSubscribedPaths(@TempDir Path dir) throws Exception {
+        String path = FileUtil.getCanonicalPath(dir);
+        mockMvc.perform(post(String.format("/subscribe?path=%s", path)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.root == '%s')].sloMillis", path).value(2000));
+        mockMvc.perform(post(String.format("/unsubscribe?path=%s", path)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRespondWithRecordedTrace(@TempDir Path dir) throws Exception {
+        Files.createFile(dir.resolve("file.txt"));
+        mockMvc.perform(post(String.format("/subscribe?path=%s", dir.toAbsolutePath())))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/trace"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.event == 'index.index')]").exists());
+    }
+
+    @Test
+    void shouldPublishSearchMetrics() throws Exception {
+        mockMvc.perform(get("/search?word=a"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/indexation.search"))
+                .andExpect(status().isOk());
+    }
+
+    private String submitJob(String uri, Path path) throws Exception {
+        MvcResult result = mockMvc.perform(post(String.format("%s?path=%s", uri, path.toAbsolutePath())))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.path").value(FileUtil.getCanonicalPath(path)))
+                .andReturn();
+        return JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+    }
+
+    /**
+     * Polls the job until it's finished.
+     */
+    private ResultActions awaitJob(String id) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            MvcResult result = mockMvc.perform(get(String.format("/jobs/%s", id)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            String state = JsonPath.read(result.getResponse().getContentAsString(), "$.state");
+            if (!state.equals("QUEUED") && !state.equals("RUNNING")) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        return mockMvc.perform(get(String.format("/jobs/%s", id)));
+    }
+
 }
@@ -0,0 +1,58 @@
+package ru.mpoplavkov.indexation.api.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryProtocolTest {
+
+    @Test
+    public void shouldReadWrittenVarInts() {
+        ByteBuf buf = Unpooled.buffer();
+        int[] values = {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, -1};
+        for (int value : values) {
+            BinaryProtocol.writeVarInt(buf, value);
+        }
+        for (int value : values) {
+            assertEquals(value, BinaryProtocol.readVarInt(buf));
+        }
+    }
+
+    @Test
+    public void shouldReadWrittenIds() {
+        ByteBuf buf = Unpooled.buffer();
+        int[] ids = {0, 3, 4, 1000, 1_000_000};
+        BinaryProtocol.writeIds(buf, ids);
+        assertArrayEquals(ids, BinaryProtocol.readIds(buf));
+    }
+
+    @Test
+    public void shouldOmitCommonPrefixesOfPaths() {
+        List<String> paths = Arrays.asList("/dir/a.txt", "/dir/b.txt", "/dir/sub/c.txt", "/другой/файл.txt");
+        byte[][] bytes = paths.stream()
+                .map(path -> path.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+        ByteBuf buf = Unpooled.buffer();
+        BinaryProtocol.writePaths(buf, new int[]{5, 6, 7, 8}, bytes);
+        int totalLength = Arrays.stream(bytes).mapToInt(b -> b.length).sum();
+        assertTrue(buf.readableBytes() < totalLength + 4 * paths.size());
+
+        List<Integer> readIds = new ArrayList<>();
+        List<String> readPaths = new ArrayList<>();
+        BinaryProtocol.readPaths(buf, (id, path) -> {
+            readIds.add(id);
+            readPaths.add(path);
+        });
+        assertEquals(Arrays.asList(5, 6, 7, 8), readIds);
+        assertEquals(paths, readPaths);
+    }
+}
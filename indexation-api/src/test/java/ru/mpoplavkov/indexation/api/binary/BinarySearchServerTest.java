@@ -0,0 +1,104 @@
+package ru.mpoplavkov.indexation.api.binary;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.index.PathIdIndex;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.index.impl.TreePathTable;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.text.transformer.impl.IdTermsTransformer;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
+
+class BinarySearchServerTest {
+
+    PathIdIndex index;
+    BinarySearchServer server;
+    BinarySearchClient client;
+
+    Path file1 = Paths.get("/dir/sub/file1.txt");
+    Path file2 = Paths.get("/dir/sub/file2.txt");
+    Path file3 = Paths.get("/dir/other.txt");
+
+    @BeforeEach
+    public void init() throws Exception {
+        PathTable pathTable = new TreePathTable();
+        // the index holds references to the indexed files
+        int id1 = pathTable.getOrAssignId(file1);
+        int id2 = pathTable.getOrAssignId(file2);
+        int id3 = pathTable.getOrAssignId(file3);
+        index = mock(PathIdIndex.class);
+        when(index.searchIds(any())).thenReturn(createSet());
+        when(index.searchIds(new ExactTerm(new WordTerm("a")))).thenReturn(createSet(id1, id2, id3));
+        when(index.searchIds(new ExactTerm(new WordTerm("b")))).thenReturn(createSet(id2));
+        server = new BinarySearchServer(index, new IdTermsTransformer(), pathTable, 0, 1);
+        client = new BinarySearchClient("localhost", server.getPort());
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldFindIdsOfFilesAndTheirPaths() throws IOException {
+        int[] ids = client.search("a");
+        List<String> paths = client.paths(ids);
+
+        assertEquals(
+                new HashSet<>(Arrays.asList(path(file1), path(file2), path(file3))),
+                new HashSet<>(paths)
+        );
+    }
+
+    @Test
+    public void shouldKeepIdsOfFilesBetweenSearches() throws IOException {
+        int[] allIds = client.search("a");
+        List<String> allPaths = client.paths(allIds);
+        int[] ids = client.search("b");
+
+        Assertions.assertAll(
+                () -> assertEquals(1, ids.length),
+                () -> assertEquals(path(file2), allPaths.get(Arrays.binarySearch(allIds, ids[0]))),
+                () -> assertEquals(3, client.cachedPaths())
+        );
+    }
+
+    @Test
+    public void shouldFindNothing() throws IOException {
+        int[] ids = client.search("c");
+        Assertions.assertAll(
+                () -> assertArrayEquals(new int[0], ids),
+                () -> assertEquals(0, client.paths(ids).size())
+        );
+    }
+
+    @Test
+    public void shouldFailOnUnknownId() throws IOException {
+        assertThrows(IOException.class, () -> client.paths(new int[]{42}));
+        // the connection is still usable
+        assertEquals(3, client.search("a").length);
+    }
+
+    private static String path(Path path) {
+        return FileUtil.getCanonicalPath(path);
+    }
+}
@@ -0,0 +1,137 @@
+package ru.mpoplavkov.indexation.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a deterministic synthetic corpus. Words are drawn from a
+ * generated vocabulary according to the Zipf distribution, the same way as
+ * in natural language texts: a few words are very frequent, most of the
+ * words are rare.
+ */
+public class CorpusGenerator {
+
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final int WORDS_PER_LINE = 12;
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private final Random random;
+    private final List<String> vocabulary;
+
+    /**
+     * Cumulative probabilities of vocabulary words.
+     */
+    private final double[] cumulative;
+
+    /**
+     * Creates the generator.
+     *
+     * @param vocabularySize number of distinct words in the corpus.
+     * @param seed           seed of the random generator.
+     */
+    public CorpusGenerator(int vocabularySize, long seed) {
+        this.random = new Random(seed);
+        this.vocabulary = generateVocabulary(vocabularySize);
+        this.cumulative = new double[vocabularySize];
+        double sum = 0;
+        for (int rank = 1; rank <= vocabularySize; rank++) {
+            sum += 1 / Math.pow(rank, ZIPF_EXPONENT);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < vocabularySize; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    public List<String> getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * @return a random word, the more frequent the lower is its rank.
+     */
+    public String nextWord() {
+        double p = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < p) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return vocabulary.get(low);
+    }
+
+    /**
+     * Generates a text document. Some words are capitalized, and words
+     * are separated by different whitespaces.
+     *
+     * @param wordsCount number of words in the document.
+     * @return the document.
+     */
+    public String nextDocument(int wordsCount) {
+        StringBuilder sb = new StringBuilder(wordsCount * 8);
+        for (int i = 1; i <= wordsCount; i++) {
+            String word = nextWord();
+            if (random.nextInt(10) == 0) {
+                sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                sb.append(word);
+            }
+            if (i % WORDS_PER_LINE == 0) {
+                sb.append('\n');
+            } else {
+                sb.append(random.nextInt(20) == 0 ? "\t" : " ");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes documents into the directory, spreading them among nested
+     * subdirectories.
+     *
+     * @param dir           root directory of the corpus.
+     * @param filesCount    number of files to write.
+     * @param filesPerDir   number of files in one directory.
+     * @param wordsPerFile  number of words in one file.
+     * @return written files.
+     * @throws IOException if an I/O error occurs.
+     */
+    public List<Path> writeFiles(Path dir, int filesCount, int filesPerDir, int wordsPerFile) throws IOException {
+        List<Path> files = new ArrayList<>(filesCount);
+        Path currentDir = dir;
+        for (int i = 0; i < filesCount; i++) {
+            if (i > 0 && i % filesPerDir == 0) {
+                currentDir = Files.createDirectories(dir.resolve("dir" + (i / filesPerDir)));
+            }
+            Path file = currentDir.resolve("file" + i + ".txt");
+            Files.write(file, nextDocument(wordsPerFile).getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+
+    private List<String> generateVocabulary(int size) {
+        List<String> words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            // short words are more frequent
+            int length = 2 + Math.min(i / (size / 8 + 1), 10) + random.nextInt(3);
+            StringBuilder sb = new StringBuilder(length + 8);
+            for (int j = 0; j < length; j++) {
+                sb.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+            }
+            // make words unique
+            words.add(sb.append(i).toString());
+        }
+        return words;
+    }
+}
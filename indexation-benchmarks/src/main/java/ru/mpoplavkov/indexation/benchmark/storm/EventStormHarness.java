@@ -0,0 +1,243 @@
+package ru.mpoplavkov.indexation.benchmark.storm;
+
+import lombok.Data;
+import ru.mpoplavkov.indexation.benchmark.CorpusGenerator;
+import ru.mpoplavkov.indexation.benchmark.storm.impl.DeepTreeChurnScenario;
+import ru.mpoplavkov.indexation.benchmark.storm.impl.LogAppendScenario;
+import ru.mpoplavkov.indexation.benchmark.storm.impl.MassCreateScenario;
+import ru.mpoplavkov.indexation.benchmark.storm.impl.RenameStormScenario;
+import ru.mpoplavkov.indexation.filter.PathFilter;
+import ru.mpoplavkov.indexation.filter.impl.TextPathFilter;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.index.impl.VersionedTermIndex;
+import ru.mpoplavkov.indexation.listener.FileSystemSubscriber;
+import ru.mpoplavkov.indexation.listener.impl.WatchServiceFSSubscriber;
+import ru.mpoplavkov.indexation.text.analyzer.impl.ChainAnalyzer;
+import ru.mpoplavkov.indexation.text.tokenfilter.impl.LowercaseTokenFilter;
+import ru.mpoplavkov.indexation.text.tokenizer.impl.WhitespaceTokenizer;
+import ru.mpoplavkov.indexation.trigger.impl.IndexUpdateFileChangeEventTrigger;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Macro benchmark of the file system events processing. Drives the
+ * {@link WatchServiceFSSubscriber} with the {@link IndexUpdateFileChangeEventTrigger}
+ * through scripted workloads in a temporary directory and reports for
+ * each workload and number of listener threads:
+ * <ul>
+ *     <li>processed events per second;</li>
+ *     <li>percentiles of the lag between a change of a file and its visibility in the index;</li>
+ *     <li>number of changes, that never became visible (e.g. lost due to an overflow);</li>
+ *     <li>growth of the used heap after the workload.</li>
+ * </ul>
+ *
+ * <p>Arguments are passed in the {@code key=value} form, see
+ * {@link EventStormHarness#DEFAULTS} for the supported keys.
+ */
+public class EventStormHarness {
+
+    private static final long SEED = 42;
+    private static final int VOCABULARY_SIZE = 50_000;
+    private static final double BYTES_IN_MB = 1024 * 1024;
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("threads", "1,2,4");
+        DEFAULTS.put("scenarios", "mass-create,log-append,rename-storm,deep-tree-churn");
+        DEFAULTS.put("files", "2000");
+        DEFAULTS.put("words", "200");
+        DEFAULTS.put("logFiles", "4");
+        DEFAULTS.put("hz", "200");
+        DEFAULTS.put("duration", "10");
+        DEFAULTS.put("rounds", "5");
+        DEFAULTS.put("depth", "4");
+        DEFAULTS.put("width", "3");
+        DEFAULTS.put("timeout", "60");
+    }
+
+    private final Map<String, String> params;
+
+    public EventStormHarness(Map<String, String> params) {
+        this.params = params;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2 || !DEFAULTS.containsKey(keyValue[0])) {
+                throw new IllegalArgumentException(
+                        String.format("Unsupported argument '%s'. Supported keys with defaults: %s", arg, DEFAULTS)
+                );
+            }
+            params.put(keyValue[0], keyValue[1]);
+        }
+
+        List<StormResult> results = new EventStormHarness(params).runAll();
+        System.out.println();
+        System.out.println(String.format("%-20s %7s %8s %10s %9s %9s %9s %9s %6s %10s",
+                "scenario", "threads", "events", "events/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "lost", "heap MB"));
+        for (StormResult result : results) {
+            System.out.println(String.format("%-20s %7d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %6d %10.2f",
+                    result.getScenario(),
+                    result.getThreads(),
+                    result.getEvents(),
+                    result.getEventsPerSecond(),
+                    result.getLagP50Millis(),
+                    result.getLagP90Millis(),
+                    result.getLagP99Millis(),
+                    result.getLagMaxMillis(),
+                    result.getLost(),
+                    result.getHeapGrowthMb()));
+        }
+    }
+
+    /**
+     * Runs every scenario with every number of listener threads.
+     *
+     * @return results of the runs.
+     * @throws IOException          if an I/O error occurs.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    public List<StormResult> runAll() throws IOException, InterruptedException {
+        Map<String, Supplier<Scenario>> scenarios = scenarios();
+        List<StormResult> results = new ArrayList<>();
+        for (String threads : params.get("threads").split(",")) {
+            for (String name : params.get("scenarios").split(",")) {
+                Supplier<Scenario> scenario = scenarios.get(name);
+                if (scenario == null) {
+                    throw new IllegalArgumentException(
+                            String.format("Unknown scenario '%s'. Known scenarios: %s", name, scenarios.keySet())
+                    );
+                }
+                StormResult result = run(scenario.get(), Integer.parseInt(threads));
+                System.out.println(result);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs the scenario against a fresh index in a fresh directory.
+     *
+     * @param scenario scenario to run.
+     * @param threads  number of listener threads.
+     * @return result of the run.
+     * @throws IOException          if an I/O error occurs.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    public StormResult run(Scenario scenario, int threads) throws IOException, InterruptedException {
+        Path root = FileUtil.toCanonicalPath(Files.createTempDirectory("event-storm"));
+        PathFilter pathFilter = new TextPathFilter();
+        TermIndex<Path> index = new VersionedTermIndex<>();
+        ChainAnalyzer analyzer = new ChainAnalyzer(new WhitespaceTokenizer(), new LowercaseTokenFilter());
+        VisibilityTracker tracker = new VisibilityTracker(
+                new IndexUpdateFileChangeEventTrigger(index, pathFilter, analyzer)
+        );
+        FileSystemSubscriber subscriber = new WatchServiceFSSubscriber(pathFilter, tracker);
+        try {
+            scenario.prepare(root);
+            subscriber.startToListenForEvents(threads);
+            subscriber.subscribe(root);
+            tracker.reset();
+
+            long heapBefore = usedHeapAfterGc();
+            long start = System.nanoTime();
+            scenario.run(root, tracker);
+            int lost = tracker.awaitPending(Long.parseLong(params.get("timeout")), TimeUnit.SECONDS);
+            long elapsedNanos = Math.max(tracker.getLastEventNanos() - start, 1);
+            long heapAfter = usedHeapAfterGc();
+
+            LatencyRecorder lags = tracker.getLags();
+            long events = tracker.getProcessedEvents();
+            return new StormResult(
+                    scenario.name(),
+                    threads,
+                    events,
+                    events * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos,
+                    lags.percentileMillis(50),
+                    lags.percentileMillis(90),
+                    lags.percentileMillis(99),
+                    lags.percentileMillis(100),
+                    lost,
+                    (heapAfter - heapBefore) / BYTES_IN_MB
+            );
+        } finally {
+            subscriber.close();
+            index.close();
+            deleteRecursively(root);
+        }
+    }
+
+    private Map<String, Supplier<Scenario>> scenarios() {
+        int files = intParam("files");
+        int words = intParam("words");
+        int rounds = intParam("rounds");
+        Map<String, Supplier<Scenario>> scenarios = new LinkedHashMap<>();
+        scenarios.put("mass-create", () ->
+                new MassCreateScenario(newGenerator(), files, words));
+        scenarios.put("log-append", () ->
+                new LogAppendScenario(newGenerator(), intParam("logFiles"), intParam("hz"), intParam("duration")));
+        scenarios.put("rename-storm", () ->
+                new RenameStormScenario(newGenerator(), files / rounds, words, rounds));
+        scenarios.put("deep-tree-churn", () ->
+                new DeepTreeChurnScenario(newGenerator(), intParam("depth"), intParam("width"), 3, words, rounds));
+        return scenarios;
+    }
+
+    private int intParam(String key) {
+        return Integer.parseInt(params.get(key));
+    }
+
+    private static CorpusGenerator newGenerator() {
+        return new CorpusGenerator(VOCABULARY_SIZE, SEED);
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Result of one run of a scenario.
+     */
+    @Data
+    public static class StormResult {
+        private final String scenario;
+        private final int threads;
+        private final long events;
+        private final double eventsPerSecond;
+        private final double lagP50Millis;
+        private final double lagP90Millis;
+        private final double lagP99Millis;
+        private final double lagMaxMillis;
+        private final int lost;
+        private final double heapGrowthMb;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.mpoplavkov.indexation.benchmark.storm;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates latencies to calculate percentiles. Stores every recorded
+ * value, which is affordable for the number of events in a scenario.
+ */
+public class LatencyRecorder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int size;
+
+    public synchronized void record(long nanos) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+    }
+
+    public synchronized void reset() {
+        values = new long[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    public synchronized int count() {
+        return size;
+    }
+
+    /**
+     * @param percentile percentile from 0 to 100.
+     * @return the latency in milliseconds, or zero, if nothing was recorded.
+     */
+    public synchronized double percentileMillis(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        long nanos = sorted[Math.max(0, Math.min(index, size - 1))];
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.mpoplavkov.indexation.benchmark.storm;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Scripted workload, that produces file system events in a directory.
+ */
+public interface Scenario {
+
+    /**
+     * @return name of the scenario to be shown in the report.
+     */
+    String name();
+
+    /**
+     * Creates the initial state of the directory. Called before the
+     * directory is subscribed to, so the created files are indexed
+     * during the subscription and are not included in the measurements.
+     *
+     * @param root root directory of the scenario.
+     * @throws IOException if an I/O error occurs.
+     */
+    void prepare(Path root) throws IOException;
+
+    /**
+     * Produces the workload. Every change of a file must be preceded by
+     * the {@link VisibilityTracker#expect} call for this file.
+     *
+     * @param root    root directory of the scenario.
+     * @param tracker tracker of changes, that are not yet visible in the index.
+     * @throws IOException          if an I/O error occurs.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    void run(Path root, VisibilityTracker tracker) throws IOException, InterruptedException;
+
+}
@@ -0,0 +1,107 @@
+package ru.mpoplavkov.indexation.benchmark.storm;
+
+import ru.mpoplavkov.indexation.model.fs.FileSystemEvent;
+import ru.mpoplavkov.indexation.trigger.FSEventTrigger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trigger, that delegates events to the underlying one and measures the
+ * time between a change of a file and the moment, when the change becomes
+ * visible in the index.
+ *
+ * <p>Several changes of the same file could be coalesced into one event,
+ * so the lag is measured from the earliest change, that was not yet
+ * processed.
+ */
+public class VisibilityTracker implements FSEventTrigger {
+
+    private final FSEventTrigger delegate;
+
+    /**
+     * Files, which changes are not yet processed, with the time of the
+     * earliest unprocessed change in nanoseconds.
+     */
+    private final Map<Path, Long> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong processedEvents = new AtomicLong();
+    private final AtomicLong lastEventNanos = new AtomicLong();
+    private final LatencyRecorder lags = new LatencyRecorder();
+
+    public VisibilityTracker(FSEventTrigger delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Marks the file as about to be changed.
+     *
+     * @param file canonical path of the file.
+     */
+    public void expect(Path file) {
+        pending.putIfAbsent(file, System.nanoTime());
+    }
+
+    @Override
+    public void onEvent(FileSystemEvent event) throws IOException {
+        onEventAsync(event);
+    }
+
+    /**
+     * Measures the lag, when the change is applied to the index.
+     */
+    @Override
+    public CompletableFuture<Void> onEventAsync(FileSystemEvent event) throws IOException {
+        return delegate.onEventAsync(event).thenRun(() -> {
+            long now = System.nanoTime();
+            processedEvents.incrementAndGet();
+            lastEventNanos.set(now);
+            Long changedAt = pending.remove(event.getEntry());
+            if (changedAt != null) {
+                lags.record(now - changedAt);
+            }
+        });
+    }
+
+    /**
+     * Waits until all the expected changes are processed.
+     *
+     * @param timeout maximum time to wait.
+     * @param unit    time unit of the timeout.
+     * @return number of changes, that were not processed in time.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    public int awaitPending(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!pending.isEmpty() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return pending.size();
+    }
+
+    /**
+     * Forgets all the unprocessed changes and recorded measurements.
+     */
+    public void reset() {
+        pending.clear();
+        processedEvents.set(0);
+        lags.reset();
+    }
+
+    public long getProcessedEvents() {
+        return processedEvents.get();
+    }
+
+    public long getLastEventNanos() {
+        return lastEventNanos.get();
+    }
+
+    public LatencyRecorder getLags() {
+        return lags;
+    }
+}
@@ -0,0 +1,79 @@
+package ru.mpoplavkov.indexation.benchmark.storm.impl;
+
+import lombok.RequiredArgsConstructor;
+import ru.mpoplavkov.indexation.benchmark.CorpusGenerator;
+import ru.mpoplavkov.indexation.benchmark.storm.Scenario;
+import ru.mpoplavkov.indexation.benchmark.storm.VisibilityTracker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Repeatedly creates and deletes a deep directory tree, like a build
+ * does with its output directory. Files in the tree are only noticed
+ * after their directories are registered to the watcher, so this
+ * scenario also shows the number of lost events.
+ */
+@RequiredArgsConstructor
+public class DeepTreeChurnScenario implements Scenario {
+
+    private final CorpusGenerator generator;
+    private final int depth;
+    private final int width;
+    private final int filesPerDir;
+    private final int wordsPerFile;
+    private final int rounds;
+
+    @Override
+    public String name() {
+        return "deep-tree-churn";
+    }
+
+    @Override
+    public void prepare(Path root) {
+    }
+
+    @Override
+    public void run(Path root, VisibilityTracker tracker) throws IOException {
+        for (int round = 0; round < rounds; round++) {
+            Path tree = root.resolve("tree" + round);
+            createTree(tree, depth, tracker);
+            deleteTree(tree, tracker);
+        }
+    }
+
+    private void createTree(Path dir, int levelsLeft, VisibilityTracker tracker) throws IOException {
+        Files.createDirectory(dir);
+        for (int i = 0; i < filesPerDir; i++) {
+            Path file = dir.resolve("file" + i + ".txt");
+            byte[] content = generator.nextDocument(wordsPerFile).getBytes(StandardCharsets.UTF_8);
+            tracker.expect(file);
+            Files.write(file, content);
+        }
+        if (levelsLeft > 1) {
+            for (int i = 0; i < width; i++) {
+                createTree(dir.resolve("dir" + i), levelsLeft - 1, tracker);
+            }
+        }
+    }
+
+    private static void deleteTree(Path tree, VisibilityTracker tracker) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(tree)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toCollection(ArrayList::new));
+        }
+        for (Path path : paths) {
+            if (Files.isRegularFile(path)) {
+                tracker.expect(path);
+            }
+            Files.delete(path);
+        }
+    }
+}
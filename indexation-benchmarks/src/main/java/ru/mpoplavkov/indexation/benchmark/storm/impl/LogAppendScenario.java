@@ -0,0 +1,64 @@
+package ru.mpoplavkov.indexation.benchmark.storm.impl;
+
+import lombok.RequiredArgsConstructor;
+import ru.mpoplavkov.indexation.benchmark.CorpusGenerator;
+import ru.mpoplavkov.indexation.benchmark.storm.Scenario;
+import ru.mpoplavkov.indexation.benchmark.storm.VisibilityTracker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends lines to log files with the given frequency. Every append
+ * makes the whole file to be reindexed, so the cost of an event grows
+ * along with the file.
+ */
+@RequiredArgsConstructor
+public class LogAppendScenario implements Scenario {
+
+    private static final int WORDS_PER_LINE = 12;
+
+    private final CorpusGenerator generator;
+    private final int filesCount;
+    private final int appendsPerSecond;
+    private final int durationSeconds;
+
+    @Override
+    public String name() {
+        return String.format("log-append@%dHz", appendsPerSecond);
+    }
+
+    @Override
+    public void prepare(Path root) throws IOException {
+        for (int i = 0; i < filesCount; i++) {
+            Files.createFile(logFile(root, i));
+        }
+    }
+
+    @Override
+    public void run(Path root, VisibilityTracker tracker) throws IOException {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / appendsPerSecond;
+        long appendsCount = (long) appendsPerSecond * durationSeconds;
+        long start = System.nanoTime();
+        for (long i = 0; i < appendsCount; i++) {
+            // keep the rate stable regardless of the time spent on writes
+            long sleepNanos = start + i * periodNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(sleepNanos);
+            }
+            Path file = logFile(root, (int) (i % filesCount));
+            String line = generator.nextDocument(WORDS_PER_LINE);
+            tracker.expect(file);
+            Files.write(file, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        }
+    }
+
+    private static Path logFile(Path root, int i) {
+        return root.resolve("app" + i + ".log");
+    }
+}
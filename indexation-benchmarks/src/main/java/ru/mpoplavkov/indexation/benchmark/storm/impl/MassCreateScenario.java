@@ -0,0 +1,42 @@
+package ru.mpoplavkov.indexation.benchmark.storm.impl;
+
+import lombok.RequiredArgsConstructor;
+import ru.mpoplavkov.indexation.benchmark.CorpusGenerator;
+import ru.mpoplavkov.indexation.benchmark.storm.Scenario;
+import ru.mpoplavkov.indexation.benchmark.storm.VisibilityTracker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Creates files in one directory as fast as possible, like unpacking of
+ * an archive or a checkout of a repository does.
+ */
+@RequiredArgsConstructor
+public class MassCreateScenario implements Scenario {
+
+    private final CorpusGenerator generator;
+    private final int filesCount;
+    private final int wordsPerFile;
+
+    @Override
+    public String name() {
+        return "mass-create";
+    }
+
+    @Override
+    public void prepare(Path root) {
+    }
+
+    @Override
+    public void run(Path root, VisibilityTracker tracker) throws IOException {
+        for (int i = 0; i < filesCount; i++) {
+            Path file = root.resolve("file" + i + ".txt");
+            byte[] content = generator.nextDocument(wordsPerFile).getBytes(StandardCharsets.UTF_8);
+            tracker.expect(file);
+            Files.write(file, content);
+        }
+    }
+}
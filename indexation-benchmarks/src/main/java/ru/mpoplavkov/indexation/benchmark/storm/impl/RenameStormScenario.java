@@ -0,0 +1,55 @@
+package ru.mpoplavkov.indexation.benchmark.storm.impl;
+
+import lombok.RequiredArgsConstructor;
+import ru.mpoplavkov.indexation.benchmark.CorpusGenerator;
+import ru.mpoplavkov.indexation.benchmark.storm.Scenario;
+import ru.mpoplavkov.indexation.benchmark.storm.VisibilityTracker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Renames files back and forth, like editors and build tools do while
+ * saving files atomically. Every rename produces a deletion of the old
+ * path and a creation of the new one.
+ */
+@RequiredArgsConstructor
+public class RenameStormScenario implements Scenario {
+
+    private final CorpusGenerator generator;
+    private final int filesCount;
+    private final int wordsPerFile;
+    private final int rounds;
+
+    @Override
+    public String name() {
+        return "rename-storm";
+    }
+
+    @Override
+    public void prepare(Path root) throws IOException {
+        for (int i = 0; i < filesCount; i++) {
+            byte[] content = generator.nextDocument(wordsPerFile).getBytes(StandardCharsets.UTF_8);
+            Files.write(file(root, i, 0), content);
+        }
+    }
+
+    @Override
+    public void run(Path root, VisibilityTracker tracker) throws IOException {
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < filesCount; i++) {
+                Path source = file(root, i, round);
+                Path target = file(root, i, round + 1);
+                tracker.expect(source);
+                tracker.expect(target);
+                Files.move(source, target);
+            }
+        }
+    }
+
+    private static Path file(Path root, int i, int round) {
+        return root.resolve("file" + i + (round % 2 == 0 ? "-a" : "-b") + ".txt");
+    }
+}
@@ -0,0 +1,83 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.mpoplavkov.indexation.index.KeyMultiValueStorage;
+import ru.mpoplavkov.indexation.util.ExecutorsUtil;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput of the {@link ConcurrentKeyMultiWeakValueStorage}.
+ *
+ * <p>Values are weakly referenced by the storage, so all of them are
+ * strongly held by the benchmark state, otherwise the garbage collector
+ * would make the results unpredictable.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentKeyMultiWeakValueStorageBenchmark {
+
+    @Param({"1000", "100000"})
+    int keysCount;
+
+    @Param({"10"})
+    int valuesPerKey;
+
+    ScheduledExecutorService cleanupExecutor;
+    KeyMultiValueStorage<Integer, Object> storage;
+    Object[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(new ExecutorsUtil.DaemonThreadFactory("storage-cleaner"));
+        storage = new ConcurrentKeyMultiWeakValueStorage<>(cleanupExecutor);
+        values = new Object[keysCount * valuesPerKey];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new Object();
+            storage.put(i % keysCount, values[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        storage.close();
+        cleanupExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Set<Object> get() {
+        return storage.get(ThreadLocalRandom.current().nextInt(keysCount));
+    }
+
+    /**
+     * Puts values, that are already in the storage, so that the size of the
+     * storage doesn't change between iterations.
+     */
+    @Benchmark
+    @Threads(4)
+    public void put() {
+        int i = ThreadLocalRandom.current().nextInt(values.length);
+        storage.put(i % keysCount, values[i]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void putAndDelete(Blackhole bh) {
+        int key = ThreadLocalRandom.current().nextInt(keysCount);
+        Object value = new Object();
+        storage.put(key, value);
+        storage.delete(key, value);
+        bh.consume(value);
+    }
+}
@@ -0,0 +1,161 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.openjdk.jmh.annotations.*;
+import ru.mpoplavkov.indexation.benchmark.CorpusGenerator;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.util.ExecutorsUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput of the {@link VersionedTermIndex} under different
+ * ratios of reading and writing threads. Documents are reindexed with the
+ * same set of terms, so the index doesn't grow during the benchmark.
+ *
+ * <p>The {@code eager} storage is the {@link ConcurrentKeyMultiValueStorage},
+ * used by default, where replaced versions are retired by their writers.
+ * The {@code weak} storage is the {@link ConcurrentKeyMultiWeakValueStorage},
+ * where old versions wait for the garbage collection and the cleanups of
+ * the storage.
+ *
+ * <p>Terms of documents and queries follow the Zipf distribution, so most
+ * of the queries hit long posting lists of frequent terms.
+ *
+ * <p>With more than one shard, the {@link ShardedTermIndex} of the same
+ * total capacity is measured instead.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VersionedTermIndexBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"10000"})
+    int documentsCount;
+
+    @Param({"100"})
+    int wordsPerDocument;
+
+    @Param({"50000"})
+    int vocabularySize;
+
+    @Param({"1", "4"})
+    int shards;
+
+    @Param({"eager", "weak"})
+    String storage;
+
+    ScheduledExecutorService cleanupExecutor;
+    TermIndex<Integer> index;
+    List<Set<Term>> documents;
+    List<Query> queries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CorpusGenerator generator = new CorpusGenerator(vocabularySize, SEED);
+        documents = new ArrayList<>(documentsCount);
+        for (int i = 0; i < documentsCount; i++) {
+            Set<Term> terms = new LinkedHashSet<>();
+            for (int j = 0; j < wordsPerDocument; j++) {
+                terms.add(new WordTerm(generator.nextWord()));
+            }
+            documents.add(terms);
+        }
+        queries = new ArrayList<>(documentsCount);
+        for (int i = 0; i < documentsCount; i++) {
+            queries.add(new ExactTerm(new WordTerm(generator.nextWord())));
+        }
+
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ExecutorsUtil.DaemonThreadFactory("storage-cleaner")
+        );
+        if (shards > 1) {
+            index = new ShardedTermIndex<>(shards, shard -> createIndex(documentsCount / shards));
+        } else {
+            index = createIndex(documentsCount);
+        }
+        for (int i = 0; i < documentsCount; i++) {
+            index.index(i, documents.get(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+        cleanupExecutor.shutdownNow();
+    }
+
+    private TermIndex<Integer> createIndex(int initialCapacity) {
+        if ("weak".equals(storage)) {
+            return new VersionedTermIndex<>(cleanupExecutor, initialCapacity);
+        }
+        return new VersionedTermIndex<>();
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public Set<Integer> readOnlySearch() {
+        return search();
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(3)
+    public Set<Integer> readHeavySearch() {
+        return search();
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public void readHeavyIndex() {
+        reindex();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(1)
+    public Set<Integer> writeHeavySearch() {
+        return search();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(3)
+    public void writeHeavyIndex() {
+        reindex();
+    }
+
+    @Benchmark
+    @Group("writeOnly")
+    @GroupThreads(4)
+    public void writeOnlyIndex() {
+        reindex();
+    }
+
+    private Set<Integer> search() {
+        return index.search(queries.get(ThreadLocalRandom.current().nextInt(queries.size())));
+    }
+
+    private void reindex() {
+        int document = ThreadLocalRandom.current().nextInt(documentsCount);
+        index.index(document, documents.get(document));
+    }
+}
@@ -0,0 +1,99 @@
+package ru.mpoplavkov.indexation.service.impl;
+
+import org.openjdk.jmh.annotations.*;
+import ru.mpoplavkov.indexation.benchmark.CorpusGenerator;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.service.FileSystemIndexService;
+import ru.mpoplavkov.indexation.text.analyzer.impl.ChainAnalyzer;
+import ru.mpoplavkov.indexation.text.extractor.impl.SplitBySpaceTermsExtractor;
+import ru.mpoplavkov.indexation.text.tokenfilter.impl.LowercaseTokenFilter;
+import ru.mpoplavkov.indexation.text.tokenizer.impl.WhitespaceTokenizer;
+import ru.mpoplavkov.indexation.text.transformer.impl.LowercaseTransformer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time to index a directory from scratch with the
+ * {@link FileSystemIndexServiceImpl}: crawling, filtering, reading files,
+ * extracting terms and writing them into the index. The initial crawl is
+ * performed synchronously by {@link FileSystemIndexService#addToIndex},
+ * so the benchmark method covers the whole ingest.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileSystemIndexServiceIngestBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"1000"})
+    int filesCount;
+
+    @Param({"50"})
+    int filesPerDirectory;
+
+    @Param({"500"})
+    int wordsPerFile;
+
+    @Param({"50000"})
+    int vocabularySize;
+
+    @Param({"splitBySpace", "chain"})
+    String analyzer;
+
+    Path corpusDir;
+    String frequentWord;
+    FileSystemIndexService service;
+
+    @Setup(Level.Trial)
+    public void writeCorpus() throws IOException {
+        corpusDir = Files.createTempDirectory("indexation-benchmark");
+        CorpusGenerator generator = new CorpusGenerator(vocabularySize, SEED);
+        generator.writeFiles(corpusDir, filesCount, filesPerDirectory, wordsPerFile);
+        frequentWord = generator.getVocabulary().get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() throws IOException {
+        try (Stream<Path> paths = Files.walk(corpusDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createService() throws IOException {
+        if ("chain".equals(analyzer)) {
+            ChainAnalyzer chainAnalyzer = new ChainAnalyzer(new WhitespaceTokenizer(), new LowercaseTokenFilter());
+            service = FileSystemIndexServiceImpl.builder(chainAnalyzer, chainAnalyzer)
+                    .listenerThreadsCount(1)
+                    .build();
+        } else {
+            service = new FileSystemIndexServiceImpl(
+                    new SplitBySpaceTermsExtractor(),
+                    new LowercaseTransformer(),
+                    1
+            );
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeService() throws IOException {
+        service.close();
+    }
+
+    @Benchmark
+    public Set<Path> ingest() throws IOException {
+        service.addToIndex(corpusDir);
+        return service.search(new ExactTerm(new WordTerm(frequentWord)));
+    }
+}
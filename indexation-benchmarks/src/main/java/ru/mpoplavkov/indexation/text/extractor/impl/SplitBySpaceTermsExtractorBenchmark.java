@@ -0,0 +1,61 @@
+package ru.mpoplavkov.indexation.text.extractor.impl;
+
+import org.openjdk.jmh.annotations.*;
+import ru.mpoplavkov.indexation.benchmark.CorpusGenerator;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.text.analyzer.impl.ChainAnalyzer;
+import ru.mpoplavkov.indexation.text.extractor.TermsExtractor;
+import ru.mpoplavkov.indexation.text.source.Source;
+import ru.mpoplavkov.indexation.text.source.impl.StringSource;
+import ru.mpoplavkov.indexation.text.tokenfilter.impl.LowercaseTokenFilter;
+import ru.mpoplavkov.indexation.text.tokenizer.impl.WhitespaceTokenizer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to turn a document into a set of terms: the
+ * {@link SplitBySpaceTermsExtractor} compared with the
+ * {@link ChainAnalyzer}, which is used by the application by default.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SplitBySpaceTermsExtractorBenchmark {
+
+    private static final long SEED = 42;
+    private static final Path FILE = Paths.get("document.txt");
+
+    @Param({"100", "10000"})
+    int wordsCount;
+
+    @Param({"50000"})
+    int vocabularySize;
+
+    Source source;
+    TermsExtractor extractor;
+    ChainAnalyzer analyzer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = new StringSource(new CorpusGenerator(vocabularySize, SEED).nextDocument(wordsCount));
+        extractor = new SplitBySpaceTermsExtractor();
+        analyzer = new ChainAnalyzer(new WhitespaceTokenizer(), new LowercaseTokenFilter());
+    }
+
+    @Benchmark
+    public Set<Term> splitBySpace() throws IOException {
+        return extractor.extractTerms(source);
+    }
+
+    @Benchmark
+    public Set<Term> chainAnalyzer() throws IOException {
+        return analyzer.analyze(FILE, source);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.LL_Result;
+import org.openjdk.jcstress.infra.results.L_Result;
+import ru.mpoplavkov.indexation.index.KeyMultiValueStorage;
+import ru.mpoplavkov.indexation.util.CollectionsUtil;
+
+public class ConcurrentKeyMultiValueStorageConcurrencyTest {
+
+    private static final String KEY_1 = "key1";
+
+    private static final String VALUE_1 = "value_1";
+    private static final String VALUE_2 = "value_2";
+
+    @JCStressTest
+    @Description("Two threads should successfully concurrently write values with the same key to the storage")
+    @Outcome(id = "value_1;value_2", expect = Expect.ACCEPTABLE)
+    @State
+    public static class ConcurrentWriteWithTheSameKeyTest {
+
+        KeyMultiValueStorage<String, String> storage = new ConcurrentKeyMultiValueStorage<>();
+
+        @Actor
+        public void actor1() {
+            storage.put(KEY_1, VALUE_1);
+        }
+
+        @Actor
+        public void actor2() {
+            storage.put(KEY_1, VALUE_2);
+        }
+
+        @Arbiter
+        public void arbiter(L_Result r) {
+            r.r1 = CollectionsUtil.makeSortedString(storage.get(KEY_1), ";");
+        }
+    }
+
+    @JCStressTest
+    @Description("A value, written while the last value of the key is deleted, should not be lost along with the empty set")
+    @Outcome(id = "value_2, 1", expect = Expect.ACCEPTABLE)
+    @State
+    public static class ConcurrentDeleteOfTheLastValueAndWriteTest {
+
+        KeyMultiValueStorage<String, String> storage = new ConcurrentKeyMultiValueStorage<>();
+
+        {
+            storage.put(KEY_1, VALUE_1);
+        }
+
+        @Actor
+        public void actor1() {
+            storage.delete(KEY_1, VALUE_1);
+        }
+
+        @Actor
+        public void actor2() {
+            storage.put(KEY_1, VALUE_2);
+        }
+
+        @Arbiter
+        public void arbiter(LL_Result r) {
+            r.r1 = CollectionsUtil.makeSortedString(storage.get(KEY_1));
+            r.r2 = storage.valuesCount();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.II_Result;
+import ru.mpoplavkov.indexation.index.TermDictionary;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+
+public class OffHeapTermDictionaryConcurrencyTest {
+
+    private static final Term TERM_1 = new WordTerm("term1");
+    private static final Term TERM_2 = new WordTerm("term2");
+
+    @JCStressTest
+    @Description("Lookups without a lock should see either the state before the insert or after it, even if the table grows")
+    @Outcome(id = "0, -1", expect = Expect.ACCEPTABLE, desc = "The insert is not visible yet")
+    @Outcome(id = "0, 1", expect = Expect.ACCEPTABLE, desc = "The insert is visible")
+    @State
+    public static class LookupDuringInsertTest {
+
+        TermDictionary dictionary = new OffHeapTermDictionary(64, 1);
+
+        {
+            dictionary.getOrAssignId(TERM_1);
+        }
+
+        @Actor
+        public void actor1() {
+            dictionary.getOrAssignId(TERM_2);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = dictionary.getId(TERM_2);
+            r.r1 = dictionary.getId(TERM_1);
+        }
+    }
+
+    @JCStressTest
+    @Description("Two threads should get the same id for the same new term")
+    @Outcome(id = "1, 1", expect = Expect.ACCEPTABLE)
+    @State
+    public static class ConcurrentAssignOfTheSameTermTest {
+
+        TermDictionary dictionary = new OffHeapTermDictionary(64, 1);
+
+        {
+            dictionary.getOrAssignId(TERM_1);
+        }
+
+        @Actor
+        public void actor1(II_Result r) {
+            r.r1 = dictionary.getOrAssignId(TERM_2);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = dictionary.getOrAssignId(TERM_2);
+        }
+    }
+}
@@ -692,7 +692,8 @@ public class WatchServiceFsSubscriberConcurrencyTest {
     }
 
     private static String prettyTrackedPaths(WatchServiceFSSubscriber subscriber, Path path) {
-        Set<String> pathTrackedPaths = subscriber.trackedPaths.getOrDefault(path, Collections.emptySet())
+        Set<Path> children = subscriber.trackedChildren(path);
+        Set<String> pathTrackedPaths = (children == null ? Collections.<Path>emptySet() : children)
                 .stream()
                 .map(WatchServiceFsSubscriberConcurrencyTest::getFileNameFromTmpPath)
                 .collect(Collectors.toSet());
@@ -0,0 +1,161 @@
+package ru.mpoplavkov.indexation.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.index.TermDictionary;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.index.impl.CachingTermIndex;
+import ru.mpoplavkov.indexation.index.impl.ConcurrentTermDictionary;
+import ru.mpoplavkov.indexation.index.impl.OffHeapTermDictionary;
+import ru.mpoplavkov.indexation.index.impl.PathTableTermIndex;
+import ru.mpoplavkov.indexation.index.impl.ShardedTermIndex;
+import ru.mpoplavkov.indexation.index.impl.SingleWriterTermIndex;
+import ru.mpoplavkov.indexation.index.impl.SnapshotTermIndex;
+import ru.mpoplavkov.indexation.index.impl.TreePathTable;
+import ru.mpoplavkov.indexation.index.impl.VersionedTermIndex;
+import ru.mpoplavkov.indexation.metrics.FreshnessTracker;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.service.FileSystemIndexService;
+import ru.mpoplavkov.indexation.service.impl.FileSystemIndexServiceImpl;
+import ru.mpoplavkov.indexation.text.analyzer.impl.ChainAnalyzer;
+import ru.mpoplavkov.indexation.text.tokenfilter.impl.LowercaseTokenFilter;
+import ru.mpoplavkov.indexation.text.tokenizer.impl.WhitespaceTokenizer;
+import ru.mpoplavkov.indexation.util.TraceRecorder;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Wiring of the index and the service, shared by the applications.
+ */
+@Configuration
+public class IndexConfiguration implements InitializingBean {
+
+    @Value("${indexation.index.off-heap-dictionary:false}")
+    private boolean offHeapDictionary;
+
+    @Value("${indexation.index.shards:1}")
+    private int shards;
+
+    @Value("${indexation.index.apply-queue-capacity:0}")
+    private int applyQueueCapacity;
+
+    @Value("${indexation.index.snapshots:false}")
+    private boolean snapshots;
+
+    @Value("${indexation.freshness.slo:2s}")
+    private Duration freshnessSlo;
+
+    @Value("${indexation.search.cache-values:1000000}")
+    private long searchCacheValues;
+
+    @Value("${indexation.trace.sample-rate:" + TraceRecorder.DEFAULT_SAMPLE_RATE + "}")
+    private int traceSampleRate;
+
+    @Value("${indexation.subscription.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${indexation.subscriber.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${indexation.subscriber.max-open-files:256}")
+    private int maxOpenFiles;
+
+    /**
+     * The configuration is initialized before any of its beans is created,
+     * so every event of the service is recorded with the configured rate.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        TraceRecorder.setSampleRate(traceSampleRate);
+    }
+
+    /**
+     * Paths are stored once for the index and the subscriber.
+     */
+    @Bean
+    public PathTable pathTable() {
+        return new TreePathTable();
+    }
+
+    /**
+     * The dictionary is shared by all the shards, so every term is stored
+     * once. It's closed once, after the service and its shards.
+     */
+    @Bean(destroyMethod = "close")
+    public TermDictionary termDictionary() {
+        return offHeapDictionary ? new OffHeapTermDictionary() : new ConcurrentTermDictionary();
+    }
+
+    /**
+     * The same analyzer extracts terms of files and transforms terms of
+     * queries.
+     */
+    @Bean
+    public ChainAnalyzer analyzer() {
+        return new ChainAnalyzer(new WhitespaceTokenizer(), new LowercaseTokenFilter());
+    }
+
+    /**
+     * The index is closed by the service, once the service stops updating it.
+     */
+    @Bean(destroyMethod = "")
+    public PathTableTermIndex pathTableTermIndex(MeterRegistry meterRegistry,
+                                                 PathTable pathTable,
+                                                 TermDictionary dictionary) {
+        TermIndex<Integer> index;
+        if (shards > 1) {
+            index = new ShardedTermIndex<>(shards, shard -> shardIndex(
+                    dictionary,
+                    meterRegistry,
+                    Tags.of(MetricNames.TAG_SHARD, String.valueOf(shard))
+            ));
+        } else {
+            index = shardIndex(dictionary, meterRegistry, Tags.empty());
+        }
+        if (searchCacheValues > 0) {
+            index = new CachingTermIndex<>(index, searchCacheValues, meterRegistry);
+        }
+        return new PathTableTermIndex(index, pathTable);
+    }
+
+    @Bean(destroyMethod = "close")
+    public FileSystemIndexService fsIndexService(MeterRegistry meterRegistry,
+                                                 PathTable pathTable,
+                                                 PathTableTermIndex pathTableTermIndex,
+                                                 ChainAnalyzer analyzer) throws IOException {
+        return FileSystemIndexServiceImpl.builder(analyzer, analyzer)
+                .index(pathTableTermIndex)
+                .listenerThreadsCount(2)
+                .freshnessTracker(new FreshnessTracker(meterRegistry, freshnessSlo))
+                .meterRegistry(meterRegistry)
+                .maxConcurrentJobs(maxConcurrentJobs)
+                .pathTable(pathTable)
+                .virtualThreads(virtualThreads)
+                .maxOpenFiles(maxOpenFiles)
+                .build();
+    }
+
+    /**
+     * Creates the index of one shard. If the apply queue is enabled, changes
+     * of the shard are applied by its own single writer.
+     */
+    private TermIndex<Integer> shardIndex(TermDictionary dictionary, MeterRegistry meterRegistry, Tags tags) {
+        TermIndex<Integer> index = snapshots
+                ? new SnapshotTermIndex<>(dictionary, meterRegistry, tags)
+                : VersionedTermIndex.builder()
+                        .termDictionary(dictionary)
+                        .meterRegistry(meterRegistry)
+                        .tags(tags)
+                        .build();
+        if (applyQueueCapacity > 0) {
+            index = new SingleWriterTermIndex<>(index, applyQueueCapacity, meterRegistry, tags);
+        }
+        return index;
+    }
+}
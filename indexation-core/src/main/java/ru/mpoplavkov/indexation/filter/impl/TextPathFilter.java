@@ -1,20 +1,88 @@
 package ru.mpoplavkov.indexation.filter.impl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import lombok.Data;
 import lombok.extern.java.Log;
 import ru.mpoplavkov.indexation.filter.PathFilter;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Set;
 import java.util.logging.Level;
 
 /**
- * Checks if the path is a file with text content type or a directory.
+ * Checks if the path is a file with text content or a directory.
+ *
+ * <p>The content type is detected by the extension of the file. If the
+ * extension is unknown, the first few kilobytes of the file are checked:
+ * files starting with a magic number of a well known binary format,
+ * containing zero bytes or not being valid UTF-8 are rejected.
+ * Decisions are cached by the file key, the extension and the last
+ * modification time, so the file is read at most once until it's modified
+ * or renamed to another extension.
+ *
+ * <p>Paths, that don't exist anymore, are accepted, so that their
+ * deletion could be processed.
  */
 @Log
 public class TextPathFilter implements PathFilter {
 
-    private static final String TEXT_PLAIN = "text/plain";
+    private static final int DEFAULT_CACHE_SIZE = 100_000;
+    private static final int SNIFF_BYTES = 4096;
+
+    private static final Set<String> TEXT_EXTENSIONS = ImmutableSet.of(
+            "txt", "text", "log", "md", "csv", "tsv", "json", "xml", "yaml", "yml",
+            "properties", "ini", "cfg", "conf", "html", "htm", "css", "sql", "sh",
+            "java", "kt", "scala", "groovy", "c", "h", "cpp", "hpp", "cc", "cs",
+            "go", "rs", "py", "rb", "js", "ts"
+    );
+
+    private static final Set<String> BINARY_EXTENSIONS = ImmutableSet.of(
+            "png", "jpg", "jpeg", "gif", "bmp", "ico", "webp", "pdf",
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar", "war",
+            "class", "so", "dll", "exe", "bin", "o", "a", "dylib",
+            "mp3", "mp4", "avi", "mov", "wav", "ogg", "flac",
+            "woff", "woff2", "ttf", "otf",
+            "doc", "docx", "xls", "xlsx", "ppt", "pptx"
+    );
+
+    private static final byte[][] BINARY_MAGIC_NUMBERS = {
+            {(byte) 0x89, 'P', 'N', 'G'},
+            {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},
+            {'G', 'I', 'F', '8'},
+            {'%', 'P', 'D', 'F'},
+            {'P', 'K', 0x03, 0x04},
+            {0x1F, (byte) 0x8B},
+            {0x7F, 'E', 'L', 'F'},
+            {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE},
+            {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C},
+            {(byte) 0xFE, (byte) 0xFF},
+            {(byte) 0xFF, (byte) 0xFE}
+    };
+
+    private final Cache<ContentKey, Boolean> decisions;
+
+    public TextPathFilter(int cacheSize) {
+        decisions = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    public TextPathFilter() {
+        this(DEFAULT_CACHE_SIZE);
+    }
 
     @Override
     public boolean filter(Path path) {
@@ -22,10 +90,135 @@ public class TextPathFilter implements PathFilter {
             return false;
         }
         try {
-            return Files.isDirectory(path) || TEXT_PLAIN.equals(Files.probeContentType(path));
-        } catch (IOException e) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                return true;
+            }
+            if (attributes.isDirectory()) {
+                return true;
+            }
+            if (!attributes.isRegularFile()) {
+                return false;
+            }
+            Object fileKey = attributes.fileKey() != null ? attributes.fileKey() : path;
+            String extension = extensionOf(path);
+            ContentKey key = new ContentKey(fileKey, extension, attributes.lastModifiedTime().toMillis(), attributes.size());
+            return decisions.get(key, () -> isText(path, extension));
+        } catch (Exception e) {
             log.log(Level.SEVERE, e, () -> "Exception while filtering");
             return false;
         }
     }
+
+    private boolean isText(Path path, String extension) throws IOException {
+        if (TEXT_EXTENSIONS.contains(extension)) {
+            return true;
+        }
+        if (BINARY_EXTENSIONS.contains(extension)) {
+            return false;
+        }
+        byte[] head = new byte[SNIFF_BYTES];
+        int length;
+        try (InputStream is = Files.newInputStream(path)) {
+            length = readFully(is, head);
+        }
+        return isTextContent(head, length);
+    }
+
+    private static boolean isTextContent(byte[] head, int length) {
+        for (byte[] magic : BINARY_MAGIC_NUMBERS) {
+            if (startsWith(head, length, magic)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            if (head[i] == 0) {
+                return false;
+            }
+        }
+        return isValidUtf8(head, length);
+    }
+
+    /**
+     * Checks that the bytes are valid UTF-8. A sequence, truncated by the
+     * end of the checked part of the file, is considered valid.
+     */
+    private static boolean isValidUtf8(byte[] bytes, int length) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        try {
+            decoder.decode(buffer);
+            return true;
+        } catch (CharacterCodingException e) {
+            // the checked part could end in the middle of a multi byte char
+            int end = length;
+            for (int i = 1; i <= 3 && end > 0; i++) {
+                end--;
+                if ((bytes[end] & 0xC0) != 0x80) {
+                    break;
+                }
+            }
+            if (end == length || (bytes[end] & 0xC0) != 0xC0) {
+                return false;
+            }
+            try {
+                decoder.reset().decode(ByteBuffer.wrap(bytes, 0, end));
+                return true;
+            } catch (CharacterCodingException ignored) {
+                return false;
+            }
+        }
+    }
+
+    private static int readFully(InputStream is, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = is.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static boolean startsWith(byte[] bytes, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String extensionOf(Path path) {
+        Path fileName = path.getFileName();
+        if (fileName == null) {
+            return "";
+        }
+        String name = fileName.toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Identifies the content of a file along with its extension, since a
+     * rename keeps the file key and the modification time. The size is
+     * included, because the modification time resolution could be too
+     * coarse to notice quick consecutive writes.
+     */
+    @Data
+    private static class ContentKey {
+        private final Object fileKey;
+        private final String extension;
+        private final long lastModified;
+        private final long size;
+    }
 }
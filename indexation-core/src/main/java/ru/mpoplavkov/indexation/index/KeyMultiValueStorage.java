@@ -2,6 +2,7 @@ package ru.mpoplavkov.indexation.index;
 
 import java.io.Closeable;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Key-value storage, where each key is associated with a
@@ -39,4 +40,24 @@ public interface KeyMultiValueStorage<K, V> extends Closeable {
      */
     Set<V> get(K key);
 
+    /**
+     * Lazily retrieves values, associated with the given key. The stream
+     * is weakly consistent: it reflects some of the modifications, made
+     * after its creation, and never throws a
+     * {@link java.util.ConcurrentModificationException}.
+     *
+     * @param key given key.
+     * @return stream of values for the key.
+     */
+    Stream<V> stream(K key);
+
+    /**
+     * Retrieves the number of key-value associations in the storage. The
+     * result could be approximate, e.g. include values, that are about
+     * to be removed.
+     *
+     * @return number of associations.
+     */
+    long valuesCount();
+
 }
@@ -0,0 +1,21 @@
+package ru.mpoplavkov.indexation.index;
+
+import ru.mpoplavkov.indexation.model.query.Query;
+
+import java.util.Set;
+
+/**
+ * Index, that finds identifiers of paths from the {@link PathTable}
+ * without restoring the paths themselves.
+ */
+public interface PathIdIndex {
+
+    /**
+     * Searches identifiers of paths in the index. Identifiers of paths,
+     * which were removed from the table concurrently, are not skipped.
+     *
+     * @param query search query.
+     * @return identifiers of matched paths.
+     */
+    Set<Integer> searchIds(Query query);
+}
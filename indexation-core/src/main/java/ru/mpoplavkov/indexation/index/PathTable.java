@@ -0,0 +1,101 @@
+package ru.mpoplavkov.indexation.index;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Table, that associates every distinct path with a compact int
+ * identifier, so that paths could be stored as identifiers instead of
+ * full {@link Path} objects.
+ * <p>Paths are reference counted: every {@link PathTable#getOrAssignId}
+ * acquires a reference, which should be released by
+ * {@link PathTable#release}, once the holder doesn't need the identifier
+ * anymore. A path, that is not referenced, is removed from the table.
+ * Identifiers of removed paths are not resolved to other paths, even if
+ * the table reuses the storage of them, so a stale identifier is reported
+ * as unknown. Paths are canonicalized before lookups.
+ */
+public interface PathTable {
+
+    /**
+     * Identifier returned for paths that are not present in the table.
+     */
+    int NO_ID = -1;
+
+    /**
+     * Retrieves the identifier of the given path and acquires a reference
+     * to it. Assigns a new identifier if the path is not present in the
+     * table yet.
+     *
+     * @param path given path.
+     * @return identifier of the path.
+     */
+    int getOrAssignId(Path path);
+
+    /**
+     * Releases the reference to the path, acquired by
+     * {@link PathTable#getOrAssignId}. The path is removed from the table
+     * once the last reference to it is released.
+     *
+     * @param id identifier of the path.
+     * @throws IllegalArgumentException if there is no path with the given identifier.
+     */
+    void release(int id);
+
+    /**
+     * Retrieves the identifier of the given path and marks the path as
+     * indexed. The index holds a single reference to every indexed path,
+     * so a reference is acquired only if the path is not marked yet.
+     * Assigns a new identifier if the path is not present in the table yet.
+     *
+     * @param path given path.
+     * @return identifier of the path.
+     */
+    int markIndexed(Path path);
+
+    /**
+     * Removes the mark of the indexed path. The reference of the index is
+     * not released, so that the index could release it later, once the
+     * path is deleted from it.
+     *
+     * @param id identifier of the path.
+     * @return true if the path was marked as indexed, so the index should
+     * release its reference.
+     */
+    boolean unmarkIndexed(int id);
+
+    /**
+     * Retrieves the identifier of the given path without assigning a new one.
+     *
+     * @param path given path.
+     * @return identifier of the path or {@link PathTable#NO_ID} if the
+     * path is not present in the table.
+     */
+    int getId(Path path);
+
+    /**
+     * Retrieves the path by its identifier. The path is created anew on
+     * every call.
+     *
+     * @param id identifier of the path.
+     * @return the canonical path, associated with the identifier.
+     * @throws IllegalArgumentException if there is no path with the given identifier.
+     */
+    Path getPath(int id);
+
+    /**
+     * Retrieves the path by its identifier, if the path is still present
+     * in the table.
+     *
+     * @param id identifier of the path.
+     * @return the canonical path, associated with the identifier, or empty
+     * if there is no path with the given identifier.
+     */
+    Optional<Path> findPath(int id);
+
+    /**
+     * @return number of paths in the table.
+     */
+    int size();
+
+}
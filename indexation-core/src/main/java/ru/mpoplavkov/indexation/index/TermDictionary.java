@@ -0,0 +1,53 @@
+package ru.mpoplavkov.indexation.index;
+
+import ru.mpoplavkov.indexation.model.term.Term;
+
+import java.io.Closeable;
+
+/**
+ * Dictionary, that associates every distinct term with a compact
+ * int identifier.
+ * <p>Identifiers are dense, start from zero, and are never reassigned
+ * to another term.
+ * <p>After the dictionary is closed, it should not be used anymore.
+ */
+public interface TermDictionary extends Closeable {
+
+    /**
+     * Identifier returned for terms that are not present in the dictionary.
+     */
+    int NO_ID = -1;
+
+    /**
+     * Retrieves the identifier of the given term. Assigns a new identifier
+     * if the term is not present in the dictionary yet.
+     *
+     * @param term given term.
+     * @return identifier of the term.
+     */
+    int getOrAssignId(Term term);
+
+    /**
+     * Retrieves the identifier of the given term without assigning a new one.
+     *
+     * @param term given term.
+     * @return identifier of the term or {@link TermDictionary#NO_ID} if the
+     * term is not present in the dictionary.
+     */
+    int getId(Term term);
+
+    /**
+     * Retrieves the term by its identifier.
+     *
+     * @param id identifier of the term.
+     * @return the term, associated with the identifier.
+     * @throws IllegalArgumentException if there is no term with the given identifier.
+     */
+    Term getTerm(int id);
+
+    /**
+     * @return number of terms in the dictionary.
+     */
+    int size();
+
+}
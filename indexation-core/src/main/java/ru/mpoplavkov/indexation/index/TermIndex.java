@@ -1,10 +1,14 @@
 package ru.mpoplavkov.indexation.index;
 
 import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
 import ru.mpoplavkov.indexation.model.term.Term;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Term based index of values.
@@ -19,12 +23,30 @@ public interface TermIndex<V> extends Closeable {
      * <br>
      * If this value was already indexed, than this works like
      * reindex.
+     * <br>
+     * A term could be repeated. The number of its repetitions is the
+     * frequency of the term in the value, which is used for ranking.
      *
      * @param value given value.
      * @param terms given terms.
      */
     void index(V value, Iterable<Term> terms);
 
+    /**
+     * Indexes the value like {@link TermIndex#index(Object, Iterable)} and
+     * returns a future, which is completed when the change becomes
+     * searchable, or completed exceptionally if it fails. By default, the
+     * change is applied on the calling thread.
+     *
+     * @param value given value.
+     * @param terms given terms.
+     * @return future of the change.
+     */
+    default CompletableFuture<Void> indexAsync(V value, Iterable<Term> terms) {
+        index(value, terms);
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Retrieves all values from the index that match the specified query.
      *
@@ -33,10 +55,81 @@ public interface TermIndex<V> extends Closeable {
      */
     Set<V> search(Query query);
 
+    /**
+     * Retrieves values from the index that match each of the specified
+     * queries.
+     *
+     * @param queries given queries.
+     * @return matched values for each query, in the order of the queries.
+     */
+    List<Set<V>> searchAll(List<Query> queries);
+
+    /**
+     * Lazily retrieves values from the index that match the specified
+     * query. Values are read from the index as the stream is consumed,
+     * so the result is weakly consistent: a value, changed during the
+     * consumption, could be missed or retrieved twice.
+     *
+     * @param query given query.
+     * @return stream of matched values.
+     */
+    Stream<V> searchStream(Query query);
+
+    /**
+     * Counts values in the index that match the specified query.
+     *
+     * @param query given query.
+     * @return number of matched values.
+     */
+    long count(Query query);
+
+    /**
+     * Checks if there are values in the index that match the specified
+     * query.
+     *
+     * @param query given query.
+     * @return true if there is at least one matched value.
+     */
+    boolean exists(Query query);
+
+    /**
+     * Retrieves the generation of the specified query: a number, that
+     * grows every time the result of the query could change. Equal
+     * generations guarantee equal results.
+     *
+     * @param query given query.
+     * @return generation of the query.
+     */
+    long generation(Query query);
+
+    /**
+     * Retrieves at most k values, that are the most relevant to the
+     * specified query.
+     *
+     * @param query given query.
+     * @param k     maximum number of values to retrieve.
+     * @return matched values in the descending order of their relevance.
+     */
+    List<ScoredValue<V>> searchTopK(Query query, int k);
+
     /**
      * Deletes all occurrences of the given value from the index.
      *
      * @param value value to delete from the index.
      */
     void delete(V value);
+
+    /**
+     * Deletes the value like {@link TermIndex#delete(Object)} and returns
+     * a future, which is completed when the deletion becomes visible to
+     * searches, or completed exceptionally if it fails. By default, the
+     * change is applied on the calling thread.
+     *
+     * @param value value to delete from the index.
+     * @return future of the change.
+     */
+    default CompletableFuture<Void> deleteAsync(V value) {
+        delete(value);
+        return CompletableFuture.completedFuture(null);
+    }
 }
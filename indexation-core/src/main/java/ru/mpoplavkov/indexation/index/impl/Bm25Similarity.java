@@ -0,0 +1,69 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+/**
+ * Okapi BM25 relevance of a value to a term.
+ *
+ * <p>The inverse document frequency is the one from Lucene, which is
+ * always positive, so a term never decreases the relevance of a value.
+ */
+public class Bm25Similarity {
+
+    private static final double DEFAULT_K1 = 1.2;
+    private static final double DEFAULT_B = 0.75;
+
+    private final double k1;
+    private final double b;
+
+    /**
+     * Creates the similarity.
+     *
+     * @param k1 saturation of the term frequency. The higher, the more a
+     *           repeated term contributes to the relevance.
+     * @param b  normalization by the length of the value, from 0 (none) to 1 (full).
+     */
+    public Bm25Similarity(double k1, double b) {
+        if (k1 < 0 || b < 0 || b > 1) {
+            throw new IllegalArgumentException(
+                    String.format("Illegal BM25 parameters: k1 = '%s', b = '%s'", k1, b)
+            );
+        }
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    public Bm25Similarity() {
+        this(DEFAULT_K1, DEFAULT_B);
+    }
+
+    /**
+     * @param documentFrequency number of values containing the term.
+     * @param documentsCount    number of values in the index.
+     * @return inverse document frequency of the term.
+     */
+    public double idf(long documentFrequency, long documentsCount) {
+        return Math.log(1 + (documentsCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * @param idf           inverse document frequency of the term.
+     * @param frequency     number of occurrences of the term in the value.
+     * @param length        number of terms in the value.
+     * @param averageLength average number of terms in values of the index.
+     * @return relevance of the value to the term.
+     */
+    public double score(double idf, int frequency, int length, double averageLength) {
+        if (frequency == 0) {
+            return 0;
+        }
+        double norm = averageLength > 0 ? 1 - b + b * length / averageLength : 1;
+        return idf * frequency * (k1 + 1) / (frequency + k1 * norm);
+    }
+
+    /**
+     * @param idf inverse document frequency of the term.
+     * @return upper bound of the relevance of any value to the term.
+     */
+    public double maxScore(double idf) {
+        return idf * (k1 + 1);
+    }
+}
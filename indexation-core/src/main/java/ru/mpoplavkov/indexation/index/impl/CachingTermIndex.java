@@ -0,0 +1,190 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.Data;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.model.query.AnyOfTerms;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.term.Term;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Term index, that caches results of {@link TermIndex#search(Query)} of
+ * the underlying index.
+ *
+ * <p>Every result is cached along with the generation of its query,
+ * retrieved before the search. The cached result is returned only while
+ * the generation of the query stays the same, so that there is no need to
+ * invalidate results explicitly on updates.
+ *
+ * <p>The cache is bounded by the total number of values in all the cached
+ * results, and evicts the least recently used results. Queries for the same
+ * set of terms share one cache entry.
+ *
+ * @param <V> type of value to be stored in the index.
+ */
+public class CachingTermIndex<V> implements TermIndex<V> {
+
+    private static final long DEFAULT_MAXIMUM_VALUES = 1_000_000;
+
+    private final TermIndex<V> index;
+    private final Cache<Object, CachedResult<V>> cache;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    /**
+     * Creates the caching index.
+     *
+     * @param index         the underlying index. It is closed along with this index.
+     * @param maximumValues maximum number of values in all the cached results.
+     * @param meterRegistry registry to publish metrics of the cache to.
+     */
+    public CachingTermIndex(TermIndex<V> index, long maximumValues, MeterRegistry meterRegistry) {
+        this.index = index;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumValues)
+                .<Object, CachedResult<V>>weigher((key, result) -> result.getValues().size() + 1)
+                .build();
+        this.hitCounter = cacheCounter("hit", meterRegistry);
+        this.missCounter = cacheCounter("miss", meterRegistry);
+        Gauge.builder(MetricNames.SEARCH_CACHE_SIZE, cache, Cache::size)
+                .description("Number of results in the search cache")
+                .register(meterRegistry);
+    }
+
+    public CachingTermIndex(TermIndex<V> index, long maximumValues) {
+        this(index, maximumValues, Metrics.globalRegistry);
+    }
+
+    public CachingTermIndex(TermIndex<V> index) {
+        this(index, DEFAULT_MAXIMUM_VALUES);
+    }
+
+    @Override
+    public void index(V value, Iterable<Term> terms) {
+        index.index(value, terms);
+    }
+
+    /**
+     * Retrieves the cached result of the query, if its generation is the
+     * actual one. Otherwise, searches the underlying index and caches the
+     * result. Returned sets are unmodifiable.
+     *
+     * @param query given query.
+     * @return matched values.
+     */
+    @Override
+    public Set<V> search(Query query) {
+        Object key = keyOf(query);
+        // must be read before the search, so that the cached result
+        // is never older than its generation
+        long generation = index.generation(query);
+        CachedResult<V> cached = cache.getIfPresent(key);
+        if (cached != null && cached.getGeneration() == generation) {
+            hitCounter.increment();
+            return cached.getValues();
+        }
+        missCounter.increment();
+        Set<V> values = Collections.unmodifiableSet(index.search(query));
+        cache.put(key, new CachedResult<>(generation, values));
+        return values;
+    }
+
+    @Override
+    public List<Set<V>> searchAll(List<Query> queries) {
+        return index.searchAll(queries);
+    }
+
+    @Override
+    public Stream<V> searchStream(Query query) {
+        return index.searchStream(query);
+    }
+
+    @Override
+    public long count(Query query) {
+        return index.count(query);
+    }
+
+    @Override
+    public boolean exists(Query query) {
+        return index.exists(query);
+    }
+
+    @Override
+    public long generation(Query query) {
+        return index.generation(query);
+    }
+
+    @Override
+    public List<ScoredValue<V>> searchTopK(Query query, int k) {
+        return index.searchTopK(query, k);
+    }
+
+    @Override
+    public void delete(V value) {
+        index.delete(value);
+    }
+
+    @Override
+    public CompletableFuture<Void> indexAsync(V value, Iterable<Term> terms) {
+        return index.indexAsync(value, terms);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(V value) {
+        return index.deleteAsync(value);
+    }
+
+    /**
+     * Closes the underlying index.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        cache.invalidateAll();
+        index.close();
+    }
+
+    /**
+     * Normalizes the query: queries, matching any of the same terms, are
+     * equal regardless of the order and repetitions of the terms.
+     */
+    private static Object keyOf(Query query) {
+        if (query instanceof ExactTerm) {
+            return ImmutableSet.of(((ExactTerm) query).getTerm());
+        } else if (query instanceof AnyOfTerms) {
+            return ImmutableSet.copyOf(((AnyOfTerms) query).getTerms());
+        }
+        return query;
+    }
+
+    private static Counter cacheCounter(String result, MeterRegistry meterRegistry) {
+        return Counter.builder(MetricNames.SEARCH_CACHE)
+                .description("Number of requests to the search cache")
+                .tag(MetricNames.TAG_RESULT, result)
+                .register(meterRegistry);
+    }
+
+    @Data
+    private static class CachedResult<V> {
+        private final long generation;
+        private final Set<V> values;
+    }
+}
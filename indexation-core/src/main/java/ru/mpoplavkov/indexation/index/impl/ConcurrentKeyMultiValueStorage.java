@@ -0,0 +1,124 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import ru.mpoplavkov.indexation.index.KeyMultiValueStorage;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.util.TraceRecorder;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link KeyMultiValueStorage} based on {@link ConcurrentHashMap}
+ * with concurrent sets of values. Values are stored by strong references, so
+ * they stay in the storage until they are deleted explicitly. Sets are
+ * removed from the storage as soon as they become empty, so the storage
+ * never needs a full cleanup.
+ *
+ * @param <K> type of the key.
+ * @param <V> type of the value.
+ */
+public class ConcurrentKeyMultiValueStorage<K, V> implements KeyMultiValueStorage<K, V> {
+
+    private final static int DEFAULT_CAPACITY = 16;
+
+    private final Map<K, Set<V>> storage;
+
+    /**
+     * Number of values in all the sets.
+     */
+    private final LongAdder valuesCount = new LongAdder();
+
+    /**
+     * Creates the storage.
+     *
+     * @param initialCapacity initial capacity of the storage.
+     * @param meterRegistry   registry to publish metrics of the storage to.
+     * @param tags            tags to add to metrics of the storage.
+     */
+    public ConcurrentKeyMultiValueStorage(int initialCapacity, MeterRegistry meterRegistry, Iterable<Tag> tags) {
+        this.storage = new ConcurrentHashMap<>(initialCapacity);
+        Gauge.builder(MetricNames.STORAGE_KEYS, storage, Map::size)
+                .description("Number of keys in the storage")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(MetricNames.STORAGE_VALUES, valuesCount, LongAdder::sum)
+                .description("Number of values in the storage")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    public ConcurrentKeyMultiValueStorage(MeterRegistry meterRegistry, Iterable<Tag> tags) {
+        this(DEFAULT_CAPACITY, meterRegistry, tags);
+    }
+
+    public ConcurrentKeyMultiValueStorage(MeterRegistry meterRegistry) {
+        this(meterRegistry, Tags.empty());
+    }
+
+    public ConcurrentKeyMultiValueStorage() {
+        this(Metrics.globalRegistry);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        storage.compute(key, (k, values) -> {
+            Set<V> result = values == null ? ConcurrentHashMap.newKeySet() : values;
+            if (result.add(value)) {
+                valuesCount.increment();
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Deletes the value and removes the set of the key, if it became
+     * empty. Both happen atomically with respect to insertions for the
+     * same key, so a concurrently inserted value is never lost.
+     *
+     * @param key   given key.
+     * @param value value to remove from the set.
+     */
+    @Override
+    public void delete(K key, V value) {
+        storage.computeIfPresent(key, (k, values) -> {
+            if (values.remove(value)) {
+                valuesCount.decrement();
+            }
+            if (values.isEmpty()) {
+                TraceRecorder.record("storage.set.removed", k);
+                return null;
+            }
+            return values;
+        });
+    }
+
+    @Override
+    public Set<V> get(K key) {
+        Set<V> values = storage.get(key);
+        return values == null ? new HashSet<>() : new HashSet<>(values);
+    }
+
+    @Override
+    public Stream<V> stream(K key) {
+        Set<V> values = storage.get(key);
+        return values == null ? Stream.empty() : values.stream();
+    }
+
+    @Override
+    public long valuesCount() {
+        return valuesCount.sum();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -2,25 +2,51 @@ package ru.mpoplavkov.indexation.index.impl;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.java.Log;
 import ru.mpoplavkov.indexation.index.KeyMultiValueStorage;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
 import ru.mpoplavkov.indexation.util.ExecutorsUtil;
+import ru.mpoplavkov.indexation.util.TraceRecorder;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
+import java.util.stream.Stream;
 
 /**
  * Implementation of {@link KeyMultiValueStorage} based on {@link ConcurrentHashMap}
  * and {@link Cache} with weak keys. All values stored in this storage could
  * potentially be garbage collected if they don't have any strong or soft references
  * to them.
+ * <p>Only keys, whose caches may contain removed or collected values, are
+ * cleaned up. Such keys are marked dirty on deletions and when a value is
+ * collected, and are swept by several tasks in time-bounded slices.
+ * <p>The application doesn't use this storage: its index retires outdated
+ * values explicitly and keeps them in the {@link ConcurrentKeyMultiValueStorage}.
+ * The storage is used by the {@link VersionedTermIndex}, created with
+ * a cleanup executor service, for values, that are never deleted explicitly.
  *
  * @param <K> type of the key.
  * @param <V> type of the value.
@@ -30,11 +56,14 @@ public class ConcurrentKeyMultiWeakValueStorage<K, V> implements KeyMultiValueSt
 
     private final static int DEFAULT_CAPACITY = 16;
     private final static int DEFAULT_CLEAN_UP_DELAY_SECONDS = 30;
+    private final static int DEFAULT_SWEEP_PARALLELISM =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private final static Duration DEFAULT_SWEEP_SLICE = Duration.ofMillis(50);
 
-    private final Map<K, Cache<V, K>> storage;
+    private final Map<K, Cache<V, ValueReference<K, V>>> storage;
 
     /**
-     * Scheduled executor service to perform cleanup operations on all the underlying
+     * Scheduled executor service to perform cleanup operations on the underlying
      * caches. {@link Cache} will be cleaned up automatically only by performing write
      * or read operations on this cache, which is not always the case in this storage.
      * Therefore, a scheduler is needed - to schedule cleanups manually.
@@ -42,10 +71,82 @@ public class ConcurrentKeyMultiWeakValueStorage<K, V> implements KeyMultiValueSt
     private final ScheduledExecutorService cleanupExecutorService;
 
     /**
-     * Creates the storage and schedules cleanup operation with the given delay.
+     * Keys, whose caches should be cleaned up during the next sweep.
+     */
+    private final Set<K> dirtyKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Queue of references to collected values. Polled before each sweep
+     * to mark keys of the collected values dirty.
+     */
+    private final ReferenceQueue<V> collectedValues = new ReferenceQueue<>();
+
+    /**
+     * Number of sweep tasks, which are running or waiting in the executor.
+     * A new sweep is started only after all tasks of the previous one
+     * are finished.
+     */
+    private final AtomicInteger activeSweepTasks = new AtomicInteger();
+
+    private final int sweepParallelism;
+    private final long sweepSliceNanos;
+
+    /**
+     * Number of values in all the caches. Incremented on insertion of a new
+     * value and decremented on its removal from a cache, so it includes
+     * values, which are already collected, but not yet cleaned up.
+     */
+    private final LongAdder valuesCount = new LongAdder();
+
+    private final Counter reclaimedCounter;
+    private final Timer cleanupTimer;
+
+    /**
+     * Creates the storage and schedules sweeps of dirty keys.
+     *
+     * @param builder settings of the storage.
+     */
+    private ConcurrentKeyMultiWeakValueStorage(Builder builder) {
+        int sweepParallelism = builder.sweepParallelism;
+        if (sweepParallelism < 1) {
+            throw new IllegalArgumentException("Sweep parallelism should be positive: " + sweepParallelism);
+        }
+        MeterRegistry meterRegistry = builder.meterRegistry;
+        Iterable<Tag> tags = builder.tags;
+        this.storage = new ConcurrentHashMap<>(builder.initialCapacity);
+        this.cleanupExecutorService = builder.cleanupExecutorService != null
+                ? builder.cleanupExecutorService
+                : Executors.newScheduledThreadPool(sweepParallelism, new ExecutorsUtil.DaemonThreadFactory("storage-cleaner"));
+        this.sweepParallelism = sweepParallelism;
+        this.sweepSliceNanos = builder.sweepSlice.toNanos();
+        Gauge.builder(MetricNames.STORAGE_KEYS, storage, Map::size)
+                .description("Number of keys in the storage")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(MetricNames.STORAGE_VALUES, valuesCount, LongAdder::sum)
+                .description("Number of values in the storage, including collected ones, that are not yet cleaned up")
+                .tags(tags)
+                .register(meterRegistry);
+        reclaimedCounter = Counter.builder(MetricNames.STORAGE_RECLAIMED)
+                .description("Number of values removed from the storage after they were garbage collected")
+                .tags(tags)
+                .register(meterRegistry);
+        cleanupTimer = Timer.builder(MetricNames.STORAGE_CLEANUP)
+                .description("Time of cleanup slices of the storage")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(MetricNames.STORAGE_SWEEP_BACKLOG, dirtyKeys, Set::size)
+                .description("Number of dirty keys, waiting to be swept")
+                .tags(tags)
+                .register(meterRegistry);
+        cleanupExecutorService.scheduleWithFixedDelay(this::sweep, builder.cleanUpDelay, builder.cleanUpDelay, builder.unit);
+    }
+
+    /**
+     * Creates the storage and schedules sweeps of dirty keys with the given delay.
      *
      * @param cleanupExecutorService executor service to schedule cleanups on.
-     * @param cleanUpDelay           the delay between two full cleanups.
+     * @param cleanUpDelay           the delay between two sweeps.
      * @param unit                   the time unit of the cleanUpDelay parameter
      * @param initialCapacity        initial capacity of the storage.
      */
@@ -53,41 +154,47 @@ public class ConcurrentKeyMultiWeakValueStorage<K, V> implements KeyMultiValueSt
                                               long cleanUpDelay,
                                               TimeUnit unit,
                                               int initialCapacity) {
-        this.storage = new ConcurrentHashMap<>(initialCapacity);
-        this.cleanupExecutorService = cleanupExecutorService;
-        cleanupExecutorService.scheduleWithFixedDelay(this::cleanUpAllCaches, cleanUpDelay, cleanUpDelay, unit);
+        this(builder()
+                .cleanupExecutorService(cleanupExecutorService)
+                .cleanUpDelay(cleanUpDelay, unit)
+                .initialCapacity(initialCapacity));
     }
 
     public ConcurrentKeyMultiWeakValueStorage(ScheduledExecutorService cleanupExecutorService) {
-        this(cleanupExecutorService, DEFAULT_CLEAN_UP_DELAY_SECONDS, TimeUnit.SECONDS, DEFAULT_CAPACITY);
+        this(builder().cleanupExecutorService(cleanupExecutorService));
     }
 
     public ConcurrentKeyMultiWeakValueStorage(long cleanUpDelay, TimeUnit unit, int initialCapacity) {
-        this(Executors.newSingleThreadScheduledExecutor(new ExecutorsUtil.DaemonThreadFactory("storage-cleaner")),
-                cleanUpDelay,
-                unit,
-                initialCapacity
-        );
+        this(builder().cleanUpDelay(cleanUpDelay, unit).initialCapacity(initialCapacity));
     }
 
     public ConcurrentKeyMultiWeakValueStorage(int initialCapacity) {
-        this(DEFAULT_CLEAN_UP_DELAY_SECONDS, TimeUnit.SECONDS, initialCapacity);
+        this(builder().initialCapacity(initialCapacity));
     }
 
     public ConcurrentKeyMultiWeakValueStorage() {
-        this(DEFAULT_CAPACITY);
+        this(builder());
+    }
+
+    /**
+     * @return the builder of the storage.
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     @Override
     public void put(K key, V value) {
         storage.compute(key, (k, cache) -> {
-            Cache<V, K> result;
+            Cache<V, ValueReference<K, V>> result;
             if (cache == null) {
                 result = newWeakCache();
             } else {
                 result = cache;
             }
-            result.put(value, key);
+            if (result.asMap().putIfAbsent(value, new ValueReference<>(value, k, collectedValues)) == null) {
+                valuesCount.increment();
+            }
             return result;
         });
     }
@@ -96,6 +203,7 @@ public class ConcurrentKeyMultiWeakValueStorage<K, V> implements KeyMultiValueSt
     public void delete(K key, V value) {
         storage.computeIfPresent(key, (k, cache) -> {
                     cache.invalidate(value);
+                    dirtyKeys.add(k);
                     return cache;
                 }
         );
@@ -104,13 +212,27 @@ public class ConcurrentKeyMultiWeakValueStorage<K, V> implements KeyMultiValueSt
     @Override
     public Set<V> get(K key) {
         Set<V> resultSet = new HashSet<>();
-        Cache<V, K> associatedCache = storage.get(key);
+        Cache<V, ValueReference<K, V>> associatedCache = storage.get(key);
         if (associatedCache != null) {
             resultSet.addAll(associatedCache.asMap().keySet());
         }
         return resultSet;
     }
 
+    @Override
+    public Stream<V> stream(K key) {
+        Cache<V, ValueReference<K, V>> associatedCache = storage.get(key);
+        if (associatedCache == null) {
+            return Stream.empty();
+        }
+        return associatedCache.asMap().keySet().stream();
+    }
+
+    @Override
+    public long valuesCount() {
+        return valuesCount.sum();
+    }
+
     @Override
     public void close() {
         cleanupExecutorService.shutdownNow();
@@ -122,20 +244,26 @@ public class ConcurrentKeyMultiWeakValueStorage<K, V> implements KeyMultiValueSt
      * <p>The resulting cache will use identity ({@code ==}) comparison
      * to determine equality of keys.
      * Returned cache registers a {@link RemovalListener} to remove
-     * empty caches from the storage.
+     * empty caches from the storage and to count removed values.
      */
-    private Cache<V, K> newWeakCache() {
-        RemovalListener<V, K> removalListener = notification ->
-                storage.computeIfPresent(notification.getValue(), (key, cache) -> {
-                    if (cache.asMap().isEmpty()) {
-                        log.config(() ->
-                                String.format("Removing the cache for key '%s' because of '%s'", key, notification.getCause())
-                        );
-                        return null;
-                    } else {
-                        return cache;
-                    }
-                });
+    private Cache<V, ValueReference<K, V>> newWeakCache() {
+        RemovalListener<V, ValueReference<K, V>> removalListener = notification -> {
+            valuesCount.decrement();
+            if (notification.getCause() == RemovalCause.COLLECTED) {
+                reclaimedCounter.increment();
+            }
+            ValueReference<K, V> reference = notification.getValue();
+            // the entry is already removed, so its key shouldn't become dirty
+            reference.clear();
+            storage.computeIfPresent(reference.key, (key, cache) -> {
+                if (cache.asMap().isEmpty()) {
+                    TraceRecorder.record("storage.cache.removed", key);
+                    return null;
+                } else {
+                    return cache;
+                }
+            });
+        };
 
         return CacheBuilder.newBuilder()
                 .weakKeys()
@@ -143,12 +271,198 @@ public class ConcurrentKeyMultiWeakValueStorage<K, V> implements KeyMultiValueSt
                 .build();
     }
 
-    private void cleanUpAllCaches() {
+    /**
+     * Marks keys of collected values dirty and starts sweep tasks,
+     * if there are dirty keys and the previous sweep is finished.
+     */
+    private void sweep() {
         try {
-            storage.values().forEach(Cache::cleanUp);
+            markCollectedValues();
+            if (dirtyKeys.isEmpty() || !activeSweepTasks.compareAndSet(0, sweepParallelism)) {
+                return;
+            }
+            for (int i = 0; i < sweepParallelism; i++) {
+                submitSweepTask();
+            }
         } catch (Exception e) {
-            log.log(Level.SEVERE, e, () -> "Exception occurred during the full cleanup");
+            log.log(Level.SEVERE, e, () -> "Exception occurred during the sweep");
             // ignore
         }
     }
+
+    private void submitSweepTask() {
+        try {
+            cleanupExecutorService.execute(this::runSweepTask);
+        } catch (RejectedExecutionException e) {
+            activeSweepTasks.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs one slice of the sweep and resubmits the task to the executor,
+     * if there are dirty keys left, so that other tasks could get the thread.
+     */
+    private void runSweepTask() {
+        boolean finished;
+        try {
+            finished = sweepSlice();
+        } catch (Exception e) {
+            log.log(Level.SEVERE, e, () -> "Exception occurred during the sweep");
+            finished = true;
+        }
+        if (finished || cleanupExecutorService.isShutdown()) {
+            activeSweepTasks.decrementAndGet();
+        } else {
+            submitSweepTask();
+        }
+    }
+
+    /**
+     * Cleans up caches of dirty keys until there are no dirty keys left
+     * or the time of the slice is up. Each key is claimed by removing it
+     * from the dirty keys, so concurrent slices never clean up the same
+     * cache twice.
+     *
+     * @return true if there are no dirty keys left.
+     */
+    boolean sweepSlice() {
+        return cleanupTimer.record(() -> {
+            long deadline = System.nanoTime() + sweepSliceNanos;
+            Iterator<K> keys = dirtyKeys.iterator();
+            while (keys.hasNext()) {
+                K key = keys.next();
+                if (!dirtyKeys.remove(key)) {
+                    continue;
+                }
+                Cache<V, ValueReference<K, V>> cache = storage.get(key);
+                if (cache != null) {
+                    cache.cleanUp();
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    return dirtyKeys.isEmpty();
+                }
+            }
+            return true;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    void markCollectedValues() {
+        Reference<? extends V> reference;
+        while ((reference = collectedValues.poll()) != null) {
+            dirtyKeys.add(((ValueReference<K, V>) reference).key);
+        }
+    }
+
+    /**
+     * Weak reference to a value, stored in the cache of the key. Enqueued
+     * when the value is collected, to mark the key dirty.
+     */
+    private static class ValueReference<K, V> extends WeakReference<V> {
+        private final K key;
+
+        ValueReference(V value, K key, ReferenceQueue<? super V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * Builder of the {@link ConcurrentKeyMultiWeakValueStorage}. Settings,
+     * which are not given, take default values.
+     */
+    public static final class Builder {
+
+        private ScheduledExecutorService cleanupExecutorService;
+        private long cleanUpDelay = DEFAULT_CLEAN_UP_DELAY_SECONDS;
+        private TimeUnit unit = TimeUnit.SECONDS;
+        private int initialCapacity = DEFAULT_CAPACITY;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private Iterable<Tag> tags = Tags.empty();
+        private int sweepParallelism = DEFAULT_SWEEP_PARALLELISM;
+        private Duration sweepSlice = DEFAULT_SWEEP_SLICE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param cleanupExecutorService executor service to schedule cleanups on.
+         *                               By default, a new pool of the sweep
+         *                               parallelism size.
+         * @return this builder.
+         */
+        public Builder cleanupExecutorService(ScheduledExecutorService cleanupExecutorService) {
+            this.cleanupExecutorService = cleanupExecutorService;
+            return this;
+        }
+
+        /**
+         * @param cleanUpDelay the delay between two sweeps.
+         * @param unit         the time unit of the cleanUpDelay parameter.
+         * @return this builder.
+         */
+        public Builder cleanUpDelay(long cleanUpDelay, TimeUnit unit) {
+            this.cleanUpDelay = cleanUpDelay;
+            this.unit = unit;
+            return this;
+        }
+
+        /**
+         * @param initialCapacity initial capacity of the storage.
+         * @return this builder.
+         */
+        public Builder initialCapacity(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * @param meterRegistry registry to publish metrics of the storage to.
+         * @return this builder.
+         */
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * @param tags tags to add to metrics of the storage, so that several
+         *             storages could publish to one registry.
+         * @return this builder.
+         */
+        public Builder tags(Iterable<Tag> tags) {
+            this.tags = tags;
+            return this;
+        }
+
+        /**
+         * @param sweepParallelism number of tasks, sweeping dirty keys concurrently.
+         * @return this builder.
+         */
+        public Builder sweepParallelism(int sweepParallelism) {
+            this.sweepParallelism = sweepParallelism;
+            return this;
+        }
+
+        /**
+         * @param sweepSlice time, after which a sweep task yields the thread
+         *                   and resubmits itself to the executor.
+         * @return this builder.
+         */
+        public Builder sweepSlice(Duration sweepSlice) {
+            this.sweepSlice = sweepSlice;
+            return this;
+        }
+
+        /**
+         * Creates the storage and schedules sweeps of dirty keys.
+         *
+         * @param <K> type of the key.
+         * @param <V> type of the value.
+         * @return the storage.
+         */
+        public <K, V> ConcurrentKeyMultiWeakValueStorage<K, V> build() {
+            return new ConcurrentKeyMultiWeakValueStorage<>(this);
+        }
+    }
 }
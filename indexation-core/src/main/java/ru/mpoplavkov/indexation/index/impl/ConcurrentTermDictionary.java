@@ -0,0 +1,126 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import ru.mpoplavkov.indexation.index.TermDictionary;
+import ru.mpoplavkov.indexation.model.term.Term;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the {@link TermDictionary} based on the {@link ConcurrentHashMap}.
+ * The first instance of every distinct term becomes the canonical one: it is
+ * the only instance retained by the dictionary, all other equal instances
+ * could be garbage collected right after the lookup.
+ *
+ * <p>Reverse mapping from identifiers to terms is stored in fixed size
+ * chunks, so that the dictionary never copies terms while growing.
+ */
+public class ConcurrentTermDictionary implements TermDictionary {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Map<Term, Integer> ids;
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Chunks of the reverse mapping. Once allocated, a chunk is never replaced,
+     * only the outer array is copied when a new chunk is needed.
+     */
+    private volatile Term[][] chunks = new Term[0][];
+    private final Lock chunksLock = new ReentrantLock();
+
+    public ConcurrentTermDictionary(int initialCapacity) {
+        this.ids = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    public ConcurrentTermDictionary() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public int getOrAssignId(Term term) {
+        // plain get doesn't lock the bin, so lookups of already known
+        // terms don't contend with each other
+        Integer id = ids.get(term);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(term, this::register);
+    }
+
+    @Override
+    public int getId(Term term) {
+        Integer id = ids.get(term);
+        return id == null ? NO_ID : id;
+    }
+
+    @Override
+    public Term getTerm(int id) {
+        if (id >= 0) {
+            Term[][] currentChunks = chunks;
+            int chunkIndex = id >>> CHUNK_BITS;
+            if (chunkIndex < currentChunks.length) {
+                Term term = currentChunks[chunkIndex][id & CHUNK_MASK];
+                if (term != null) {
+                    return term;
+                }
+            }
+        }
+        throw new IllegalArgumentException(
+                String.format("There is no term with id '%d'", id)
+        );
+    }
+
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Does nothing, since all the terms are stored on heap.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Assigns a new identifier to the term. Called only once per distinct
+     * term, inside of the {@link ConcurrentHashMap#computeIfAbsent}, so the
+     * reverse mapping is written before the identifier becomes visible.
+     */
+    private int register(Term term) {
+        int id = nextId.getAndIncrement();
+        chunkFor(id)[id & CHUNK_MASK] = term;
+        return id;
+    }
+
+    private Term[] chunkFor(int id) {
+        int chunkIndex = id >>> CHUNK_BITS;
+        Term[][] currentChunks = chunks;
+        if (chunkIndex < currentChunks.length) {
+            return currentChunks[chunkIndex];
+        }
+        chunksLock.lock();
+        try {
+            currentChunks = chunks;
+            if (chunkIndex >= currentChunks.length) {
+                Term[][] newChunks = new Term[chunkIndex + 1][];
+                System.arraycopy(currentChunks, 0, newChunks, 0, currentChunks.length);
+                for (int i = currentChunks.length; i < newChunks.length; i++) {
+                    newChunks[i] = new Term[CHUNK_SIZE];
+                }
+                chunks = newChunks;
+                currentChunks = newChunks;
+            }
+            return currentChunks[chunkIndex];
+        } finally {
+            chunksLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import ru.mpoplavkov.indexation.index.TermDictionary;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.util.BufferUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the {@link TermDictionary}, that keeps all its data in
+ * direct {@link ByteBuffer}s, so that the heap holds only a few buffer handles
+ * regardless of the number of terms.
+ *
+ * <p>Words are encoded char by char (1 to 3 bytes per char, as in UTF-8) and
+ * appended to fixed size slabs. Lookups are performed via an open addressing
+ * hash table, which stores the hash of the word along with its identifier.
+ * Encoded words are compared with the searched word without decoding them.
+ *
+ * <p>Only {@link WordTerm}s are supported.
+ *
+ * <p>Lookups don't take any lock: the table, the addresses and the slabs are
+ * published via a volatile {@link State}, and only inserts are serialized.
+ * A lookup ignores entries, inserted after the state it has read, so it never
+ * reads a word before its address is published. {@link OffHeapTermDictionary#getTerm}
+ * decodes the word on every call, so every call allocates a new {@link WordTerm}
+ * and its String.
+ *
+ * <p>Direct memory is released explicitly, when the dictionary is closed,
+ * rather than when the garbage collector notices, that the buffers are
+ * unreachable. Outgrown tables and addresses could still be read by
+ * concurrent lookups, so they are kept until the dictionary is closed.
+ * They take less memory than the current ones, since every one is half
+ * the size of the next. The dictionary should be closed only after all
+ * the operations on it are finished: a lookup, running concurrently with
+ * the close, reads freed memory. The service waits for its subscriber and
+ * jobs to stop before it closes the index.
+ */
+public class OffHeapTermDictionary implements TermDictionary {
+
+    private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Each slot of the table consists of two ints: the hash of the word and
+     * the identifier of the word plus one. Zero identifier marks an empty slot.
+     */
+    private static final int SLOT_INTS = 2;
+    private static final int EMPTY = 0;
+
+    private final int slabSize;
+
+    /**
+     * Guards all the fields below, except the {@link OffHeapTermDictionary#state}.
+     */
+    private final Lock insertLock = new ReentrantLock();
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final List<ByteBuffer> retired = new ArrayList<>();
+    private ByteBuffer currentSlab;
+    private ByteBuffer tableMemory;
+
+    /**
+     * Addresses of the encoded words, indexed by identifiers. Higher 32 bits
+     * of an address contain the index of the slab, lower - offset in it.
+     */
+    private ByteBuffer addressesMemory;
+
+    /**
+     * The last published state. Null, once the dictionary is closed.
+     */
+    private volatile State state;
+
+    /**
+     * Creates the dictionary.
+     *
+     * @param slabSize        size of one slab with encoded words in bytes.
+     * @param initialCapacity expected number of terms.
+     */
+    public OffHeapTermDictionary(int slabSize, int initialCapacity) {
+        if (slabSize <= Integer.BYTES) {
+            throw new IllegalArgumentException(
+                    String.format("Slab size '%d' is too small", slabSize)
+            );
+        }
+        this.slabSize = slabSize;
+        int slots = Integer.highestOneBit(Math.max(initialCapacity, 1) * 2 - 1) << 1;
+        this.tableMemory = allocateTable(slots);
+        this.addressesMemory = ByteBuffer.allocateDirect(Math.max(initialCapacity, 1) * Long.BYTES);
+        this.currentSlab = newSlab(slabSize);
+        this.state = new State(
+                tableMemory.asIntBuffer(),
+                slots - 1,
+                addressesMemory.asLongBuffer(),
+                slabs.toArray(new ByteBuffer[0]),
+                0
+        );
+    }
+
+    public OffHeapTermDictionary() {
+        this(DEFAULT_SLAB_SIZE, DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public int getOrAssignId(Term term) {
+        String word = wordOf(term);
+        int hash = word.hashCode();
+        int id = find(currentState(), word, hash);
+        if (id != NO_ID) {
+            return id;
+        }
+
+        insertLock.lock();
+        try {
+            State current = currentState();
+            id = find(current, word, hash);
+            if (id != NO_ID) {
+                return id;
+            }
+            return insert(current, word, hash);
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    @Override
+    public int getId(Term term) {
+        String word = wordOf(term);
+        return find(currentState(), word, word.hashCode());
+    }
+
+    @Override
+    public Term getTerm(int id) {
+        State current = currentState();
+        if (id < 0 || id >= current.size) {
+            throw new IllegalArgumentException(
+                    String.format("There is no term with id '%d'", id)
+            );
+        }
+        return new WordTerm(decode(current, current.addresses.get(id)));
+    }
+
+    @Override
+    public int size() {
+        State current = state;
+        return current == null ? 0 : current.size;
+    }
+
+    /**
+     * Frees the direct memory of the dictionary. All further operations,
+     * except {@link OffHeapTermDictionary#size()}, will throw an
+     * {@link IllegalStateException}. Repeated calls do nothing.
+     */
+    @Override
+    public void close() {
+        insertLock.lock();
+        try {
+            if (state == null) {
+                return;
+            }
+            state = null;
+            for (ByteBuffer slab : slabs) {
+                BufferUtil.free(slab);
+            }
+            for (ByteBuffer buffer : retired) {
+                BufferUtil.free(buffer);
+            }
+            BufferUtil.free(tableMemory);
+            BufferUtil.free(addressesMemory);
+            slabs.clear();
+            retired.clear();
+            currentSlab = null;
+            tableMemory = null;
+            addressesMemory = null;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    /**
+     * Looks the word up in the table of the state. Slots, filled after the
+     * state was published, are skipped.
+     */
+    private static int find(State state, String word, int hash) {
+        IntBuffer table = state.table;
+        int slot = mix(hash) & state.tableMask;
+        while (true) {
+            int idPlusOne = table.get(slot * SLOT_INTS + 1);
+            if (idPlusOne == EMPTY) {
+                return NO_ID;
+            }
+            int id = idPlusOne - 1;
+            if (id < state.size
+                    && table.get(slot * SLOT_INTS) == hash
+                    && encodedEquals(state, word, state.addresses.get(id))) {
+                return id;
+            }
+            slot = (slot + 1) & state.tableMask;
+        }
+    }
+
+    /**
+     * Inserts the word and publishes the new state. Should be called under
+     * the {@link OffHeapTermDictionary#insertLock}.
+     */
+    private int insert(State current, String word, int hash) {
+        int id = current.size;
+        IntBuffer table = current.table;
+        int tableMask = current.tableMask;
+        if ((id + 1) * 2 > tableMask + 1) {
+            tableMask = (tableMask + 1) * 2 - 1;
+            table = rehash(current, tableMask);
+        }
+        LongBuffer addresses = current.addresses;
+        if (id >= addresses.capacity()) {
+            ByteBuffer newAddressesMemory = ByteBuffer.allocateDirect(addresses.capacity() * 2 * Long.BYTES);
+            LongBuffer newAddresses = newAddressesMemory.asLongBuffer();
+            for (int i = 0; i < id; i++) {
+                newAddresses.put(i, addresses.get(i));
+            }
+            retired.add(addressesMemory);
+            addressesMemory = newAddressesMemory;
+            addresses = newAddresses;
+        }
+        int slabsCount = slabs.size();
+        addresses.put(id, encode(word));
+        ByteBuffer[] currentSlabs = slabsCount == slabs.size()
+                ? current.slabs
+                : slabs.toArray(new ByteBuffer[0]);
+        putToTable(table, tableMask, hash, id);
+        state = new State(table, tableMask, addresses, currentSlabs, id + 1);
+        return id;
+    }
+
+    private IntBuffer rehash(State current, int newMask) {
+        ByteBuffer newTableMemory = allocateTable(newMask + 1);
+        IntBuffer newTable = newTableMemory.asIntBuffer();
+        IntBuffer table = current.table;
+        for (int slot = 0; slot <= current.tableMask; slot++) {
+            int idPlusOne = table.get(slot * SLOT_INTS + 1);
+            if (idPlusOne != EMPTY) {
+                putToTable(newTable, newMask, table.get(slot * SLOT_INTS), idPlusOne - 1);
+            }
+        }
+        retired.add(tableMemory);
+        tableMemory = newTableMemory;
+        return newTable;
+    }
+
+    private static void putToTable(IntBuffer table, int mask, int hash, int id) {
+        int slot = mix(hash) & mask;
+        while (table.get(slot * SLOT_INTS + 1) != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table.put(slot * SLOT_INTS, hash);
+        table.put(slot * SLOT_INTS + 1, id + 1);
+    }
+
+    /**
+     * Appends the encoded word to the current slab.
+     *
+     * @return address of the encoded word.
+     */
+    private long encode(String word) {
+        int length = encodedLength(word);
+        int required = Integer.BYTES + length;
+        if (currentSlab.remaining() < required) {
+            currentSlab = newSlab(Math.max(slabSize, required));
+        }
+        int offset = currentSlab.position();
+        currentSlab.putInt(length);
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 0x80) {
+                currentSlab.put((byte) c);
+            } else if (c < 0x800) {
+                currentSlab.put((byte) (0xC0 | (c >> 6)));
+                currentSlab.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                currentSlab.put((byte) (0xE0 | (c >> 12)));
+                currentSlab.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                currentSlab.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return ((long) (slabs.size() - 1) << 32) | offset;
+    }
+
+    private static String decode(State state, long address) {
+        ByteBuffer slab = state.slabs[(int) (address >>> 32)];
+        int position = (int) address;
+        int end = position + Integer.BYTES + slab.getInt(position);
+        position += Integer.BYTES;
+        StringBuilder sb = new StringBuilder(end - position);
+        while (position < end) {
+            int b = slab.get(position++) & 0xFF;
+            if (b < 0x80) {
+                sb.append((char) b);
+            } else if (b < 0xE0) {
+                sb.append((char) (((b & 0x1F) << 6) | (slab.get(position++) & 0x3F)));
+            } else {
+                int b2 = slab.get(position++) & 0x3F;
+                int b3 = slab.get(position++) & 0x3F;
+                sb.append((char) (((b & 0x0F) << 12) | (b2 << 6) | b3));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compares the word with the encoded one without decoding it.
+     */
+    private static boolean encodedEquals(State state, String word, long address) {
+        ByteBuffer slab = state.slabs[(int) (address >>> 32)];
+        int position = (int) address;
+        int end = position + Integer.BYTES + slab.getInt(position);
+        position += Integer.BYTES;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 0x80) {
+                if (position >= end || slab.get(position++) != (byte) c) {
+                    return false;
+                }
+            } else if (c < 0x800) {
+                if (position + 1 >= end
+                        || slab.get(position++) != (byte) (0xC0 | (c >> 6))
+                        || slab.get(position++) != (byte) (0x80 | (c & 0x3F))) {
+                    return false;
+                }
+            } else {
+                if (position + 2 >= end
+                        || slab.get(position++) != (byte) (0xE0 | (c >> 12))
+                        || slab.get(position++) != (byte) (0x80 | ((c >> 6) & 0x3F))
+                        || slab.get(position++) != (byte) (0x80 | (c & 0x3F))) {
+                    return false;
+                }
+            }
+        }
+        return position == end;
+    }
+
+    private static int encodedLength(String word) {
+        int length = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private ByteBuffer newSlab(int size) {
+        ByteBuffer slab = ByteBuffer.allocateDirect(size);
+        slabs.add(slab);
+        return slab;
+    }
+
+    private static ByteBuffer allocateTable(int slots) {
+        return ByteBuffer.allocateDirect(slots * SLOT_INTS * Integer.BYTES);
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static String wordOf(Term term) {
+        if (term instanceof WordTerm) {
+            return ((WordTerm) term).getWord();
+        }
+        throw new IllegalArgumentException(
+                String.format("Term '%s' is not supported", term)
+        );
+    }
+
+    private State currentState() {
+        State current = state;
+        if (current == null) {
+            throw new IllegalStateException("The dictionary is closed");
+        }
+        return current;
+    }
+
+    /**
+     * Immutable view of the dictionary. Buffers of the view are shared with
+     * later states, but entries beyond the size are never read via the view.
+     */
+    private static final class State {
+        private final IntBuffer table;
+        private final int tableMask;
+        private final LongBuffer addresses;
+        private final ByteBuffer[] slabs;
+        private final int size;
+
+        private State(IntBuffer table, int tableMask, LongBuffer addresses, ByteBuffer[] slabs, int size) {
+            this.table = table;
+            this.tableMask = tableMask;
+            this.addresses = addresses;
+            this.slabs = slabs;
+            this.size = size;
+        }
+    }
+}
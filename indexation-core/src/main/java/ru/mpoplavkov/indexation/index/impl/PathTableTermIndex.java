@@ -0,0 +1,166 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import ru.mpoplavkov.indexation.index.PathIdIndex;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.term.Term;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Term index of paths, that stores identifiers of paths from the
+ * {@link PathTable} in the underlying index instead of paths themselves.
+ * Found paths are restored from the table.
+ *
+ * <p>The index holds one reference to every indexed path, and releases it
+ * once the deletion of the path is applied to the underlying index. Found
+ * paths, which were removed from the table concurrently, are skipped.
+ */
+public class PathTableTermIndex implements TermIndex<Path>, PathIdIndex {
+
+    private final TermIndex<Integer> index;
+    private final PathTable pathTable;
+
+    /**
+     * Creates the index.
+     *
+     * @param index     the underlying index of path identifiers. It is closed
+     *                  along with this index.
+     * @param pathTable table to store paths in.
+     */
+    public PathTableTermIndex(TermIndex<Integer> index, PathTable pathTable) {
+        this.index = index;
+        this.pathTable = pathTable;
+    }
+
+    public PathTableTermIndex(PathTable pathTable) {
+        this(new VersionedTermIndex<>(), pathTable);
+    }
+
+    @Override
+    public void index(Path value, Iterable<Term> terms) {
+        index.index(pathTable.markIndexed(value), terms);
+    }
+
+    @Override
+    public Set<Path> search(Query query) {
+        return toPaths(index.search(query));
+    }
+
+    @Override
+    public Set<Integer> searchIds(Query query) {
+        return index.search(query);
+    }
+
+    @Override
+    public List<Set<Path>> searchAll(List<Query> queries) {
+        return index.searchAll(queries)
+                .stream()
+                .map(this::toPaths)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Path> searchStream(Query query) {
+        return index.searchStream(query)
+                .map(pathTable::findPath)
+                .filter(Optional::isPresent)
+                .map(Optional::get);
+    }
+
+    @Override
+    public long count(Query query) {
+        return index.count(query);
+    }
+
+    @Override
+    public boolean exists(Query query) {
+        return index.exists(query);
+    }
+
+    @Override
+    public long generation(Query query) {
+        return index.generation(query);
+    }
+
+    @Override
+    public List<ScoredValue<Path>> searchTopK(Query query, int k) {
+        return index.searchTopK(query, k)
+                .stream()
+                .map(v -> pathTable.findPath(v.getValue()).map(path -> new ScoredValue<>(path, v.getScore())))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Deletes the path from the underlying index and releases the reference
+     * to the path in the table.
+     *
+     * @param value the path to delete.
+     */
+    @Override
+    public void delete(Path value) {
+        int id = pathTable.getId(value);
+        if (id == PathTable.NO_ID) {
+            return;
+        }
+        boolean referenced = pathTable.unmarkIndexed(id);
+        try {
+            index.delete(id);
+        } finally {
+            if (referenced) {
+                pathTable.release(id);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> indexAsync(Path value, Iterable<Term> terms) {
+        return index.indexAsync(pathTable.markIndexed(value), terms);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(Path value) {
+        int id = pathTable.getId(value);
+        if (id == PathTable.NO_ID) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // the path is forgotten right away, so that it's referenced anew if
+        // it's indexed again before the deletion is applied
+        boolean referenced = pathTable.unmarkIndexed(id);
+        CompletableFuture<Void> deleted = index.deleteAsync(id);
+        if (referenced) {
+            deleted.whenComplete((result, e) -> pathTable.release(id));
+        }
+        return deleted;
+    }
+
+    /**
+     * Closes the underlying index.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        index.close();
+    }
+
+    private Set<Path> toPaths(Set<Integer> ids) {
+        Set<Path> paths = new HashSet<>(ids.size() * 2);
+        for (Integer id : ids) {
+            pathTable.findPath(id).ifPresent(paths::add);
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,366 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable hash map, based on the hash array mapped trie. Every update
+ * returns a new map, which shares all the unchanged nodes with the old
+ * one, so an update copies only the path from the root to the changed
+ * entry: at most 7 nodes of at most 32 entries.
+ *
+ * <p>Null keys are not supported.
+ *
+ * @param <K> type of the key.
+ * @param <V> type of the value.
+ */
+final class PersistentHashMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Depth of the trie is at most 7 levels of bitmap nodes and a
+     * collision node.
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @param key the key.
+     * @return the value, associated with the key, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        return (V) root.get(0, hash(key), key);
+    }
+
+    boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key   the key.
+     * @param value the value to associate with the key.
+     * @return the map with the value associated with the key. If the key
+     * is already associated with the same value, this map is returned.
+     */
+    PersistentHashMap<K, V> put(K key, V value) {
+        Objects.requireNonNull(key);
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(0, hash(key), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @param key the key.
+     * @return the map without the key. If there is no such key, this map
+     * is returned.
+     */
+    PersistentHashMap<K, V> remove(Object key) {
+        Node newRoot = root.remove(0, hash(key), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot == null ? BitmapNode.EMPTY : newRoot, size - 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return lazy stream of the keys of the map.
+     */
+    Stream<K> keys() {
+        return StreamSupport.stream(
+                Spliterators.spliterator(new KeyIterator<K>(root), size, Spliterator.DISTINCT | Spliterator.NONNULL),
+                false
+        );
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Object[] cloneAndSet(Object[] array, int i, Object value) {
+        Object[] clone = array.clone();
+        clone[i] = value;
+        return clone;
+    }
+
+    private static Object[] removePair(Object[] array, int pair) {
+        Object[] newArray = new Object[array.length - 2];
+        System.arraycopy(array, 0, newArray, 0, 2 * pair);
+        System.arraycopy(array, 2 * (pair + 1), newArray, 2 * pair, newArray.length - 2 * pair);
+        return newArray;
+    }
+
+    /**
+     * Node of the trie. Entries are stored in an array as pairs of a key
+     * and a value. A pair with the null key references a child node
+     * instead of a value.
+     */
+    private interface Node {
+
+        Object get(int shift, int hash, Object key);
+
+        /**
+         * @return the node with the entry. The same node, if nothing changed.
+         */
+        Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return the node without the entry. The same node, if there was no
+         * such entry, or null, if the node became empty.
+         */
+        Node remove(int shift, int hash, Object key);
+
+        Object[] array();
+    }
+
+    /**
+     * Node, that holds pairs only for the present 5-bit fragments of hashes,
+     * in the order of fragments. The bitmap marks present fragments.
+     */
+    private static final class BitmapNode implements Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int pair(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Object get(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int i = 2 * pair(bit);
+            Object storedKey = array[i];
+            if (storedKey == null) {
+                return ((Node) array[i + 1]).get(shift + BITS, hash, key);
+            }
+            return key.equals(storedKey) ? array[i + 1] : null;
+        }
+
+        @Override
+        public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int i = 2 * pair(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, i);
+                newArray[i] = key;
+                newArray[i + 1] = value;
+                System.arraycopy(array, i, newArray, i + 2, array.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            Object storedKey = array[i];
+            Object storedValue = array[i + 1];
+            if (storedKey == null) {
+                Node child = ((Node) storedValue).put(shift + BITS, hash, key, value, added);
+                return child == storedValue ? this : new BitmapNode(bitmap, cloneAndSet(array, i + 1, child));
+            }
+            if (key.equals(storedKey)) {
+                return value == storedValue ? this : new BitmapNode(bitmap, cloneAndSet(array, i + 1, value));
+            }
+            added[0] = true;
+            Node child = createNode(shift + BITS, storedKey, storedValue, hash, key, value);
+            Object[] newArray = cloneAndSet(array, i, null);
+            newArray[i + 1] = child;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        @Override
+        public Node remove(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int pair = pair(bit);
+            Object storedKey = array[2 * pair];
+            Object storedValue = array[2 * pair + 1];
+            if (storedKey == null) {
+                Node child = ((Node) storedValue).remove(shift + BITS, hash, key);
+                if (child == storedValue) {
+                    return this;
+                } else if (child != null) {
+                    return new BitmapNode(bitmap, cloneAndSet(array, 2 * pair + 1, child));
+                }
+            } else if (!key.equals(storedKey)) {
+                return this;
+            }
+            return bitmap == bit ? null : new BitmapNode(bitmap ^ bit, removePair(array, pair));
+        }
+
+        @Override
+        public Object[] array() {
+            return array;
+        }
+
+        private static Node createNode(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+            boolean[] added = new boolean[1];
+            return EMPTY.put(shift, hash1, key1, value1, added).put(shift, hash2, key2, value2, added);
+        }
+    }
+
+    /**
+     * Node of keys with the same hash.
+     */
+    private static final class CollisionNode implements Node {
+
+        private final int hash;
+        private final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object get(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        @Override
+        public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // the key differs from the collided ones deeper in the hash
+                return new BitmapNode(bit(this.hash, shift), new Object[]{null, this})
+                        .put(shift, hash, key, value, added);
+            }
+            int i = indexOf(key);
+            if (i >= 0) {
+                return array[i + 1] == value ? this : new CollisionNode(hash, cloneAndSet(array, i + 1, value));
+            }
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        public Node remove(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            return array.length == 2 ? null : new CollisionNode(hash, removePair(array, i / 2));
+        }
+
+        @Override
+        public Object[] array() {
+            return array;
+        }
+    }
+
+    /**
+     * Depth-first iterator over keys of the trie.
+     */
+    private static final class KeyIterator<K> implements Iterator<K> {
+
+        private final Object[][] arrays = new Object[MAX_DEPTH][];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth;
+        private K next;
+
+        KeyIterator(Node root) {
+            arrays[0] = root.array();
+            next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public K next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            K result = next;
+            next = advance();
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private K advance() {
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+                if (position >= array.length) {
+                    depth--;
+                    continue;
+                }
+                positions[depth] = position + 2;
+                Object key = array[position];
+                if (key != null) {
+                    return (K) key;
+                }
+                depth++;
+                arrays[depth] = ((Node) array[position + 1]).array();
+                positions[depth] = 0;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.util.ExecutorsUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Term index, that partitions values into several independent shards by
+ * the hash code of the value. For identifiers of documents, the hash code
+ * is the identifier itself, so documents are distributed evenly.
+ *
+ * <p>Every value is written only to its own shard on the calling thread.
+ * Frequent terms are contained in almost every value, so with a single
+ * index all the writers update the same posting lists. With shards, only
+ * writers of the same shard compete for a posting list, so concurrent
+ * writes scale with the number of shards.
+ *
+ * <p>Queries are executed on all the shards in parallel, and their results
+ * are merged. Shards are searched independently, so the result isn't a
+ * consistent snapshot of the whole index. Relevance of values is computed
+ * by statistics of their own shards, which are close to the statistics of
+ * the whole index as long as shards are large enough.
+ *
+ * @param <V> type of value to be stored in the index.
+ */
+public class ShardedTermIndex<V> implements TermIndex<V> {
+
+    private final List<TermIndex<V>> shards;
+
+    /**
+     * Executor service to search all the shards, except for the first one,
+     * which is searched on the calling thread.
+     */
+    private final ExecutorService searchExecutorService;
+
+    /**
+     * Creates the index.
+     *
+     * @param shards                shards of the index. They are closed along with the index.
+     * @param searchExecutorService executor service to search shards on. It is
+     *                              shut down along with the index.
+     */
+    public ShardedTermIndex(List<TermIndex<V>> shards, ExecutorService searchExecutorService) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("There should be at least one shard");
+        }
+        this.shards = new ArrayList<>(shards);
+        this.searchExecutorService = searchExecutorService;
+    }
+
+    /**
+     * Creates the index and the executor service to search it.
+     *
+     * @param shardsCount  number of shards.
+     * @param shardFactory creates a shard by its number.
+     */
+    public ShardedTermIndex(int shardsCount, IntFunction<TermIndex<V>> shardFactory) {
+        this(createShards(shardsCount, shardFactory),
+                Executors.newFixedThreadPool(
+                        Math.max(shardsCount - 1, 1),
+                        new ExecutorsUtil.DaemonThreadFactory("shard-search")
+                )
+        );
+    }
+
+    public ShardedTermIndex(int shardsCount) {
+        this(shardsCount, shard -> new VersionedTermIndex<>());
+    }
+
+    @Override
+    public void index(V value, Iterable<Term> terms) {
+        shardFor(value).index(value, terms);
+    }
+
+    @Override
+    public void delete(V value) {
+        shardFor(value).delete(value);
+    }
+
+    @Override
+    public CompletableFuture<Void> indexAsync(V value, Iterable<Term> terms) {
+        return shardFor(value).indexAsync(value, terms);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(V value) {
+        return shardFor(value).deleteAsync(value);
+    }
+
+    @Override
+    public Set<V> search(Query query) {
+        Set<V> result = new HashSet<>();
+        for (Set<V> shardResult : onAllShards(shard -> shard.search(query))) {
+            result.addAll(shardResult);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Set<V>> searchAll(List<Query> queries) {
+        List<Set<V>> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            results.add(new HashSet<>());
+        }
+        for (List<Set<V>> shardResults : onAllShards(shard -> shard.searchAll(queries))) {
+            for (int i = 0; i < queries.size(); i++) {
+                results.get(i).addAll(shardResults.get(i));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Lazily retrieves values from shards one by one.
+     *
+     * @param query given query.
+     * @return stream of matched values.
+     */
+    @Override
+    public Stream<V> searchStream(Query query) {
+        return shards.stream().flatMap(shard -> shard.searchStream(query));
+    }
+
+    /**
+     * Sums counts of all the shards. A value is stored only in one shard,
+     * so it's never counted twice.
+     *
+     * @param query given query.
+     * @return number of matched values.
+     */
+    @Override
+    public long count(Query query) {
+        long count = 0;
+        for (TermIndex<V> shard : shards) {
+            count += shard.count(query);
+        }
+        return count;
+    }
+
+    @Override
+    public boolean exists(Query query) {
+        return shards.stream().anyMatch(shard -> shard.exists(query));
+    }
+
+    /**
+     * Sums generations of all the shards. Generations never decrease, so
+     * the sum stays the same only if the generation of every shard does.
+     *
+     * @param query given query.
+     * @return generation of the query.
+     */
+    @Override
+    public long generation(Query query) {
+        long generation = 0;
+        for (TermIndex<V> shard : shards) {
+            generation += shard.generation(query);
+        }
+        return generation;
+    }
+
+    /**
+     * Retrieves k best values from every shard and selects k best of them.
+     *
+     * @param query given query.
+     * @param k     maximum number of values to retrieve.
+     * @return matched values in the descending order of their relevance.
+     */
+    @Override
+    public List<ScoredValue<V>> searchTopK(Query query, int k) {
+        List<ScoredValue<V>> result = new ArrayList<>();
+        for (List<ScoredValue<V>> shardResult : onAllShards(shard -> shard.searchTopK(query, k))) {
+            result.addAll(shardResult);
+        }
+        result.sort((v1, v2) -> Double.compare(v2.getScore(), v1.getScore()));
+        return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+    }
+
+    /**
+     * Closes all the shards and shuts down the executor service.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        searchExecutorService.shutdownNow();
+        IOException exception = null;
+        for (TermIndex<V> shard : shards) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private TermIndex<V> shardFor(V value) {
+        int hash = value.hashCode();
+        return shards.get(Math.floorMod(hash ^ (hash >>> 16), shards.size()));
+    }
+
+    /**
+     * Applies the function to all the shards in parallel. The first shard
+     * is processed on the calling thread.
+     *
+     * @return results of the function, in the order of the shards.
+     */
+    private <R> List<R> onAllShards(Function<TermIndex<V>, R> function) {
+        if (shards.size() == 1) {
+            return Collections.singletonList(function.apply(shards.get(0)));
+        }
+        List<CompletableFuture<R>> futures = shards.subList(1, shards.size())
+                .stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> function.apply(shard), searchExecutorService))
+                .collect(Collectors.toList());
+        List<R> results = new ArrayList<>(shards.size());
+        results.add(function.apply(shards.get(0)));
+        try {
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static <V> List<TermIndex<V>> createShards(int shardsCount, IntFunction<TermIndex<V>> shardFactory) {
+        if (shardsCount <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("Number of shards should be positive, but was '%d'", shardsCount)
+            );
+        }
+        List<TermIndex<V>> shards = new ArrayList<>(shardsCount);
+        for (int i = 0; i < shardsCount; i++) {
+            shards.add(shardFactory.apply(i));
+        }
+        return shards;
+    }
+}
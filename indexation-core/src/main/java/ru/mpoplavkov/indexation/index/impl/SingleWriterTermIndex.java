@@ -0,0 +1,299 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.java.Log;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.util.ExecutorsUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+/**
+ * Term index, that applies all the changes of the underlying index on a
+ * single dedicated thread. Writers only put their changes into a bounded
+ * queue and return, so they never compete with each other for posting
+ * lists of frequent terms. Changes are applied in the order of the queue,
+ * so changes of the same value are never reordered. If the queue is full,
+ * writers wait for the applier.
+ *
+ * <p>Reads go directly to the underlying index, which never blocks its
+ * readers. A change becomes searchable only after it's applied, which
+ * could happen after the call has returned. Futures, returned by
+ * {@link SingleWriterTermIndex#indexAsync(Object, Iterable)} and
+ * {@link SingleWriterTermIndex#deleteAsync(Object)}, are completed by the
+ * applier, when the change is applied or has failed. Failures of changes,
+ * submitted by {@link SingleWriterTermIndex#index(Object, Iterable)} and
+ * {@link SingleWriterTermIndex#delete(Object)}, are only logged. Use
+ * {@link SingleWriterTermIndex#flush()} to wait until all the submitted
+ * changes are applied.
+ *
+ * @param <V> type of value to be stored in the index.
+ */
+@Log
+public class SingleWriterTermIndex<V> implements TermIndex<V> {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final TermIndex<V> index;
+    private final BlockingQueue<Runnable> queue;
+    private final Thread applier;
+
+    /**
+     * Set when the index is closed. The applier stops after the change,
+     * that was put into the queue last.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Number of writers, that have passed the check of the
+     * {@link SingleWriterTermIndex#closed} flag, but haven't put their
+     * changes into the queue yet. The close waits for them before the
+     * final drain of the queue.
+     */
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    /**
+     * Creates the index and starts the applier thread.
+     *
+     * @param index         the underlying index. It is closed along with this index.
+     * @param queueCapacity maximum number of changes, waiting to be applied.
+     * @param meterRegistry registry to publish metrics of the queue to.
+     * @param tags          tags to add to metrics of the queue.
+     */
+    public SingleWriterTermIndex(TermIndex<V> index,
+                                 int queueCapacity,
+                                 MeterRegistry meterRegistry,
+                                 Iterable<Tag> tags) {
+        this.index = index;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        Gauge.builder(MetricNames.INDEX_APPLY_QUEUE, queue, BlockingQueue::size)
+                .description("Number of changes, waiting to be applied to the index")
+                .tags(tags)
+                .register(meterRegistry);
+        this.applier = new ExecutorsUtil.DaemonThreadFactory("index-applier").newThread(this::applyLoop);
+        applier.start();
+    }
+
+    public SingleWriterTermIndex(TermIndex<V> index, int queueCapacity, MeterRegistry meterRegistry) {
+        this(index, queueCapacity, meterRegistry, Tags.empty());
+    }
+
+    public SingleWriterTermIndex(TermIndex<V> index, int queueCapacity) {
+        this(index, queueCapacity, Metrics.globalRegistry);
+    }
+
+    public SingleWriterTermIndex(TermIndex<V> index) {
+        this(index, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Submits the value to be indexed by the applier thread. Terms must
+     * not be changed after the call.
+     *
+     * @param value given value.
+     * @param terms given terms.
+     */
+    @Override
+    public void index(V value, Iterable<Term> terms) {
+        submit(() -> index.index(value, terms));
+    }
+
+    /**
+     * Submits the value to be deleted by the applier thread.
+     *
+     * @param value value to delete from the index.
+     */
+    @Override
+    public void delete(V value) {
+        submit(() -> index.delete(value));
+    }
+
+    /**
+     * Submits the value to be indexed by the applier thread. Terms must
+     * not be changed after the call.
+     *
+     * @param value given value.
+     * @param terms given terms.
+     * @return future, completed by the applier thread.
+     */
+    @Override
+    public CompletableFuture<Void> indexAsync(V value, Iterable<Term> terms) {
+        return submitAsync(() -> index.index(value, terms));
+    }
+
+    /**
+     * Submits the value to be deleted by the applier thread.
+     *
+     * @param value value to delete from the index.
+     * @return future, completed by the applier thread.
+     */
+    @Override
+    public CompletableFuture<Void> deleteAsync(V value) {
+        return submitAsync(() -> index.delete(value));
+    }
+
+    /**
+     * Waits until all the changes, submitted before the call, are applied.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void flush() throws InterruptedException {
+        CountDownLatch applied = new CountDownLatch(1);
+        submit(applied::countDown);
+        applied.await();
+    }
+
+    @Override
+    public Set<V> search(Query query) {
+        return index.search(query);
+    }
+
+    @Override
+    public List<Set<V>> searchAll(List<Query> queries) {
+        return index.searchAll(queries);
+    }
+
+    @Override
+    public Stream<V> searchStream(Query query) {
+        return index.searchStream(query);
+    }
+
+    @Override
+    public long count(Query query) {
+        return index.count(query);
+    }
+
+    @Override
+    public boolean exists(Query query) {
+        return index.exists(query);
+    }
+
+    @Override
+    public long generation(Query query) {
+        return index.generation(query);
+    }
+
+    @Override
+    public List<ScoredValue<V>> searchTopK(Query query, int k) {
+        return index.searchTopK(query, k);
+    }
+
+    /**
+     * Applies all the submitted changes, stops the applier thread and
+     * closes the underlying index. Changes, submitted concurrently with
+     * the close, are either applied or rejected with an
+     * {@link IllegalStateException}.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        // wakes the applier up, if it's waiting for changes
+        queue.offer(() -> {
+        });
+        try {
+            applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // changes of writers, that were racing with the close, or left
+        // by the interrupted applier. Writers could wait for a free place
+        // in the queue, so it's drained while they are putting changes.
+        boolean drained;
+        do {
+            drained = submitting.get() == 0;
+            Runnable change;
+            while ((change = queue.poll()) != null) {
+                apply(change);
+            }
+            if (!drained) {
+                Thread.yield();
+            }
+        } while (!drained);
+        index.close();
+    }
+
+    private void submit(Runnable change) {
+        submitting.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The index is closed");
+            }
+            queue.put(change);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a free place in the queue", e);
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Submits the change, which completes the returned future instead of
+     * throwing its failures.
+     */
+    private CompletableFuture<Void> submitAsync(Runnable change) {
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        submit(() -> {
+            try {
+                change.run();
+            } catch (RuntimeException e) {
+                applied.completeExceptionally(e);
+                return;
+            } catch (Error e) {
+                applied.completeExceptionally(e);
+                throw e;
+            }
+            applied.complete(null);
+        });
+        return applied;
+    }
+
+    private void applyLoop() {
+        List<Runnable> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                log.warning("The applier is interrupted, submitted changes are applied on close");
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            for (Runnable change : batch) {
+                apply(change);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Applies the change. Even errors don't stop the applier, since
+     * futures of all the following changes would never be completed.
+     */
+    private static void apply(Runnable change) {
+        try {
+            change.run();
+        } catch (Throwable e) {
+            log.log(Level.SEVERE, e, () -> "Exception occurred while applying a change to the index. Continue");
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import com.google.common.collect.Multiset;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import lombok.Data;
+import ru.mpoplavkov.indexation.index.TermDictionary;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.model.query.AnyOfTerms;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.util.TraceRecorder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Term index, that publishes an immutable snapshot of all its postings
+ * after every change (MVCC). Every query reads exactly one snapshot, taken
+ * from a volatile field at its start, so all the terms of a query, and all
+ * the queries of {@link SnapshotTermIndex#searchAll(List)}, see the same
+ * state of the index without locks or repeated reads.
+ *
+ * <p>Snapshots consist of {@link PersistentHashMap}s, so a change copies
+ * only the paths to the changed entries: for every changed term, a path in
+ * the map of postings and a path in the posting of the term. Postings of
+ * terms, which are still contained in a reindexed value, share the same
+ * set of values with the previous snapshot. Outdated snapshots are simply
+ * garbage collected, once no query reads them.
+ *
+ * <p>Changes are applied under a lock, so writers don't retry, but wait
+ * for each other. Combined with the {@link SingleWriterTermIndex}, there
+ * is only one writer.
+ *
+ * @param <V> type of value to be stored in the index.
+ */
+public class SnapshotTermIndex<V> implements TermIndex<V> {
+
+    /**
+     * Dictionary of all the terms ever indexed.
+     */
+    private final TermDictionary termDictionary;
+    private final boolean ownsTermDictionary;
+
+    private final Bm25Similarity similarity = new Bm25Similarity();
+
+    private final Lock writeLock = new ReentrantLock();
+
+    /**
+     * The last published snapshot.
+     */
+    private volatile Snapshot<V> snapshot = new Snapshot<>(
+            PersistentHashMap.empty(),
+            PersistentHashMap.empty(),
+            0,
+            0
+    );
+
+    /**
+     * Creates the index.
+     *
+     * @param termDictionary dictionary to assign identifiers to terms.
+     *                       It could be shared, e.g. by shards, so it's not
+     *                       closed along with the index.
+     * @param meterRegistry  registry to publish metrics of the index to.
+     * @param tags           tags to add to metrics of the index.
+     */
+    public SnapshotTermIndex(TermDictionary termDictionary, MeterRegistry meterRegistry, Iterable<Tag> tags) {
+        this(termDictionary, false, meterRegistry, tags);
+    }
+
+    public SnapshotTermIndex(TermDictionary termDictionary, MeterRegistry meterRegistry) {
+        this(termDictionary, meterRegistry, Tags.empty());
+    }
+
+    public SnapshotTermIndex(TermDictionary termDictionary) {
+        this(termDictionary, Metrics.globalRegistry);
+    }
+
+    /**
+     * Creates the index with its own dictionary, which is closed along with
+     * the index.
+     */
+    public SnapshotTermIndex() {
+        this(new ConcurrentTermDictionary(), true, Metrics.globalRegistry, Tags.empty());
+    }
+
+    private SnapshotTermIndex(TermDictionary termDictionary,
+                              boolean ownsTermDictionary,
+                              MeterRegistry meterRegistry,
+                              Iterable<Tag> tags) {
+        this.termDictionary = termDictionary;
+        this.ownsTermDictionary = ownsTermDictionary;
+        Gauge.builder(MetricNames.INDEX_VALUES, this, index -> index.snapshot.getDocuments().size())
+                .description("Number of values in the index")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(MetricNames.DICTIONARY_TERMS, termDictionary, TermDictionary::size)
+                .description("Number of distinct terms ever indexed")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Removes the value from the postings of the terms, which it no longer
+     * contains, adds it to the postings of its terms, and publishes the new
+     * snapshot. Generations of all these postings are advanced.
+     *
+     * @param value given value.
+     * @param terms given terms.
+     */
+    @Override
+    public void index(V value, Iterable<Term> terms) {
+        Document document = documentOf(terms);
+        writeLock.lock();
+        try {
+            Snapshot<V> current = snapshot;
+            long version = current.getVersion() + 1;
+            Document oldDocument = current.getDocuments().get(value);
+            PersistentHashMap<Integer, Posting<V>> postings = current.getPostings();
+            long totalLength = current.getTotalLength() + document.getLength();
+            if (oldDocument != null) {
+                totalLength -= oldDocument.getLength();
+                for (int termId : oldDocument.getTermIds()) {
+                    if (document.frequency(termId) == 0) {
+                        postings = updatePosting(postings, termId, value, false, version);
+                    }
+                }
+            }
+            for (int termId : document.getTermIds()) {
+                postings = updatePosting(postings, termId, value, true, version);
+            }
+            snapshot = new Snapshot<>(postings, current.getDocuments().put(value, document), totalLength, version);
+        } finally {
+            writeLock.unlock();
+        }
+        TraceRecorder.record("index.index", value);
+    }
+
+    /**
+     * Removes the value from the postings of all its terms and publishes
+     * the new snapshot.
+     *
+     * @param value value to delete from the index.
+     */
+    @Override
+    public void delete(V value) {
+        writeLock.lock();
+        try {
+            Snapshot<V> current = snapshot;
+            Document oldDocument = current.getDocuments().get(value);
+            if (oldDocument != null) {
+                long version = current.getVersion() + 1;
+                PersistentHashMap<Integer, Posting<V>> postings = current.getPostings();
+                for (int termId : oldDocument.getTermIds()) {
+                    postings = updatePosting(postings, termId, value, false, version);
+                }
+                snapshot = new Snapshot<>(
+                        postings,
+                        current.getDocuments().remove(value),
+                        current.getTotalLength() - oldDocument.getLength(),
+                        version
+                );
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        TraceRecorder.record("index.delete", value);
+    }
+
+    @Override
+    public Set<V> search(Query query) {
+        return search(snapshot, termIdsOf(query));
+    }
+
+    /**
+     * Retrieves values, that match each of the specified queries, from
+     * the same snapshot.
+     *
+     * @param queries given queries.
+     * @return matched values for each query, in the order of the queries.
+     */
+    @Override
+    public List<Set<V>> searchAll(List<Query> queries) {
+        Snapshot<V> current = snapshot;
+        List<Set<V>> results = new ArrayList<>(queries.size());
+        for (Query query : queries) {
+            results.add(search(current, termIdsOf(query)));
+        }
+        return results;
+    }
+
+    /**
+     * Lazily retrieves values from the snapshot, taken at the call. Unlike
+     * other indexes, the result is consistent: changes, made during the
+     * consumption, are not visible.
+     *
+     * @param query given query.
+     * @return stream of matched values.
+     */
+    @Override
+    public Stream<V> searchStream(Query query) {
+        Snapshot<V> current = snapshot;
+        List<Integer> termIds = termIdsOf(query);
+        if (termIds.size() == 1) {
+            return postingValues(current, termIds.get(0));
+        }
+        return termIds.stream()
+                .flatMap(termId -> postingValues(current, termId))
+                .distinct();
+    }
+
+    /**
+     * Counts values, that match the query. For a single term, it's the
+     * size of its posting. For several terms, a value is counted only in
+     * the posting of the first query term, it contains.
+     *
+     * @param query given query.
+     * @return number of matched values.
+     */
+    @Override
+    public long count(Query query) {
+        Snapshot<V> current = snapshot;
+        List<Integer> termIds = termIdsOf(query);
+        long count = 0;
+        for (int i = 0; i < termIds.size(); i++) {
+            List<Integer> previousTermIds = termIds.subList(0, i);
+            if (previousTermIds.isEmpty()) {
+                count += postingSize(current, termIds.get(i));
+            } else {
+                count += postingValues(current, termIds.get(i))
+                        .map(value -> current.getDocuments().get(value))
+                        .filter(document -> previousTermIds.stream().noneMatch(id -> document.frequency(id) > 0))
+                        .count();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean exists(Query query) {
+        Snapshot<V> current = snapshot;
+        return termIdsOf(query).stream().anyMatch(termId -> postingSize(current, termId) > 0);
+    }
+
+    /**
+     * Sums generations of the query terms. The generation of a term is the
+     * version of the snapshot, which changed its posting last. Postings are
+     * never removed, even empty ones, so generations never decrease. A term,
+     * that was never indexed, adds nothing to the sum.
+     *
+     * @param query given query.
+     * @return generation of the query.
+     */
+    @Override
+    public long generation(Query query) {
+        Snapshot<V> current = snapshot;
+        long generation = 0;
+        for (int termId : termIdsOf(query)) {
+            Posting<V> posting = current.getPostings().get(termId);
+            if (posting != null) {
+                generation += posting.getGeneration() + 1;
+            }
+        }
+        return generation;
+    }
+
+    /**
+     * Retrieves at most k values, that are the most relevant to the query
+     * according to the {@link Bm25Similarity}. Postings are read starting
+     * from the rarest term, and the rest of them are skipped, as soon as
+     * values, contained only in them, could not beat the k-th best score,
+     * like in the {@link VersionedTermIndex#searchTopK(Query, int)}. Unlike
+     * there, statistics and frequencies are read from one snapshot, so the
+     * scores are exact.
+     *
+     * @param query given query.
+     * @param k     maximum number of values to retrieve.
+     * @return matched values in the descending order of their relevance.
+     */
+    @Override
+    public List<ScoredValue<V>> searchTopK(Query query, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("Number of values to retrieve should be positive, but was '%d'", k)
+            );
+        }
+        Snapshot<V> current = snapshot;
+        long documentsCount = current.getDocuments().size();
+        if (documentsCount == 0) {
+            return new ArrayList<>();
+        }
+        double averageLength = (double) current.getTotalLength() / documentsCount;
+        List<QueryTerm> queryTerms = new ArrayList<>();
+        for (int termId : termIdsOf(query)) {
+            int documentFrequency = postingSize(current, termId);
+            if (documentFrequency > 0) {
+                double idf = similarity.idf(documentFrequency, documentsCount);
+                queryTerms.add(new QueryTerm(termId, idf, similarity.maxScore(idf)));
+            }
+        }
+        queryTerms.sort(Comparator.comparingDouble(QueryTerm::getMaxScore).reversed());
+
+        double[] remainingMaxScore = new double[queryTerms.size() + 1];
+        for (int i = queryTerms.size() - 1; i >= 0; i--) {
+            remainingMaxScore[i] = remainingMaxScore[i + 1] + queryTerms.get(i).getMaxScore();
+        }
+
+        PriorityQueue<ScoredValue<V>> top = new PriorityQueue<>(k, Comparator.comparingDouble(ScoredValue::getScore));
+        Set<V> scored = new HashSet<>();
+        for (int i = 0; i < queryTerms.size(); i++) {
+            if (top.size() == k && remainingMaxScore[i] <= top.peek().getScore()) {
+                break;
+            }
+            Iterator<V> values = postingValues(current, queryTerms.get(i).getTermId()).iterator();
+            while (values.hasNext()) {
+                V value = values.next();
+                if (!scored.add(value)) {
+                    continue;
+                }
+                double score = score(current.getDocuments().get(value), queryTerms, averageLength);
+                if (top.size() < k) {
+                    top.add(new ScoredValue<>(value, score));
+                } else if (score > top.peek().getScore()) {
+                    top.poll();
+                    top.add(new ScoredValue<>(value, score));
+                }
+            }
+        }
+
+        List<ScoredValue<V>> result = new ArrayList<>(top);
+        result.sort((v1, v2) -> Double.compare(v2.getScore(), v1.getScore()));
+        return result;
+    }
+
+    /**
+     * Closes the term dictionary, if it was created by the index.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (ownsTermDictionary) {
+            termDictionary.close();
+        }
+    }
+
+    private Set<V> search(Snapshot<V> current, List<Integer> termIds) {
+        if (termIds.size() == 1) {
+            return postingValues(current, termIds.get(0)).collect(Collectors.toSet());
+        }
+        Set<V> result = new HashSet<>();
+        for (int termId : termIds) {
+            postingValues(current, termId).forEach(result::add);
+        }
+        return result;
+    }
+
+    private Stream<V> postingValues(Snapshot<V> current, int termId) {
+        Posting<V> posting = current.getPostings().get(termId);
+        return posting == null ? Stream.empty() : posting.getValues().keys();
+    }
+
+    private int postingSize(Snapshot<V> current, int termId) {
+        Posting<V> posting = current.getPostings().get(termId);
+        return posting == null ? 0 : posting.getValues().size();
+    }
+
+    /**
+     * Adds the value to the posting of the term or removes it from there,
+     * and sets the generation of the posting to the given version.
+     */
+    private static <V> PersistentHashMap<Integer, Posting<V>> updatePosting(PersistentHashMap<Integer, Posting<V>> postings,
+                                                                           int termId,
+                                                                           V value,
+                                                                           boolean contains,
+                                                                           long version) {
+        Posting<V> posting = postings.get(termId);
+        PersistentHashMap<V, Boolean> values = posting == null ? PersistentHashMap.empty() : posting.getValues();
+        values = contains ? values.put(value, Boolean.TRUE) : values.remove(value);
+        return postings.put(termId, new Posting<>(values, version));
+    }
+
+    /**
+     * Retrieves distinct identifiers of the query terms, that were ever
+     * indexed.
+     */
+    private List<Integer> termIdsOf(Query query) {
+        List<Integer> termIds = new ArrayList<>();
+        for (Term term : termsOf(query)) {
+            int termId = termDictionary.getId(term);
+            if (termId != TermDictionary.NO_ID && !termIds.contains(termId)) {
+                termIds.add(termId);
+            }
+        }
+        return termIds;
+    }
+
+    private static Collection<Term> termsOf(Query query) {
+        if (query instanceof ExactTerm) {
+            return Collections.singleton(((ExactTerm) query).getTerm());
+        } else if (query instanceof AnyOfTerms) {
+            return ((AnyOfTerms) query).getTerms();
+        }
+        throw new UnsupportedOperationException(
+                String.format("Query '%s' is not supported", query)
+        );
+    }
+
+    private double score(Document document, List<QueryTerm> queryTerms, double averageLength) {
+        double score = 0;
+        for (QueryTerm queryTerm : queryTerms) {
+            score += similarity.score(
+                    queryTerm.getIdf(),
+                    document.frequency(queryTerm.getTermId()),
+                    document.getLength(),
+                    averageLength
+            );
+        }
+        return score;
+    }
+
+    /**
+     * Creates the document of the terms. Repeated terms are counted.
+     */
+    private Document documentOf(Iterable<Term> terms) {
+        Map<Integer, Integer> frequencies = new HashMap<>();
+        if (terms instanceof Multiset) {
+            for (Multiset.Entry<Term> entry : ((Multiset<Term>) terms).entrySet()) {
+                frequencies.merge(termDictionary.getOrAssignId(entry.getElement()), entry.getCount(), Integer::sum);
+            }
+        } else {
+            for (Term term : terms) {
+                frequencies.merge(termDictionary.getOrAssignId(term), 1, Integer::sum);
+            }
+        }
+
+        int[] termIds = frequencies.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int[] termFrequencies = new int[termIds.length];
+        int length = 0;
+        for (int i = 0; i < termIds.length; i++) {
+            termFrequencies[i] = frequencies.get(termIds[i]);
+            length += termFrequencies[i];
+        }
+        return new Document(termIds, termFrequencies, length);
+    }
+
+    /**
+     * Immutable state of the index.
+     */
+    @Data
+    private static class Snapshot<V> {
+
+        /**
+         * Postings by identifiers of terms.
+         */
+        private final PersistentHashMap<Integer, Posting<V>> postings;
+
+        /**
+         * Terms of values along with their frequencies.
+         */
+        private final PersistentHashMap<V, Document> documents;
+
+        /**
+         * Sum of the lengths of all the documents.
+         */
+        private final long totalLength;
+
+        /**
+         * Number of changes, applied to the index.
+         */
+        private final long version;
+    }
+
+    /**
+     * Values, containing a term, along with the version of the last change
+     * of the set. Values are the keys of the map.
+     */
+    @Data
+    private static class Posting<V> {
+        private final PersistentHashMap<V, Boolean> values;
+        private final long generation;
+    }
+
+    /**
+     * Terms of a value.
+     */
+    @Data
+    private static class Document {
+
+        /**
+         * Sorted identifiers of the terms.
+         */
+        private final int[] termIds;
+
+        /**
+         * Number of occurrences of each term, in the order of
+         * {@link Document#termIds}.
+         */
+        private final int[] termFrequencies;
+
+        /**
+         * Number of terms, including repeated ones.
+         */
+        private final int length;
+
+        int frequency(int termId) {
+            int i = Arrays.binarySearch(termIds, termId);
+            return i < 0 ? 0 : termFrequencies[i];
+        }
+    }
+
+    /**
+     * Term of a ranked query along with its statistics.
+     */
+    @Data
+    private static class QueryTerm {
+        private final int termId;
+        private final double idf;
+
+        /**
+         * Upper bound of the score of any value for this term.
+         */
+        private final double maxScore;
+    }
+}
@@ -0,0 +1,402 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import lombok.Data;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the {@link PathTable} as a tree of directories. Every
+ * path is stored as a node, which consists of the identifier of its parent
+ * and its own name, so that common prefixes of paths are stored only once.
+ * Names are interned, so that equal names in different directories, like
+ * <i>src</i> or <i>main</i>, share one string.
+ *
+ * <p>Every directory on the way to a path gets its own identifier as well.
+ * A node is referenced by its holders and by its children, and is removed
+ * along with its interned name, once the last reference is released. The
+ * low bits of an identifier are the slot of the node, and the high bits are
+ * the generation of the slot, which is incremented every time a slot of a
+ * removed node is reused. So a stale identifier is resolved to another path
+ * only after its slot is reused {@value #GENERATIONS} times. Nodes are
+ * stored in fixed size chunks, so that the table never copies them while
+ * growing. Paths of the default file system are supported only.
+ */
+public class TreePathTable implements PathTable {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int SLOT_BITS = 25;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATIONS = 1 << (Integer.SIZE - 1 - SLOT_BITS);
+    private static final String[] NO_NAMES = new String[0];
+
+    private final FileSystem fileSystem = FileSystems.getDefault();
+
+    /**
+     * Mapping from nodes to their entries. Entries are used as the reverse
+     * mapping as well.
+     */
+    private final Map<Node, Entry> entries;
+    private final Map<String, Name> names = new ConcurrentHashMap<>();
+
+    /**
+     * Chunks of the reverse mapping. Once allocated, a chunk is never replaced,
+     * only the outer array is copied when a new chunk is needed.
+     */
+    private volatile Entry[][] chunks = new Entry[0][];
+    private final Lock slotsLock = new ReentrantLock();
+    // guarded by the slotsLock
+    private int nextSlot;
+    // identifiers for slots of removed nodes, guarded by the slotsLock
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+
+    public TreePathTable(int initialCapacity) {
+        this.entries = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    public TreePathTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public int getOrAssignId(Path path) {
+        Path canonicalPath = FileUtil.toCanonicalPath(path);
+        int id = acquire(NO_ID, canonicalPath.getRoot().toString());
+        for (Path name : canonicalPath) {
+            int parent = id;
+            id = acquire(parent, name.toString());
+            // the child holds its own reference to the parent
+            release(parent);
+        }
+        return id;
+    }
+
+    @Override
+    public void release(int id) {
+        Entry entry = getEntry(id);
+        // removal of a node releases the reference to its parent
+        while (release(entry) && entry.node.getParent() != NO_ID) {
+            entry = getEntry(entry.node.getParent());
+        }
+    }
+
+    @Override
+    public int markIndexed(Path path) {
+        int id = getOrAssignId(path);
+        if (!getEntry(id).mark()) {
+            // the index already holds a reference to the path
+            release(id);
+        }
+        return id;
+    }
+
+    @Override
+    public boolean unmarkIndexed(int id) {
+        Entry entry = findEntry(id);
+        return entry != null && entry.unmark();
+    }
+
+    @Override
+    public int getId(Path path) {
+        Path canonicalPath = FileUtil.toCanonicalPath(path);
+        Entry entry = entries.get(new Node(NO_ID, canonicalPath.getRoot().toString()));
+        for (Path name : canonicalPath) {
+            if (entry == null) {
+                return NO_ID;
+            }
+            entry = entries.get(new Node(entry.id, name.toString()));
+        }
+        return entry == null ? NO_ID : entry.id;
+    }
+
+    @Override
+    public Path getPath(int id) {
+        return findPath(id).orElseThrow(() -> noPathException(id));
+    }
+
+    @Override
+    public Optional<Path> findPath(int id) {
+        Entry entry = findEntry(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        int depth = 0;
+        for (Entry parent = entry; parent.node.getParent() != NO_ID; depth++) {
+            parent = findEntry(parent.node.getParent());
+            if (parent == null) {
+                // the path was removed concurrently
+                return Optional.empty();
+            }
+        }
+        String[] pathNames = depth == 0 ? NO_NAMES : new String[depth];
+        for (int i = depth - 1; i >= 0; i--) {
+            pathNames[i] = entry.node.getName();
+            entry = findEntry(entry.node.getParent());
+            if (entry == null) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(fileSystem.getPath(entry.node.getName(), pathNames));
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    private int acquire(int parent, String name) {
+        Node node = new Node(parent, name);
+        // plain get doesn't lock the bin, so lookups of already known
+        // nodes don't contend with each other
+        Entry entry = entries.get(node);
+        if (entry != null && entry.tryRetain()) {
+            return entry.id;
+        }
+        // the stored node must reference the interned name
+        Node internedNode = new Node(parent, intern(name));
+        entry = entries.compute(internedNode, (n, current) -> {
+            if (current == null) {
+                return register(n);
+            }
+            Entry.REFERENCES.incrementAndGet(current);
+            return current;
+        });
+        if (entry.node != internedNode) {
+            releaseName(name);
+        }
+        return entry.id;
+    }
+
+    /**
+     * Releases the reference to the node.
+     *
+     * @return true if the node was removed.
+     */
+    private boolean release(Entry entry) {
+        if (entry.tryRelease()) {
+            return false;
+        }
+        return entries.computeIfPresent(entry.node, (node, current) -> {
+            if ((Entry.REFERENCES.decrementAndGet(current) & Entry.COUNT_MASK) > 0) {
+                return current;
+            }
+            unregister(current);
+            return null;
+        }) == null;
+    }
+
+    private Entry findEntry(int id) {
+        if (id >= 0) {
+            int slot = id & SLOT_MASK;
+            Entry[][] currentChunks = chunks;
+            int chunkIndex = slot >>> CHUNK_BITS;
+            if (chunkIndex < currentChunks.length) {
+                Entry entry = currentChunks[chunkIndex][slot & CHUNK_MASK];
+                if (entry != null && entry.id == id) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Entry getEntry(int id) {
+        Entry entry = findEntry(id);
+        if (entry == null) {
+            throw noPathException(id);
+        }
+        return entry;
+    }
+
+    private static IllegalArgumentException noPathException(int id) {
+        return new IllegalArgumentException(
+                String.format("There is no path with id '%d'", id)
+        );
+    }
+
+    /**
+     * Assigns an identifier to the new node. Called only once per distinct
+     * node, inside of the {@link ConcurrentHashMap#compute}, so the reverse
+     * mapping is written before the identifier becomes visible.
+     */
+    private Entry register(Node node) {
+        if (node.getParent() != NO_ID) {
+            // the caller holds the parent, so it can't be removed concurrently
+            Entry.REFERENCES.incrementAndGet(getEntry(node.getParent()));
+        }
+        Entry entry = new Entry(nextId(), node);
+        int slot = entry.id & SLOT_MASK;
+        chunks[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = entry;
+        return entry;
+    }
+
+    /**
+     * Frees the slot of the removed node. Called inside of the
+     * {@link ConcurrentHashMap#computeIfPresent}, which removes the node.
+     */
+    private void unregister(Entry entry) {
+        int slot = entry.id & SLOT_MASK;
+        chunks[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = null;
+        releaseName(entry.node.getName());
+        int generation = ((entry.id >>> SLOT_BITS) + 1) % GENERATIONS;
+        slotsLock.lock();
+        try {
+            freeIds.push(generation << SLOT_BITS | slot);
+        } finally {
+            slotsLock.unlock();
+        }
+    }
+
+    private int nextId() {
+        slotsLock.lock();
+        try {
+            Integer freeId = freeIds.poll();
+            if (freeId != null) {
+                return freeId;
+            }
+            if (nextSlot > SLOT_MASK) {
+                throw new IllegalStateException(
+                        String.format("Path table can't contain more than '%d' paths", SLOT_MASK + 1)
+                );
+            }
+            int slot = nextSlot++;
+            int chunkIndex = slot >>> CHUNK_BITS;
+            Entry[][] currentChunks = chunks;
+            if (chunkIndex >= currentChunks.length) {
+                Entry[][] newChunks = new Entry[chunkIndex + 1][];
+                System.arraycopy(currentChunks, 0, newChunks, 0, currentChunks.length);
+                newChunks[chunkIndex] = new Entry[CHUNK_SIZE];
+                chunks = newChunks;
+            }
+            return slot;
+        } finally {
+            slotsLock.unlock();
+        }
+    }
+
+    private String intern(String name) {
+        return names.compute(name, (n, current) -> {
+            if (current == null) {
+                return new Name(n);
+            }
+            current.references++;
+            return current;
+        }).value;
+    }
+
+    private void releaseName(String name) {
+        names.computeIfPresent(name, (n, current) -> --current.references == 0 ? null : current);
+    }
+
+    /**
+     * Path as the name in the parent directory. Roots have no parent.
+     */
+    @Data
+    private static class Node {
+        private final int parent;
+        private final String name;
+    }
+
+    /**
+     * Node along with its identifier and the number of references to it.
+     * The node is removed once the number drops to zero, so it never grows
+     * from zero again. The mark of an indexed node is kept in the same word
+     * as the number, so that it doesn't take memory of its own.
+     */
+    private static class Entry {
+
+        private static final AtomicIntegerFieldUpdater<Entry> REFERENCES =
+                AtomicIntegerFieldUpdater.newUpdater(Entry.class, "references");
+        private static final int INDEXED = 1 << 30;
+        private static final int COUNT_MASK = INDEXED - 1;
+
+        private final int id;
+        private final Node node;
+        private volatile int references = 1;
+
+        Entry(int id, Node node) {
+            this.id = id;
+            this.node = node;
+        }
+
+        /**
+         * Acquires a reference without locking, unless the node is being
+         * removed.
+         */
+        boolean tryRetain() {
+            for (int current = references; (current & COUNT_MASK) > 0; current = references) {
+                if (REFERENCES.compareAndSet(this, current, current + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Releases a reference without locking, unless it's the last one.
+         */
+        boolean tryRelease() {
+            for (int current = references; (current & COUNT_MASK) > 1; current = references) {
+                if (REFERENCES.compareAndSet(this, current, current - 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Marks the node as indexed.
+         *
+         * @return false if the node was already marked.
+         */
+        boolean mark() {
+            for (int current = references; (current & INDEXED) == 0; current = references) {
+                if (REFERENCES.compareAndSet(this, current, current | INDEXED)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Removes the mark of the indexed node.
+         *
+         * @return false if the node was not marked.
+         */
+        boolean unmark() {
+            for (int current = references; (current & INDEXED) != 0; current = references) {
+                if (REFERENCES.compareAndSet(this, current, current & ~INDEXED)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Interned name along with the number of nodes, that reference it.
+     * Changed only inside of the computations of the map of names.
+     */
+    private static class Name {
+        private final String value;
+        private int references = 1;
+
+        Name(String value) {
+            this.value = value;
+        }
+    }
+}
@@ -1,19 +1,42 @@
 package ru.mpoplavkov.indexation.index.impl;
 
+import com.google.common.collect.Multiset;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
 import lombok.Getter;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.java.Log;
 import ru.mpoplavkov.indexation.index.KeyMultiValueStorage;
+import ru.mpoplavkov.indexation.index.TermDictionary;
 import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.model.query.AnyOfTerms;
 import ru.mpoplavkov.indexation.model.query.ExactTerm;
 import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
 import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.util.TraceRecorder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,18 +52,39 @@ import java.util.stream.Stream;
  * version for a specific value, ensuring that no two existing versions are
  * the same.
  *
- * <p>Values are stored wrapped in the {@link java.lang.ref.WeakReference}.
- * This allows to not cleanup the storage manually.
+ * <p>A replaced or deleted version is retired at once: its postings are
+ * deleted from the storage by the writer, that replaced it. Versions are
+ * immutable and readers check every posting against the actual version,
+ * so a reader, that still holds a retired version, never returns it. The
+ * work of a retirement is proportional to the number of terms of the
+ * version, so the memory, occupied by outdated versions, doesn't depend
+ * on the garbage collector, and the storage never needs a full cleanup.
+ * By default, postings are kept in the {@link ConcurrentKeyMultiValueStorage}.
+ * The {@link ConcurrentKeyMultiWeakValueStorage} is used, if an executor
+ * service for its cleanups is given.
+ *
+ * <p>Terms are not stored in the storage directly. Instead, each term is
+ * replaced with its identifier from the {@link TermDictionary}.
+ *
+ * <p>Each version keeps identifiers of its terms along with their
+ * frequencies, so that values could be ranked without reading the posting
+ * lists of all the query terms.
  *
  * @param <V> type of value to be stored in the index.
  */
-@Log
 public class VersionedTermIndex<V> implements TermIndex<V> {
 
     /**
-     * The underlying storage.
+     * The underlying storage. Keys are identifiers of terms from the
+     * {@link VersionedTermIndex#termDictionary}.
      */
-    private final KeyMultiValueStorage<Term, WrappedValue<V>> kmvStorage;
+    private final KeyMultiValueStorage<Integer, WrappedValue<V>> kmvStorage;
+
+    /**
+     * Dictionary of all the terms ever indexed.
+     */
+    private final TermDictionary termDictionary;
+    private final boolean ownsTermDictionary;
 
     /**
      * Association between values and their actual versions in the storage.
@@ -49,15 +93,127 @@ public class VersionedTermIndex<V> implements TermIndex<V> {
      */
     private final Map<V, WrappedValue<V>> actualValues;
 
+    /**
+     * Rough estimates of the memory, occupied by one posting in the storage:
+     * an entry of the concurrent set or an entry of the weak cache along
+     * with its weak references.
+     */
+    private static final int POSTING_BYTES_ESTIMATE = 40;
+    private static final int WEAK_POSTING_BYTES_ESTIMATE = 112;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Number of postings of the actual versions of values.
+     */
+    private final LongAdder livePostings = new LongAdder();
+
+    /**
+     * Number of postings of replaced and deleted versions, removed from
+     * the storage.
+     */
+    private final Counter retiredPostings;
+
+    /**
+     * Sum of the lengths of the actual versions of values.
+     */
+    private final LongAdder totalLength = new LongAdder();
+
+    /**
+     * Number of actual versions of values, containing a term, by the
+     * identifier of the term.
+     */
+    private final Map<Integer, Integer> documentFrequencies = new ConcurrentHashMap<>();
+
+    private final Bm25Similarity similarity = new Bm25Similarity();
+
+    private static final int GENERATION_STRIPES = 4096;
+
+    /**
+     * Generations of terms, striped by identifiers of terms. A generation
+     * is incremented after every change of the set of actual versions,
+     * containing one of the terms of the stripe.
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    /**
+     * Creates the index.
+     *
+     * @param builder settings of the index.
+     */
+    private VersionedTermIndex(Builder builder) {
+        MeterRegistry meterRegistry = builder.meterRegistry;
+        Iterable<Tag> tags = builder.tags;
+        this.ownsTermDictionary = builder.termDictionary == null;
+        this.termDictionary = ownsTermDictionary ? new ConcurrentTermDictionary() : builder.termDictionary;
+        this.actualValues = new ConcurrentHashMap<>(builder.initialCapacity);
+        int postingBytesEstimate;
+        if (builder.storageCleanupExecutorService != null) {
+            this.kmvStorage = ConcurrentKeyMultiWeakValueStorage.builder()
+                    .cleanupExecutorService(builder.storageCleanupExecutorService)
+                    .meterRegistry(meterRegistry)
+                    .tags(tags)
+                    .build();
+            postingBytesEstimate = WEAK_POSTING_BYTES_ESTIMATE;
+        } else {
+            this.kmvStorage = new ConcurrentKeyMultiValueStorage<>(meterRegistry, tags);
+            postingBytesEstimate = POSTING_BYTES_ESTIMATE;
+        }
+        Gauge.builder(MetricNames.INDEX_VALUES, actualValues, Map::size)
+                .description("Number of values in the index")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(MetricNames.DICTIONARY_TERMS, termDictionary, TermDictionary::size)
+                .description("Number of distinct terms ever indexed")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(MetricNames.POSTINGS_LIVE, livePostings, LongAdder::sum)
+                .description("Number of postings of actual versions of values")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(MetricNames.POSTINGS_STALE, this, VersionedTermIndex::stalePostingsCount)
+                .description("Number of postings of outdated versions, that are not yet removed from the storage")
+                .tags(tags)
+                .register(meterRegistry);
+        this.retiredPostings = Counter.builder(MetricNames.POSTINGS_RETIRED)
+                .description("Number of postings of replaced and deleted versions, removed from the storage")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(MetricNames.POSTINGS_MEMORY, kmvStorage, storage -> storage.valuesCount() * postingBytesEstimate)
+                .description("Estimated memory occupied by postings")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates the index with its own dictionary, which keeps postings in the
+     * {@link ConcurrentKeyMultiWeakValueStorage}.
+     *
+     * @param storageCleanupExecutorService executor service to schedule cleanups of
+     *                                      the storage on.
+     * @param initialCapacity               expected number of values.
+     */
     public VersionedTermIndex(ScheduledExecutorService storageCleanupExecutorService,
                               int initialCapacity) {
-        kmvStorage = new ConcurrentKeyMultiWeakValueStorage<>(storageCleanupExecutorService);
-        actualValues = new ConcurrentHashMap<>(initialCapacity);
+        this(builder()
+                .storageCleanupExecutorService(storageCleanupExecutorService)
+                .initialCapacity(initialCapacity));
     }
 
+    /**
+     * Creates the index with its own dictionary, which is closed along with
+     * the index.
+     */
     public VersionedTermIndex() {
-        kmvStorage = new ConcurrentKeyMultiWeakValueStorage<>();
-        actualValues = new ConcurrentHashMap<>();
+        this(builder());
+    }
+
+    /**
+     * @return the builder of the index.
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
@@ -72,27 +228,36 @@ public class VersionedTermIndex<V> implements TermIndex<V> {
      */
     @Override
     public void index(V value, Iterable<Term> terms) {
-        WrappedValue<V> newWrappedValue = new WrappedValue<>(value);
+        WrappedValue<V> newWrappedValue = wrap(value, terms);
 
-        for (Term term : terms) {
-            kmvStorage.put(term, newWrappedValue);
+        for (int termId : newWrappedValue.getTermIds()) {
+            kmvStorage.put(termId, newWrappedValue);
+        }
+        WrappedValue<V> oldWrappedValue = actualValues.put(value, newWrappedValue);
+        updateStatistics(newWrappedValue, 1);
+        if (oldWrappedValue != null) {
+            updateStatistics(oldWrappedValue, -1);
+            retire(oldWrappedValue);
         }
-        actualValues.put(value, newWrappedValue);
-        log.config(() -> String.format("Indexed '%s'", value));
+        TraceRecorder.record("index.index", value);
     }
 
     /**
      * Atomically deletes all occurrences of the given value from the index.
-     * Just removes the given value from {@link VersionedTermIndex#actualValues},
+     * Removes the given value from {@link VersionedTermIndex#actualValues},
      * so that all the further lookups will not retrieve that value because
-     * of the version mismatch.
+     * of the version mismatch, and retires its last version.
      *
      * @param value value to delete from the index.
      */
     @Override
     public void delete(V value) {
-        actualValues.remove(value);
-        log.config(() -> String.format("Deleted '%s'", value));
+        WrappedValue<V> oldWrappedValue = actualValues.remove(value);
+        if (oldWrappedValue != null) {
+            updateStatistics(oldWrappedValue, -1);
+            retire(oldWrappedValue);
+        }
+        TraceRecorder.record("index.delete", value);
     }
 
     /**
@@ -135,32 +300,368 @@ public class VersionedTermIndex<V> implements TermIndex<V> {
      */
     @Override
     public Set<V> search(Query query) {
+        List<Integer> termsToSearch = knownTermIdsOf(query);
+        if (termsToSearch.isEmpty()) {
+            // none of the terms was ever indexed
+            return new HashSet<>();
+        }
+
+        Set<WrappedValue<V>> actualValuesSnapshot =
+                postings(termsToSearch)
+                        .map(WrappedValue::getValue)
+                        .distinct()
+                        .flatMap(this::withActualValue)
+                        .collect(Collectors.toSet());
+
+        // values of the union are the ones, which actual versions are found
+        // in the posting of any of the terms
+        return postings(termsToSearch)
+                .filter(actualValuesSnapshot::contains)
+                .map(WrappedValue::getValue)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Lazily retrieves values from the index that match the specified
+     * query. Unlike {@link VersionedTermIndex#search(Query)}, the snapshot
+     * of versions is not made: every posting is checked against the actual
+     * version of its value at the moment it's read. For several terms, a
+     * value is returned once, even if its actual version contains many of
+     * them.
+     *
+     * @param query given query.
+     * @return stream of matched values.
+     */
+    @Override
+    public Stream<V> searchStream(Query query) {
+        List<Integer> termsToSearch = knownTermIdsOf(query);
+        Stream<V> values = termsToSearch
+                .stream()
+                .flatMap(kmvStorage::stream)
+                .filter(wrappedValue -> actualValues.get(wrappedValue.getValue()) == wrappedValue)
+                .map(WrappedValue::getValue);
+        return termsToSearch.size() > 1 ? values.distinct() : values;
+    }
+
+    /**
+     * Counts values, that match the specified query, without retrieving
+     * them. For a single term, the number of actual versions containing the
+     * term is maintained by the index, so it's returned immediately. For
+     * several terms, posting lists are read lazily, and a value is counted
+     * only in the list of the first query term, contained in its actual
+     * version, so that no set of values is built.
+     *
+     * @param query given query.
+     * @return number of matched values.
+     */
+    @Override
+    public long count(Query query) {
+        List<Integer> termIds = indexedTermIdsOf(query);
+        if (termIds.size() == 1) {
+            return documentFrequency(termIds.get(0));
+        }
+        long count = 0;
+        for (int i = 0; i < termIds.size(); i++) {
+            List<Integer> previousTermIds = termIds.subList(0, i);
+            count += kmvStorage.stream(termIds.get(i))
+                    .filter(wrappedValue -> actualValues.get(wrappedValue.getValue()) == wrappedValue)
+                    .filter(wrappedValue -> previousTermIds.stream().noneMatch(id -> wrappedValue.frequency(id) > 0))
+                    .count();
+        }
+        return count;
+    }
+
+    /**
+     * Checks if any value matches the specified query. Answered from the
+     * number of actual versions containing each of the terms.
+     *
+     * @param query given query.
+     * @return true if there is at least one matched value.
+     */
+    @Override
+    public boolean exists(Query query) {
+        return !indexedTermIdsOf(query).isEmpty();
+    }
+
+    /**
+     * Sums generations of the query terms. Generations are advanced after
+     * the change is applied, so a result, retrieved after reading the
+     * generation, is at least as fresh as the generation. Terms share
+     * generations by stripes, so the generation could change even if the
+     * result didn't. A term, that was never indexed, has no generation,
+     * and adds nothing to the sum. Repeated terms are counted once.
+     *
+     * @param query given query.
+     * @return generation of the query.
+     */
+    @Override
+    public long generation(Query query) {
+        long generation = 0;
+        Set<Integer> termIds = new HashSet<>();
+        for (Term term : termsOf(query)) {
+            int termId = termDictionary.getId(term);
+            if (termId != TermDictionary.NO_ID && termIds.add(termId)) {
+                generation += generations.get(termId & (GENERATION_STRIPES - 1)) + 1;
+            }
+        }
+        return generation;
+    }
+
+    /**
+     * Retrieves at most k values, that are the most relevant to the query
+     * according to the {@link Bm25Similarity}.
+     * <br><br>
+     * Posting lists of the query terms are read one by one, starting from
+     * the term with the highest maximum score, i.e. from the rarest one.
+     * Every value is scored completely at its first posting: frequencies of
+     * all the query terms are taken from its actual version. So a value,
+     * that is not scored after reading a few lists, occurs only in the rest
+     * of them, and its score could not exceed the sum of maximum scores of
+     * the remaining terms. As soon as this sum could not beat the k-th best
+     * score, the remaining lists, usually of the most common terms, are not
+     * read at all (MaxScore). Only k best values are kept in a heap.
+     * <br><br>
+     * Statistics of the index (number of values, their average length and
+     * number of values containing a term) are updated after each operation,
+     * so scores of values, updated during the search, are approximate.
+     *
+     * @param query given query.
+     * @param k     maximum number of values to retrieve.
+     * @return matched values in the descending order of their relevance.
+     */
+    @Override
+    public List<ScoredValue<V>> searchTopK(Query query, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("Number of values to retrieve should be positive, but was '%d'", k)
+            );
+        }
+        long documentsCount = actualValues.size();
+        if (documentsCount == 0) {
+            return new ArrayList<>();
+        }
+        double averageLength = (double) totalLength.sum() / documentsCount;
+        List<QueryTerm> queryTerms = queryTermsOf(query, documentsCount);
+        queryTerms.sort(Comparator.comparingDouble(QueryTerm::getMaxScore).reversed());
+
+        // maximum possible score of a value, found only in lists from i to the end
+        double[] remainingMaxScore = new double[queryTerms.size() + 1];
+        for (int i = queryTerms.size() - 1; i >= 0; i--) {
+            remainingMaxScore[i] = remainingMaxScore[i + 1] + queryTerms.get(i).getMaxScore();
+        }
+
+        PriorityQueue<ScoredValue<V>> top = new PriorityQueue<>(k, Comparator.comparingDouble(ScoredValue::getScore));
+        Set<WrappedValue<V>> scored = new HashSet<>();
+        for (int i = 0; i < queryTerms.size(); i++) {
+            if (top.size() == k && remainingMaxScore[i] <= top.peek().getScore()) {
+                break;
+            }
+            for (WrappedValue<V> posting : kmvStorage.get(queryTerms.get(i).getTermId())) {
+                // a posting of an outdated version is replaced by the actual one,
+                // which could be absent from the list, if it was added after the read
+                WrappedValue<V> actualValue = actualValues.get(posting.getValue());
+                if (actualValue == null || !scored.add(actualValue)) {
+                    continue;
+                }
+                double score = score(actualValue, queryTerms, averageLength);
+                if (score == 0) {
+                    // the actual version doesn't contain any of the terms
+                    continue;
+                }
+                if (top.size() < k) {
+                    top.add(new ScoredValue<>(actualValue.getValue(), score));
+                } else if (score > top.peek().getScore()) {
+                    top.poll();
+                    top.add(new ScoredValue<>(actualValue.getValue(), score));
+                }
+            }
+        }
+
+        List<ScoredValue<V>> result = new ArrayList<>(top);
+        result.sort((v1, v2) -> Double.compare(v2.getScore(), v1.getScore()));
+        return result;
+    }
+
+    private List<QueryTerm> queryTermsOf(Query query, long documentsCount) {
+        List<QueryTerm> queryTerms = new ArrayList<>();
+        for (int termId : indexedTermIdsOf(query)) {
+            double idf = similarity.idf(documentFrequency(termId), documentsCount);
+            queryTerms.add(new QueryTerm(termId, idf, similarity.maxScore(idf)));
+        }
+        return queryTerms;
+    }
+
+    /**
+     * Retrieves distinct identifiers of the query terms, contained in at
+     * least one actual version of a value.
+     */
+    private List<Integer> indexedTermIdsOf(Query query) {
+        List<Integer> termIds = new ArrayList<>();
+        for (Term term : termsOf(query)) {
+            int termId = termDictionary.getId(term);
+            if (termId != TermDictionary.NO_ID && !termIds.contains(termId) && documentFrequency(termId) > 0) {
+                termIds.add(termId);
+            }
+        }
+        return termIds;
+    }
+
+    /**
+     * Retrieves distinct identifiers of the query terms, that were ever
+     * indexed.
+     */
+    private List<Integer> knownTermIdsOf(Query query) {
+        List<Integer> termIds = new ArrayList<>();
+        for (Term term : termsOf(query)) {
+            int termId = termDictionary.getId(term);
+            if (termId != TermDictionary.NO_ID && !termIds.contains(termId)) {
+                termIds.add(termId);
+            }
+        }
+        return termIds;
+    }
+
+    private Stream<WrappedValue<V>> postings(List<Integer> termIds) {
+        return termIds
+                .stream()
+                .flatMap(termId -> kmvStorage.get(termId).stream());
+    }
+
+    private static Collection<Term> termsOf(Query query) {
         if (query instanceof ExactTerm) {
-            ExactTerm exactTerm = (ExactTerm) query;
-            Term termToSearch = exactTerm.getTerm();
+            return Collections.singleton(((ExactTerm) query).getTerm());
+        } else if (query instanceof AnyOfTerms) {
+            return ((AnyOfTerms) query).getTerms();
+        }
+        throw new UnsupportedOperationException(
+                String.format("Query '%s' is not supported", query)
+        );
+    }
+
+    private int documentFrequency(int termId) {
+        return documentFrequencies.getOrDefault(termId, 0);
+    }
+
+    private double score(WrappedValue<V> wrappedValue, List<QueryTerm> queryTerms, double averageLength) {
+        double score = 0;
+        for (QueryTerm queryTerm : queryTerms) {
+            score += similarity.score(
+                    queryTerm.getIdf(),
+                    wrappedValue.frequency(queryTerm.getTermId()),
+                    wrappedValue.getLength(),
+                    averageLength
+            );
+        }
+        return score;
+    }
+
+    /**
+     * Creates a new version of the value. Repeated terms are counted.
+     */
+    private WrappedValue<V> wrap(V value, Iterable<Term> terms) {
+        Map<Integer, Integer> frequencies = new HashMap<>();
+        if (terms instanceof Multiset) {
+            for (Multiset.Entry<Term> entry : ((Multiset<Term>) terms).entrySet()) {
+                frequencies.merge(termDictionary.getOrAssignId(entry.getElement()), entry.getCount(), Integer::sum);
+            }
+        } else {
+            for (Term term : terms) {
+                frequencies.merge(termDictionary.getOrAssignId(term), 1, Integer::sum);
+            }
+        }
+
+        int[] termIds = new int[frequencies.size()];
+        int i = 0;
+        for (int termId : frequencies.keySet()) {
+            termIds[i++] = termId;
+        }
+        Arrays.sort(termIds);
+        int[] termFrequencies = new int[termIds.length];
+        int length = 0;
+        for (i = 0; i < termIds.length; i++) {
+            termFrequencies[i] = frequencies.get(termIds[i]);
+            length += termFrequencies[i];
+        }
+        return new WrappedValue<>(value, termIds, termFrequencies, length);
+    }
 
-            Set<WrappedValue<V>> firstQueryResult = kmvStorage.get(termToSearch);
+    /**
+     * Deletes postings of the replaced or deleted version from the storage.
+     * Every version is retired exactly once, by the writer, that removed
+     * it from {@link VersionedTermIndex#actualValues}.
+     */
+    private void retire(WrappedValue<V> wrappedValue) {
+        for (int termId : wrappedValue.getTermIds()) {
+            kmvStorage.delete(termId, wrappedValue);
+        }
+        retiredPostings.increment(wrappedValue.getPostingsCount());
+    }
 
-            Set<WrappedValue<V>> actualValuesSnapshot =
-                    firstQueryResult
-                            .stream()
-                            .map(WrappedValue::getValue)
-                            .distinct()
-                            .flatMap(this::withActualValue)
-                            .collect(Collectors.toSet());
+    /**
+     * Adds the version to the statistics of the index or, if the sign
+     * is negative, removes it. Advances generations of its terms.
+     */
+    private void updateStatistics(WrappedValue<V> wrappedValue, int sign) {
+        livePostings.add(sign * wrappedValue.getPostingsCount());
+        totalLength.add(sign * wrappedValue.getLength());
+        for (int termId : wrappedValue.getTermIds()) {
+            documentFrequencies.merge(termId, sign, (f1, f2) -> f1 + f2 == 0 ? null : f1 + f2);
+            generations.incrementAndGet(termId & (GENERATION_STRIPES - 1));
+        }
+    }
+
+    /**
+     * Retrieves values, that match each of the specified queries. Works as
+     * {@link VersionedTermIndex#search(Query)}, but both requests to the
+     * storage are made once per distinct term of all the queries, and one
+     * snapshot of actual versions is made for all of them, so that results
+     * of all the queries are consistent with each other.
+     *
+     * @param queries given queries.
+     * @return matched values for each query, in the order of the queries.
+     */
+    @Override
+    public List<Set<V>> searchAll(List<Query> queries) {
+        List<List<Integer>> termIdsOfQueries = new ArrayList<>(queries.size());
+        Map<Integer, Set<WrappedValue<V>>> firstQueryResults = new HashMap<>();
+        for (Query query : queries) {
+            List<Integer> termIds = new ArrayList<>();
+            for (Term term : termsOf(query)) {
+                int termId = termDictionary.getId(term);
+                if (termId != TermDictionary.NO_ID) {
+                    termIds.add(termId);
+                    firstQueryResults.computeIfAbsent(termId, kmvStorage::get);
+                }
+            }
+            termIdsOfQueries.add(termIds);
+        }
 
-            Set<WrappedValue<V>> secondQueryResult = kmvStorage.get(termToSearch);
+        Set<WrappedValue<V>> actualValuesSnapshot =
+                firstQueryResults.values()
+                        .stream()
+                        .flatMap(Set::stream)
+                        .map(WrappedValue::getValue)
+                        .distinct()
+                        .flatMap(this::withActualValue)
+                        .collect(Collectors.toSet());
 
-            return secondQueryResult
+        Map<Integer, Set<V>> secondQueryResults = new HashMap<>();
+        for (int termId : firstQueryResults.keySet()) {
+            Set<V> values = kmvStorage.get(termId)
                     .stream()
                     .filter(actualValuesSnapshot::contains)
                     .map(WrappedValue::getValue)
                     .collect(Collectors.toSet());
+            secondQueryResults.put(termId, values);
         }
 
-        throw new UnsupportedOperationException(
-                String.format("Query '%s' is not supported", query)
-        );
+        List<Set<V>> results = new ArrayList<>(queries.size());
+        for (List<Integer> termIds : termIdsOfQueries) {
+            Set<V> result = new HashSet<>();
+            termIds.forEach(termId -> result.addAll(secondQueryResults.get(termId)));
+            results.add(result);
+        }
+        return results;
     }
 
     private Stream<WrappedValue<V>> withActualValue(V value) {
@@ -172,9 +673,30 @@ public class VersionedTermIndex<V> implements TermIndex<V> {
         }
     }
 
+    /**
+     * Postings of outdated versions stay in the storage between the
+     * replacement of a version and its retirement, so this is the amount
+     * of retirement work in progress.
+     */
+    private long stalePostingsCount() {
+        return Math.max(kmvStorage.valuesCount() - livePostings.sum(), 0);
+    }
+
+    /**
+     * Closes the underlying storage, and the term dictionary, if it was
+     * created by the index.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
     @Override
     public void close() throws IOException {
-        kmvStorage.close();
+        try {
+            kmvStorage.close();
+        } finally {
+            if (ownsTermDictionary) {
+                termDictionary.close();
+            }
+        }
     }
 
     // TODO: discuss if this idea is clear. Reimplement, if not
@@ -190,6 +712,31 @@ public class VersionedTermIndex<V> implements TermIndex<V> {
     private static class WrappedValue<V> {
         private final V value;
 
+        /**
+         * Sorted identifiers of the terms of this version.
+         */
+        private final int[] termIds;
+
+        /**
+         * Number of occurrences of each term in this version, in the order
+         * of {@link WrappedValue#termIds}.
+         */
+        private final int[] termFrequencies;
+
+        /**
+         * Number of terms in this version, including repeated ones.
+         */
+        private final int length;
+
+        int getPostingsCount() {
+            return termIds.length;
+        }
+
+        int frequency(int termId) {
+            int i = Arrays.binarySearch(termIds, termId);
+            return i < 0 ? 0 : termFrequencies[i];
+        }
+
         /**
          * Reference equality check. Since each new version of the value is
          * associated with a new instance of a {@link WrappedValue}, the equality
@@ -201,4 +748,97 @@ public class VersionedTermIndex<V> implements TermIndex<V> {
             return this == another;
         }
     }
+
+    /**
+     * Term of a ranked query along with its statistics.
+     */
+    @Data
+    private static class QueryTerm {
+        private final int termId;
+        private final double idf;
+
+        /**
+         * Upper bound of the score of any value for this term.
+         */
+        private final double maxScore;
+    }
+
+    /**
+     * Builder of the {@link VersionedTermIndex}. Settings, which are not
+     * given, take default values.
+     */
+    public static final class Builder {
+
+        private TermDictionary termDictionary;
+        private ScheduledExecutorService storageCleanupExecutorService;
+        private int initialCapacity = DEFAULT_CAPACITY;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private Iterable<Tag> tags = Tags.empty();
+
+        private Builder() {
+        }
+
+        /**
+         * @param termDictionary dictionary to assign identifiers to terms. It could
+         *                       be shared, e.g. by shards, so it's not closed along
+         *                       with the index. By default, the index creates its
+         *                       own dictionary, which is closed along with it.
+         * @return this builder.
+         */
+        public Builder termDictionary(TermDictionary termDictionary) {
+            this.termDictionary = termDictionary;
+            return this;
+        }
+
+        /**
+         * @param storageCleanupExecutorService executor service to schedule cleanups of
+         *                                      the storage on. If given, postings are kept
+         *                                      in the {@link ConcurrentKeyMultiWeakValueStorage},
+         *                                      otherwise in the {@link ConcurrentKeyMultiValueStorage}.
+         * @return this builder.
+         */
+        public Builder storageCleanupExecutorService(ScheduledExecutorService storageCleanupExecutorService) {
+            this.storageCleanupExecutorService = storageCleanupExecutorService;
+            return this;
+        }
+
+        /**
+         * @param initialCapacity expected number of values.
+         * @return this builder.
+         */
+        public Builder initialCapacity(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * @param meterRegistry registry to publish metrics of the index to.
+         *                      By default, the global registry.
+         * @return this builder.
+         */
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * @param tags tags to add to metrics of the index, so that several
+         *             indexes could publish to one registry.
+         * @return this builder.
+         */
+        public Builder tags(Iterable<Tag> tags) {
+            this.tags = tags;
+            return this;
+        }
+
+        /**
+         * Creates the index.
+         *
+         * @param <V> type of value to be stored in the index.
+         * @return the index.
+         */
+        public <V> VersionedTermIndex<V> build() {
+            return new VersionedTermIndex<>(this);
+        }
+    }
 }
@@ -20,6 +20,19 @@ public interface FileSystemSubscriber extends Closeable {
      */
     void subscribe(Path path) throws IOException;
 
+    /**
+     * Subscribes to the path for listening and reports the progress of
+     * the walk over its contents.
+     *
+     * @param path     the path to subscribe to.
+     * @param progress progress to report to. If it's cancelled, the walk
+     *                 stops and paths, subscribed by it, are unsubscribed
+     *                 from. Paths, subscribed before, stay subscribed.
+     * @throws IOException                                  if an I/O error occurs.
+     * @throws java.util.concurrent.CancellationException if the walk was cancelled.
+     */
+    void subscribe(Path path, SubscriptionProgress progress) throws IOException;
+
     /**
      * Deletes the path and its contents from the index and stops to
      * listen for its changes. Does nothing if the path was not subscribed to.
@@ -32,6 +45,16 @@ public interface FileSystemSubscriber extends Closeable {
      */
     void unsubscribe(Path path) throws IOException;
 
+    /**
+     * Unsubscribes from the path and reports the progress of removal of
+     * its files from the index. Unsubscription is never cancelled.
+     *
+     * @param path     the path to unsubscribe from.
+     * @param progress progress to report to.
+     * @throws IOException if an I/O error occurs.
+     */
+    void unsubscribe(Path path, SubscriptionProgress progress) throws IOException;
+
     /**
      * Starts threads for listening the file system for events
      * ans processing them. Threads will be cancelled when the
@@ -0,0 +1,72 @@
+package ru.mpoplavkov.indexation.listener;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of a subscription or an unsubscription of a path: how many
+ * files were found while walking the path and how many of them were
+ * already processed.
+ *
+ * <p>The walk could be cancelled through the progress. The subscriber
+ * checks for the cancellation between files.
+ */
+public class SubscriptionProgress {
+
+    private final LongAdder filesDiscovered = new LongAdder();
+    private final LongAdder filesProcessed = new LongAdder();
+    private final AtomicLong bytesProcessed = new AtomicLong();
+    private volatile boolean cancelled;
+
+    /**
+     * Records, that files were found during the walk.
+     *
+     * @param count number of found files.
+     */
+    public void onFilesDiscovered(int count) {
+        filesDiscovered.add(count);
+    }
+
+    /**
+     * Records, that a found file was processed.
+     *
+     * @param bytes size of the file.
+     */
+    public void onFileProcessed(long bytes) {
+        filesProcessed.increment();
+        bytesProcessed.addAndGet(bytes);
+    }
+
+    /**
+     * Requests the walk to stop.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if the walk was cancelled.
+     */
+    public void checkNotCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Walk was cancelled");
+        }
+    }
+
+    public long getFilesDiscovered() {
+        return filesDiscovered.sum();
+    }
+
+    public long getFilesProcessed() {
+        return filesProcessed.sum();
+    }
+
+    public long getBytesProcessed() {
+        return bytesProcessed.get();
+    }
+}
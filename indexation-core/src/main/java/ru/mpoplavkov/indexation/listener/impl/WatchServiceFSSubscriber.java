@@ -1,27 +1,28 @@
 package ru.mpoplavkov.indexation.listener.impl;
 
-import lombok.extern.java.Log;
 import ru.mpoplavkov.indexation.filter.PathFilter;
 import ru.mpoplavkov.indexation.listener.FileSystemSubscriber;
+import ru.mpoplavkov.indexation.listener.SubscriptionProgress;
 import ru.mpoplavkov.indexation.model.fs.FileSystemEvent;
 import ru.mpoplavkov.indexation.trigger.FSEventTrigger;
 import ru.mpoplavkov.indexation.util.RetryUtil;
+import ru.mpoplavkov.indexation.util.TraceRecorder;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.WatchService;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
  * {@link FileSystemSubscriber}, based on the {@link WatchService}.
  * Accumulates file system events processing logic.
  */
-@Log
 public class WatchServiceFSSubscriber extends WatchServiceFSSubscriberBase {
 
     private final FSEventTrigger trigger;
@@ -32,8 +33,16 @@ public class WatchServiceFSSubscriber extends WatchServiceFSSubscriberBase {
      * @param pathFilter filter for files to check while registration and processing.
      * @param trigger    trigger to apply for found events.
      * @param watcher    watch service to listen for events in the file system.
-     * @throws IOException if an I/O error occurs.
+     * @param settings   settings of the subscriber.
      */
+    public WatchServiceFSSubscriber(PathFilter pathFilter,
+                                    FSEventTrigger trigger,
+                                    WatchService watcher,
+                                    Settings settings) {
+        super(pathFilter, watcher, settings);
+        this.trigger = trigger;
+    }
+
     public WatchServiceFSSubscriber(PathFilter pathFilter,
                                     FSEventTrigger trigger,
                                     WatchService watcher) throws IOException {
@@ -54,9 +63,9 @@ public class WatchServiceFSSubscriber extends WatchServiceFSSubscriberBase {
      */
     @Override
     protected void onEvent(FileSystemEvent event) {
-        log.info(() -> String.format("Processing event '%s'", event));
+        long start = System.nanoTime();
         RetryUtil.retry(() -> onEventInner(event), 3);
-        log.info(() -> String.format("Event processed '%s'", event));
+        TraceRecorder.record("subscriber.event", event, System.nanoTime() - start);
     }
 
     private void onEventInner(FileSystemEvent event) throws IOException {
@@ -67,27 +76,42 @@ public class WatchServiceFSSubscriber extends WatchServiceFSSubscriberBase {
         }
 
         // user defined processing
-        trigger.onEvent(event);
+        CompletableFuture<Void> processed = trigger.onEventAsync(event);
+
+        // the file is processed, when its change is applied to the index
+        SubscriptionProgress progress = currentProgress();
+        if (progress != null && !isOrWasADirectory(event.getEntry())) {
+            boolean created = event.getKind() == FileSystemEvent.Kind.ENTRY_CREATE;
+            long bytes = created ? sizeOf(event.getEntry()) : 0;
+            processed = processed.thenRun(() -> progress.onFileProcessed(bytes));
+        }
+        trackChange(processed);
     }
 
     private void directoryEventSubscriberSpecificProcessing(FileSystemEvent event) throws IOException {
         Path dir = event.getEntry();
         switch (event.getKind()) {
             case ENTRY_CREATE:
-                List<Path> children = listChildren(dir).collect(Collectors.toList());
-                for (Path child : children) {
-                    if (isDirectory(child)) {
-                        trackedPaths
-                                .computeIfAbsent(dir, p -> ConcurrentHashMap.newKeySet())
-                                .add(child);
-                        subscribeInner(child, Optional.empty());
-                    } else {
-                        onEventInner(new FileSystemEvent(FileSystemEvent.Kind.ENTRY_CREATE, child));
+                Map<Boolean, List<Path>> children = listChildren(dir)
+                        .collect(Collectors.partitioningBy(this::isDirectory));
+                List<Path> files = children.get(false);
+                SubscriptionProgress progress = currentProgress();
+                if (progress != null) {
+                    progress.onFilesDiscovered(files.size());
+                }
+                processConcurrently(files,
+                        file -> onEventInner(new FileSystemEvent(FileSystemEvent.Kind.ENTRY_CREATE, file))
+                );
+                for (Path child : children.get(true)) {
+                    if (progress != null) {
+                        progress.checkNotCancelled();
                     }
+                    track(dir, child);
+                    subscribeInner(child, Optional.empty());
                 }
                 break;
             case ENTRY_DELETE:
-                Set<Path> dirFiles = trackedPaths.get(dir);
+                Set<Path> dirFiles = trackedChildren(dir);
                 if (dirFiles == null) {
                     return;
                 }
@@ -95,8 +119,11 @@ public class WatchServiceFSSubscriber extends WatchServiceFSSubscriberBase {
                         .stream()
                         .filter(p -> !isOrWasADirectory(p))
                         .collect(Collectors.toSet());
-                trackedPaths.remove(dir);
+                untrackDir(dir);
                 dirsResponsibleForNewFiles.remove(dir);
+                if (currentProgress() != null) {
+                    currentProgress().onFilesDiscovered(directoryFiles.size());
+                }
                 for (Path file : directoryFiles) {
                     onEventInner(new FileSystemEvent(FileSystemEvent.Kind.ENTRY_DELETE, file));
                 }
@@ -116,13 +143,10 @@ public class WatchServiceFSSubscriber extends WatchServiceFSSubscriberBase {
         Path file = event.getEntry();
         switch (event.getKind()) {
             case ENTRY_CREATE:
-                trackedPaths
-                        .computeIfAbsent(file.getParent(), p -> ConcurrentHashMap.newKeySet())
-                        .add(file);
+                track(file.getParent(), file);
                 break;
             case ENTRY_DELETE:
-                Set<Path> set = trackedPaths.getOrDefault(file.getParent(), Collections.emptySet());
-                set.remove(file);
+                untrack(file.getParent(), file);
                 break;
             case ENTRY_MODIFY:
                 // nothing
@@ -134,6 +158,17 @@ public class WatchServiceFSSubscriber extends WatchServiceFSSubscriberBase {
         }
     }
 
+    /**
+     * @return size of the file in bytes, or zero if it's already deleted.
+     */
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
     /**
      * Checks if the given path is a directory or was a directory (in case
      * if this path was already deleted).
@@ -142,6 +177,6 @@ public class WatchServiceFSSubscriber extends WatchServiceFSSubscriberBase {
      * @return true if is or was a directory.
      */
     private boolean isOrWasADirectory(Path path) {
-        return isDirectory(path) || trackedPaths.containsKey(path);
+        return isDirectory(path) || isTrackedDir(path);
     }
 }
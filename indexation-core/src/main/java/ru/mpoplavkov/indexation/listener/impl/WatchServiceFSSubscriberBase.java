@@ -1,21 +1,37 @@
 package ru.mpoplavkov.indexation.listener.impl;
 
 import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.SneakyThrows;
 import lombok.extern.java.Log;
 import ru.mpoplavkov.indexation.filter.PathFilter;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.index.impl.TreePathTable;
 import ru.mpoplavkov.indexation.listener.FileSystemSubscriber;
+import ru.mpoplavkov.indexation.listener.SubscriptionProgress;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
 import ru.mpoplavkov.indexation.model.fs.FileSystemEvent;
 import ru.mpoplavkov.indexation.util.ExecutorsUtil;
 import ru.mpoplavkov.indexation.util.FileUtil;
+import ru.mpoplavkov.indexation.util.TraceRecorder;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -36,6 +52,23 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
     private final PathFilter pathFilter;
     private ExecutorService listenerExecutorService;
 
+    /**
+     * Whether listeners and readers of files run on virtual threads.
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * Executor service to read files of a directory concurrently, while
+     * it's being crawled. Null if files are read by the crawling thread.
+     */
+    private final ExecutorService fileReaderExecutorService;
+
+    /**
+     * Bounds the number of files, read concurrently. Null if files are read
+     * by the crawling thread.
+     */
+    private final Semaphore openFiles;
+
     /**
      * Mapping from watch keys to paths tracked by those keys.
      */
@@ -47,9 +80,16 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
     private final Map<Path, WatchKey> dirsToWatchKeys = new ConcurrentHashMap<>();
 
     /**
-     * Map from tracked paths to their registered children.
+     * Table of paths, tracked by the subscriber. Should be shared with the
+     * index, so that every path is stored only once.
      */
-    protected final Map<Path, Set<Path>> trackedPaths = new ConcurrentHashMap<>();
+    private final PathTable pathTable;
+
+    /**
+     * Map from tracked paths to their registered children, both stored as
+     * identifiers from the {@code pathTable}.
+     */
+    private final Map<Integer, Set<Integer>> trackedPaths = new ConcurrentHashMap<>();
 
     /**
      * Set of registered directories. This set doesn't contain directories, that
@@ -73,15 +113,73 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
                     ENTRY_DELETE, FileSystemEvent.Kind.ENTRY_DELETE
             );
 
+    /**
+     * Counters of events received from the watcher, by kinds.
+     */
+    private final Map<WatchEvent.Kind<?>, Counter> receivedEventsCounters;
+
+    /**
+     * Progress of the subscription or the unsubscription, performed by the
+     * current thread. Absent on listener threads.
+     */
+    private final ThreadLocal<SubscriptionProgress> currentProgress = new ThreadLocal<>();
+
+    /**
+     * Paths, subscribed by the subscription, performed by the current thread,
+     * to unsubscribe from if it's cancelled, and changes of the index, which
+     * the subscription or the unsubscription waits for. Absent on listener
+     * threads.
+     */
+    private final ThreadLocal<SubscriptionChanges> currentChanges = new ThreadLocal<>();
+
+    private final Counter overflowCounter;
+    private final Counter filteredCounter;
+    private final Counter failedCounter;
+
     /**
      * Initializes the subscriber base.
      *
      * @param pathFilter filter for paths to check while subscription and processing.
      * @param watcher    watch service to listen for events in the file system.
+     * @param settings   settings of the subscriber.
      */
-    public WatchServiceFSSubscriberBase(PathFilter pathFilter, WatchService watcher) {
+    public WatchServiceFSSubscriberBase(PathFilter pathFilter, WatchService watcher, Settings settings) {
+        MeterRegistry meterRegistry = settings.meterRegistry;
+        int maxOpenFiles = settings.maxOpenFiles;
         this.pathFilter = pathFilter;
         this.watcher = watcher;
+        this.pathTable = settings.pathTable != null ? settings.pathTable : new TreePathTable();
+        this.virtualThreads = settings.virtualThreads;
+        if (virtualThreads) {
+            if (maxOpenFiles <= 0) {
+                throw new IllegalArgumentException(
+                        String.format("Number of open files should be positive, but was '%d'", maxOpenFiles)
+                );
+            }
+            // without virtual threads, blocked readers occupy platform threads,
+            // so the pool is not sized to the number of open files
+            this.fileReaderExecutorService = ExecutorsUtil.newVirtualThreadExecutor(
+                    "file-reader",
+                    Math.min(maxOpenFiles, 2 * Runtime.getRuntime().availableProcessors())
+            );
+            this.openFiles = new Semaphore(maxOpenFiles);
+        } else {
+            this.fileReaderExecutorService = null;
+            this.openFiles = null;
+        }
+        this.receivedEventsCounters = ImmutableMap.of(
+                ENTRY_CREATE, receivedEventsCounter("create", meterRegistry),
+                ENTRY_MODIFY, receivedEventsCounter("modify", meterRegistry),
+                ENTRY_DELETE, receivedEventsCounter("delete", meterRegistry),
+                OVERFLOW, receivedEventsCounter("overflow", meterRegistry)
+        );
+        this.overflowCounter = droppedEventsCounter("overflow", meterRegistry);
+        this.filteredCounter = droppedEventsCounter("filtered", meterRegistry);
+        this.failedCounter = droppedEventsCounter("failed", meterRegistry);
+    }
+
+    public WatchServiceFSSubscriberBase(PathFilter pathFilter, WatchService watcher) {
+        this(pathFilter, watcher, new Settings());
     }
 
     public WatchServiceFSSubscriberBase(PathFilter pathFilter) throws IOException {
@@ -97,6 +195,32 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
      */
     @Override
     public void subscribe(Path path) throws IOException {
+        subscribe(path, new SubscriptionProgress());
+    }
+
+    @Override
+    public void subscribe(Path path, SubscriptionProgress progress) throws IOException {
+        SubscriptionChanges changes = new SubscriptionChanges();
+        currentProgress.set(progress);
+        currentChanges.set(changes);
+        try {
+            subscribeWithProgress(path);
+            changes.awaitApplied();
+        } catch (CancellationException e) {
+            // the rollback is not a part of the cancelled progress
+            currentProgress.remove();
+            SubscriptionChanges rollbackChanges = new SubscriptionChanges();
+            currentChanges.set(rollbackChanges);
+            rollback(changes);
+            rollbackChanges.awaitApplied();
+            throw e;
+        } finally {
+            currentProgress.remove();
+            currentChanges.remove();
+        }
+    }
+
+    private void subscribeWithProgress(Path path) throws IOException {
         Path canonicalPath = FileUtil.toCanonicalPath(path);
         checkPathExists(canonicalPath);
         if (!pathFilter.filter(canonicalPath)) {
@@ -109,6 +233,7 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
         if (isDirectory(canonicalPath)) {
             subscribeInner(canonicalPath, Optional.empty());
         } else {
+            currentProgress.get().onFilesDiscovered(1);
             Path parent = canonicalPath.getParent();
             subscribeInner(parent, Optional.of(canonicalPath));
         }
@@ -131,18 +256,25 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
         // exclusively by one thread.
         lock.lock();
         try {
-            Set<Path> pathsTrackedByThisDir = trackedPaths.getOrDefault(dir, Collections.emptySet());
+            SubscriptionChanges changes = currentChanges.get();
             if (childToSubscribe.isPresent()) {
-                if (pathsTrackedByThisDir.contains(childToSubscribe.get())) {
+                if (isTracked(dir, childToSubscribe.get())) {
                     // nothing to do, already subscribed
                     return;
                 }
+                if (changes != null) {
+                    changes.subscribedFiles.add(childToSubscribe.get());
+                }
             } else {
                 boolean alreadyWas = !dirsResponsibleForNewFiles.add(dir);
                 if (alreadyWas) {
                     // nothing to do, already subscribed
                     return;
                 }
+                if (changes != null) {
+                    Set<Path> trackedBefore = trackedChildren(dir);
+                    changes.subscribedDirs.put(dir, trackedBefore == null ? Collections.emptySet() : trackedBefore);
+                }
             }
 
             WatchKey watchKey = registerDirToTheWatcher(dir);
@@ -160,11 +292,30 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
 
     @Override
     public void unsubscribe(Path path) throws IOException {
+        unsubscribe(path, new SubscriptionProgress());
+    }
+
+    @Override
+    public void unsubscribe(Path path, SubscriptionProgress progress) throws IOException {
+        SubscriptionChanges changes = new SubscriptionChanges();
+        currentProgress.set(progress);
+        currentChanges.set(changes);
+        try {
+            unsubscribeWithProgress(path);
+            changes.awaitApplied();
+        } finally {
+            currentProgress.remove();
+            currentChanges.remove();
+        }
+    }
+
+    private void unsubscribeWithProgress(Path path) throws IOException {
         Path canonicalPath = FileUtil.toCanonicalPath(path);
         checkPathExists(canonicalPath);
         if (isDirectory(canonicalPath)) {
             unsubscribeInner(canonicalPath, Optional.empty());
         } else {
+            currentProgress.get().onFilesDiscovered(1);
             Path parent = canonicalPath.getParent();
             unsubscribeInner(parent, Optional.of(canonicalPath));
         }
@@ -181,7 +332,7 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
      */
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     private void unsubscribeInner(Path dir, Optional<Path> childToUnsubscribe) {
-        Set<Path> children = trackedPaths.get(dir);
+        Set<Path> children = trackedChildren(dir);
         if (children == null) {
             // nothing to do, wasn't subscribed
             return;
@@ -191,12 +342,12 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
         try {
             if (childToUnsubscribe.isPresent()) {
                 Path child = childToUnsubscribe.get();
-                boolean wasTracked = children.remove(child);
+                boolean wasTracked = untrack(dir, child);
                 if (!wasTracked) {
                     // nothing to do
                     return;
                 }
-                if (children.isEmpty() && !dirsResponsibleForNewFiles.contains(dir)) {
+                if (!hasTrackedChildren(dir) && !dirsResponsibleForNewFiles.contains(dir)) {
                     cancelWatchKeyFor(dir);
                 }
             } else {
@@ -215,6 +366,67 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
         }
     }
 
+    /**
+     * Unsubscribes from paths, subscribed by the cancelled subscription.
+     * Paths, which were subscribed before it, stay subscribed. Directories
+     * are processed in the reverse order, so children go first.
+     *
+     * @param changes paths, subscribed by the cancelled subscription.
+     */
+    private void rollback(SubscriptionChanges changes) {
+        List<Path> dirs = new ArrayList<>(changes.subscribedDirs.keySet());
+        Collections.reverse(dirs);
+        for (Path dir : dirs) {
+            rollbackDir(dir, changes.subscribedDirs.get(dir));
+        }
+        for (Path file : changes.subscribedFiles) {
+            rollbackFile(file);
+        }
+    }
+
+    private void rollbackDir(Path dir, Set<Path> trackedBefore) {
+        Lock lock = getLockFor(dir);
+        lock.lock();
+        try {
+            dirsResponsibleForNewFiles.remove(dir);
+            Set<Path> children = trackedChildren(dir);
+            if (children != null) {
+                for (Path child : children) {
+                    if (trackedBefore.contains(child)) {
+                        continue;
+                    }
+                    if (isDirectory(child) || isTrackedDir(child)) {
+                        // subscribed directories are rolled back by themselves,
+                        // and the ones subscribed before stay subscribed
+                        untrack(dir, child);
+                    } else {
+                        onEvent(new FileSystemEvent(FileSystemEvent.Kind.ENTRY_DELETE, child));
+                    }
+                }
+            }
+            if (!hasTrackedChildren(dir)) {
+                cancelWatchKeyFor(dir);
+                untrackDir(dir);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rollbackFile(Path file) {
+        Path dir = file.getParent();
+        Lock lock = getLockFor(dir);
+        lock.lock();
+        try {
+            onEvent(new FileSystemEvent(FileSystemEvent.Kind.ENTRY_DELETE, file));
+            if (!hasTrackedChildren(dir) && !dirsResponsibleForNewFiles.contains(dir)) {
+                cancelWatchKeyFor(dir);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private void cancelWatchKeyFor(Path dir) {
         WatchKey watchKey = dirsToWatchKeys.get(dir);
         if (watchKey == null) {
@@ -231,6 +443,282 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
         }
     }
 
+    /**
+     * Registers the child of the directory as tracked.
+     *
+     * @param dir   tracked directory.
+     * @param child file or directory in it.
+     */
+    protected void track(Path dir, Path child) {
+        // every tracked directory and child holds one reference to its path
+        int dirId = pathTable.getOrAssignId(dir);
+        Set<Integer> newChildren = ConcurrentHashMap.newKeySet();
+        Set<Integer> children = trackedPaths.putIfAbsent(dirId, newChildren);
+        if (children == null) {
+            children = newChildren;
+        } else {
+            pathTable.release(dirId);
+        }
+        int childId = pathTable.getOrAssignId(child);
+        if (!children.add(childId)) {
+            pathTable.release(childId);
+        }
+    }
+
+    /**
+     * @param dir   tracked directory.
+     * @param child file or directory in it.
+     * @return true if the child was tracked.
+     */
+    protected boolean untrack(Path dir, Path child) {
+        Set<Integer> children = trackedPaths.get(pathTable.getId(dir));
+        int childId = pathTable.getId(child);
+        if (children == null || !children.remove(childId)) {
+            return false;
+        }
+        pathTable.release(childId);
+        return true;
+    }
+
+    /**
+     * Stops to track the directory along with all its children.
+     *
+     * @param dir tracked directory.
+     */
+    protected void untrackDir(Path dir) {
+        int dirId = pathTable.getId(dir);
+        Set<Integer> children = trackedPaths.remove(dirId);
+        if (children == null) {
+            return;
+        }
+        for (Integer child : children) {
+            pathTable.release(child);
+        }
+        pathTable.release(dirId);
+    }
+
+    protected boolean isTracked(Path dir, Path child) {
+        Set<Integer> children = trackedPaths.get(pathTable.getId(dir));
+        return children != null && children.contains(pathTable.getId(child));
+    }
+
+    /**
+     * @param path given path.
+     * @return true if the path is tracked as a directory.
+     */
+    protected boolean isTrackedDir(Path path) {
+        return trackedPaths.containsKey(pathTable.getId(path));
+    }
+
+    private boolean hasTrackedChildren(Path dir) {
+        Set<Integer> children = trackedPaths.get(pathTable.getId(dir));
+        return children != null && !children.isEmpty();
+    }
+
+    /**
+     * @param dir tracked directory.
+     * @return copy of the set of tracked children of the directory, or
+     * null if the directory is not tracked.
+     */
+    protected Set<Path> trackedChildren(Path dir) {
+        Set<Integer> children = trackedPaths.get(pathTable.getId(dir));
+        if (children == null) {
+            return null;
+        }
+        Set<Path> paths = new HashSet<>();
+        for (Integer child : children) {
+            // the child could be untracked concurrently
+            pathTable.findPath(child).ifPresent(paths::add);
+        }
+        return paths;
+    }
+
+    /**
+     * @return progress of the subscription or the unsubscription, performed
+     * by the current thread, or null if it's a listener thread.
+     */
+    protected SubscriptionProgress currentProgress() {
+        return currentProgress.get();
+    }
+
+    /**
+     * Tracks the change of the index, caused by an event. If the event is a
+     * part of the subscription or the unsubscription, performed by the current
+     * thread, it waits for the change to be applied and fails, if the change
+     * fails. Otherwise, the failure is only counted and logged.
+     *
+     * @param change future of the change.
+     */
+    protected void trackChange(CompletableFuture<Void> change) {
+        SubscriptionChanges changes = currentChanges.get();
+        if (changes != null) {
+            changes.addPending(change);
+            return;
+        }
+        change.whenComplete((result, e) -> {
+            if (e != null) {
+                failedCounter.increment();
+                log.log(Level.SEVERE, e, () -> "Failed to apply a change to the index");
+            }
+        });
+    }
+
+    /**
+     * Processes the given paths concurrently, if files are read on virtual
+     * threads, or one by one on the current thread otherwise. The number of
+     * paths, processed at a time, is bounded by the number of open files.
+     * Returns only after all the paths are processed, so locks held by the
+     * current thread guard the processing of all of them.
+     *
+     * @param paths     paths to process.
+     * @param processor processing of a single path. Sees the progress of the
+     *                  current thread.
+     * @throws IOException if processing of any path fails with it.
+     */
+    protected void processConcurrently(Collection<Path> paths, PathProcessor processor) throws IOException {
+        SubscriptionProgress progress = currentProgress.get();
+        SubscriptionChanges changes = currentChanges.get();
+        if (fileReaderExecutorService == null) {
+            for (Path path : paths) {
+                checkNotCancelled(progress);
+                processor.process(path);
+            }
+            return;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(paths.size());
+        try {
+            for (Path path : paths) {
+                checkNotCancelled(progress);
+                openFiles.acquire();
+                CompletableFuture<Void> future;
+                try {
+                    future = CompletableFuture.runAsync(() -> {
+                        currentProgress.set(progress);
+                        currentChanges.set(changes);
+                        try {
+                            processor.process(path);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        } finally {
+                            currentProgress.remove();
+                            currentChanges.remove();
+                            openFiles.release();
+                        }
+                    }, fileReaderExecutorService);
+                } catch (RejectedExecutionException e) {
+                    // the subscriber is closed
+                    openFiles.release();
+                    throw e;
+                }
+                futures.add(future);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            awaitQuietly(futures);
+            throw new CancellationException("Interrupted while waiting for an open file");
+        } catch (RuntimeException e) {
+            // already submitted paths must be processed under the locks of the current thread
+            awaitQuietly(futures);
+            throw e;
+        }
+        awaitAll(futures);
+    }
+
+    /**
+     * Waits for all the futures and rethrows the first failure.
+     */
+    private static void awaitAll(List<CompletableFuture<Void>> futures) throws IOException {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void awaitQuietly(List<CompletableFuture<Void>> futures) {
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (RuntimeException e) {
+                // ignore, the cause of the interruption is more important
+            }
+        }
+    }
+
+    private static void checkNotCancelled(SubscriptionProgress progress) {
+        if (progress != null) {
+            progress.checkNotCancelled();
+        }
+    }
+
+    /**
+     * Paths, subscribed by a single subscription, and changes of the index,
+     * which are not applied yet.
+     */
+    private static class SubscriptionChanges {
+        /**
+         * Subscribed directories in the order of subscription, along with
+         * their children, which were tracked before the subscription.
+         */
+        private final Map<Path, Set<Path>> subscribedDirs = new LinkedHashMap<>();
+        private final List<Path> subscribedFiles = new ArrayList<>();
+
+        private final AtomicLong pendingChanges = new AtomicLong();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private void addPending(CompletableFuture<Void> change) {
+            pendingChanges.incrementAndGet();
+            change.whenComplete((result, e) -> {
+                if (e != null) {
+                    failure.compareAndSet(null, e instanceof CompletionException ? e.getCause() : e);
+                }
+                if (pendingChanges.decrementAndGet() == 0) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            });
+        }
+
+        /**
+         * Waits until all the pending changes are applied.
+         *
+         * @throws IOException if one of the changes failed.
+         */
+        private synchronized void awaitApplied() throws IOException {
+            while (pendingChanges.get() > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Interrupted while waiting for changes to be applied");
+                }
+            }
+            Throwable e = failure.get();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e != null) {
+                throw new IOException("Failed to apply a change to the index", e);
+            }
+        }
+    }
+
+    /**
+     * Processing of a single path, which could fail with an I/O error.
+     */
+    @FunctionalInterface
+    protected interface PathProcessor {
+        void process(Path path) throws IOException;
+    }
+
     /**
      * Specifies how to process an occurred file system event.
      *
@@ -241,23 +729,44 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
     private final Lock listenerLock = new ReentrantLock();
 
     /**
-     * Closes the underlying {@link WatchService} and the listener executor
-     * service.
+     * Closes the underlying {@link WatchService}, stops the listener
+     * executor service and waits until all the listeners and readers of
+     * files are finished, so that nothing is written to the index after
+     * the call.
      *
-     * @throws IOException if an I/O error occurs.
+     * @throws IOException if an I/O error occurs or if interrupted while
+     *                     waiting for listeners.
      */
     @Override
     public void close() throws IOException {
         log.info("Closing subscriber");
         watcher.close();
+        ExecutorService listeners;
         listenerLock.lock();
         try {
-            if (listenerExecutorService != null) {
-                listenerExecutorService.shutdownNow();
-            }
+            listeners = listenerExecutorService;
         } finally {
             listenerLock.unlock();
         }
+        if (listeners != null) {
+            listeners.shutdownNow();
+        }
+        // queued reads are not dropped, since their subscriptions wait for
+        // them. There are at most as many of them, as open files.
+        if (fileReaderExecutorService != null) {
+            fileReaderExecutorService.shutdown();
+        }
+        try {
+            if (listeners != null) {
+                ExecutorsUtil.awaitTermination(listeners);
+            }
+            if (fileReaderExecutorService != null) {
+                ExecutorsUtil.awaitTermination(fileReaderExecutorService);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for listeners to finish");
+        }
     }
 
     /**
@@ -325,13 +834,15 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
         // that's why synchronization is necessary.
         lock.lock();
         try {
-            log.info(() -> String.format("Some events occurred for directory '%s'", FileUtil.getCanonicalPath(dir)));
+            TraceRecorder.record("subscriber.key", dir);
             List<WatchEvent<?>> events = key.pollEvents();
             for (WatchEvent<?> event : events) {
                 WatchEvent.Kind<?> kind = event.kind();
+                receivedEventsCounters.get(kind).increment(event.count());
 
                 // TODO: deal with it
                 if (kind == OVERFLOW) {
+                    overflowCounter.increment(event.count());
                     log.severe("Overflow occurred");
                     continue;
                 }
@@ -340,16 +851,25 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
                 WatchEvent<Path> ev = (WatchEvent<Path>) event;
                 Path changedPath = dir.resolve(ev.context());
                 if (!pathFilter.filter(changedPath)) {
+                    filteredCounter.increment();
                     continue;
                 }
 
                 boolean needToHandleCreate = ev.kind() == ENTRY_CREATE &&
                         dirsResponsibleForNewFiles.contains(dir);
-                Set<Path> pathsTrackedByThisDir = trackedPaths.getOrDefault(dir, Collections.emptySet());
-                if (needToHandleCreate || pathsTrackedByThisDir.contains(changedPath)) {
+                if (needToHandleCreate && isDirectory(changedPath)) {
+                    subscribeToCreatedDir(dir, changedPath);
+                    continue;
+                }
+                if (needToHandleCreate || isTracked(dir, changedPath)) {
 
                     FileSystemEvent fsEvent = watchEventToFSEvent(ev.kind(), changedPath);
-                    onEvent(fsEvent);
+                    try {
+                        onEvent(fsEvent);
+                    } catch (RuntimeException e) {
+                        failedCounter.increment();
+                        throw e;
+                    }
                 }
             }
         } finally {
@@ -370,6 +890,25 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
         }
     }
 
+    /**
+     * Subscribes to the directory, that was just created in the tracked one.
+     * The directory must be registered to the watcher before its contents
+     * are listed, otherwise files written in between would be lost.
+     *
+     * @param parent     tracked directory.
+     * @param createdDir directory created in the tracked one.
+     */
+    private void subscribeToCreatedDir(Path parent, Path createdDir) {
+        track(parent, createdDir);
+        try {
+            subscribeInner(createdDir, Optional.empty());
+        } catch (IOException e) {
+            log.log(Level.SEVERE, e, () ->
+                    String.format("Failed to subscribe to the created directory '%s'", FileUtil.getCanonicalPath(createdDir))
+            );
+        }
+    }
+
     /**
      * Registers given path to the watcher with all possible events to trigger.
      *
@@ -389,10 +928,45 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
                     String.format("Watch event kind '%s' is not supported", watchEventKind)
             );
         }
-        return new FileSystemEvent(kind, changedPath);
+        return new FileSystemEvent(kind, changedPath, changeTimestamp(kind, changedPath));
+    }
+
+    /**
+     * The watcher doesn't provide the time of the change, so for created
+     * and modified paths the last modification time is taken, as the
+     * closest approximation. Time of deletion is unknown.
+     */
+    private long changeTimestamp(FileSystemEvent.Kind kind, Path changedPath) {
+        long now = System.currentTimeMillis();
+        if (kind == FileSystemEvent.Kind.ENTRY_DELETE) {
+            return now;
+        }
+        try {
+            // modification time could be set to the future by the user
+            return Math.min(Files.getLastModifiedTime(changedPath).toMillis(), now);
+        } catch (IOException e) {
+            return now;
+        }
+    }
+
+    private static Counter receivedEventsCounter(String kind, MeterRegistry meterRegistry) {
+        return Counter.builder(MetricNames.EVENTS)
+                .description("Number of events received from the watcher")
+                .tag(MetricNames.TAG_KIND, kind)
+                .register(meterRegistry);
+    }
+
+    private static Counter droppedEventsCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder(MetricNames.EVENTS_DROPPED)
+                .description("Number of events, that were not processed")
+                .tag(MetricNames.TAG_REASON, reason)
+                .register(meterRegistry);
     }
 
     private ExecutorService createListenerExecutorService(int parallelism) {
+        if (virtualThreads) {
+            return ExecutorsUtil.newVirtualThreadExecutor("subscriber", parallelism);
+        }
         return Executors.newFixedThreadPool(parallelism,
                 new ExecutorsUtil.DaemonThreadFactory("subscriber"));
     }
@@ -413,4 +987,61 @@ public abstract class WatchServiceFSSubscriberBase implements FileSystemSubscrib
         return Files.list(path);
     }
 
+
+    /**
+     * Settings of the subscriber. Settings, which are not given, take
+     * default values.
+     */
+    public static final class Settings {
+
+        private PathTable pathTable;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private boolean virtualThreads;
+        private int maxOpenFiles;
+
+        /**
+         * @param pathTable table to store tracked paths in. Should be shared with
+         *                  the index. By default, a new table.
+         * @return these settings.
+         */
+        public Settings pathTable(PathTable pathTable) {
+            this.pathTable = pathTable;
+            return this;
+        }
+
+        /**
+         * @param meterRegistry registry to publish metrics of the subscriber to.
+         *                      By default, the global registry.
+         * @return these settings.
+         */
+        public Settings meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * @param virtualThreads whether to listen for events and to read files of crawled
+         *                       directories on virtual threads. If false, or if virtual
+         *                       threads are not supported by the runtime, listeners run
+         *                       on platform threads. Files are read concurrently only in
+         *                       this mode, otherwise they are read by the crawling thread.
+         *                       The trigger should be thread safe then, cause files of
+         *                       a directory are processed concurrently.
+         * @return these settings.
+         */
+        public Settings virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * @param maxOpenFiles maximum number of files, read concurrently. Used only
+         *                     if virtual threads are used, and should be positive then.
+         * @return these settings.
+         */
+        public Settings maxOpenFiles(int maxOpenFiles) {
+            this.maxOpenFiles = maxOpenFiles;
+            return this;
+        }
+    }
 }
@@ -0,0 +1,163 @@
+package ru.mpoplavkov.indexation.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import ru.mpoplavkov.indexation.model.status.RootFreshness;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks the lag between a change in the file system and the moment, when
+ * the change becomes searchable, separately for every subscribed root.
+ * A change is attributed to the innermost root containing the changed path.
+ *
+ * <p>Lags are published as a timer with a histogram bucket at the target
+ * lag, so that the share of changes meeting the target could be calculated
+ * by the monitoring system.
+ */
+public class FreshnessTracker {
+
+    public static final Duration DEFAULT_SLO = Duration.ofSeconds(2);
+
+    private final Map<Path, RootStats> roots = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Duration slo;
+
+    /**
+     * Creates the tracker.
+     *
+     * @param meterRegistry registry to publish lags to.
+     * @param slo           target lag.
+     */
+    public FreshnessTracker(MeterRegistry meterRegistry, Duration slo) {
+        this.meterRegistry = meterRegistry;
+        this.slo = slo;
+    }
+
+    public FreshnessTracker(MeterRegistry meterRegistry) {
+        this(meterRegistry, DEFAULT_SLO);
+    }
+
+    public FreshnessTracker() {
+        this(Metrics.globalRegistry);
+    }
+
+    /**
+     * Starts to track changes under the given root. Does nothing if the
+     * root is already tracked.
+     *
+     * @param root subscribed directory or file.
+     * @return true if the root was not tracked before.
+     */
+    public boolean addRoot(Path root) {
+        boolean[] added = new boolean[1];
+        roots.computeIfAbsent(FileUtil.toCanonicalPath(root), path -> {
+            added[0] = true;
+            return newRootStats(path);
+        });
+        return added[0];
+    }
+
+    /**
+     * Stops to track changes under the given root and removes its metrics.
+     *
+     * @param root subscribed directory or file.
+     */
+    public void removeRoot(Path root) {
+        RootStats stats = roots.remove(FileUtil.toCanonicalPath(root));
+        if (stats != null) {
+            meterRegistry.remove(stats.timer);
+        }
+    }
+
+    /**
+     * Records, that the change of the path has just become searchable.
+     * Changes outside of tracked roots are ignored.
+     *
+     * @param path            changed path.
+     * @param changeTimestamp time in milliseconds since the epoch, when the
+     *                        change has happened.
+     */
+    public void record(Path path, long changeTimestamp) {
+        RootStats stats = findRoot(path);
+        if (stats == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long lag = Math.max(now - changeTimestamp, 0);
+        stats.timer.record(lag, TimeUnit.MILLISECONDS);
+        stats.applied.increment();
+        if (lag > slo.toMillis()) {
+            stats.late.increment();
+        }
+        stats.maxLag.accumulateAndGet(lag, Math::max);
+        stats.lastLag = lag;
+        stats.lastAppliedAt = now;
+    }
+
+    /**
+     * @return freshness of every tracked root.
+     */
+    public List<RootFreshness> status() {
+        return roots.entrySet()
+                .stream()
+                .map(entry -> {
+                    RootStats stats = entry.getValue();
+                    return new RootFreshness(
+                            entry.getKey().toString(),
+                            slo.toMillis(),
+                            stats.applied.sum(),
+                            stats.late.sum(),
+                            stats.lastLag,
+                            stats.maxLag.get(),
+                            stats.lastAppliedAt
+                    );
+                })
+                .collect(Collectors.toList());
+    }
+
+    private RootStats findRoot(Path path) {
+        Path current = FileUtil.toCanonicalPath(path);
+        while (current != null) {
+            RootStats stats = roots.get(current);
+            if (stats != null) {
+                return stats;
+            }
+            current = current.getParent();
+        }
+        return null;
+    }
+
+    private RootStats newRootStats(Path root) {
+        Timer timer = Timer.builder(MetricNames.FRESHNESS)
+                .description("Lag between a change of a file and the moment, when it becomes searchable")
+                .tag(MetricNames.TAG_ROOT, root.toString())
+                .serviceLevelObjectives(slo)
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(meterRegistry);
+        return new RootStats(timer);
+    }
+
+    private static class RootStats {
+        private final Timer timer;
+        private final LongAdder applied = new LongAdder();
+        private final LongAdder late = new LongAdder();
+        private final AtomicLong maxLag = new AtomicLong();
+        private volatile long lastLag;
+        private volatile long lastAppliedAt;
+
+        private RootStats(Timer timer) {
+            this.timer = timer;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ru.mpoplavkov.indexation.metrics;
+
+/**
+ * Names and tags of the metrics, published by the indexation components.
+ */
+public final class MetricNames {
+
+    private MetricNames() {
+    }
+
+    /**
+     * Counter of file system events processed by the subscriber.
+     * Tagged with {@link MetricNames#TAG_KIND}.
+     */
+    public static final String EVENTS = "indexation.events";
+
+    /**
+     * Counter of file system events, that were not processed.
+     * Tagged with {@link MetricNames#TAG_REASON}.
+     */
+    public static final String EVENTS_DROPPED = "indexation.events.dropped";
+
+    /**
+     * Timer of turning a file into terms.
+     */
+    public static final String ANALYZE = "indexation.analyze";
+
+    /**
+     * Timer of applying a change of a file to the index.
+     * Tagged with {@link MetricNames#TAG_OPERATION}.
+     */
+    public static final String INDEX_APPLY = "indexation.index.apply";
+
+    /**
+     * Gauge of the number of changes, waiting to be applied to the index
+     * by its single writer.
+     */
+    public static final String INDEX_APPLY_QUEUE = "indexation.index.apply.queue";
+
+    /**
+     * Timer of search requests to the service.
+     */
+    public static final String SEARCH = "indexation.search";
+
+    /**
+     * Counter of requests to the search cache.
+     * Tagged with {@link MetricNames#TAG_RESULT}.
+     */
+    public static final String SEARCH_CACHE = "indexation.search.cache";
+
+    /**
+     * Gauge of the number of results in the search cache.
+     */
+    public static final String SEARCH_CACHE_SIZE = "indexation.search.cache.size";
+
+    /**
+     * Gauge of the number of values in the index.
+     */
+    public static final String INDEX_VALUES = "indexation.index.values";
+
+    /**
+     * Gauge of the number of terms in the term dictionary.
+     */
+    public static final String DICTIONARY_TERMS = "indexation.dictionary.terms";
+
+    /**
+     * Gauge of the number of postings of actual versions of values.
+     */
+    public static final String POSTINGS_LIVE = "indexation.index.postings.live";
+
+    /**
+     * Gauge of the number of postings of outdated versions of values, that
+     * are not yet removed from the storage.
+     */
+    public static final String POSTINGS_STALE = "indexation.index.postings.stale";
+
+    /**
+     * Counter of postings of replaced and deleted versions of values,
+     * removed from the storage.
+     */
+    public static final String POSTINGS_RETIRED = "indexation.index.postings.retired";
+
+    /**
+     * Gauge of the estimated memory occupied by postings in the storage.
+     */
+    public static final String POSTINGS_MEMORY = "indexation.index.postings.memory";
+
+    /**
+     * Gauge of the number of keys in the storage.
+     */
+    public static final String STORAGE_KEYS = "indexation.storage.keys";
+
+    /**
+     * Gauge of the number of values in the storage, including values,
+     * which are already collected, but not yet cleaned up.
+     */
+    public static final String STORAGE_VALUES = "indexation.storage.values";
+
+    /**
+     * Counter of values removed from the storage after they were garbage collected.
+     */
+    public static final String STORAGE_RECLAIMED = "indexation.storage.reclaimed";
+
+    /**
+     * Timer of cleanup slices of the storage.
+     */
+    public static final String STORAGE_CLEANUP = "indexation.storage.cleanup";
+
+    /**
+     * Gauge of the number of storage keys, waiting to be swept.
+     */
+    public static final String STORAGE_SWEEP_BACKLOG = "indexation.storage.sweep.backlog";
+
+    /**
+     * Timer of the lag between a change of a file and the moment, when the
+     * change becomes searchable. Tagged with {@link MetricNames#TAG_ROOT}.
+     */
+    public static final String FRESHNESS = "indexation.freshness";
+
+    public static final String TAG_KIND = "kind";
+    public static final String TAG_REASON = "reason";
+    public static final String TAG_OPERATION = "operation";
+    public static final String TAG_ROOT = "root";
+    public static final String TAG_RESULT = "result";
+    public static final String TAG_SHARD = "shard";
+
+}
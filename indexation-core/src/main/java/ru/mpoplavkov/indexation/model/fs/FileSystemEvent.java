@@ -1,6 +1,7 @@
 package ru.mpoplavkov.indexation.model.fs;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 import java.nio.file.Path;
 
@@ -17,4 +18,28 @@ public class FileSystemEvent {
 
     private final Kind kind;
     private final Path entry;
+
+    /**
+     * Time in milliseconds since the epoch, when the change has happened
+     * or, if it's unknown, when the event was noticed. Not a part of the
+     * identity of the event.
+     */
+    @EqualsAndHashCode.Exclude
+    private final long timestamp;
+
+    public FileSystemEvent(Kind kind, Path entry, long timestamp) {
+        this.kind = kind;
+        this.entry = entry;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Creates the event, which happened just now.
+     *
+     * @param kind  kind of the event.
+     * @param entry changed path.
+     */
+    public FileSystemEvent(Kind kind, Path entry) {
+        this(kind, entry, System.currentTimeMillis());
+    }
 }
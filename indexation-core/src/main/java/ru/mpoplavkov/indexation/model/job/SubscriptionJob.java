@@ -0,0 +1,70 @@
+package ru.mpoplavkov.indexation.model.job;
+
+import lombok.Data;
+
+/**
+ * State of a subscription or an unsubscription of a path, performed in
+ * the background.
+ */
+@Data
+public class SubscriptionJob {
+
+    public enum Operation {
+        SUBSCRIBE,
+        UNSUBSCRIBE
+    }
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    private final String id;
+    private final Operation operation;
+
+    /**
+     * Canonical path to subscribe to or to unsubscribe from.
+     */
+    private final String path;
+
+    private final State state;
+
+    /**
+     * Number of files found while walking the path.
+     */
+    private final long filesDiscovered;
+
+    /**
+     * Number of found files, that were already added to or removed from
+     * the index.
+     */
+    private final long filesProcessed;
+
+    /**
+     * Total size of added files.
+     */
+    private final long bytesProcessed;
+
+    /**
+     * Message of the failure, or null if the job didn't fail.
+     */
+    private final String error;
+
+    /**
+     * Time in milliseconds since the epoch, when the job was submitted.
+     */
+    private final long submittedAt;
+
+    /**
+     * Time in milliseconds since the epoch, when the job was finished, or
+     * zero if it's not finished yet.
+     */
+    private final long finishedAt;
+}
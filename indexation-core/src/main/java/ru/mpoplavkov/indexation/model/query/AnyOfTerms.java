@@ -0,0 +1,26 @@
+package ru.mpoplavkov.indexation.model.query;
+
+import lombok.Data;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Query, that matches values containing at least one of the terms.
+ */
+@Data
+public class AnyOfTerms implements Query {
+
+    private final List<Term> terms;
+
+    @Override
+    public Query transform(TermsTransformer termsTransformer) {
+        List<Term> newTerms = terms.stream()
+                .flatMap(term -> termsTransformer.expand(term).stream())
+                .collect(Collectors.toList());
+        return new AnyOfTerms(newTerms);
+    }
+
+}
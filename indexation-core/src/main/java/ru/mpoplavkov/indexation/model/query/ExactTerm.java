@@ -4,6 +4,8 @@ import lombok.Data;
 import ru.mpoplavkov.indexation.model.term.Term;
 import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
 
+import java.util.List;
+
 @Data
 public class ExactTerm implements Query {
 
@@ -11,8 +13,11 @@ public class ExactTerm implements Query {
 
     @Override
     public Query transform(TermsTransformer termsTransformer) {
-        Term newTerm = termsTransformer.transform(term);
-        return new ExactTerm(newTerm);
+        List<Term> newTerms = termsTransformer.expand(term);
+        if (newTerms.size() == 1) {
+            return new ExactTerm(newTerms.get(0));
+        }
+        return new AnyOfTerms(newTerms);
     }
 
 }
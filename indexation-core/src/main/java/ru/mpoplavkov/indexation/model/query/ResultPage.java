@@ -0,0 +1,23 @@
+package ru.mpoplavkov.indexation.model.query;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of the search result.
+ *
+ * @param <V> type of the values.
+ */
+@Data
+public class ResultPage<V> {
+
+    private final List<V> values;
+
+    /**
+     * Cursor to retrieve the next page with, or null if this page is
+     * the last one.
+     */
+    private final String cursor;
+
+}
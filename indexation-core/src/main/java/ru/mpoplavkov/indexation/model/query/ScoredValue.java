@@ -0,0 +1,20 @@
+package ru.mpoplavkov.indexation.model.query;
+
+import lombok.Data;
+
+/**
+ * Value found by a ranked search along with its relevance to the query.
+ *
+ * @param <V> type of the value.
+ */
+@Data
+public class ScoredValue<V> {
+
+    private final V value;
+
+    /**
+     * Relevance of the value. The higher, the more relevant.
+     */
+    private final double score;
+
+}
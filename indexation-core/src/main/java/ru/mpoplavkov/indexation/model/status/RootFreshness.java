@@ -0,0 +1,47 @@
+package ru.mpoplavkov.indexation.model.status;
+
+import lombok.Data;
+
+/**
+ * Freshness of the index for one subscribed root: how long it takes for
+ * changes under the root to become searchable.
+ */
+@Data
+public class RootFreshness {
+
+    /**
+     * Canonical path of the subscribed root.
+     */
+    private final String root;
+
+    /**
+     * Target lag in milliseconds.
+     */
+    private final long sloMillis;
+
+    /**
+     * Number of changes applied to the index.
+     */
+    private final long appliedChanges;
+
+    /**
+     * Number of changes, that became searchable later than the target lag.
+     */
+    private final long lateChanges;
+
+    private final long lastLagMillis;
+    private final long maxLagMillis;
+
+    /**
+     * Time in milliseconds since the epoch, when the last change was
+     * applied, or zero if there were no changes.
+     */
+    private final long lastAppliedAt;
+
+    /**
+     * @return true if all the changes became searchable within the target lag.
+     */
+    public boolean isSloMet() {
+        return lateChanges == 0;
+    }
+}
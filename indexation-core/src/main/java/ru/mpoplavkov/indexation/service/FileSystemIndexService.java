@@ -1,11 +1,18 @@
 package ru.mpoplavkov.indexation.service;
 
+import ru.mpoplavkov.indexation.model.job.SubscriptionJob;
 import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ResultPage;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.status.RootFreshness;
 
 import java.io.Closeable;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Service to interact with the index.
@@ -20,6 +27,70 @@ public interface FileSystemIndexService extends Closeable {
      */
     Set<Path> search(Query query);
 
+    /**
+     * Searches data in the index for several queries at once. Results
+     * of all the queries are consistent with each other.
+     *
+     * @param queries search queries.
+     * @return matched values for each query, in the order of the queries.
+     */
+    List<Set<Path>> searchAll(List<Query> queries);
+
+    /**
+     * Lazily searches data in the index. Files are read from the index
+     * as the stream is consumed.
+     *
+     * @param query search query.
+     * @return stream of matched files.
+     */
+    Stream<Path> searchStream(Query query);
+
+    /**
+     * Searches the first page of data in the index.
+     *
+     * @param query search query.
+     * @param size  maximum number of files on the page.
+     * @return the first page of matched files.
+     */
+    ResultPage<Path> searchPage(Query query, int size);
+
+    /**
+     * Retrieves the next page of the search result. Every cursor could
+     * be used only once, and expires if not used for a while.
+     *
+     * @param cursor cursor from the previous page.
+     * @param size   maximum number of files on the page.
+     * @return the next page of matched files.
+     * @throws IllegalArgumentException if the cursor is unknown or expired.
+     */
+    ResultPage<Path> nextPage(String cursor, int size);
+
+    /**
+     * Counts files in the index, that match the query, without retrieving
+     * them.
+     *
+     * @param query search query.
+     * @return number of matched files.
+     */
+    long count(Query query);
+
+    /**
+     * Checks if there are files in the index, that match the query.
+     *
+     * @param query search query.
+     * @return true if there is at least one matched file.
+     */
+    boolean exists(Query query);
+
+    /**
+     * Searches at most k the most relevant files in the index.
+     *
+     * @param query search query.
+     * @param k     maximum number of files to retrieve.
+     * @return matched files in the descending order of their relevance.
+     */
+    List<ScoredValue<Path>> searchTopK(Query query, int k);
+
     /**
      * Adds the given path to the index. Starts to listen to it's
      * changes and updates the index accordingly.
@@ -38,4 +109,57 @@ public interface FileSystemIndexService extends Closeable {
      */
     void removeFromIndex(Path path) throws IOException;
 
+    /**
+     * Adds the given path to the index in the background. The path is
+     * checked to exist immediately, the walk over its contents is done
+     * by a job. If the job is cancelled, files added by it so far are
+     * removed from the index. Files, which were added before, stay.
+     *
+     * @param path the path to add to the index.
+     * @return the submitted job.
+     * @throws FileNotFoundException if the path doesn't exist.
+     */
+    SubscriptionJob addToIndexAsync(Path path) throws FileNotFoundException;
+
+    /**
+     * Removes the given path from the index in the background.
+     *
+     * @param path the path to remove from the index.
+     * @return the submitted job.
+     * @throws FileNotFoundException if the path doesn't exist.
+     */
+    SubscriptionJob removeFromIndexAsync(Path path) throws FileNotFoundException;
+
+    /**
+     * Retrieves the progress of the job.
+     *
+     * @param id id of the job.
+     * @return the job.
+     * @throws IllegalArgumentException if the job is unknown.
+     */
+    SubscriptionJob job(String id);
+
+    /**
+     * @return all the running, queued and recently finished jobs.
+     */
+    List<SubscriptionJob> jobs();
+
+    /**
+     * Cancels the job. Only subscriptions could be stopped while running,
+     * unsubscriptions are cancelled only while they are queued.
+     *
+     * @param id id of the job.
+     * @return the job.
+     * @throws IllegalArgumentException if the job is unknown.
+     */
+    SubscriptionJob cancelJob(String id);
+
+    /**
+     * Retrieves the freshness of the index for every path, added to the
+     * index: how long it takes for changes to become searchable.
+     *
+     * @return freshness of every added path.
+     */
+    List<RootFreshness> freshness();
+
 }
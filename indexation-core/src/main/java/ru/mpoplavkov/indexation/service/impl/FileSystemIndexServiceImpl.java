@@ -1,43 +1,136 @@
 package ru.mpoplavkov.indexation.service.impl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import ru.mpoplavkov.indexation.filter.PathFilter;
 import ru.mpoplavkov.indexation.filter.impl.TextPathFilter;
+import ru.mpoplavkov.indexation.index.PathTable;
 import ru.mpoplavkov.indexation.index.TermIndex;
 import ru.mpoplavkov.indexation.index.impl.VersionedTermIndex;
 import ru.mpoplavkov.indexation.trigger.FSEventTrigger;
 import ru.mpoplavkov.indexation.listener.FileSystemSubscriber;
+import ru.mpoplavkov.indexation.listener.SubscriptionProgress;
+import ru.mpoplavkov.indexation.trigger.impl.FreshnessTrackingTrigger;
 import ru.mpoplavkov.indexation.trigger.impl.IndexUpdateFileChangeEventTrigger;
 import ru.mpoplavkov.indexation.listener.impl.WatchServiceFSSubscriber;
+import ru.mpoplavkov.indexation.metrics.FreshnessTracker;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.model.job.SubscriptionJob;
 import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ResultPage;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.status.RootFreshness;
 import ru.mpoplavkov.indexation.service.FileSystemIndexService;
+import ru.mpoplavkov.indexation.text.analyzer.Analyzer;
+import ru.mpoplavkov.indexation.text.analyzer.impl.ExtractorTransformerAnalyzer;
 import ru.mpoplavkov.indexation.text.extractor.TermsExtractor;
 import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
 import ru.mpoplavkov.indexation.text.transformer.impl.IdTermsTransformer;
+import ru.mpoplavkov.indexation.util.FileUtil;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the {@link FileSystemIndexService}.
  */
 public class FileSystemIndexServiceImpl implements FileSystemIndexService {
 
+    public static final int DEFAULT_MAX_CONCURRENT_JOBS = 2;
+    public static final int DEFAULT_MAX_OPEN_FILES = 256;
+    public static final int DEFAULT_LISTENER_THREADS = 2;
+
+    private static final int MAX_CURSORS = 10_000;
+    private static final int CURSOR_TTL_SECONDS = 60;
+
     /**
      * Index to work with.
      */
     private final TermIndex<Path> index;
 
     /**
-     * Specifies how to transform terms, both for index and search.
+     * Specifies how to transform query terms before search.
      */
-    private final TermsTransformer termsTransformer;
+    private final TermsTransformer queryTransformer;
 
     /**
      * Underlying subscriber to the file system events.
      */
     private final FileSystemSubscriber subscriber;
 
+    /**
+     * Tracks how fast changes in subscribed paths become searchable.
+     */
+    private final FreshnessTracker freshnessTracker;
+
+    /**
+     * Iterators over search results, which pages were not retrieved yet,
+     * by cursors. Iterators are lazy, so a cursor holds only a position in
+     * the index, not the whole result.
+     */
+    private final Cache<String, Iterator<Path>> cursors = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CURSORS)
+            .expireAfterAccess(CURSOR_TTL_SECONDS, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * Subscriptions and unsubscriptions, performed in the background.
+     */
+    private final SubscriptionJobs subscriptionJobs;
+
+    private final Timer searchTimer;
+
+    /**
+     * Creates the service to interact with the index.
+     *
+     * @param builder settings of the service.
+     * @throws IOException if an I/O error occurs.
+     */
+    private FileSystemIndexServiceImpl(Builder builder) throws IOException {
+        MeterRegistry meterRegistry = builder.meterRegistry;
+        this.index = builder.index != null ? builder.index : new VersionedTermIndex<>();
+        this.queryTransformer = builder.queryTransformer;
+        this.freshnessTracker = builder.freshnessTracker != null
+                ? builder.freshnessTracker
+                : new FreshnessTracker(meterRegistry);
+        this.subscriptionJobs = new SubscriptionJobs(builder.maxConcurrentJobs);
+        this.searchTimer = Timer.builder(MetricNames.SEARCH)
+                .description("Time to search the index")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        FSEventTrigger trigger = new FreshnessTrackingTrigger(
+                new IndexUpdateFileChangeEventTrigger(index, builder.pathFilter, builder.analyzer, meterRegistry),
+                freshnessTracker
+        );
+        subscriber = new WatchServiceFSSubscriber(
+                builder.pathFilter,
+                trigger,
+                FileSystems.getDefault().newWatchService(),
+                new WatchServiceFSSubscriber.Settings()
+                        .pathTable(builder.pathTable)
+                        .meterRegistry(meterRegistry)
+                        .virtualThreads(builder.virtualThreads)
+                        .maxOpenFiles(builder.maxOpenFiles)
+        );
+        subscriber.startToListenForEvents(builder.listenerThreadsCount);
+    }
+
     /**
      * Creates the service to interact with the index.
      *
@@ -51,13 +144,9 @@ public class FileSystemIndexServiceImpl implements FileSystemIndexService {
                                       TermsTransformer termsTransformer,
                                       PathFilter pathFilter,
                                       int listenerThreadsCount) throws IOException {
-        this.termsTransformer = termsTransformer;
-
-        index = new VersionedTermIndex<>();
-        FSEventTrigger trigger =
-                new IndexUpdateFileChangeEventTrigger(index, pathFilter, termsExtractor, termsTransformer);
-        subscriber = new WatchServiceFSSubscriber(pathFilter, trigger);
-        subscriber.startToListenForEvents(listenerThreadsCount);
+        this(builder(new ExtractorTransformerAnalyzer(termsExtractor, termsTransformer), termsTransformer)
+                .pathFilter(pathFilter)
+                .listenerThreadsCount(listenerThreadsCount));
     }
 
     public FileSystemIndexServiceImpl(TermsExtractor termsExtractor,
@@ -73,24 +162,305 @@ public class FileSystemIndexServiceImpl implements FileSystemIndexService {
 
     @Override
     public Set<Path> search(Query query) {
-        Query transformedQuery = query.transform(termsTransformer);
-        return index.search(transformedQuery);
+        Query transformedQuery = query.transform(queryTransformer);
+        return searchTimer.record(() -> index.search(transformedQuery));
+    }
+
+    @Override
+    public List<Set<Path>> searchAll(List<Query> queries) {
+        List<Query> transformedQueries = queries.stream()
+                .map(query -> query.transform(queryTransformer))
+                .collect(Collectors.toList());
+        return searchTimer.record(() -> index.searchAll(transformedQueries));
+    }
+
+    @Override
+    public Stream<Path> searchStream(Query query) {
+        return index.searchStream(query.transform(queryTransformer));
+    }
+
+    @Override
+    public ResultPage<Path> searchPage(Query query, int size) {
+        checkPageSize(size);
+        return nextPage(searchStream(query).iterator(), size);
+    }
+
+    @Override
+    public ResultPage<Path> nextPage(String cursor, int size) {
+        checkPageSize(size);
+        // the cursor is removed, so that it's never used concurrently
+        Iterator<Path> iterator = cursors.asMap().remove(cursor);
+        if (iterator == null) {
+            throw new IllegalArgumentException(
+                    String.format("Cursor '%s' is unknown or expired", cursor)
+            );
+        }
+        return nextPage(iterator, size);
+    }
+
+    private ResultPage<Path> nextPage(Iterator<Path> iterator, int size) {
+        List<Path> values = new ArrayList<>(size);
+        while (values.size() < size && iterator.hasNext()) {
+            values.add(iterator.next());
+        }
+        String nextCursor = null;
+        if (iterator.hasNext()) {
+            nextCursor = UUID.randomUUID().toString();
+            cursors.put(nextCursor, iterator);
+        }
+        return new ResultPage<>(values, nextCursor);
+    }
+
+    private static void checkPageSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("Page size should be positive, but was '%d'", size)
+            );
+        }
+    }
+
+    @Override
+    public long count(Query query) {
+        return index.count(query.transform(queryTransformer));
+    }
+
+    @Override
+    public boolean exists(Query query) {
+        return index.exists(query.transform(queryTransformer));
+    }
+
+    @Override
+    public List<ScoredValue<Path>> searchTopK(Query query, int k) {
+        Query transformedQuery = query.transform(queryTransformer);
+        return searchTimer.record(() -> index.searchTopK(transformedQuery, k));
     }
 
     @Override
     public void addToIndex(Path path) throws IOException {
-        subscriber.subscribe(path);
+        addToIndex(path, new SubscriptionProgress());
+    }
+
+    private void addToIndex(Path path, SubscriptionProgress progress) throws IOException {
+        // the root must be known before the first events of the subscription
+        boolean newRoot = freshnessTracker.addRoot(path);
+        try {
+            subscriber.subscribe(path, progress);
+        } catch (IOException | RuntimeException e) {
+            if (newRoot) {
+                freshnessTracker.removeRoot(path);
+            }
+            throw e;
+        }
     }
 
     @Override
     public void removeFromIndex(Path path) throws IOException {
-        subscriber.unsubscribe(path);
+        removeFromIndex(path, new SubscriptionProgress());
     }
 
+    private void removeFromIndex(Path path, SubscriptionProgress progress) throws IOException {
+        subscriber.unsubscribe(path, progress);
+        freshnessTracker.removeRoot(path);
+    }
+
+    @Override
+    public SubscriptionJob addToIndexAsync(Path path) throws FileNotFoundException {
+        checkPathExists(path);
+        // files added before the cancellation are removed by the subscriber
+        return subscriptionJobs.submit(
+                SubscriptionJob.Operation.SUBSCRIBE,
+                path,
+                progress -> addToIndex(path, progress)
+        );
+    }
+
+    @Override
+    public SubscriptionJob removeFromIndexAsync(Path path) throws FileNotFoundException {
+        checkPathExists(path);
+        return subscriptionJobs.submit(
+                SubscriptionJob.Operation.UNSUBSCRIBE,
+                path,
+                progress -> removeFromIndex(path, progress)
+        );
+    }
+
+    private static void checkPathExists(Path path) throws FileNotFoundException {
+        if (!Files.exists(path)) {
+            throw new FileNotFoundException(
+                    String.format("Path '%s' doesn't exist", FileUtil.getCanonicalPath(path))
+            );
+        }
+    }
+
+    @Override
+    public SubscriptionJob job(String id) {
+        return subscriptionJobs.get(id);
+    }
+
+    @Override
+    public List<SubscriptionJob> jobs() {
+        return subscriptionJobs.list();
+    }
+
+    @Override
+    public SubscriptionJob cancelJob(String id) {
+        return subscriptionJobs.cancel(id);
+    }
+
+    @Override
+    public List<RootFreshness> freshness() {
+        return freshnessTracker.status();
+    }
+
+    /**
+     * Stops the jobs and the subscriber, and only then closes the index, so
+     * that the index and its dictionary are never used after they are closed.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
     @Override
     public void close() throws IOException {
-        index.close();
+        subscriptionJobs.close();
         subscriber.close();
+        index.close();
+    }
+
+
+    /**
+     * Creates the builder of the service.
+     *
+     * @param analyzer         specifies how to turn files into terms.
+     * @param queryTransformer specifies how to transform query terms. Should be consistent
+     *                         with the analyzer.
+     * @return the builder.
+     */
+    public static Builder builder(Analyzer analyzer, TermsTransformer queryTransformer) {
+        return new Builder(analyzer, queryTransformer);
     }
 
+    /**
+     * Builder of the {@link FileSystemIndexServiceImpl}. Settings, which are
+     * not given, take default values.
+     */
+    public static final class Builder {
+
+        private final Analyzer analyzer;
+        private final TermsTransformer queryTransformer;
+        private TermIndex<Path> index;
+        private PathFilter pathFilter = new TextPathFilter();
+        private int listenerThreadsCount = DEFAULT_LISTENER_THREADS;
+        private FreshnessTracker freshnessTracker;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private int maxConcurrentJobs = DEFAULT_MAX_CONCURRENT_JOBS;
+        private PathTable pathTable;
+        private boolean virtualThreads;
+        private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+
+        private Builder(Analyzer analyzer, TermsTransformer queryTransformer) {
+            this.analyzer = analyzer;
+            this.queryTransformer = queryTransformer;
+        }
+
+        /**
+         * @param index index to store terms in. It is closed along with the service.
+         *              By default, a new {@link VersionedTermIndex}.
+         * @return this builder.
+         */
+        public Builder index(TermIndex<Path> index) {
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * @param pathFilter specifies which files to accept for indexation.
+         *                   By default, only text files.
+         * @return this builder.
+         */
+        public Builder pathFilter(PathFilter pathFilter) {
+            this.pathFilter = pathFilter;
+            return this;
+        }
+
+        /**
+         * @param listenerThreadsCount number of threads to listen for file system events.
+         * @return this builder.
+         */
+        public Builder listenerThreadsCount(int listenerThreadsCount) {
+            this.listenerThreadsCount = listenerThreadsCount;
+            return this;
+        }
+
+        /**
+         * @param freshnessTracker tracker of the lag between changes of files and their
+         *                         visibility in the index. By default, a tracker with
+         *                         the default target lag.
+         * @return this builder.
+         */
+        public Builder freshnessTracker(FreshnessTracker freshnessTracker) {
+            this.freshnessTracker = freshnessTracker;
+            return this;
+        }
+
+        /**
+         * @param meterRegistry registry to publish metrics of the service and its
+         *                      components to. By default, the global registry.
+         * @return this builder.
+         */
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentJobs maximum number of subscriptions and unsubscriptions,
+         *                          performed in the background at a time.
+         * @return this builder.
+         */
+        public Builder maxConcurrentJobs(int maxConcurrentJobs) {
+            this.maxConcurrentJobs = maxConcurrentJobs;
+            return this;
+        }
+
+        /**
+         * @param pathTable table to store paths, tracked by the subscriber, in.
+         *                  Should be the same table, as the index uses, if any.
+         *                  By default, a new table.
+         * @return this builder.
+         */
+        public Builder pathTable(PathTable pathTable) {
+            this.pathTable = pathTable;
+            return this;
+        }
+
+        /**
+         * @param virtualThreads whether to listen for events and to read files of
+         *                       subscribed directories on virtual threads. Falls back
+         *                       to platform threads, if the runtime doesn't support them.
+         * @return this builder.
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * @param maxOpenFiles maximum number of files, read concurrently, if
+         *                     virtual threads are used.
+         * @return this builder.
+         */
+        public Builder maxOpenFiles(int maxOpenFiles) {
+            this.maxOpenFiles = maxOpenFiles;
+            return this;
+        }
+
+        /**
+         * Creates the service and starts to listen for file system events.
+         *
+         * @return the service.
+         * @throws IOException if an I/O error occurs.
+         */
+        public FileSystemIndexServiceImpl build() throws IOException {
+            return new FileSystemIndexServiceImpl(this);
+        }
+    }
 }
@@ -0,0 +1,218 @@
+package ru.mpoplavkov.indexation.service.impl;
+
+import lombok.extern.java.Log;
+import ru.mpoplavkov.indexation.listener.SubscriptionProgress;
+import ru.mpoplavkov.indexation.model.job.SubscriptionJob;
+import ru.mpoplavkov.indexation.util.ExecutorsUtil;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Runs subscriptions and unsubscriptions in the background, at most the
+ * given number of them at a time. Other jobs wait in the queue.
+ *
+ * <p>Finished jobs are kept, so that their result could be retrieved,
+ * until there are too many of them.
+ */
+@Log
+public class SubscriptionJobs implements Closeable {
+
+    private static final int MAX_FINISHED_JOBS = 1000;
+
+    private final ExecutorService executorService;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Queue<String> finishedJobs = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates the executor of jobs.
+     *
+     * @param maxConcurrentJobs maximum number of jobs running at a time.
+     */
+    public SubscriptionJobs(int maxConcurrentJobs) {
+        if (maxConcurrentJobs <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("Number of concurrent jobs should be positive, but was '%d'", maxConcurrentJobs)
+            );
+        }
+        this.executorService = Executors.newFixedThreadPool(
+                maxConcurrentJobs,
+                new ExecutorsUtil.DaemonThreadFactory("subscription-job")
+        );
+    }
+
+    /**
+     * Submits the job to run in the background.
+     *
+     * @param operation operation, performed by the job.
+     * @param path      path to perform the operation on.
+     * @param task      the operation itself. It reports the progress and
+     *                  throws {@link CancellationException} if it was cancelled.
+     * @return the submitted job.
+     */
+    public SubscriptionJob submit(SubscriptionJob.Operation operation, Path path, Task task) {
+        Job job = new Job(UUID.randomUUID().toString(), operation, FileUtil.getCanonicalPath(path));
+        jobs.put(job.id, job);
+        job.future = executorService.submit(() -> run(job, task));
+        return job.toSubscriptionJob();
+    }
+
+    /**
+     * @param id id of the job.
+     * @return the job with the given id.
+     * @throws IllegalArgumentException if the job is unknown.
+     */
+    public SubscriptionJob get(String id) {
+        return getJob(id).toSubscriptionJob();
+    }
+
+    /**
+     * @return all the running, queued and recently finished jobs.
+     */
+    public List<SubscriptionJob> list() {
+        return jobs.values()
+                .stream()
+                .map(Job::toSubscriptionJob)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cancels the job. A queued job is never started, a running one stops
+     * after the file being processed. Does nothing if the job is finished.
+     *
+     * @param id id of the job.
+     * @return the job with the given id.
+     * @throws IllegalArgumentException if the job is unknown.
+     */
+    public SubscriptionJob cancel(String id) {
+        Job job = getJob(id);
+        job.progress.cancel();
+        if (job.state.compareAndSet(SubscriptionJob.State.QUEUED, SubscriptionJob.State.CANCELLED)) {
+            job.finishedAt = System.currentTimeMillis();
+            Future<?> future = job.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+            finish(job);
+        }
+        return job.toSubscriptionJob();
+    }
+
+    private Job getJob(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new IllegalArgumentException(String.format("Job '%s' is unknown", id));
+        }
+        return job;
+    }
+
+    private void run(Job job, Task task) {
+        if (!job.state.compareAndSet(SubscriptionJob.State.QUEUED, SubscriptionJob.State.RUNNING)) {
+            // cancelled while in the queue
+            return;
+        }
+        SubscriptionJob.State result;
+        try {
+            task.run(job.progress);
+            result = SubscriptionJob.State.COMPLETED;
+        } catch (CancellationException e) {
+            result = SubscriptionJob.State.CANCELLED;
+        } catch (Exception e) {
+            log.log(Level.SEVERE, e, () -> String.format("Job '%s' failed", job.id));
+            job.error = String.valueOf(e.getMessage());
+            result = SubscriptionJob.State.FAILED;
+        }
+        // the finish time must be visible along with the final state
+        job.finishedAt = System.currentTimeMillis();
+        job.state.set(result);
+        finish(job);
+    }
+
+    /**
+     * Evicts the oldest finished jobs, if there are too many of them.
+     */
+    private void finish(Job job) {
+        finishedJobs.add(job.id);
+        while (finishedJobs.size() > MAX_FINISHED_JOBS) {
+            String oldest = finishedJobs.poll();
+            if (oldest != null) {
+                jobs.remove(oldest);
+            }
+        }
+    }
+
+    /**
+     * Interrupts running jobs, drops queued ones and waits until the
+     * running jobs are finished, so that they don't change the index
+     * after the call.
+     *
+     * @throws InterruptedIOException if interrupted while waiting.
+     */
+    @Override
+    public void close() throws InterruptedIOException {
+        executorService.shutdownNow();
+        try {
+            ExecutorsUtil.awaitTermination(executorService);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for jobs to finish");
+        }
+    }
+
+    /**
+     * Operation performed by a job.
+     */
+    @FunctionalInterface
+    public interface Task {
+        void run(SubscriptionProgress progress) throws Exception;
+    }
+
+    private static class Job {
+        private final String id;
+        private final SubscriptionJob.Operation operation;
+        private final String path;
+        private final long submittedAt = System.currentTimeMillis();
+        private final SubscriptionProgress progress = new SubscriptionProgress();
+        private final AtomicReference<SubscriptionJob.State> state =
+                new AtomicReference<>(SubscriptionJob.State.QUEUED);
+        private volatile Future<?> future;
+        private volatile String error;
+        private volatile long finishedAt;
+
+        private Job(String id, SubscriptionJob.Operation operation, String path) {
+            this.id = id;
+            this.operation = operation;
+            this.path = path;
+        }
+
+        private SubscriptionJob toSubscriptionJob() {
+            return new SubscriptionJob(
+                    id,
+                    operation,
+                    path,
+                    state.get(),
+                    progress.getFilesDiscovered(),
+                    progress.getFilesProcessed(),
+                    progress.getBytesProcessed(),
+                    error,
+                    submittedAt,
+                    finishedAt
+            );
+        }
+    }
+}
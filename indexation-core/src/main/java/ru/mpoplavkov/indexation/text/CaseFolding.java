@@ -0,0 +1,111 @@
+package ru.mpoplavkov.indexation.text;
+
+/**
+ * Locale independent case folding. Each code point is folded with the
+ * simple Unicode case folding, approximated as
+ * {@code toLowerCase(toUpperCase(codePoint))}. This maps all case variants
+ * of a letter to the same one (e.g. final sigma and sigma, or long s and s),
+ * which {@link String#toLowerCase()} doesn't do.
+ *
+ * <p>Pure ASCII text is processed without a lookup of Unicode tables, and
+ * text, that is already folded, is never copied.
+ */
+public final class CaseFolding {
+
+    private static final char FIRST_NON_ASCII = 0x80;
+
+    private CaseFolding() {
+    }
+
+    /**
+     * Folds the given string.
+     *
+     * @param s the string to fold.
+     * @return the same instance if the string is already folded, the folded
+     * copy otherwise.
+     */
+    public static String fold(String s) {
+        int firstToFold = firstToFold(s);
+        if (firstToFold == s.length()) {
+            return s;
+        }
+        char[] chars = s.toCharArray();
+        int length = foldInPlace(chars, firstToFold, chars.length);
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Folds the first {@code length} chars of the buffer in place.
+     *
+     * @param buffer buffer to fold.
+     * @param length number of chars to fold.
+     * @return new length of the content of the buffer. It never exceeds the
+     * original one.
+     */
+    public static int foldInPlace(char[] buffer, int length) {
+        return foldInPlace(buffer, 0, length);
+    }
+
+    /**
+     * Checks whether the string is already folded.
+     *
+     * @param s the string to check.
+     * @return true, if folding the string would not change it.
+     */
+    public static boolean isFolded(CharSequence s) {
+        return firstToFold(s) == s.length();
+    }
+
+    private static int foldInPlace(char[] buffer, int from, int length) {
+        int read = from;
+        int write = from;
+        while (read < length) {
+            char c = buffer[read];
+            if (c < FIRST_NON_ASCII) {
+                buffer[write++] = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+                read++;
+                continue;
+            }
+            int codePoint = Character.codePointAt(buffer, read, length);
+            int charCount = Character.charCount(codePoint);
+            int folded = foldCodePoint(codePoint);
+            if (Character.charCount(folded) > charCount) {
+                // never happens for the current Unicode tables,
+                // but folding must not grow the content
+                folded = codePoint;
+            }
+            write += Character.toChars(folded, buffer, write);
+            read += charCount;
+        }
+        return write;
+    }
+
+    /**
+     * @return index of the first char, that would be changed by folding,
+     * or the length of the sequence if there is no such char.
+     */
+    private static int firstToFold(CharSequence s) {
+        int i = 0;
+        int length = s.length();
+        while (i < length) {
+            char c = s.charAt(i);
+            if (c < FIRST_NON_ASCII) {
+                if (c >= 'A' && c <= 'Z') {
+                    return i;
+                }
+                i++;
+                continue;
+            }
+            int codePoint = Character.codePointAt(s, i);
+            if (foldCodePoint(codePoint) != codePoint) {
+                return i;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return length;
+    }
+
+    private static int foldCodePoint(int codePoint) {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+}
@@ -0,0 +1,40 @@
+package ru.mpoplavkov.indexation.text.analyzer;
+
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.text.source.Source;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Turns the contents of a file into terms, ready to be indexed.
+ */
+public interface Analyzer {
+
+    /**
+     * Extracts and transforms terms from the source of the given file.
+     *
+     * @param file   the file being analyzed.
+     * @param source the source of the file contents.
+     * @return terms to index.
+     * @throws IOException if an I/O error occurs reading from the source.
+     */
+    Set<Term> analyze(Path file, Source source) throws IOException;
+
+    /**
+     * Extracts and transforms terms from the source of the given file,
+     * keeping every occurrence of a term, so that its frequency in the
+     * file is known. By default, every term occurs once.
+     *
+     * @param file   the file being analyzed.
+     * @param source the source of the file contents.
+     * @return terms to index, possibly repeated.
+     * @throws IOException if an I/O error occurs reading from the source.
+     */
+    default Collection<Term> analyzeOccurrences(Path file, Source source) throws IOException {
+        return analyze(file, source);
+    }
+
+}
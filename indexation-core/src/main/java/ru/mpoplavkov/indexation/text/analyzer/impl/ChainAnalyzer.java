@@ -0,0 +1,126 @@
+package ru.mpoplavkov.indexation.text.analyzer.impl;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.text.analyzer.Analyzer;
+import ru.mpoplavkov.indexation.text.source.Source;
+import ru.mpoplavkov.indexation.text.token.Token;
+import ru.mpoplavkov.indexation.text.token.TokenSink;
+import ru.mpoplavkov.indexation.text.tokenfilter.TokenFilter;
+import ru.mpoplavkov.indexation.text.tokenizer.Tokenizer;
+import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Analyzer, that splits the source with the {@link Tokenizer} and passes
+ * every token through the chain of {@link TokenFilter}s. The whole chain
+ * is applied in a single pass over one reusable {@link Token}, and
+ * {@link WordTerm}s are created only for tokens that reached the end of
+ * the chain.
+ *
+ * <p>The analyzer could be used as a {@link TermsTransformer} as well, in
+ * order to apply the same chain to query terms. A query term, for which
+ * the chain emits several tokens, is expanded to all of them.
+ */
+public class ChainAnalyzer implements Analyzer, TermsTransformer {
+
+    private final Tokenizer tokenizer;
+    private final List<TokenFilter> filters;
+
+    public ChainAnalyzer(Tokenizer tokenizer, List<TokenFilter> filters) {
+        this.tokenizer = tokenizer;
+        this.filters = filters;
+    }
+
+    public ChainAnalyzer(Tokenizer tokenizer, TokenFilter... filters) {
+        this(tokenizer, Arrays.asList(filters));
+    }
+
+    @Override
+    public Set<Term> analyze(Path file, Source source) throws IOException {
+        Set<Term> terms = new HashSet<>();
+        collectTerms(source, terms);
+        return terms;
+    }
+
+    @Override
+    public Collection<Term> analyzeOccurrences(Path file, Source source) throws IOException {
+        Multiset<Term> terms = HashMultiset.create();
+        collectTerms(source, terms);
+        return terms;
+    }
+
+    /**
+     * Applies the chain of filters to the word of the term.
+     *
+     * @param term the term to transform.
+     * @return the transformed term.
+     * @throws IllegalArgumentException if the chain doesn't emit exactly one
+     *                                  token for the term.
+     */
+    @Override
+    public Term transform(Term term) {
+        List<Term> terms = expand(term);
+        if (terms.size() != 1) {
+            throw new IllegalArgumentException(
+                    String.format("Term '%s' is transformed into %d terms", term, terms.size())
+            );
+        }
+        return terms.get(0);
+    }
+
+    /**
+     * Applies the chain of filters to the word of the term, keeping every
+     * emitted token. If the chain drops the token, the term is never
+     * indexed, so nothing is returned.
+     *
+     * @param term the term to transform.
+     * @return distinct transformed terms in the order they were emitted.
+     */
+    @Override
+    public List<Term> expand(Term term) {
+        if (!(term instanceof WordTerm)) {
+            return Collections.singletonList(term);
+        }
+        String word = ((WordTerm) term).getWord();
+        Token token = new Token(word.length());
+        token.copyFrom(word, 0, word.length());
+        Set<Term> terms = new LinkedHashSet<>();
+        chainTo(t -> addTerm(terms, t)).accept(token);
+        return new ArrayList<>(terms);
+    }
+
+    private TokenSink chainTo(TokenSink last) {
+        TokenSink sink = last;
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            TokenFilter filter = filters.get(i);
+            TokenSink next = sink;
+            sink = token -> filter.process(token, next);
+        }
+        return sink;
+    }
+
+    private void collectTerms(Source source, Collection<Term> terms) throws IOException {
+        TokenSink chain = chainTo(token -> addTerm(terms, token));
+        tokenizer.tokenize(source, new Token(), chain);
+    }
+
+    private static void addTerm(Collection<Term> terms, Token token) {
+        // filters could shorten the token down to nothing
+        if (token.length() > 0) {
+            terms.add(new WordTerm(token.toString()));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.mpoplavkov.indexation.text.analyzer.impl;
+
+import lombok.RequiredArgsConstructor;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.text.analyzer.Analyzer;
+import ru.mpoplavkov.indexation.text.extractor.TermsExtractor;
+import ru.mpoplavkov.indexation.text.source.Source;
+import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Analyzer, that extracts terms with the {@link TermsExtractor} and then
+ * transforms each of them with the {@link TermsTransformer}.
+ */
+@RequiredArgsConstructor
+public class ExtractorTransformerAnalyzer implements Analyzer {
+
+    private final TermsExtractor termsExtractor;
+    private final TermsTransformer termsTransformer;
+
+    @Override
+    public Set<Term> analyze(Path file, Source source) throws IOException {
+        Set<Term> terms = termsExtractor.extractTerms(source);
+        Set<Term> transformedTerms = new HashSet<>();
+        terms.forEach(t -> transformedTerms.add(termsTransformer.transform(t)));
+        return transformedTerms;
+    }
+}
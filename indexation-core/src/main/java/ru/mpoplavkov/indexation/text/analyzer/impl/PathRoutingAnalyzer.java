@@ -0,0 +1,57 @@
+package ru.mpoplavkov.indexation.text.analyzer.impl;
+
+import lombok.Data;
+import ru.mpoplavkov.indexation.filter.PathFilter;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.text.analyzer.Analyzer;
+import ru.mpoplavkov.indexation.text.source.Source;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Analyzer, that chooses the actual analyzer for the file by the first
+ * matching {@link PathFilter}. Files, that don't match any filter, are
+ * analyzed by the default analyzer.
+ */
+public class PathRoutingAnalyzer implements Analyzer {
+
+    private final List<Route> routes;
+    private final Analyzer defaultAnalyzer;
+
+    public PathRoutingAnalyzer(List<Route> routes, Analyzer defaultAnalyzer) {
+        this.routes = routes;
+        this.defaultAnalyzer = defaultAnalyzer;
+    }
+
+    @Override
+    public Set<Term> analyze(Path file, Source source) throws IOException {
+        return analyzerFor(file).analyze(file, source);
+    }
+
+    @Override
+    public Collection<Term> analyzeOccurrences(Path file, Source source) throws IOException {
+        return analyzerFor(file).analyzeOccurrences(file, source);
+    }
+
+    private Analyzer analyzerFor(Path file) {
+        for (Route route : routes) {
+            if (route.getPathFilter().filter(file)) {
+                return route.getAnalyzer();
+            }
+        }
+        return defaultAnalyzer;
+    }
+
+    /**
+     * Association between files, that pass the filter, and the analyzer for them.
+     */
+    @Data
+    public static class Route {
+        private final PathFilter pathFilter;
+        private final Analyzer analyzer;
+    }
+}
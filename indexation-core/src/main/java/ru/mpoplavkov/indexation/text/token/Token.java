@@ -0,0 +1,125 @@
+package ru.mpoplavkov.indexation.text.token;
+
+import java.util.Arrays;
+
+/**
+ * Mutable buffer of chars, that holds one token during the analysis.
+ * The same instance is reused for all tokens of one source, so it must
+ * not be retained by token consumers. Use {@link Token#toString()} to
+ * obtain an immutable copy of the content.
+ */
+public final class Token implements CharSequence {
+
+    private static final int DEFAULT_CAPACITY = 32;
+
+    private char[] buffer;
+    private int length;
+
+    public Token(int capacity) {
+        buffer = new char[capacity];
+    }
+
+    public Token() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the underlying buffer. Only the first {@link Token#length()}
+     * chars of the buffer belong to the token. The buffer could be modified
+     * in place.
+     *
+     * @return the underlying buffer.
+     */
+    public char[] buffer() {
+        return buffer;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Sets the length of the token, growing the buffer if needed.
+     *
+     * @param length new length.
+     */
+    public void setLength(int length) {
+        ensureCapacity(length);
+        this.length = length;
+    }
+
+    /**
+     * Replaces the content of the token with the given chars.
+     *
+     * @param chars source of chars.
+     * @param start index of the first char to copy, inclusive.
+     * @param end   index of the last char to copy, exclusive.
+     */
+    public void copyFrom(CharSequence chars, int start, int end) {
+        int newLength = end - start;
+        ensureCapacity(newLength);
+        for (int i = 0; i < newLength; i++) {
+            buffer[i] = chars.charAt(start + i);
+        }
+        length = newLength;
+    }
+
+    /**
+     * Replaces the content of the token with the given chars.
+     *
+     * @param chars  source of chars.
+     * @param offset index of the first char to copy.
+     * @param count  number of chars to copy.
+     */
+    public void copyFrom(char[] chars, int offset, int count) {
+        ensureCapacity(count);
+        System.arraycopy(chars, offset, buffer, 0, count);
+        length = count;
+    }
+
+    /**
+     * Checks whether the token ends with the given suffix.
+     *
+     * @param suffix given suffix.
+     * @return true if the token ends with the suffix.
+     */
+    public boolean endsWith(String suffix) {
+        int offset = length - suffix.length();
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (buffer[offset + i] != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Index '%d' is out of the token of length '%d'", index, length)
+            );
+        }
+        return buffer[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
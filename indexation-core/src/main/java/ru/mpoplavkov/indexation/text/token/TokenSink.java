@@ -0,0 +1,17 @@
+package ru.mpoplavkov.indexation.text.token;
+
+/**
+ * Consumer of tokens produced during the analysis.
+ */
+@FunctionalInterface
+public interface TokenSink {
+
+    /**
+     * Accepts the next token. The token is reused by the producer, so it
+     * must not be retained after this method returns.
+     *
+     * @param token the next token.
+     */
+    void accept(Token token);
+
+}
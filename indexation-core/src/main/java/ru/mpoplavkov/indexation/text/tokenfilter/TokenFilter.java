@@ -0,0 +1,22 @@
+package ru.mpoplavkov.indexation.text.tokenfilter;
+
+import ru.mpoplavkov.indexation.text.token.Token;
+import ru.mpoplavkov.indexation.text.token.TokenSink;
+
+/**
+ * One stage of the analysis. Could modify the token in place, drop it
+ * (by not passing it further) or emit several tokens instead of one.
+ * <p>Implementations must be thread safe, since the same filter is used
+ * to analyze different sources concurrently.
+ */
+public interface TokenFilter {
+
+    /**
+     * Processes the token and passes the result to the next stage.
+     *
+     * @param token the token to process.
+     * @param next  the next stage of the analysis.
+     */
+    void process(Token token, TokenSink next);
+
+}
@@ -0,0 +1,18 @@
+package ru.mpoplavkov.indexation.text.tokenfilter.impl;
+
+import ru.mpoplavkov.indexation.text.CaseFolding;
+import ru.mpoplavkov.indexation.text.token.Token;
+import ru.mpoplavkov.indexation.text.token.TokenSink;
+import ru.mpoplavkov.indexation.text.tokenfilter.TokenFilter;
+
+/**
+ * Converts tokens to lowercase in place with the locale independent
+ * {@link CaseFolding}.
+ */
+public class LowercaseTokenFilter implements TokenFilter {
+    @Override
+    public void process(Token token, TokenSink next) {
+        token.setLength(CaseFolding.foldInPlace(token.buffer(), token.length()));
+        next.accept(token);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.mpoplavkov.indexation.text.tokenfilter.impl;
+
+import com.google.common.base.Preconditions;
+import ru.mpoplavkov.indexation.text.token.Token;
+import ru.mpoplavkov.indexation.text.token.TokenSink;
+import ru.mpoplavkov.indexation.text.tokenfilter.TokenFilter;
+
+/**
+ * Emits all char n-grams of the token with lengths from {@code minGram}
+ * to {@code maxGram}, followed by the token itself (if required).
+ * Grams are written into a per thread reusable token, so the original
+ * token is never modified by this filter.
+ */
+public class NGramTokenFilter implements TokenFilter {
+
+    private final int minGram;
+    private final int maxGram;
+    private final boolean keepOriginal;
+    private final ThreadLocal<Token> grams = ThreadLocal.withInitial(Token::new);
+
+    /**
+     * Creates the filter.
+     *
+     * @param minGram      the minimal length of a gram.
+     * @param maxGram      the maximal length of a gram.
+     * @param keepOriginal whether to emit the original token after grams.
+     */
+    public NGramTokenFilter(int minGram, int maxGram, boolean keepOriginal) {
+        Preconditions.checkArgument(minGram > 0, "Minimal gram length should be positive");
+        Preconditions.checkArgument(minGram <= maxGram, "Minimal gram length should not exceed the maximal one");
+        this.minGram = minGram;
+        this.maxGram = maxGram;
+        this.keepOriginal = keepOriginal;
+    }
+
+    @Override
+    public void process(Token token, TokenSink next) {
+        int length = token.length();
+        Token gram = grams.get();
+        for (int gramLength = minGram; gramLength <= Math.min(maxGram, length); gramLength++) {
+            // the original token is emitted separately
+            if (gramLength == length && keepOriginal) {
+                break;
+            }
+            for (int start = 0; start + gramLength <= length; start++) {
+                gram.copyFrom(token.buffer(), start, gramLength);
+                next.accept(gram);
+            }
+        }
+        if (keepOriginal) {
+            next.accept(token);
+        }
+    }
+}
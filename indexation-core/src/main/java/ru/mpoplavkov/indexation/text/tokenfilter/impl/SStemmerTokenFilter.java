@@ -0,0 +1,45 @@
+package ru.mpoplavkov.indexation.text.tokenfilter.impl;
+
+import ru.mpoplavkov.indexation.text.token.Token;
+import ru.mpoplavkov.indexation.text.token.TokenSink;
+import ru.mpoplavkov.indexation.text.tokenfilter.TokenFilter;
+
+/**
+ * Light English stemmer, that only reduces plural forms to singular ones
+ * ("S" stemmer by Donna Harman). Expects lowercase tokens.
+ * <ul>
+ *     <li><i>-ies</i> is replaced with <i>-y</i>, unless the word ends with
+ *     <i>-eies</i> or <i>-aies</i>;</li>
+ *     <li><i>-es</i> is replaced with <i>-e</i>, unless the word ends with
+ *     <i>-aes</i>, <i>-ees</i> or <i>-oes</i>;</li>
+ *     <li><i>-s</i> is removed, unless the word ends with <i>-us</i> or
+ *     <i>-ss</i>.</li>
+ * </ul>
+ * Words of three chars or shorter are not stemmed.
+ */
+public class SStemmerTokenFilter implements TokenFilter {
+
+    private static final int MIN_LENGTH_TO_STEM = 4;
+
+    @Override
+    public void process(Token token, TokenSink next) {
+        int length = token.length();
+        if (length >= MIN_LENGTH_TO_STEM) {
+            if (token.endsWith("ies")) {
+                if (!token.endsWith("eies") && !token.endsWith("aies")) {
+                    token.buffer()[length - 3] = 'y';
+                    token.setLength(length - 2);
+                }
+            } else if (token.endsWith("es")) {
+                if (!token.endsWith("aes") && !token.endsWith("ees") && !token.endsWith("oes")) {
+                    token.setLength(length - 1);
+                }
+            } else if (token.endsWith("s")) {
+                if (!token.endsWith("us") && !token.endsWith("ss")) {
+                    token.setLength(length - 1);
+                }
+            }
+        }
+        next.accept(token);
+    }
+}
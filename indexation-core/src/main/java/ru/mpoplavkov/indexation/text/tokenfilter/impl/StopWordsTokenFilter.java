@@ -0,0 +1,48 @@
+package ru.mpoplavkov.indexation.text.tokenfilter.impl;
+
+import com.google.common.collect.ImmutableSet;
+import ru.mpoplavkov.indexation.text.token.Token;
+import ru.mpoplavkov.indexation.text.token.TokenSink;
+import ru.mpoplavkov.indexation.text.tokenfilter.TokenFilter;
+
+import java.nio.CharBuffer;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Drops tokens, that are equal to one of the stop words.
+ */
+public class StopWordsTokenFilter implements TokenFilter {
+
+    public static final Set<String> ENGLISH_STOP_WORDS = ImmutableSet.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by",
+            "for", "if", "in", "into", "is", "it",
+            "no", "not", "of", "on", "or", "such",
+            "that", "the", "their", "then", "there", "these",
+            "they", "this", "to", "was", "will", "with"
+    );
+
+    /**
+     * Stop words wrapped into {@link CharBuffer}s, which are compared by
+     * content. This allows to look up a token without copying it to a string.
+     */
+    private final Set<CharBuffer> stopWords;
+
+    public StopWordsTokenFilter(Set<String> stopWords) {
+        this.stopWords = stopWords
+                .stream()
+                .map(CharBuffer::wrap)
+                .collect(Collectors.toSet());
+    }
+
+    public StopWordsTokenFilter() {
+        this(ENGLISH_STOP_WORDS);
+    }
+
+    @Override
+    public void process(Token token, TokenSink next) {
+        if (!stopWords.contains(CharBuffer.wrap(token.buffer(), 0, token.length()))) {
+            next.accept(token);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.mpoplavkov.indexation.text.tokenizer;
+
+import ru.mpoplavkov.indexation.text.source.Source;
+import ru.mpoplavkov.indexation.text.token.Token;
+import ru.mpoplavkov.indexation.text.token.TokenSink;
+
+import java.io.IOException;
+
+/**
+ * Splits the source into tokens.
+ */
+public interface Tokenizer {
+
+    /**
+     * Splits the source into tokens and passes each of them to the sink.
+     * All tokens are written into the same reusable instance.
+     *
+     * @param source given source.
+     * @param token  reusable token to write tokens into.
+     * @param sink   consumer of tokens.
+     * @throws IOException if an I/O error occurs reading from the source.
+     */
+    void tokenize(Source source, Token token, TokenSink sink) throws IOException;
+
+}
@@ -0,0 +1,51 @@
+package ru.mpoplavkov.indexation.text.tokenizer.impl;
+
+import ru.mpoplavkov.indexation.text.source.Source;
+import ru.mpoplavkov.indexation.text.token.Token;
+import ru.mpoplavkov.indexation.text.token.TokenSink;
+import ru.mpoplavkov.indexation.text.tokenizer.Tokenizer;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Splits lines of the source by whitespaces. Uses the same set of
+ * whitespace chars as the {@code \s} regular expression, but doesn't
+ * allocate intermediate strings for tokens.
+ */
+public class WhitespaceTokenizer implements Tokenizer {
+
+    @Override
+    public void tokenize(Source source, Token token, TokenSink sink) throws IOException {
+        try (Stream<String> lines = source.lines()) {
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                tokenizeLine(iterator.next(), token, sink);
+            }
+        }
+    }
+
+    private void tokenizeLine(String line, Token token, TokenSink sink) {
+        int start = -1;
+        for (int i = 0; i < line.length(); i++) {
+            if (isWhitespace(line.charAt(i))) {
+                if (start >= 0) {
+                    token.copyFrom(line, start, i);
+                    sink.accept(token);
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            token.copyFrom(line, start, line.length());
+            sink.accept(token);
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
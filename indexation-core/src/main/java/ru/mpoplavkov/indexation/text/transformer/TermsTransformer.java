@@ -2,6 +2,9 @@ package ru.mpoplavkov.indexation.text.transformer;
 
 import ru.mpoplavkov.indexation.model.term.Term;
 
+import java.util.Collections;
+import java.util.List;
+
 public interface TermsTransformer {
 
     /**
@@ -12,4 +15,16 @@ public interface TermsTransformer {
      */
     Term transform(Term term);
 
+    /**
+     * Specifies how to transform the query term into the terms, any of
+     * which should be searched. By default, the term is transformed into
+     * exactly one term.
+     *
+     * @param term the term to transform.
+     * @return the transformed terms. Empty, if the term is never indexed.
+     */
+    default List<Term> expand(Term term) {
+        return Collections.singletonList(transform(term));
+    }
+
 }
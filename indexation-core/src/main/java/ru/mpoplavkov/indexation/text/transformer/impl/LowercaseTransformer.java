@@ -2,17 +2,21 @@ package ru.mpoplavkov.indexation.text.transformer.impl;
 
 import ru.mpoplavkov.indexation.model.term.Term;
 import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.text.CaseFolding;
 import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
 
 /**
- * Converts terms to lowercase.
+ * Converts terms to lowercase with the locale independent {@link CaseFolding}.
+ * Terms, that are already in lowercase, are returned as is.
  */
 public class LowercaseTransformer implements TermsTransformer {
     @Override
     public Term transform(Term term) {
         if (term instanceof WordTerm) {
-            WordTerm word = (WordTerm) term;
-            return new WordTerm(word.getWord().toLowerCase());
+            String word = ((WordTerm) term).getWord();
+            String folded = CaseFolding.fold(word);
+            // fold returns the same instance if nothing changed
+            return folded == word ? term : new WordTerm(folded);
         }
         return term;
     }
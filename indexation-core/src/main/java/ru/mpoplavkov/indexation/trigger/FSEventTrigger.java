@@ -3,6 +3,7 @@ package ru.mpoplavkov.indexation.trigger;
 import ru.mpoplavkov.indexation.model.fs.FileSystemEvent;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 public interface FSEventTrigger {
 
@@ -14,4 +15,20 @@ public interface FSEventTrigger {
      */
     void onEvent(FileSystemEvent fileSystemEvent) throws IOException;
 
+    /**
+     * Processes the event and returns a future, which is completed when
+     * results of the processing become visible, e.g. when the change of
+     * the file becomes searchable, or completed exceptionally if the
+     * processing fails after the call. By default, the event is processed
+     * completely on the calling thread.
+     *
+     * @param fileSystemEvent event that occurred in the system, where
+     *                        this trigger is registered.
+     * @return future of the processing.
+     */
+    default CompletableFuture<Void> onEventAsync(FileSystemEvent fileSystemEvent) throws IOException {
+        onEvent(fileSystemEvent);
+        return CompletableFuture.completedFuture(null);
+    }
+
 }
@@ -0,0 +1,44 @@
+package ru.mpoplavkov.indexation.trigger.impl;
+
+import ru.mpoplavkov.indexation.metrics.FreshnessTracker;
+import ru.mpoplavkov.indexation.model.fs.FileSystemEvent;
+import ru.mpoplavkov.indexation.trigger.FSEventTrigger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Trigger, that delegates events to the underlying one and records the
+ * freshness of the change, when the results of the processing become
+ * visible, i.e. when the change is applied to the index. Events of
+ * existing directories are not recorded, since they don't change the
+ * index by themselves.
+ */
+public class FreshnessTrackingTrigger implements FSEventTrigger {
+
+    private final FSEventTrigger delegate;
+    private final FreshnessTracker freshnessTracker;
+
+    public FreshnessTrackingTrigger(FSEventTrigger delegate, FreshnessTracker freshnessTracker) {
+        this.delegate = delegate;
+        this.freshnessTracker = freshnessTracker;
+    }
+
+    @Override
+    public void onEvent(FileSystemEvent fileSystemEvent) throws IOException {
+        onEventAsync(fileSystemEvent);
+    }
+
+    @Override
+    public CompletableFuture<Void> onEventAsync(FileSystemEvent fileSystemEvent) throws IOException {
+        boolean directory = Files.isDirectory(fileSystemEvent.getEntry());
+        CompletableFuture<Void> processed = delegate.onEventAsync(fileSystemEvent);
+        if (directory) {
+            return processed;
+        }
+        return processed.thenRun(() ->
+                freshnessTracker.record(fileSystemEvent.getEntry(), fileSystemEvent.getTimestamp())
+        );
+    }
+}
@@ -1,29 +1,35 @@
 package ru.mpoplavkov.indexation.trigger.impl;
 
-import lombok.RequiredArgsConstructor;
-import lombok.extern.java.Log;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import ru.mpoplavkov.indexation.filter.PathFilter;
 import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
 import ru.mpoplavkov.indexation.trigger.FSEventTrigger;
 import ru.mpoplavkov.indexation.model.fs.FileSystemEvent;
 import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.text.analyzer.Analyzer;
+import ru.mpoplavkov.indexation.text.analyzer.impl.ExtractorTransformerAnalyzer;
 import ru.mpoplavkov.indexation.text.extractor.TermsExtractor;
-import ru.mpoplavkov.indexation.text.source.Source;
 import ru.mpoplavkov.indexation.text.source.impl.FileSource;
 import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
-import ru.mpoplavkov.indexation.util.FileUtil;
+import ru.mpoplavkov.indexation.util.TraceRecorder;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Trigger that updates underlying index in accordance with events.
+ * The index could apply changes after they are submitted, so the time
+ * of a change is measured until it's applied.
  */
-@Log
-@RequiredArgsConstructor
 public class IndexUpdateFileChangeEventTrigger implements FSEventTrigger {
 
     /**
@@ -37,35 +43,97 @@ public class IndexUpdateFileChangeEventTrigger implements FSEventTrigger {
     private final PathFilter pathFilter;
 
     /**
-     * Specifies how to extract terms from files.
+     * Specifies how to turn files into terms.
      */
-    private final TermsExtractor termsExtractor;
+    private final Analyzer analyzer;
+
+    private final Timer analyzeTimer;
+    private final Timer indexTimer;
+    private final Timer deleteTimer;
+
+    /**
+     * Creates the trigger.
+     *
+     * @param index         index to update.
+     * @param pathFilter    filter to check files before processing.
+     * @param analyzer      specifies how to turn files into terms.
+     * @param meterRegistry registry to publish metrics of the trigger to.
+     */
+    public IndexUpdateFileChangeEventTrigger(TermIndex<Path> index,
+                                             PathFilter pathFilter,
+                                             Analyzer analyzer,
+                                             MeterRegistry meterRegistry) {
+        this.index = index;
+        this.pathFilter = pathFilter;
+        this.analyzer = analyzer;
+        this.analyzeTimer = Timer.builder(MetricNames.ANALYZE)
+                .description("Time to turn a file into terms")
+                .register(meterRegistry);
+        this.indexTimer = applyTimer("index", meterRegistry);
+        this.deleteTimer = applyTimer("delete", meterRegistry);
+    }
+
+    public IndexUpdateFileChangeEventTrigger(TermIndex<Path> index,
+                                             PathFilter pathFilter,
+                                             Analyzer analyzer) {
+        this(index, pathFilter, analyzer, Metrics.globalRegistry);
+    }
 
     /**
-     * Specifies how to transform terms, extracted from files,
-     * before indexation.
+     * Creates the trigger, that extracts terms from files with the given
+     * extractor and transforms them with the given transformer before
+     * indexation.
+     *
+     * @param index            index to update.
+     * @param pathFilter       filter to check files before processing.
+     * @param termsExtractor   specifies how to extract terms from files.
+     * @param termsTransformer specifies how to transform extracted terms.
      */
-    private final TermsTransformer termsTransformer;
+    public IndexUpdateFileChangeEventTrigger(TermIndex<Path> index,
+                                             PathFilter pathFilter,
+                                             TermsExtractor termsExtractor,
+                                             TermsTransformer termsTransformer) {
+        this(index, pathFilter, new ExtractorTransformerAnalyzer(termsExtractor, termsTransformer));
+    }
 
+    /**
+     * Processes the event without waiting for its change to be applied
+     * to the index.
+     *
+     * @param fileSystemEvent event that occurred in the system, where
+     *                        this trigger is registered.
+     * @throws IOException if an I/O error occurs.
+     */
     @Override
     public void onEvent(FileSystemEvent fileSystemEvent) throws IOException {
+        onEventAsync(fileSystemEvent);
+    }
+
+    @Override
+    public CompletableFuture<Void> onEventAsync(FileSystemEvent fileSystemEvent) throws IOException {
         Path changedFile = fileSystemEvent.getEntry();
         if (Files.isDirectory(changedFile)) {
             // skip
-            return;
+            return CompletableFuture.completedFuture(null);
         }
         switch (fileSystemEvent.getKind()) {
             case ENTRY_CREATE:
             case ENTRY_MODIFY:
                 if (!pathFilter.filter(changedFile)) {
-                    log.info(() -> String.format("File '%s' did not pass the filter", FileUtil.getCanonicalPath(changedFile)));
-                    return;
+                    TraceRecorder.record("trigger.filtered", changedFile);
+                    return CompletableFuture.completedFuture(null);
+                }
+                try {
+                    return indexFile(changedFile);
+                } catch (NoSuchFileException e) {
+                    // the file was deleted or renamed before its event was
+                    // processed. Its own delete event could have already been
+                    // processed, so delete it here as well
+                    TraceRecorder.record("trigger.vanished", changedFile);
+                    return deleteFile(changedFile);
                 }
-                indexFile(changedFile);
-                break;
             case ENTRY_DELETE:
-                index.delete(changedFile);
-                break;
+                return deleteFile(changedFile);
             default:
                 throw new RuntimeException(
                         String.format("FSEvent kind '%s' is not supported", fileSystemEvent.getKind())
@@ -73,15 +141,31 @@ public class IndexUpdateFileChangeEventTrigger implements FSEventTrigger {
         }
     }
 
-    private void indexFile(Path file) throws IOException {
-        Set<Term> terms = termsFromFile(file);
-        Set<Term> transformedTerms = new HashSet<>();
-        terms.forEach(t -> transformedTerms.add(termsTransformer.transform(t)));
-        index.index(file, transformedTerms);
+    private CompletableFuture<Void> indexFile(Path file) throws IOException {
+        long start = System.nanoTime();
+        Collection<Term> terms = analyzer.analyzeOccurrences(file, new FileSource(file));
+        analyzeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return timed(indexTimer, () -> index.indexAsync(file, terms));
+    }
+
+    private CompletableFuture<Void> deleteFile(Path file) {
+        return timed(deleteTimer, () -> index.deleteAsync(file));
+    }
+
+    /**
+     * Records the time from the submission of the change until it's applied.
+     */
+    private static CompletableFuture<Void> timed(Timer timer, Supplier<CompletableFuture<Void>> change) {
+        long start = System.nanoTime();
+        return change.get().whenComplete((result, e) ->
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+        );
     }
 
-    private Set<Term> termsFromFile(Path file) throws IOException {
-        Source fileSource = new FileSource(file);
-        return termsExtractor.extractTerms(fileSource);
+    private static Timer applyTimer(String operation, MeterRegistry meterRegistry) {
+        return Timer.builder(MetricNames.INDEX_APPLY)
+                .description("Time to apply a change of a file to the index")
+                .tag(MetricNames.TAG_OPERATION, operation)
+                .register(meterRegistry);
     }
 }
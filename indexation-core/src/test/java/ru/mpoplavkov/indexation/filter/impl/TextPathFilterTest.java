@@ -0,0 +1,81 @@
+package ru.mpoplavkov.indexation.filter.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mpoplavkov.indexation.filter.PathFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextPathFilterTest {
+
+    PathFilter filter = new TextPathFilter();
+
+    @Test
+    public void shouldAcceptDirectory(@TempDir Path dir) {
+        assertTrue(filter.filter(dir));
+    }
+
+    @Test
+    public void shouldAcceptFileWithTextExtension(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("file.txt"), new byte[]{0, 1, 2});
+        assertTrue(filter.filter(file));
+    }
+
+    @Test
+    public void shouldRejectFileWithBinaryExtension(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("image.png"), "text".getBytes(StandardCharsets.UTF_8));
+        assertFalse(filter.filter(file));
+    }
+
+    @Test
+    public void shouldAcceptUtf8FileWithUnknownExtension(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("README"), "some текст".getBytes(StandardCharsets.UTF_8));
+        assertTrue(filter.filter(file));
+    }
+
+    @Test
+    public void shouldRejectFileWithZeroBytes(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("data"), new byte[]{'a', 0, 'b'});
+        assertFalse(filter.filter(file));
+    }
+
+    @Test
+    public void shouldRejectFileWithBinaryMagicNumber(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("archive.unknown"), new byte[]{'P', 'K', 3, 4, 'a'});
+        assertFalse(filter.filter(file));
+    }
+
+    @Test
+    public void shouldAcceptNonExistentPath(@TempDir Path dir) {
+        assertTrue(filter.filter(dir.resolve("deleted")));
+    }
+
+    @Test
+    public void shouldDetectContentAgainAfterRename(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("file.txt"), new byte[]{'a', 0, 'b'});
+        assertTrue(filter.filter(file));
+
+        Path renamed = Files.move(file, dir.resolve("file.dat"));
+
+        assertFalse(filter.filter(renamed));
+    }
+
+    @Test
+    public void shouldDetectContentAgainAfterModification(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("data"), "text".getBytes(StandardCharsets.UTF_8));
+        assertTrue(filter.filter(file));
+
+        FileTime lastModified = Files.getLastModifiedTime(file);
+        Files.write(file, new byte[]{0, 0, 0, 0});
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified.toMillis() + 1000));
+        assertFalse(filter.filter(file));
+    }
+
+}
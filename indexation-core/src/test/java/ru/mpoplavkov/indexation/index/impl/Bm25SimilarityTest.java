@@ -0,0 +1,51 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Bm25SimilarityTest {
+
+    Bm25Similarity similarity = new Bm25Similarity();
+
+    @Test
+    public void shouldGiveHigherIdfToRareTerms() {
+        assertTrue(similarity.idf(1, 100) > similarity.idf(50, 100));
+    }
+
+    @Test
+    public void shouldGivePositiveIdfToTermsOfAllValues() {
+        assertTrue(similarity.idf(100, 100) > 0);
+    }
+
+    @Test
+    public void shouldSaturateTermFrequency() {
+        double idf = similarity.idf(1, 100);
+        double score1 = similarity.score(idf, 1, 100, 100);
+        double score2 = similarity.score(idf, 2, 100, 100);
+        double score3 = similarity.score(idf, 3, 100, 100);
+        double score100 = similarity.score(idf, 100, 100, 100);
+        assertAll(
+                () -> assertTrue(score2 > score1),
+                () -> assertTrue(score2 - score1 > score3 - score2),
+                () -> assertTrue(score100 < similarity.maxScore(idf))
+        );
+    }
+
+    @Test
+    public void shouldGiveHigherScoreToShorterValues() {
+        double idf = similarity.idf(1, 100);
+        assertTrue(similarity.score(idf, 1, 10, 100) > similarity.score(idf, 1, 1000, 100));
+    }
+
+    @Test
+    public void shouldNotScoreAbsentTerm() {
+        assertEquals(0, similarity.score(similarity.idf(1, 100), 0, 100, 100));
+    }
+
+    @Test
+    public void shouldThrowOnIllegalParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new Bm25Similarity(1.2, 2));
+    }
+
+}
@@ -0,0 +1,113 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.model.query.AnyOfTerms;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
+
+class CachingTermIndexTest {
+
+    TermIndex<String> underlyingIndex;
+    TermIndex<String> index;
+    MeterRegistry registry;
+
+    String value1 = "value1";
+    String value2 = "value2";
+
+    Term term1 = new WordTerm("term1");
+    Term term2 = new WordTerm("term2");
+
+    @BeforeEach
+    public void init() {
+        underlyingIndex = spy(new VersionedTermIndex<>());
+        registry = new SimpleMeterRegistry();
+        index = new CachingTermIndex<>(underlyingIndex, 100, registry);
+    }
+
+    @Test
+    public void shouldReturnCachedResult() {
+        index.index(value1, createSet(term1));
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(value1), index.search(new ExactTerm(term1))),
+                () -> assertEquals(createSet(value1), index.search(new ExactTerm(term1)))
+        );
+        verify(underlyingIndex, times(1)).search(any());
+    }
+
+    @Test
+    public void shouldShareResultBetweenEquivalentQueries() {
+        index.index(value1, createSet(term1));
+        index.search(new ExactTerm(term1));
+
+        assertEquals(createSet(value1), index.search(new AnyOfTerms(Arrays.asList(term1, term1))));
+        verify(underlyingIndex, times(1)).search(any());
+    }
+
+    @Test
+    public void shouldNotReturnOutdatedResultAfterIndexation() {
+        index.index(value1, createSet(term1));
+        index.search(new ExactTerm(term1));
+        index.index(value2, createSet(term1));
+
+        assertEquals(createSet(value1, value2), index.search(new ExactTerm(term1)));
+    }
+
+    @Test
+    public void shouldNotReturnOutdatedResultAfterReindex() {
+        index.index(value1, createSet(term1));
+        index.search(new ExactTerm(term1));
+        index.search(new ExactTerm(term2));
+        index.index(value1, createSet(term2));
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(), index.search(new ExactTerm(term1))),
+                () -> assertEquals(createSet(value1), index.search(new ExactTerm(term2)))
+        );
+    }
+
+    @Test
+    public void shouldNotReturnOutdatedResultAfterDeletion() {
+        index.index(value1, createSet(term1));
+        index.search(new ExactTerm(term1));
+        index.delete(value1);
+
+        assertEquals(createSet(), index.search(new ExactTerm(term1)));
+    }
+
+    @Test
+    public void shouldNotReturnOutdatedResultForTermIndexedAfterSearch() {
+        index.search(new ExactTerm(term1));
+        index.index(value1, createSet(term1));
+
+        assertEquals(createSet(value1), index.search(new ExactTerm(term1)));
+    }
+
+    @Test
+    public void shouldPublishMetrics() {
+        index.search(new ExactTerm(term1));
+        index.search(new ExactTerm(term1));
+        index.search(new ExactTerm(term2));
+
+        Assertions.assertAll(
+                () -> assertEquals(1, registry.get(MetricNames.SEARCH_CACHE).tag(MetricNames.TAG_RESULT, "hit").counter().count()),
+                () -> assertEquals(2, registry.get(MetricNames.SEARCH_CACHE).tag(MetricNames.TAG_RESULT, "miss").counter().count()),
+                () -> assertEquals(2, registry.get(MetricNames.SEARCH_CACHE_SIZE).gauge().value())
+        );
+    }
+
+}
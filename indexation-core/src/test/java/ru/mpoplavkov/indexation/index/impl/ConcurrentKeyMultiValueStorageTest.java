@@ -0,0 +1,157 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.index.KeyMultiValueStorage;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
+
+class ConcurrentKeyMultiValueStorageTest {
+
+    KeyMultiValueStorage<String, Integer> storage;
+
+    String key1 = "key1";
+    String key2 = "key2";
+
+    Integer value1 = 1;
+    Integer value2 = 2;
+
+    MeterRegistry registry;
+
+    @BeforeEach
+    void init() {
+        registry = new SimpleMeterRegistry();
+        storage = new ConcurrentKeyMultiValueStorage<>(registry);
+    }
+
+    @Test
+    public void shouldPutAndGetValue() {
+        storage.put(key1, value1);
+        Set<Integer> actual = storage.get(key1);
+        Set<Integer> expected = createSet(value1);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void shouldPutSeveralValuesForTheSameKey() {
+        storage.put(key1, value1);
+        storage.put(key1, value2);
+        Set<Integer> actual = storage.get(key1);
+        Set<Integer> expected = createSet(value1, value2);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void shouldStreamValues() {
+        storage.put(key1, value1);
+        storage.put(key1, value2);
+        Assertions.assertAll(
+                () -> assertEquals(createSet(value1, value2), storage.stream(key1).collect(Collectors.toSet())),
+                () -> assertEquals(0, storage.stream(key2).count())
+        );
+    }
+
+    @Test
+    public void shouldPutSeveralKeys() {
+        storage.put(key1, value1);
+        storage.put(key2, value2);
+
+        Set<Integer> actual1 = storage.get(key1);
+        Set<Integer> expected1 = createSet(value1);
+
+
+        Set<Integer> actual2 = storage.get(key2);
+        Set<Integer> expected2 = createSet(value2);
+
+        Assertions.assertAll(
+                () -> assertEquals(expected1, actual1),
+                () -> assertEquals(expected2, actual2)
+        );
+    }
+
+    @Test
+    public void shouldPutTwoSameValuesForTheSameKey() {
+        storage.put(key1, value1);
+        storage.put(key1, value1);
+        Set<Integer> actual = storage.get(key1);
+        Set<Integer> expected = createSet(value1);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void shouldDeleteKeyValuePair() {
+        storage.put(key1, value1);
+        storage.put(key1, value2);
+        storage.delete(key1, value2);
+        Set<Integer> actual = storage.get(key1);
+        Set<Integer> expected = createSet(value1);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void shouldAddTheSameValueAfterDeletion() {
+        storage.put(key1, value1);
+        storage.put(key1, value2);
+        storage.delete(key1, value2);
+        storage.put(key1, value2);
+        Set<Integer> actual = storage.get(key1);
+        Set<Integer> expected = createSet(value1, value2);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void shouldRetrieveAnEmptySetForMissedKey() {
+        Set<Integer> actual = storage.get(key1);
+        Set<Integer> expected = createSet();
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void shouldRetrieveAnEmptySetForDeletedKey() {
+        storage.put(key1, value1);
+        storage.delete(key1, value1);
+        Set<Integer> actual = storage.get(key1);
+        Set<Integer> expected = createSet();
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void shouldDoesNothingForDeletionOfAMissedKey() {
+        storage.delete(key1, value1);
+        Set<Integer> actual = storage.get(key1);
+        Set<Integer> expected = createSet();
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void shouldCountValues() {
+        storage.put(key1, value1);
+        storage.put(key1, value1);
+        storage.put(key1, value2);
+        storage.put(key2, value2);
+        assertEquals(3, storage.valuesCount());
+    }
+
+    @Test
+    public void shouldRemoveEmptyKeys() {
+        storage.put(key1, value1);
+        storage.put(key1, value2);
+        storage.put(key2, value1);
+        storage.delete(key1, value1);
+        storage.delete(key1, value2);
+
+        Assertions.assertAll(
+                () -> assertEquals(1, registry.get(MetricNames.STORAGE_KEYS).gauge().value()),
+                () -> assertEquals(1, registry.get(MetricNames.STORAGE_VALUES).gauge().value())
+        );
+    }
+
+}
@@ -1,13 +1,21 @@
 package ru.mpoplavkov.indexation.index.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.mpoplavkov.indexation.index.KeyMultiValueStorage;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.util.ExecutorsUtil;
 
+import java.time.Duration;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
 
 class ConcurrentKeyMultiWeakValueStorageTest {
@@ -42,6 +50,16 @@ class ConcurrentKeyMultiWeakValueStorageTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void shouldStreamValues() {
+        storage.put(key1, value1);
+        storage.put(key1, value2);
+        Assertions.assertAll(
+                () -> assertEquals(createSet(value1, value2), storage.stream(key1).collect(Collectors.toSet())),
+                () -> assertEquals(0, storage.stream(key2).count())
+        );
+    }
+
     @Test
     public void shouldPutSeveralKeys() {
         storage.put(key1, value1);
@@ -114,4 +132,70 @@ class ConcurrentKeyMultiWeakValueStorageTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void shouldCountValues() {
+        storage.put(key1, value1);
+        storage.put(key1, value1);
+        storage.put(key1, value2);
+        storage.put(key2, value2);
+        assertEquals(3, storage.valuesCount());
+    }
+
+    @Test
+    public void shouldSweepOnlyDirtyKeys() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrentKeyMultiWeakValueStorage<String, Integer> storage = createManuallySweptStorage(registry);
+        storage.put(key1, value1);
+        storage.put(key2, value2);
+        double backlogAfterPut = sweepBacklog(registry);
+        storage.delete(key1, value1);
+        double backlogAfterDelete = sweepBacklog(registry);
+        boolean finished = storage.sweepSlice();
+
+        Assertions.assertAll(
+                () -> assertEquals(0, backlogAfterPut),
+                () -> assertEquals(1, backlogAfterDelete),
+                () -> assertTrue(finished),
+                () -> assertEquals(0, sweepBacklog(registry)),
+                () -> assertEquals(createSet(value2), storage.get(key2))
+        );
+    }
+
+    @Test
+    public void shouldSweepKeysOfCollectedValues() throws InterruptedException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrentKeyMultiWeakValueStorage<String, Object> storage = createManuallySweptStorage(registry);
+        storage.put(key1, new Object());
+        storage.put(key2, value2);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (sweepBacklog(registry) == 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+            storage.markCollectedValues();
+        }
+        double backlog = sweepBacklog(registry);
+        storage.sweepSlice();
+
+        Assertions.assertAll(
+                () -> assertEquals(1, backlog),
+                () -> assertEquals(createSet(), storage.get(key1)),
+                () -> assertEquals(1, storage.valuesCount()),
+                () -> assertEquals(1, registry.get(MetricNames.STORAGE_RECLAIMED).counter().count())
+        );
+    }
+
+    private static <V> ConcurrentKeyMultiWeakValueStorage<String, V> createManuallySweptStorage(MeterRegistry registry) {
+        return ConcurrentKeyMultiWeakValueStorage.builder()
+                .cleanupExecutorService(new ExecutorsUtil.FakeScheduledExecutorService())
+                .cleanUpDelay(1, TimeUnit.DAYS)
+                .meterRegistry(registry)
+                .sweepParallelism(1)
+                .sweepSlice(Duration.ofSeconds(1))
+                .build();
+    }
+
+    private static double sweepBacklog(MeterRegistry registry) {
+        return registry.get(MetricNames.STORAGE_SWEEP_BACKLOG).gauge().value();
+    }
 }
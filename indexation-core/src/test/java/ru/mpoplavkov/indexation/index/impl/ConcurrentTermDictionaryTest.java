@@ -0,0 +1,72 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.index.TermDictionary;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTermDictionaryTest {
+
+    TermDictionary dictionary;
+
+    Term term1 = new WordTerm("term1");
+    Term term2 = new WordTerm("term2");
+
+    @BeforeEach
+    void init() {
+        dictionary = new ConcurrentTermDictionary();
+    }
+
+    @Test
+    public void shouldAssignDenseIds() {
+        Assertions.assertAll(
+                () -> assertEquals(0, dictionary.getOrAssignId(term1)),
+                () -> assertEquals(1, dictionary.getOrAssignId(term2)),
+                () -> assertEquals(2, dictionary.size())
+        );
+    }
+
+    @Test
+    public void shouldAssignTheSameIdToEqualTerms() {
+        int id = dictionary.getOrAssignId(term1);
+        assertEquals(id, dictionary.getOrAssignId(new WordTerm("term1")));
+    }
+
+    @Test
+    public void shouldNotAssignIdOnLookup() {
+        Assertions.assertAll(
+                () -> assertEquals(TermDictionary.NO_ID, dictionary.getId(term1)),
+                () -> assertEquals(0, dictionary.size())
+        );
+    }
+
+    @Test
+    public void shouldKeepTheFirstInstanceOfTheTerm() {
+        int id = dictionary.getOrAssignId(term1);
+        dictionary.getOrAssignId(new WordTerm("term1"));
+        assertSame(term1, dictionary.getTerm(id));
+    }
+
+    @Test
+    public void shouldRetrieveTermsFromDifferentChunks() {
+        int termsCount = 10_000;
+        for (int i = 0; i < termsCount; i++) {
+            dictionary.getOrAssignId(new WordTerm("term" + i));
+        }
+        Assertions.assertAll(
+                () -> assertEquals(new WordTerm("term0"), dictionary.getTerm(0)),
+                () -> assertEquals(new WordTerm("term9999"), dictionary.getTerm(9999)),
+                () -> assertEquals(termsCount, dictionary.size())
+        );
+    }
+
+    @Test
+    public void shouldThrowOnUnknownId() {
+        assertThrows(IllegalArgumentException.class, () -> dictionary.getTerm(0));
+    }
+
+}
@@ -0,0 +1,117 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.index.TermDictionary;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTermDictionaryTest {
+
+    TermDictionary dictionary;
+
+    Term term1 = new WordTerm("term1");
+    Term term2 = new WordTerm("term2");
+
+    @BeforeEach
+    void init() {
+        dictionary = new OffHeapTermDictionary(64, 2);
+    }
+
+    @Test
+    public void shouldAssignDenseIds() {
+        Assertions.assertAll(
+                () -> assertEquals(0, dictionary.getOrAssignId(term1)),
+                () -> assertEquals(1, dictionary.getOrAssignId(term2)),
+                () -> assertEquals(2, dictionary.size())
+        );
+    }
+
+    @Test
+    public void shouldAssignTheSameIdToEqualTerms() {
+        int id = dictionary.getOrAssignId(term1);
+        assertEquals(id, dictionary.getOrAssignId(new WordTerm("term1")));
+    }
+
+    @Test
+    public void shouldNotAssignIdOnLookup() {
+        Assertions.assertAll(
+                () -> assertEquals(TermDictionary.NO_ID, dictionary.getId(term1)),
+                () -> assertEquals(0, dictionary.size())
+        );
+    }
+
+    @Test
+    public void shouldRetrieveNonAsciiTerms() {
+        Term cyrillic = new WordTerm("привет");
+        Term cjk = new WordTerm("索引");
+        int cyrillicId = dictionary.getOrAssignId(cyrillic);
+        int cjkId = dictionary.getOrAssignId(cjk);
+        Assertions.assertAll(
+                () -> assertEquals(cyrillic, dictionary.getTerm(cyrillicId)),
+                () -> assertEquals(cjk, dictionary.getTerm(cjkId)),
+                () -> assertEquals(cjkId, dictionary.getId(new WordTerm("索引")))
+        );
+    }
+
+    @Test
+    public void shouldGrowBeyondInitialCapacityAndSlabSize() {
+        int termsCount = 1_000;
+        for (int i = 0; i < termsCount; i++) {
+            dictionary.getOrAssignId(new WordTerm("term" + i));
+        }
+        Term longTerm = new WordTerm(new String(new char[100]).replace('\0', 'a'));
+        int longTermId = dictionary.getOrAssignId(longTerm);
+        Assertions.assertAll(
+                () -> assertEquals(new WordTerm("term0"), dictionary.getTerm(0)),
+                () -> assertEquals(999, dictionary.getId(new WordTerm("term999"))),
+                () -> assertEquals(longTerm, dictionary.getTerm(longTermId)),
+                () -> assertEquals(termsCount + 1, dictionary.size())
+        );
+    }
+
+    @Test
+    public void shouldThrowOnUnknownId() {
+        assertThrows(IllegalArgumentException.class, () -> dictionary.getTerm(0));
+    }
+
+    @Test
+    public void shouldThrowAfterClose() throws IOException {
+        int id = dictionary.getOrAssignId(term1);
+        dictionary.close();
+        Assertions.assertAll(
+                () -> assertThrows(IllegalStateException.class, () -> dictionary.getId(term1)),
+                () -> assertThrows(IllegalStateException.class, () -> dictionary.getOrAssignId(term2)),
+                () -> assertThrows(IllegalStateException.class, () -> dictionary.getTerm(id))
+        );
+    }
+
+    @Test
+    public void shouldFreeDirectMemoryOnClose() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            dictionary.getOrAssignId(new WordTerm("term" + i));
+        }
+        long usedBefore = directMemoryUsed();
+
+        dictionary.close();
+        dictionary.close();
+
+        assertTrue(directMemoryUsed() < usedBefore);
+    }
+
+    private static long directMemoryUsed() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)
+                .stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+
+}
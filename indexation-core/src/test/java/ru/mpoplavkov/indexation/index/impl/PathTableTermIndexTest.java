@@ -0,0 +1,142 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
+
+class PathTableTermIndexTest {
+
+    PathTable table;
+    TermIndex<Integer> underlyingIndex;
+    TermIndex<Path> index;
+
+    Path path1 = FileUtil.toCanonicalPath(Paths.get("/dir/file1.txt"));
+    Path path2 = FileUtil.toCanonicalPath(Paths.get("/dir/file2.txt"));
+
+    Term term1 = new WordTerm("term1");
+    Term term2 = new WordTerm("term2");
+
+    @BeforeEach
+    public void init() {
+        table = new TreePathTable();
+        underlyingIndex = new VersionedTermIndex<>();
+        index = new PathTableTermIndex(underlyingIndex, table);
+    }
+
+    @Test
+    public void shouldStoreIdsInTheUnderlyingIndex() {
+        index.index(path1, createSet(term1));
+
+        assertEquals(createSet(table.getId(path1)), underlyingIndex.search(new ExactTerm(term1)));
+    }
+
+    @Test
+    public void shouldSearchPaths() {
+        index.index(path1, createSet(term1, term2));
+        index.index(path2, createSet(term2));
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(path1), index.search(new ExactTerm(term1))),
+                () -> assertEquals(createSet(path1, path2), index.search(new ExactTerm(term2))),
+                () -> assertEquals(
+                        createSet(path1, path2),
+                        index.searchStream(new ExactTerm(term2)).collect(Collectors.toSet())
+                )
+        );
+    }
+
+    @Test
+    public void shouldSearchIdsOfPaths() {
+        PathTableTermIndex pathTableIndex = new PathTableTermIndex(underlyingIndex, table);
+        pathTableIndex.index(path1, createSet(term1, term2));
+        pathTableIndex.index(path2, createSet(term2));
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(table.getId(path1)), pathTableIndex.searchIds(new ExactTerm(term1))),
+                () -> assertEquals(
+                        createSet(table.getId(path1), table.getId(path2)),
+                        pathTableIndex.searchIds(new ExactTerm(term2))
+                )
+        );
+    }
+
+    @Test
+    public void shouldSearchTopKPaths() {
+        index.index(path1, createSet(term1));
+
+        List<ScoredValue<Path>> result = index.searchTopK(new ExactTerm(term1), 10);
+
+        assertEquals(1, result.size());
+        assertEquals(path1, result.get(0).getValue());
+    }
+
+    @Test
+    public void shouldDeletePaths() {
+        index.index(path1, createSet(term1));
+        index.index(path2, createSet(term1));
+
+        index.delete(path1);
+
+        assertEquals(createSet(path2), index.search(new ExactTerm(term1)));
+    }
+
+    @Test
+    public void shouldIgnoreDeletionOfUnknownPath() {
+        int size = table.size();
+
+        index.delete(path1);
+
+        assertEquals(size, table.size());
+    }
+
+    @Test
+    public void shouldRemoveDeletedPathsFromTheTable() {
+        index.index(path1, createSet(term1));
+        index.index(path1, createSet(term2));
+        index.index(path2, createSet(term1));
+
+        index.delete(path1);
+        index.delete(path2);
+
+        Assertions.assertAll(
+                () -> assertEquals(PathTable.NO_ID, table.getId(path1)),
+                () -> assertEquals(0, table.size())
+        );
+    }
+
+    @Test
+    public void shouldKeepTableSizeBoundedWhenPathsAreIndexedAndDeleted() {
+        for (int i = 0; i < 10_000; i++) {
+            Path path = path1.resolveSibling("file" + i);
+            index.index(path, createSet(term1));
+            index.delete(path);
+        }
+
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void shouldKeepPathWhileItIsTrackedElsewhere() {
+        int id = table.getOrAssignId(path1);
+        index.index(path1, createSet(term1));
+
+        index.delete(path1);
+
+        assertEquals(path1, table.getPath(id));
+    }
+}
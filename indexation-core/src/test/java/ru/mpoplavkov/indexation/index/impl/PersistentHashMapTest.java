@@ -0,0 +1,130 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentHashMapTest {
+
+    @Test
+    public void shouldNotChangeThePreviousVersion() {
+        PersistentHashMap<String, Integer> map1 = PersistentHashMap.<String, Integer>empty().put("a", 1);
+        PersistentHashMap<String, Integer> map2 = map1.put("a", 2).put("b", 3);
+        PersistentHashMap<String, Integer> map3 = map2.remove("a");
+
+        Assertions.assertAll(
+                () -> assertEquals(1, map1.get("a")),
+                () -> assertNull(map1.get("b")),
+                () -> assertEquals(1, map1.size()),
+                () -> assertEquals(2, map2.get("a")),
+                () -> assertEquals(2, map2.size()),
+                () -> assertFalse(map3.containsKey("a")),
+                () -> assertEquals(1, map3.size())
+        );
+    }
+
+    @Test
+    public void shouldReturnTheSameMapIfNothingChanged() {
+        Integer value = 1;
+        PersistentHashMap<String, Integer> map = PersistentHashMap.<String, Integer>empty().put("a", value);
+
+        Assertions.assertAll(
+                () -> assertSame(map, map.put("a", value)),
+                () -> assertSame(map, map.remove("b"))
+        );
+    }
+
+    @Test
+    public void shouldHandleCollisions() {
+        PersistentHashMap<Collided, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.put(new Collided(i), i);
+        }
+        map = map.put(new Collided(100, 1), 100);
+        PersistentHashMap<Collided, Integer> removed = map.remove(new Collided(3));
+
+        assertEquals(11, map.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, map.get(new Collided(i)));
+        }
+        Assertions.assertAll(
+                () -> assertEquals(100, removed.get(new Collided(100, 1))),
+                () -> assertNull(removed.get(new Collided(3))),
+                () -> assertEquals(10, removed.size())
+        );
+    }
+
+    @Test
+    public void shouldBehaveLikeHashMap() {
+        Random random = new Random(42);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(10_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.keySet(), map.keys().collect(Collectors.toSet()));
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void shouldBecomeEmptyAfterRemovalOfAllKeys() {
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 1000; i++) {
+            map = map.put(i, i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            map = map.remove(i);
+        }
+
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.keys().count());
+    }
+
+    /**
+     * Key with the given hash code, equal to other keys by the identifier.
+     */
+    private static class Collided {
+        private final int id;
+        private final int hash;
+
+        Collided(int id) {
+            this(id, 0);
+        }
+
+        Collided(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object another) {
+            return another instanceof Collided && ((Collided) another).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.index.TermDictionary;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.model.query.AnyOfTerms;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
+
+class ShardedTermIndexTest {
+
+    static final int SHARDS = 4;
+
+    List<TermIndex<Integer>> shards;
+    TermIndex<Integer> index;
+
+    Term term1 = new WordTerm("term1");
+    Term term2 = new WordTerm("term2");
+    Term term3 = new WordTerm("term3");
+
+    @BeforeEach
+    public void init() {
+        shards = new ArrayList<>();
+        index = new ShardedTermIndex<>(SHARDS, shard -> {
+            TermIndex<Integer> index = new VersionedTermIndex<>();
+            shards.add(index);
+            return index;
+        });
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        index.close();
+    }
+
+    @Test
+    public void shouldDistributeValuesBetweenShards() {
+        for (int i = 0; i < SHARDS; i++) {
+            index.index(i, createSet(term1));
+        }
+
+        for (TermIndex<Integer> shard : shards) {
+            assertEquals(1, shard.count(new ExactTerm(term1)));
+        }
+    }
+
+    @Test
+    public void shouldMergeResultsOfAllShards() {
+        Set<Integer> values = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            index.index(i, createSet(term1));
+            values.add(i);
+        }
+        index.index(100, createSet(term2));
+
+        Assertions.assertAll(
+                () -> assertEquals(values, index.search(new ExactTerm(term1))),
+                () -> assertEquals(values, index.searchStream(new ExactTerm(term1)).collect(Collectors.toSet())),
+                () -> assertEquals(100, index.count(new ExactTerm(term1))),
+                () -> assertTrue(index.exists(new ExactTerm(term2))),
+                () -> assertFalse(index.exists(new ExactTerm(term3)))
+        );
+    }
+
+    @Test
+    public void shouldSearchAllQueries() {
+        index.index(1, createSet(term1));
+        index.index(2, createSet(term1, term2));
+        index.index(3, createSet(term3));
+
+        List<Query> queries = Arrays.asList(
+                new ExactTerm(term1),
+                new AnyOfTerms(Arrays.asList(term2, term3))
+        );
+
+        assertEquals(Arrays.asList(createSet(1, 2), createSet(2, 3)), index.searchAll(queries));
+    }
+
+    @Test
+    public void shouldReindexAndDeleteValuesInTheirShards() {
+        index.index(1, createSet(term1));
+        index.index(2, createSet(term1));
+
+        index.index(1, createSet(term2));
+        index.delete(2);
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(), index.search(new ExactTerm(term1))),
+                () -> assertEquals(createSet(1), index.search(new ExactTerm(term2)))
+        );
+    }
+
+    @Test
+    public void shouldChangeGenerationAfterUpdateOfAnyShard() {
+        Query query = new ExactTerm(term1);
+        index.index(0, createSet(term1));
+        long generation = index.generation(query);
+
+        index.index(1, createSet(term1));
+
+        assertTrue(index.generation(query) > generation);
+    }
+
+    @Test
+    public void shouldSelectBestValuesOfAllShards() {
+        for (int i = 0; i < 20; i++) {
+            List<Term> terms = new ArrayList<>();
+            for (int j = 0; j <= i; j++) {
+                terms.add(term1);
+            }
+            terms.add(term2);
+            index.index(i, terms);
+        }
+
+        List<ScoredValue<Integer>> result = index.searchTopK(new ExactTerm(term1), 3);
+
+        Assertions.assertAll(
+                () -> assertEquals(3, result.size()),
+                () -> assertTrue(result.get(0).getScore() >= result.get(1).getScore()),
+                () -> assertTrue(result.get(1).getScore() >= result.get(2).getScore())
+        );
+    }
+
+    @Test
+    public void shouldFailWithoutShards() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedTermIndex<Integer>(0));
+    }
+
+    @Test
+    public void shouldNotCloseTheDictionarySharedByShards() throws IOException {
+        TermDictionary dictionary = new OffHeapTermDictionary();
+        TermIndex<Integer> sharedDictionaryIndex = new ShardedTermIndex<>(SHARDS, shard -> VersionedTermIndex.builder()
+                .termDictionary(dictionary)
+                .meterRegistry(new SimpleMeterRegistry())
+                .tags(Tags.of(MetricNames.TAG_SHARD, String.valueOf(shard)))
+                .build());
+        sharedDictionaryIndex.index(1, createSet(term1));
+
+        sharedDictionaryIndex.close();
+
+        try {
+            assertNotEquals(TermDictionary.NO_ID, dictionary.getId(term1));
+        } finally {
+            dictionary.close();
+        }
+        assertThrows(IllegalStateException.class, () -> dictionary.getId(term1));
+    }
+}
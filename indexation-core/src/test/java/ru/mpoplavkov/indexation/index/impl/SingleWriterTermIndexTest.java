@@ -0,0 +1,238 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
+
+class SingleWriterTermIndexTest {
+
+    TermIndex<String> underlyingIndex;
+    SingleWriterTermIndex<String> index;
+
+    String value1 = "value1";
+    String value2 = "value2";
+
+    Term term1 = new WordTerm("term1");
+    Term term2 = new WordTerm("term2");
+
+    @BeforeEach
+    public void init() {
+        underlyingIndex = spy(new VersionedTermIndex<>());
+        index = new SingleWriterTermIndex<>(underlyingIndex, 16);
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        index.close();
+    }
+
+    @Test
+    public void shouldApplyChangesBeforeFlushReturns() throws InterruptedException {
+        index.index(value1, createSet(term1));
+        index.index(value2, createSet(term1, term2));
+
+        index.flush();
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(value1, value2), index.search(new ExactTerm(term1))),
+                () -> assertEquals(createSet(value2), index.search(new ExactTerm(term2)))
+        );
+    }
+
+    @Test
+    public void shouldApplyChangesOfTheSameValueInOrder() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            index.index(value1, createSet(term1));
+            index.delete(value1);
+        }
+        index.index(value1, createSet(term2));
+
+        index.flush();
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(), index.search(new ExactTerm(term1))),
+                () -> assertEquals(createSet(value1), index.search(new ExactTerm(term2)))
+        );
+    }
+
+    @Test
+    public void shouldApplyChangesOfConcurrentWriters() throws InterruptedException {
+        int writers = 4;
+        int valuesPerWriter = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch done = new CountDownLatch(writers);
+        Set<String> expected = ConcurrentHashMap.newKeySet();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            executor.execute(() -> {
+                for (int i = 0; i < valuesPerWriter; i++) {
+                    String value = writer + "-" + i;
+                    index.index(value, createSet(term1));
+                    expected.add(value);
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        index.flush();
+
+        assertEquals(new HashSet<>(expected), index.search(new ExactTerm(term1)));
+    }
+
+    @Test
+    public void shouldContinueAfterFailedChange() throws InterruptedException {
+        doThrow(new RuntimeException("failed")).when(underlyingIndex).index(any(), any());
+        index.index(value1, createSet(term1));
+        index.delete(value1);
+
+        index.flush();
+    }
+
+    @Test
+    public void shouldCompleteFutureWhenTheChangeIsApplied() throws Exception {
+        CompletableFuture<Void> indexed = index.indexAsync(value1, createSet(term1));
+        indexed.get(10, TimeUnit.SECONDS);
+
+        assertEquals(createSet(value1), index.search(new ExactTerm(term1)));
+
+        CompletableFuture<Void> deleted = index.deleteAsync(value1);
+        deleted.get(10, TimeUnit.SECONDS);
+
+        assertEquals(createSet(), index.search(new ExactTerm(term1)));
+    }
+
+    @Test
+    public void shouldReturnFailureOfTheChangeToTheCaller() {
+        RuntimeException failure = new RuntimeException("failed");
+        doThrow(failure).when(underlyingIndex).index(any(), any());
+
+        CompletableFuture<Void> indexed = index.indexAsync(value1, createSet(term1));
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> indexed.get(10, TimeUnit.SECONDS));
+        assertSame(failure, thrown.getCause());
+    }
+
+    @Test
+    public void shouldContinueAfterErrorInChange() throws Exception {
+        Error failure = new AssertionError("failed");
+        doThrow(failure).when(underlyingIndex).index(any(), any());
+
+        CompletableFuture<Void> indexed = index.indexAsync(value1, createSet(term1));
+        CompletableFuture<Void> deleted = index.deleteAsync(value2);
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> indexed.get(10, TimeUnit.SECONDS));
+        assertSame(failure, thrown.getCause());
+        deleted.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldApplyOrRejectChangesRacingWithClose() throws Exception {
+        int writersCount = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writersCount);
+        Set<CompletableFuture<Void>> submitted = ConcurrentHashMap.newKeySet();
+        CountDownLatch started = new CountDownLatch(writersCount);
+        for (int i = 0; i < writersCount; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    while (true) {
+                        submitted.add(index.indexAsync(value1, createSet(term1)));
+                    }
+                } catch (IllegalStateException e) {
+                    // the index is closed
+                }
+            });
+        }
+        started.await();
+
+        index.close();
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        CompletableFuture.allOf(submitted.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldCloseWhileWritersAreRacingWithIt() throws Exception {
+        int writersCount = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writersCount + 1);
+        try {
+            for (int i = 0; i < 200; i++) {
+                SingleWriterTermIndex<String> racingIndex = new SingleWriterTermIndex<>(new VersionedTermIndex<>(), 16);
+                CountDownLatch started = new CountDownLatch(writersCount);
+                List<Future<?>> writers = new ArrayList<>();
+                for (int j = 0; j < writersCount; j++) {
+                    writers.add(executor.submit(() -> {
+                        started.countDown();
+                        try {
+                            while (true) {
+                                racingIndex.index(value1, createSet(term1));
+                            }
+                        } catch (IllegalStateException e) {
+                            // the index is closed
+                        }
+                    }));
+                }
+                started.await();
+
+                Future<?> closed = executor.submit(() -> {
+                    racingIndex.close();
+                    return null;
+                });
+
+                closed.get(10, TimeUnit.SECONDS);
+                for (Future<?> writer : writers) {
+                    writer.get(10, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldApplySubmittedChangesOnClose() throws IOException {
+        index.index(value1, createSet(term1));
+
+        index.close();
+
+        assertEquals(createSet(value1), underlyingIndex.search(new ExactTerm(term1)));
+    }
+
+    @Test
+    public void shouldRejectChangesAfterClose() throws IOException {
+        index.close();
+
+        assertThrows(IllegalStateException.class, () -> index.index(value1, createSet(term1)));
+    }
+}
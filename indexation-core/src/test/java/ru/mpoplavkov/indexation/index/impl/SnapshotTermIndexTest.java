@@ -0,0 +1,173 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.model.query.AnyOfTerms;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
+
+class SnapshotTermIndexTest {
+
+    TermIndex<String> index;
+
+    String value1 = "value1";
+    String value2 = "value2";
+    String value3 = "value3";
+
+    Term term1 = new WordTerm("term1");
+    Term term2 = new WordTerm("term2");
+    Term term3 = new WordTerm("term3");
+
+    @BeforeEach
+    public void init() {
+        index = new SnapshotTermIndex<>();
+    }
+
+    @Test
+    public void shouldFindIndexedValues() {
+        index.index(value1, createSet(term1));
+        index.index(value2, createSet(term1, term2));
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(value1, value2), index.search(new ExactTerm(term1))),
+                () -> assertEquals(createSet(value2), index.search(new ExactTerm(term2))),
+                () -> assertEquals(createSet(), index.search(new ExactTerm(term3)))
+        );
+    }
+
+    @Test
+    public void shouldReindexAndDeleteValues() {
+        index.index(value1, createSet(term1, term2));
+        index.index(value2, createSet(term1));
+
+        index.index(value1, createSet(term2, term3));
+        index.delete(value2);
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(), index.search(new ExactTerm(term1))),
+                () -> assertEquals(createSet(value1), index.search(new ExactTerm(term2))),
+                () -> assertEquals(createSet(value1), index.search(new ExactTerm(term3)))
+        );
+    }
+
+    @Test
+    public void shouldSearchSeveralTermsAndQueries() {
+        index.index(value1, createSet(term1));
+        index.index(value2, createSet(term2));
+        index.index(value3, createSet(term3));
+
+        List<Query> queries = Arrays.asList(
+                new AnyOfTerms(Arrays.asList(term1, term2)),
+                new ExactTerm(term3)
+        );
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(value1, value2), index.search(queries.get(0))),
+                () -> assertEquals(Arrays.asList(createSet(value1, value2), createSet(value3)), index.searchAll(queries))
+        );
+    }
+
+    @Test
+    public void shouldStreamTheSnapshotOfTheCall() {
+        index.index(value1, createSet(term1));
+        index.index(value2, createSet(term1));
+
+        Iterator<String> stream = index.searchStream(new ExactTerm(term1)).iterator();
+        index.delete(value1);
+        index.index(value3, createSet(term1));
+
+        Set<String> streamed = createSet(stream.next(), stream.next());
+        Assertions.assertAll(
+                () -> assertFalse(stream.hasNext()),
+                () -> assertEquals(createSet(value1, value2), streamed),
+                () -> assertEquals(createSet(value2, value3), index.search(new ExactTerm(term1)))
+        );
+    }
+
+    @Test
+    public void shouldCountAndCheckExistence() {
+        index.index(value1, createSet(term1, term2));
+        index.index(value2, createSet(term1));
+        index.index(value3, createSet(term2));
+        index.delete(value3);
+
+        Assertions.assertAll(
+                () -> assertEquals(2, index.count(new ExactTerm(term1))),
+                () -> assertEquals(1, index.count(new ExactTerm(term2))),
+                () -> assertEquals(2, index.count(new AnyOfTerms(Arrays.asList(term1, term2)))),
+                () -> assertTrue(index.exists(new ExactTerm(term2))),
+                () -> assertFalse(index.exists(new ExactTerm(term3)))
+        );
+    }
+
+    @Test
+    public void shouldAdvanceGenerationOnChanges() {
+        Query query = new ExactTerm(term1);
+        long emptyGeneration = index.generation(query);
+
+        index.index(value1, createSet(term1));
+        long indexedGeneration = index.generation(query);
+        index.index(value2, createSet(term2));
+        long unrelatedGeneration = index.generation(query);
+        index.delete(value1);
+        long deletedGeneration = index.generation(query);
+        index.index(value1, createSet(term1));
+
+        Assertions.assertAll(
+                () -> assertNotEquals(emptyGeneration, indexedGeneration),
+                () -> assertEquals(indexedGeneration, unrelatedGeneration),
+                () -> assertTrue(deletedGeneration > indexedGeneration),
+                () -> assertTrue(index.generation(query) > deletedGeneration)
+        );
+    }
+
+    @Test
+    public void shouldRankValuesByTermFrequency() {
+        index.index(value1, Arrays.asList(term1, term2, term2, term2));
+        index.index(value2, Arrays.asList(term1, term1, term1, term2));
+
+        List<String> result = index.searchTopK(new ExactTerm(term1), 10)
+                .stream()
+                .map(ScoredValue::getValue)
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(value2, value1), result);
+    }
+
+    @Test
+    public void shouldRetrieveOnlyTopKValues() {
+        for (int i = 0; i < 100; i++) {
+            index.index("value" + i, Collections.nCopies(i % 10 + 1, term1));
+        }
+
+        List<ScoredValue<String>> result = index.searchTopK(new ExactTerm(term1), 10);
+
+        assertEquals(10, result.size());
+        for (ScoredValue<String> value : result) {
+            assertTrue(value.getValue().endsWith("9"));
+        }
+    }
+
+    @Test
+    public void shouldNotRankAnythingInAnEmptyIndex() {
+        assertEquals(Collections.emptyList(), index.searchTopK(new ExactTerm(term1), 10));
+    }
+}
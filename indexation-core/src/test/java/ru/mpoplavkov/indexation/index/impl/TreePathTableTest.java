@@ -0,0 +1,191 @@
+package ru.mpoplavkov.indexation.index.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreePathTableTest {
+
+    PathTable table;
+
+    Path path1 = FileUtil.toCanonicalPath(Paths.get("/dir/sub/file1.txt"));
+    Path path2 = FileUtil.toCanonicalPath(Paths.get("/dir/sub/file2.txt"));
+
+    @BeforeEach
+    public void init() {
+        table = new TreePathTable();
+    }
+
+    @Test
+    public void shouldRestorePathById() {
+        int id1 = table.getOrAssignId(path1);
+        int id2 = table.getOrAssignId(path2);
+
+        Assertions.assertAll(
+                () -> assertNotEquals(id1, id2),
+                () -> assertEquals(path1, table.getPath(id1)),
+                () -> assertEquals(path2, table.getPath(id2))
+        );
+    }
+
+    @Test
+    public void shouldReturnTheSameIdForTheSamePath() {
+        int id = table.getOrAssignId(path1);
+        table.getOrAssignId(path2);
+
+        Assertions.assertAll(
+                () -> assertEquals(id, table.getOrAssignId(path1)),
+                () -> assertEquals(id, table.getId(path1))
+        );
+    }
+
+    @Test
+    public void shouldStoreCommonPrefixesOnce() {
+        table.getOrAssignId(path1);
+        int size = table.size();
+        table.getOrAssignId(path2);
+
+        assertEquals(size + 1, table.size());
+    }
+
+    @Test
+    public void shouldAssignIdsToParentDirectories() {
+        table.getOrAssignId(path1);
+
+        assertNotEquals(PathTable.NO_ID, table.getId(path1.getParent()));
+    }
+
+    @Test
+    public void shouldNotAssignIdOnGet() {
+        int size = table.size();
+
+        Assertions.assertAll(
+                () -> assertEquals(PathTable.NO_ID, table.getId(path1)),
+                () -> assertEquals(size, table.size())
+        );
+    }
+
+    @Test
+    public void shouldCanonicalizePaths() {
+        int id = table.getOrAssignId(path1);
+
+        assertEquals(id, table.getId(path1.getParent().resolve("..").resolve("sub").resolve("file1.txt")));
+    }
+
+    @Test
+    public void shouldFailOnUnknownId() {
+        table.getOrAssignId(path1);
+
+        Assertions.assertAll(
+                () -> assertThrows(IllegalArgumentException.class, () -> table.getPath(table.size())),
+                () -> assertThrows(IllegalArgumentException.class, () -> table.getPath(PathTable.NO_ID))
+        );
+    }
+
+    @Test
+    public void shouldKeepIdsAcrossChunks() {
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            paths.add(path1.resolveSibling("file" + i));
+        }
+        int[] ids = paths.stream().mapToInt(table::getOrAssignId).toArray();
+
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(paths.get(i), table.getPath(ids[i]));
+        }
+    }
+
+    @Test
+    public void shouldRemovePathOnceTheLastReferenceIsReleased() {
+        int id = table.getOrAssignId(path1);
+        table.getOrAssignId(path1);
+
+        table.release(id);
+        Path stillReferenced = table.getPath(id);
+        table.release(id);
+
+        Assertions.assertAll(
+                () -> assertEquals(path1, stillReferenced),
+                () -> assertEquals(PathTable.NO_ID, table.getId(path1)),
+                () -> assertEquals(0, table.size()),
+                () -> assertThrows(IllegalArgumentException.class, () -> table.getPath(id)),
+                () -> assertFalse(table.findPath(id).isPresent())
+        );
+    }
+
+    @Test
+    public void shouldHoldOneReferenceForTheIndexedPath() {
+        int id = table.markIndexed(path1);
+        table.markIndexed(path1);
+        int referencedId = table.getOrAssignId(path1);
+
+        boolean unmarked = table.unmarkIndexed(id);
+        boolean unmarkedTwice = table.unmarkIndexed(id);
+        table.release(id);
+        Path stillReferenced = table.getPath(referencedId);
+        table.release(referencedId);
+
+        Assertions.assertAll(
+                () -> assertTrue(unmarked),
+                () -> assertFalse(unmarkedTwice),
+                () -> assertEquals(path1, stillReferenced),
+                () -> assertEquals(PathTable.NO_ID, table.getId(path1)),
+                () -> assertEquals(0, table.size())
+        );
+    }
+
+    @Test
+    public void shouldKeepParentDirectoriesOfReferencedPaths() {
+        int id1 = table.getOrAssignId(path1);
+        int id2 = table.getOrAssignId(path2);
+
+        table.release(id1);
+
+        Assertions.assertAll(
+                () -> assertEquals(path2, table.getPath(id2)),
+                () -> assertNotEquals(PathTable.NO_ID, table.getId(path2.getParent())),
+                () -> assertEquals(PathTable.NO_ID, table.getId(path1))
+        );
+    }
+
+    @Test
+    public void shouldNotResolveStaleIdToAnotherPath() {
+        int staleId = table.getOrAssignId(path1);
+        table.release(staleId);
+
+        int id = table.getOrAssignId(path2);
+
+        Assertions.assertAll(
+                () -> assertNotEquals(staleId, id),
+                () -> assertEquals(path2, table.getPath(id)),
+                () -> assertFalse(table.findPath(staleId).isPresent())
+        );
+    }
+
+    @Test
+    public void shouldKeepSizeBoundedWhenPathsAreAssignedAndReleased() {
+        int maxSize = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int id = table.getOrAssignId(path1.resolveSibling("file" + i));
+            maxSize = Math.max(maxSize, table.size());
+            table.release(id);
+        }
+
+        int expectedMaxSize = path1.getNameCount() + 1;
+        assertEquals(expectedMaxSize, maxSize);
+        assertEquals(0, table.size());
+    }
+}
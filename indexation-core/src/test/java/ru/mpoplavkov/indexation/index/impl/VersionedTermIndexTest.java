@@ -1,17 +1,30 @@
 package ru.mpoplavkov.indexation.index.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.mpoplavkov.indexation.index.TermIndex;
+import ru.mpoplavkov.indexation.metrics.MetricNames;
+import ru.mpoplavkov.indexation.model.query.AnyOfTerms;
 import ru.mpoplavkov.indexation.model.query.ExactTerm;
 import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.query.ScoredValue;
 import ru.mpoplavkov.indexation.model.term.Term;
 import ru.mpoplavkov.indexation.model.term.WordTerm;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
 
 class VersionedTermIndexTest {
@@ -85,9 +98,233 @@ class VersionedTermIndexTest {
         );
     }
 
+    @Test
+    public void shouldPublishMetrics() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        TermIndex<String> measuredIndex = VersionedTermIndex.builder()
+                .termDictionary(new ConcurrentTermDictionary())
+                .meterRegistry(registry)
+                .build();
+        measuredIndex.index(value1, createSet(term1, term2));
+        measuredIndex.index(value2, createSet(term2));
+        measuredIndex.index(value1, createSet(term3));
+        measuredIndex.delete(value2);
+
+        Assertions.assertAll(
+                () -> assertEquals(1, registry.get(MetricNames.INDEX_VALUES).gauge().value()),
+                () -> assertEquals(3, registry.get(MetricNames.DICTIONARY_TERMS).gauge().value()),
+                () -> assertEquals(1, registry.get(MetricNames.POSTINGS_LIVE).gauge().value())
+        );
+    }
+
+    @Test
+    public void shouldRetireOutdatedVersionsImmediately() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        TermIndex<String> measuredIndex = VersionedTermIndex.builder()
+                .termDictionary(new ConcurrentTermDictionary())
+                .meterRegistry(registry)
+                .build();
+        measuredIndex.index(value1, createSet(term1, term2));
+        measuredIndex.index(value2, createSet(term2));
+        measuredIndex.index(value1, createSet(term3));
+        measuredIndex.delete(value2);
+
+        Assertions.assertAll(
+                () -> assertEquals(1, registry.get(MetricNames.STORAGE_VALUES).gauge().value()),
+                () -> assertEquals(1, registry.get(MetricNames.STORAGE_KEYS).gauge().value()),
+                () -> assertEquals(0, registry.get(MetricNames.POSTINGS_STALE).gauge().value()),
+                () -> assertEquals(3, registry.get(MetricNames.POSTINGS_RETIRED).counter().count())
+        );
+    }
+
+    @Test
+    public void shouldSearchSeveralQueriesAtOnce() {
+        index.index(value1, createSet(term1, term2));
+        index.index(value2, createSet(term2));
+        index.index(value3, createSet(term1));
+        index.delete(value3);
+
+        List<Query> queries = Arrays.asList(
+                new ExactTerm(term1),
+                new ExactTerm(term2),
+                new ExactTerm(term3),
+                new ExactTerm(term1),
+                new AnyOfTerms(Arrays.asList(term1, term2))
+        );
+        assertEquals(
+                Arrays.asList(createSet(value1), createSet(value1, value2), createSet(), createSet(value1), createSet(value1, value2)),
+                index.searchAll(queries)
+        );
+    }
+
+    @Test
+    public void shouldStreamOnlyActualValues() {
+        index.index(value1, createSet(term1));
+        index.index(value2, createSet(term1));
+        index.index(value3, createSet(term1));
+        index.delete(value2);
+        index.index(value3, createSet(term2));
+
+        Assertions.assertAll(
+                () -> assertEquals(Collections.singletonList(value1), index.searchStream(new ExactTerm(term1)).collect(Collectors.toList())),
+                () -> assertEquals(0, index.searchStream(new ExactTerm(term3)).count())
+        );
+    }
+
+    @Test
+    public void shouldFindUnionOfValuesOfAnyOfTerms() {
+        index.index(value1, createSet(term1, term2));
+        index.index(value2, createSet(term2));
+        index.index(value3, createSet(term1));
+        index.delete(value3);
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(value1, value2), index.search(new AnyOfTerms(Arrays.asList(term1, term2)))),
+                () -> assertEquals(createSet(value1), index.search(new AnyOfTerms(Arrays.asList(term1, term3)))),
+                () -> assertEquals(createSet(), index.search(new AnyOfTerms(Collections.singletonList(term3)))),
+                () -> assertEquals(createSet(), index.search(new AnyOfTerms(Collections.emptyList())))
+        );
+    }
+
+    @Test
+    public void shouldStreamUnionOfActualValuesOfAnyOfTermsOnce() {
+        index.index(value1, createSet(term1, term2));
+        index.index(value2, createSet(term2));
+        index.index(value3, createSet(term1));
+        index.index(value3, createSet(term3));
+
+        Assertions.assertAll(
+                () -> assertEquals(
+                        Arrays.asList(value1, value2),
+                        index.searchStream(new AnyOfTerms(Arrays.asList(term1, term2))).sorted().collect(Collectors.toList())
+                ),
+                () -> assertEquals(
+                        Arrays.asList(value1, value3),
+                        index.searchStream(new AnyOfTerms(Arrays.asList(term1, term3))).sorted().collect(Collectors.toList())
+                )
+        );
+    }
+
+    @Test
+    public void shouldCountActualValues() {
+        index.index(value1, createSet(term1, term2));
+        index.index(value2, createSet(term1));
+        index.index(value3, createSet(term1, term2));
+        index.delete(value2);
+        index.index(value3, createSet(term2));
+
+        Assertions.assertAll(
+                () -> assertEquals(1, index.count(new ExactTerm(term1))),
+                () -> assertEquals(2, index.count(new ExactTerm(term2))),
+                () -> assertEquals(0, index.count(new ExactTerm(term3))),
+                () -> assertEquals(2, index.count(new AnyOfTerms(Arrays.asList(term1, term2, term3))))
+        );
+    }
+
+    @Test
+    public void shouldCheckExistenceOfActualValues() {
+        index.index(value1, createSet(term1));
+        index.index(value1, createSet(term2));
+
+        Assertions.assertAll(
+                () -> assertFalse(index.exists(new ExactTerm(term1))),
+                () -> assertTrue(index.exists(new ExactTerm(term2))),
+                () -> assertFalse(index.exists(new ExactTerm(term3))),
+                () -> assertTrue(index.exists(new AnyOfTerms(Arrays.asList(term1, term2))))
+        );
+    }
+
+    @Test
+    public void shouldAdvanceGenerationOnChanges() {
+        Query query = new ExactTerm(term1);
+        long emptyGeneration = index.generation(query);
+        index.index(value1, createSet(term1));
+        long indexedGeneration = index.generation(query);
+        index.index(value2, createSet(term2));
+        long unrelatedGeneration = index.generation(query);
+        index.delete(value1);
+        long deletedGeneration = index.generation(query);
+
+        Assertions.assertAll(
+                () -> assertTrue(indexedGeneration > emptyGeneration),
+                () -> assertEquals(indexedGeneration, unrelatedGeneration),
+                () -> assertTrue(deletedGeneration > unrelatedGeneration)
+        );
+    }
+
+    @Test
+    public void shouldRankValuesByTermFrequency() {
+        index.index(value1, Arrays.asList(term1, term2, term2, term2));
+        index.index(value2, Arrays.asList(term1, term1, term1, term2));
+        index.index(value3, createSet(term3));
+
+        List<ScoredValue<String>> result = index.searchTopK(new ExactTerm(term1), 10);
+        Assertions.assertAll(
+                () -> assertEquals(Arrays.asList(value2, value1), valuesOf(result)),
+                () -> assertTrue(result.get(0).getScore() > result.get(1).getScore())
+        );
+    }
+
+    @Test
+    public void shouldRankValuesWithRareTermsHigher() {
+        index.index(value1, createSet(term1, term3));
+        index.index(value2, createSet(term2, term3));
+        index.index(value3, createSet(term2, term3));
+
+        List<ScoredValue<String>> result = index.searchTopK(new AnyOfTerms(Arrays.asList(term1, term2)), 10);
+        Assertions.assertAll(
+                () -> assertEquals(3, result.size()),
+                () -> assertEquals(value1, result.get(0).getValue())
+        );
+    }
+
+    @Test
+    public void shouldRetrieveOnlyTopKValues() {
+        for (int i = 0; i < 100; i++) {
+            // all the values are of the same length
+            List<Term> terms = new ArrayList<>(Collections.nCopies(i % 10 + 1, term1));
+            terms.addAll(Collections.nCopies(10 - i % 10, term2));
+            index.index("value" + i, terms);
+        }
+
+        List<ScoredValue<String>> result = index.searchTopK(new ExactTerm(term1), 3);
+        Assertions.assertAll(
+                () -> assertEquals(3, result.size()),
+                // values with the most occurrences of the term
+                () -> result.forEach(v -> assertTrue(v.getValue().endsWith("9")))
+        );
+    }
+
+    @Test
+    public void shouldNotRankDeletedAndOutdatedValues() {
+        index.index(value1, createSet(term1));
+        index.index(value2, createSet(term1));
+        index.index(value3, createSet(term1));
+        index.delete(value2);
+        index.index(value3, createSet(term2));
+
+        assertEquals(Collections.singletonList(value1), valuesOf(index.searchTopK(new ExactTerm(term1), 10)));
+    }
+
+    @Test
+    public void shouldNotRankAnythingInAnEmptyIndex() {
+        assertEquals(Collections.emptyList(), index.searchTopK(new ExactTerm(term1), 10));
+    }
+
+    @Test
+    public void shouldThrowOnNonPositiveNumberOfValuesToRank() {
+        assertThrows(IllegalArgumentException.class, () -> index.searchTopK(new ExactTerm(term1), 0));
+    }
+
     private Set<String> searchByTerm(Term term) {
         Query query = new ExactTerm(term);
         return index.search(query);
     }
 
+    private static List<String> valuesOf(List<ScoredValue<String>> scoredValues) {
+        return scoredValues.stream()
+                .map(ScoredValue::getValue)
+                .collect(Collectors.toList());
+    }
+
 }
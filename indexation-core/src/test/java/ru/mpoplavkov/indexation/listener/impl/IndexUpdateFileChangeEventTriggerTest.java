@@ -1,5 +1,6 @@
 package ru.mpoplavkov.indexation.listener.impl;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.mpoplavkov.indexation.filter.PathFilter;
 import ru.mpoplavkov.indexation.index.TermIndex;
@@ -12,7 +13,9 @@ import ru.mpoplavkov.indexation.text.transformer.TermsTransformer;
 import ru.mpoplavkov.indexation.trigger.impl.IndexUpdateFileChangeEventTrigger;
 
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -34,6 +37,12 @@ class IndexUpdateFileChangeEventTriggerTest {
     Term term1 = new WordTerm("term1");
     Term term2 = new WordTerm("term2");
 
+    @BeforeEach
+    public void init() {
+        when(index.indexAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(index.deleteAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
     @Test
     public void shouldCorrectlyReactOnCreateFileEvent() throws IOException {
         FileSystemEvent event = new FileSystemEvent(FileSystemEvent.Kind.ENTRY_CREATE, file);
@@ -42,7 +51,7 @@ class IndexUpdateFileChangeEventTriggerTest {
         when(transformer.transform(term1)).thenReturn(term2);
         trigger.onEvent(event);
 
-        verify(index).index(file, createSet(term2));
+        verify(index).indexAsync(file, createSet(term2));
     }
 
     @Test
@@ -53,7 +62,7 @@ class IndexUpdateFileChangeEventTriggerTest {
         when(transformer.transform(term1)).thenReturn(term2);
         trigger.onEvent(event);
 
-        verify(index).index(file, createSet(term2));
+        verify(index).indexAsync(file, createSet(term2));
     }
 
     @Test
@@ -64,7 +73,19 @@ class IndexUpdateFileChangeEventTriggerTest {
 
         verifyNoInteractions(extractor);
         verifyNoInteractions(transformer);
-        verify(index).delete(file);
+        verify(index).deleteAsync(file);
+    }
+
+    @Test
+    public void shouldDeleteFileThatDisappearedBeforeIndexation() throws IOException {
+        Path missingFile = dir.resolve("missing_file.txt");
+        FileSystemEvent event = new FileSystemEvent(FileSystemEvent.Kind.ENTRY_CREATE, missingFile);
+        when(pathFilter.filter(any())).thenReturn(true);
+        when(extractor.extractTerms(any())).thenThrow(new NoSuchFileException(missingFile.toString()));
+        trigger.onEvent(event);
+
+        verify(index, never()).indexAsync(any(), any());
+        verify(index).deleteAsync(missingFile);
     }
 
     @Test
@@ -0,0 +1,115 @@
+package ru.mpoplavkov.indexation.listener.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mpoplavkov.indexation.listener.SubscriptionProgress;
+import ru.mpoplavkov.indexation.model.fs.FileSystemEvent;
+import ru.mpoplavkov.indexation.trigger.FSEventTrigger;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WatchServiceFSSubscriberTest {
+
+    int filesCount = 40;
+    int maxOpenFiles = 3;
+
+    Set<Path> createdFiles = ConcurrentHashMap.newKeySet();
+    AtomicInteger openFiles = new AtomicInteger();
+    AtomicInteger maxObservedOpenFiles = new AtomicInteger();
+
+    FSEventTrigger trigger = event -> {
+        int open = openFiles.incrementAndGet();
+        maxObservedOpenFiles.accumulateAndGet(open, Math::max);
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (event.getKind() == FileSystemEvent.Kind.ENTRY_CREATE && !Files.isDirectory(event.getEntry())) {
+            createdFiles.add(event.getEntry());
+        }
+        openFiles.decrementAndGet();
+    };
+
+    @Test
+    public void shouldReadFilesOfTheDirectoryWithBoundedConcurrency(@TempDir Path tempDir) throws IOException {
+        Path subDir = Files.createDirectory(tempDir.resolve("subdir"));
+        for (int i = 0; i < filesCount; i++) {
+            Files.write((i % 2 == 0 ? tempDir : subDir).resolve("file" + i + ".txt"), "text".getBytes());
+        }
+        SubscriptionProgress progress = new SubscriptionProgress();
+
+        try (WatchServiceFSSubscriber subscriber = new WatchServiceFSSubscriber(
+                path -> true,
+                trigger,
+                FileSystems.getDefault().newWatchService(),
+                new WatchServiceFSSubscriber.Settings()
+                        .meterRegistry(new SimpleMeterRegistry())
+                        .virtualThreads(true)
+                        .maxOpenFiles(maxOpenFiles)
+        )) {
+            subscriber.subscribe(tempDir, progress);
+        }
+
+        Assertions.assertAll(
+                () -> assertEquals(filesCount, createdFiles.size()),
+                () -> assertEquals(filesCount, progress.getFilesProcessed()),
+                () -> assertTrue(maxObservedOpenFiles.get() <= maxOpenFiles)
+        );
+    }
+
+    @Test
+    public void shouldWaitForReadersOfFilesOnClose(@TempDir Path tempDir) throws Exception {
+        for (int i = 0; i < filesCount; i++) {
+            Files.write(tempDir.resolve("file" + i + ".txt"), "text".getBytes());
+        }
+        CountDownLatch readStarted = new CountDownLatch(1);
+        AtomicInteger reading = new AtomicInteger();
+        FSEventTrigger slowTrigger = event -> {
+            reading.incrementAndGet();
+            readStarted.countDown();
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            // ignores interruptions, like a read of a file would
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+            reading.decrementAndGet();
+        };
+        WatchServiceFSSubscriber subscriber = new WatchServiceFSSubscriber(
+                path -> true,
+                slowTrigger,
+                FileSystems.getDefault().newWatchService(),
+                new WatchServiceFSSubscriber.Settings()
+                        .meterRegistry(new SimpleMeterRegistry())
+                        .virtualThreads(true)
+                        .maxOpenFiles(maxOpenFiles)
+        );
+        Thread subscription = new Thread(() -> {
+            try {
+                subscriber.subscribe(tempDir, new SubscriptionProgress());
+            } catch (Exception e) {
+                // the subscriber is closed
+            }
+        });
+        subscription.start();
+        readStarted.await();
+
+        subscriber.close();
+
+        assertEquals(0, reading.get());
+        subscription.join();
+    }
+}
@@ -0,0 +1,85 @@
+package ru.mpoplavkov.indexation.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.model.status.RootFreshness;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FreshnessTrackerTest {
+
+    MeterRegistry registry;
+    FreshnessTracker tracker;
+
+    Path root = Paths.get("/root_dir").toAbsolutePath();
+    Path nestedRoot = root.resolve("nested");
+
+    @BeforeEach
+    void init() {
+        registry = new SimpleMeterRegistry();
+        tracker = new FreshnessTracker(registry, Duration.ofSeconds(2));
+    }
+
+    @Test
+    public void shouldAttributeChangeToTheInnermostRoot() {
+        tracker.addRoot(root);
+        tracker.addRoot(nestedRoot);
+        tracker.record(nestedRoot.resolve("file.txt"), System.currentTimeMillis());
+
+        Assertions.assertAll(
+                () -> assertEquals(0, freshnessOf(root).getAppliedChanges()),
+                () -> assertEquals(1, freshnessOf(nestedRoot).getAppliedChanges())
+        );
+    }
+
+    @Test
+    public void shouldCountLateChanges() {
+        tracker.addRoot(root);
+        long now = System.currentTimeMillis();
+        tracker.record(root.resolve("file1.txt"), now);
+        tracker.record(root.resolve("file2.txt"), now - 5_000);
+
+        RootFreshness freshness = freshnessOf(root);
+        Assertions.assertAll(
+                () -> assertEquals(2, freshness.getAppliedChanges()),
+                () -> assertEquals(1, freshness.getLateChanges()),
+                () -> assertTrue(freshness.getMaxLagMillis() >= 5_000),
+                () -> assertFalse(freshness.isSloMet())
+        );
+    }
+
+    @Test
+    public void shouldIgnoreChangesOutsideOfRoots() {
+        tracker.addRoot(nestedRoot);
+        tracker.record(root.resolve("file.txt"), System.currentTimeMillis());
+        assertEquals(0, freshnessOf(nestedRoot).getAppliedChanges());
+    }
+
+    @Test
+    public void shouldRemoveMetricsOfRemovedRoot() {
+        tracker.addRoot(root);
+        tracker.removeRoot(root);
+        Assertions.assertAll(
+                () -> assertTrue(tracker.status().isEmpty()),
+                () -> assertTrue(registry.find(MetricNames.FRESHNESS).timers().isEmpty())
+        );
+    }
+
+    private RootFreshness freshnessOf(Path path) {
+        List<RootFreshness> status = tracker.status();
+        return status.stream()
+                .filter(freshness -> freshness.getRoot().equals(path.toString()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No freshness for " + path));
+    }
+}
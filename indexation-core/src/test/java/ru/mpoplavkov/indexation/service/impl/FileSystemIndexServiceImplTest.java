@@ -0,0 +1,215 @@
+package ru.mpoplavkov.indexation.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mpoplavkov.indexation.index.PathTable;
+import ru.mpoplavkov.indexation.index.impl.PathTableTermIndex;
+import ru.mpoplavkov.indexation.index.impl.SingleWriterTermIndex;
+import ru.mpoplavkov.indexation.index.impl.TreePathTable;
+import ru.mpoplavkov.indexation.index.impl.VersionedTermIndex;
+import ru.mpoplavkov.indexation.model.job.SubscriptionJob;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.service.FileSystemIndexService;
+import ru.mpoplavkov.indexation.text.analyzer.Analyzer;
+import ru.mpoplavkov.indexation.text.analyzer.impl.ChainAnalyzer;
+import ru.mpoplavkov.indexation.text.source.Source;
+import ru.mpoplavkov.indexation.text.tokenfilter.impl.LowercaseTokenFilter;
+import ru.mpoplavkov.indexation.text.tokenizer.impl.WhitespaceTokenizer;
+import ru.mpoplavkov.indexation.util.FileUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
+
+class FileSystemIndexServiceImplTest {
+
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    ChainAnalyzer chainAnalyzer = new ChainAnalyzer(new WhitespaceTokenizer(), new LowercaseTokenFilter());
+
+    /**
+     * Blocks analysis of the blocker file until it's released.
+     */
+    Analyzer analyzer = new Analyzer() {
+        @Override
+        public Set<Term> analyze(Path file, Source source) throws IOException {
+            block(file);
+            return chainAnalyzer.analyze(file, source);
+        }
+
+        @Override
+        public Collection<Term> analyzeOccurrences(Path file, Source source) throws IOException {
+            block(file);
+            return chainAnalyzer.analyzeOccurrences(file, source);
+        }
+    };
+
+    FileSystemIndexService service;
+
+    @AfterEach
+    public void close() throws IOException {
+        release.countDown();
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Test
+    public void shouldKeepEarlierSubscribedFilesAfterCancellationOfTheJob(@TempDir Path tempDir) throws Exception {
+        Path root = tempDir.toRealPath();
+        Path subDir = Files.createDirectory(root.resolve("subdir"));
+        Path earlierFile = Files.write(subDir.resolve("earlier.txt"), "earlier".getBytes());
+        Path blocker = Files.write(root.resolve("blocker.txt"), "blocker".getBytes());
+        service = FileSystemIndexServiceImpl.builder(analyzer, chainAnalyzer)
+                .listenerThreadsCount(1)
+                .meterRegistry(new SimpleMeterRegistry())
+                .maxConcurrentJobs(1)
+                .build();
+        service.addToIndex(subDir);
+
+        SubscriptionJob job = service.addToIndexAsync(root);
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        service.cancelJob(job.getId());
+        release.countDown();
+        SubscriptionJob finished = awaitFinished(job.getId());
+
+        Assertions.assertAll(
+                () -> assertEquals(SubscriptionJob.State.CANCELLED, finished.getState()),
+                () -> assertEquals(createSet(earlierFile), service.search(wordQuery("earlier"))),
+                () -> assertEquals(createSet(), service.search(wordQuery("blocker"))),
+                () -> assertEquals(createSet(FileUtil.getCanonicalPath(subDir)), rootsOf(service))
+        );
+        assertTrue(Files.exists(blocker));
+    }
+
+    @Test
+    public void shouldNotRollBackTheSubscriptionOfTheSamePath(@TempDir Path tempDir) throws Exception {
+        Path root = tempDir.toRealPath();
+        Path file = Files.write(root.resolve("file.txt"), "word".getBytes());
+        service = FileSystemIndexServiceImpl.builder(chainAnalyzer, chainAnalyzer)
+                .listenerThreadsCount(1)
+                .meterRegistry(new SimpleMeterRegistry())
+                .build();
+        service.addToIndex(root);
+
+        SubscriptionJob job = service.addToIndexAsync(root);
+        service.cancelJob(job.getId());
+        awaitFinished(job.getId());
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(file), service.search(wordQuery("word"))),
+                () -> assertEquals(createSet(FileUtil.getCanonicalPath(root)), rootsOf(service))
+        );
+    }
+
+    @Test
+    public void shouldCompleteSubscriptionWhenChangesAreApplied(@TempDir Path tempDir) throws Exception {
+        Path root = tempDir.toRealPath();
+        Path file = Files.write(root.resolve("file.txt"), "word".getBytes());
+        SingleWriterTermIndex<Path> index = new SingleWriterTermIndex<>(new VersionedTermIndex<>(), 16);
+        service = FileSystemIndexServiceImpl.builder(chainAnalyzer, chainAnalyzer)
+                .index(index)
+                .listenerThreadsCount(1)
+                .meterRegistry(new SimpleMeterRegistry())
+                .build();
+
+        service.addToIndex(root);
+
+        Assertions.assertAll(
+                () -> assertEquals(createSet(file), service.search(wordQuery("word"))),
+                () -> assertEquals(1, service.freshness().get(0).getAppliedChanges())
+        );
+    }
+
+    @Test
+    public void shouldKeepPathTableBoundedWhenFilesAreCreatedAndDeleted(@TempDir Path tempDir) throws Exception {
+        Path root = tempDir.toRealPath();
+        Files.write(root.resolve("persistent.txt"), "persistent".getBytes());
+        PathTable pathTable = new TreePathTable();
+        service = FileSystemIndexServiceImpl.builder(chainAnalyzer, chainAnalyzer)
+                .index(new PathTableTermIndex(new SingleWriterTermIndex<>(new VersionedTermIndex<>(), 16), pathTable))
+                .listenerThreadsCount(1)
+                .meterRegistry(new SimpleMeterRegistry())
+                .maxConcurrentJobs(1)
+                .pathTable(pathTable)
+                .build();
+        service.addToIndex(root);
+        int initialSize = pathTable.size();
+
+        for (int round = 0; round < 3; round++) {
+            int filesCount = 100;
+            for (int i = 0; i < filesCount; i++) {
+                Files.write(root.resolve("file" + round + "_" + i + ".txt"), "word".getBytes());
+            }
+            assertTrue(await(() -> service.search(wordQuery("word")).size() == filesCount));
+            for (int i = 0; i < filesCount; i++) {
+                Files.delete(root.resolve("file" + round + "_" + i + ".txt"));
+            }
+            assertTrue(await(() -> service.search(wordQuery("word")).isEmpty()));
+
+            assertTrue(await(() -> pathTable.size() == initialSize));
+        }
+    }
+
+    private void block(Path file) {
+        if (file.getFileName().toString().equals("blocker.txt")) {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private SubscriptionJob awaitFinished(String id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        SubscriptionJob job = service.job(id);
+        while (!isFinished(job) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            job = service.job(id);
+        }
+        return job;
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static boolean isFinished(SubscriptionJob job) {
+        return job.getState() != SubscriptionJob.State.QUEUED && job.getState() != SubscriptionJob.State.RUNNING;
+    }
+
+    private static Set<String> rootsOf(FileSystemIndexService service) {
+        Set<String> roots = createSet();
+        service.freshness().forEach(freshness -> roots.add(freshness.getRoot()));
+        return roots;
+    }
+
+    private static Query wordQuery(String word) {
+        return new ExactTerm(new WordTerm(word));
+    }
+}
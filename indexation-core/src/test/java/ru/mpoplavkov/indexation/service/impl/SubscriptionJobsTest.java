@@ -0,0 +1,168 @@
+package ru.mpoplavkov.indexation.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.model.job.SubscriptionJob;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscriptionJobsTest {
+
+    SubscriptionJobs jobs;
+
+    Path path = Paths.get("path");
+    CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void init() {
+        jobs = new SubscriptionJobs(1);
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        release.countDown();
+        jobs.close();
+    }
+
+    @Test
+    public void shouldCompleteJobAndReportItsProgress() throws InterruptedException {
+        SubscriptionJob submitted = jobs.submit(SubscriptionJob.Operation.SUBSCRIBE, path, progress -> {
+            progress.onFilesDiscovered(2);
+            progress.onFileProcessed(10);
+            progress.onFileProcessed(5);
+        });
+        SubscriptionJob job = await(submitted.getId());
+
+        Assertions.assertAll(
+                () -> assertEquals(SubscriptionJob.State.COMPLETED, job.getState()),
+                () -> assertEquals(2, job.getFilesDiscovered()),
+                () -> assertEquals(2, job.getFilesProcessed()),
+                () -> assertEquals(15, job.getBytesProcessed()),
+                () -> assertTrue(job.getFinishedAt() >= job.getSubmittedAt())
+        );
+    }
+
+    @Test
+    public void shouldReportFailedJob() throws InterruptedException {
+        SubscriptionJob submitted = jobs.submit(SubscriptionJob.Operation.UNSUBSCRIBE, path, progress -> {
+            throw new IOException("failure");
+        });
+        SubscriptionJob job = await(submitted.getId());
+
+        Assertions.assertAll(
+                () -> assertEquals(SubscriptionJob.State.FAILED, job.getState()),
+                () -> assertEquals("failure", job.getError())
+        );
+    }
+
+    @Test
+    public void shouldQueueJobsAboveTheLimit() throws InterruptedException {
+        SubscriptionJob first = jobs.submit(SubscriptionJob.Operation.SUBSCRIBE, path, progress -> release.await());
+        SubscriptionJob second = jobs.submit(SubscriptionJob.Operation.SUBSCRIBE, path, progress -> {
+        });
+        awaitState(first.getId(), SubscriptionJob.State.RUNNING);
+        assertEquals(SubscriptionJob.State.QUEUED, jobs.get(second.getId()).getState());
+
+        release.countDown();
+        Assertions.assertAll(
+                () -> assertEquals(SubscriptionJob.State.COMPLETED, await(first.getId()).getState()),
+                () -> assertEquals(SubscriptionJob.State.COMPLETED, await(second.getId()).getState())
+        );
+    }
+
+    @Test
+    public void shouldNotStartCancelledQueuedJob() throws InterruptedException {
+        AtomicBoolean started = new AtomicBoolean();
+        SubscriptionJob first = jobs.submit(SubscriptionJob.Operation.SUBSCRIBE, path, progress -> release.await());
+        SubscriptionJob second = jobs.submit(SubscriptionJob.Operation.SUBSCRIBE, path, progress -> started.set(true));
+        awaitState(first.getId(), SubscriptionJob.State.RUNNING);
+
+        assertEquals(SubscriptionJob.State.CANCELLED, jobs.cancel(second.getId()).getState());
+        release.countDown();
+        await(first.getId());
+        assertFalse(started.get());
+    }
+
+    @Test
+    public void shouldStopCancelledRunningJob() throws InterruptedException {
+        SubscriptionJob submitted = jobs.submit(SubscriptionJob.Operation.SUBSCRIBE, path, progress -> {
+            while (true) {
+                progress.checkNotCancelled();
+                Thread.sleep(1);
+            }
+        });
+        awaitState(submitted.getId(), SubscriptionJob.State.RUNNING);
+        jobs.cancel(submitted.getId());
+
+        assertEquals(SubscriptionJob.State.CANCELLED, await(submitted.getId()).getState());
+    }
+
+    @Test
+    public void shouldListJobs() throws InterruptedException {
+        SubscriptionJob submitted = jobs.submit(SubscriptionJob.Operation.SUBSCRIBE, path, progress -> {
+        });
+        await(submitted.getId());
+        assertEquals(1, jobs.list().size());
+    }
+
+    @Test
+    public void shouldThrowOnUnknownJob() {
+        Assertions.assertAll(
+                () -> assertThrows(IllegalArgumentException.class, () -> jobs.get("unknown")),
+                () -> assertThrows(IllegalArgumentException.class, () -> jobs.cancel("unknown"))
+        );
+    }
+
+    @Test
+    public void shouldThrowOnNonPositiveNumberOfConcurrentJobs() {
+        assertThrows(IllegalArgumentException.class, () -> new SubscriptionJobs(0));
+    }
+
+    @Test
+    public void shouldWaitForRunningJobsOnClose() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        jobs.submit(SubscriptionJob.Operation.SUBSCRIBE, path, progress -> {
+            started.countDown();
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            // ignores interruptions, like indexing of a file would
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+            finished.set(true);
+        });
+        started.await();
+
+        jobs.close();
+
+        assertTrue(finished.get());
+    }
+
+    private SubscriptionJob await(String id) throws InterruptedException {
+        SubscriptionJob job = jobs.get(id);
+        for (int i = 0; i < 1000 && !job.getState().isFinished(); i++) {
+            Thread.sleep(10);
+            job = jobs.get(id);
+        }
+        return job;
+    }
+
+    private void awaitState(String id, SubscriptionJob.State state) throws InterruptedException {
+        for (int i = 0; i < 1000 && jobs.get(id).getState() != state; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(state, jobs.get(id).getState());
+    }
+}
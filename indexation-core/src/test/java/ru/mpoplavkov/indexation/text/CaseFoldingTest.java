@@ -0,0 +1,67 @@
+package ru.mpoplavkov.indexation.text;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaseFoldingTest {
+
+    @Test
+    public void shouldReturnTheSameInstanceForFoldedString() {
+        String word = "already_lowercase";
+        assertSame(word, CaseFolding.fold(word));
+    }
+
+    @Test
+    public void shouldFoldAscii() {
+        assertEquals("mixed_case", CaseFolding.fold("MiXeD_CaSe"));
+    }
+
+    @Test
+    public void shouldFoldAllCaseVariantsOfTheLetterToTheSameOne() {
+        Assertions.assertAll(
+                () -> assertEquals("σοφοσ", CaseFolding.fold("ΣΟΦΟΣ")),
+                () -> assertEquals("σοφοσ", CaseFolding.fold("σοφος")),
+                () -> assertEquals("s", CaseFolding.fold("ſ")),
+                () -> assertEquals("k", CaseFolding.fold("K"))
+        );
+    }
+
+    @Test
+    public void shouldNotDependOnTurkishLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr"));
+        try {
+            // the Turkish lowercase of the 'I' is the dotless 'ı'
+            assertEquals("title", CaseFolding.fold("TITLE"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void shouldFoldSupplementaryCodePoints() {
+        // DESERET CAPITAL LETTER LONG I -> DESERET SMALL LETTER LONG I
+        assertEquals("a𐐨b", CaseFolding.fold("A𐐀B"));
+    }
+
+    @Test
+    public void shouldFoldBufferInPlace() {
+        char[] buffer = "ПРИВЕТ, World".toCharArray();
+        int length = CaseFolding.foldInPlace(buffer, buffer.length);
+        assertEquals("привет, world", new String(buffer, 0, length));
+    }
+
+    @Test
+    public void shouldCheckIfFolded() {
+        Assertions.assertAll(
+                () -> assertTrue(CaseFolding.isFolded("word")),
+                () -> assertFalse(CaseFolding.isFolded("Word")),
+                () -> assertFalse(CaseFolding.isFolded("слоВо"))
+        );
+    }
+
+}
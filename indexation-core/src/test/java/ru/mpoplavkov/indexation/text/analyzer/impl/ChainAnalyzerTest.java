@@ -0,0 +1,124 @@
+package ru.mpoplavkov.indexation.text.analyzer.impl;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.mpoplavkov.indexation.model.query.AnyOfTerms;
+import ru.mpoplavkov.indexation.model.query.ExactTerm;
+import ru.mpoplavkov.indexation.model.query.Query;
+import ru.mpoplavkov.indexation.model.term.Term;
+import ru.mpoplavkov.indexation.model.term.WordTerm;
+import ru.mpoplavkov.indexation.text.source.Source;
+import ru.mpoplavkov.indexation.text.source.impl.StringSource;
+import ru.mpoplavkov.indexation.text.tokenfilter.impl.LowercaseTokenFilter;
+import ru.mpoplavkov.indexation.text.tokenfilter.impl.NGramTokenFilter;
+import ru.mpoplavkov.indexation.text.tokenfilter.impl.SStemmerTokenFilter;
+import ru.mpoplavkov.indexation.text.tokenfilter.impl.StopWordsTokenFilter;
+import ru.mpoplavkov.indexation.text.tokenizer.impl.WhitespaceTokenizer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static ru.mpoplavkov.indexation.util.CollectionsUtil.createSet;
+
+class ChainAnalyzerTest {
+
+    Path file = Paths.get("file.txt");
+
+    @Test
+    public void shouldSplitByWhitespaces() throws IOException {
+        ChainAnalyzer analyzer = new ChainAnalyzer(new WhitespaceTokenizer());
+        Source source = sourceFromString(" word1  \t word2 \n   word3 \r  ");
+        Set<Term> expected = createSet(word("word1"), word("word2"), word("word3"));
+        assertEquals(expected, analyzer.analyze(file, source));
+    }
+
+    @Test
+    public void shouldKeepEveryOccurrenceOfTerms() throws IOException {
+        ChainAnalyzer analyzer = new ChainAnalyzer(new WhitespaceTokenizer(), new LowercaseTokenFilter());
+        Source source = sourceFromString("word1 Word2 WORD1 word1");
+        Multiset<Term> expected = HashMultiset.create(Arrays.asList(word("word1"), word("word1"), word("word1"), word("word2")));
+        assertEquals(expected, analyzer.analyzeOccurrences(file, source));
+    }
+
+    @Test
+    public void shouldApplyFiltersInOrder() throws IOException {
+        ChainAnalyzer analyzer = new ChainAnalyzer(
+                new WhitespaceTokenizer(),
+                new LowercaseTokenFilter(),
+                new SStemmerTokenFilter(),
+                new StopWordsTokenFilter()
+        );
+        Source source = sourceFromString("The Queries and THE Indexes of Files");
+        Set<Term> expected = createSet(word("query"), word("indexe"), word("file"));
+        assertEquals(expected, analyzer.analyze(file, source));
+    }
+
+    @Test
+    public void shouldEmitNGramsAlongWithTheOriginalToken() throws IOException {
+        ChainAnalyzer analyzer = new ChainAnalyzer(new WhitespaceTokenizer(), new NGramTokenFilter(2, 3, true));
+        Source source = sourceFromString("abcd");
+        Set<Term> expected = createSet(
+                word("ab"), word("bc"), word("cd"),
+                word("abc"), word("bcd"),
+                word("abcd")
+        );
+        assertEquals(expected, analyzer.analyze(file, source));
+    }
+
+    @Test
+    public void shouldTransformQueryTermWithTheSameChain() {
+        ChainAnalyzer analyzer = new ChainAnalyzer(
+                new WhitespaceTokenizer(),
+                new LowercaseTokenFilter(),
+                new SStemmerTokenFilter()
+        );
+        assertEquals(word("query"), analyzer.transform(word("Queries")));
+    }
+
+    @Test
+    public void shouldExpandQueryTermToEveryEmittedToken() {
+        ChainAnalyzer analyzer = new ChainAnalyzer(
+                new WhitespaceTokenizer(),
+                new LowercaseTokenFilter(),
+                new NGramTokenFilter(2, 2, true)
+        );
+        Query expected = new AnyOfTerms(Arrays.asList(word("ab"), word("bc"), word("abc")));
+        Assertions.assertAll(
+                () -> assertEquals(Arrays.asList(word("ab"), word("bc"), word("abc")), analyzer.expand(word("ABC"))),
+                () -> assertEquals(expected, new ExactTerm(word("ABC")).transform(analyzer)),
+                () -> assertThrows(IllegalArgumentException.class, () -> analyzer.transform(word("ABC")))
+        );
+    }
+
+    @Test
+    public void shouldExpandDroppedQueryTermToNothing() {
+        ChainAnalyzer analyzer = new ChainAnalyzer(
+                new WhitespaceTokenizer(),
+                new LowercaseTokenFilter(),
+                new StopWordsTokenFilter()
+        );
+        Query expected = new AnyOfTerms(Collections.singletonList(word("word")));
+        Assertions.assertAll(
+                () -> assertEquals(Collections.emptyList(), analyzer.expand(word("The"))),
+                () -> assertEquals(new AnyOfTerms(Collections.emptyList()), new ExactTerm(word("The")).transform(analyzer)),
+                () -> assertEquals(expected, new AnyOfTerms(Arrays.asList(word("The"), word("Word"))).transform(analyzer))
+        );
+    }
+
+    private Source sourceFromString(String s) {
+        return new StringSource(s);
+    }
+
+    private Term word(String word) {
+        return new WordTerm(word);
+    }
+
+}
@@ -0,0 +1,66 @@
+package ru.mpoplavkov.indexation.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+public final class BufferUtil {
+    private BufferUtil() {
+    }
+
+    private static final Deallocator DEALLOCATOR = createDeallocator();
+
+    /**
+     * Releases the memory of the direct buffer right away, instead of waiting
+     * for the garbage collector to notice, that the buffer is unreachable.
+     * The buffer, as well as all its views, must not be used afterwards.
+     * The memory is released via the {@code sun.misc.Unsafe#invokeCleaner}
+     * on JDK 9+ and via the {@code sun.misc.Cleaner} of the buffer on JDK 8.
+     * If neither is accessible, the memory is left to the garbage collector.
+     *
+     * @param buffer buffer, allocated by the {@link ByteBuffer#allocateDirect}.
+     *               Heap buffers are ignored.
+     * @return true if the memory was released.
+     */
+    public static boolean free(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || DEALLOCATOR == null) {
+            return false;
+        }
+        try {
+            DEALLOCATOR.free(buffer);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static Deallocator createDeallocator() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // JDK 8 doesn't have the invokeCleaner
+        }
+        try {
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    clean.invoke(bufferCleaner);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Deallocator {
+        void free(ByteBuffer buffer) throws ReflectiveOperationException;
+    }
+}
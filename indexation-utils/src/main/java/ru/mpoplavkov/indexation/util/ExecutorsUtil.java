@@ -2,8 +2,10 @@ package ru.mpoplavkov.indexation.util;
 
 import lombok.RequiredArgsConstructor;
 
+import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -11,6 +13,74 @@ public final class ExecutorsUtil {
     private ExecutorsUtil() {
     }
 
+    /**
+     * Creates a factory of virtual threads. Virtual threads are available
+     * only on modern JDKs, so they are created via reflection.
+     *
+     * @param namePrefix prefix of names of created threads.
+     * @return the factory, or empty if virtual threads are not supported
+     * by the runtime.
+     */
+    public static Optional<ThreadFactory> virtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 1L);
+            Method factory = builderClass.getMethod("factory");
+            return Optional.of((ThreadFactory) factory.invoke(builder));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // a preview feature or an old runtime
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Creates an executor service, which runs every task on its own new
+     * virtual thread, so blocked tasks don't occupy platform threads.
+     * Virtual threads are cheap to create, so they are never pooled.
+     * If virtual threads are not supported by the runtime, a fixed pool
+     * of daemon platform threads is created instead.
+     *
+     * @param namePrefix      prefix of names of created threads.
+     * @param fallbackThreads number of platform threads in the pool, if
+     *                        virtual threads are not supported.
+     * @return the executor service.
+     */
+    public static ExecutorService newVirtualThreadExecutor(String namePrefix, int fallbackThreads) {
+        return virtualThreadFactory(namePrefix)
+                .flatMap(ExecutorsUtil::newThreadPerTaskExecutor)
+                .orElseGet(() -> Executors.newFixedThreadPool(fallbackThreads, new DaemonThreadFactory(namePrefix)));
+    }
+
+    /**
+     * Creates an executor service, which starts a new thread for every
+     * task. The method appeared along with virtual threads, so it's called
+     * via reflection.
+     */
+    private static Optional<ExecutorService> newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return Optional.of((ExecutorService) method.invoke(null, threadFactory));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Waits until all the tasks of the shut down executor service are
+     * finished, so that resources, used by the tasks, could be released
+     * right after the call.
+     *
+     * @param executorService the executor service, which is shut down.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static void awaitTermination(ExecutorService executorService) throws InterruptedException {
+        while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+            // tasks react to the interruption once they are done with
+            // the current file, which could take a while
+        }
+    }
+
     @RequiredArgsConstructor
     public static class DaemonThreadFactory implements ThreadFactory {
 
@@ -2,6 +2,7 @@ package ru.mpoplavkov.indexation.util;
 
 import lombok.extern.java.Log;
 
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 
 @Log
@@ -10,9 +11,18 @@ public final class RetryUtil {
     private RetryUtil() {
     }
 
+    /**
+     * Runs the runnable, retrying it the given number of times on failures.
+     * Cancelled runnables are not retried.
+     *
+     * @param runnable runnable to run.
+     * @param retries  number of retries.
+     */
     public static void retry(RunnableWithException runnable, int retries) {
         try {
             runnable.run();
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             log.log(Level.SEVERE, e,
                     () -> String.format("Exception occurred. Remaining number of retries: %s", retries)
@@ -0,0 +1,31 @@
+package ru.mpoplavkov.indexation.util;
+
+import lombok.Data;
+
+/**
+ * Event, recorded by the {@link TraceRecorder}.
+ */
+@Data
+public class TraceEntry {
+
+    /**
+     * Sequence number of the entry. Gaps in the sequence mean, that the
+     * entries were overwritten before the dump.
+     */
+    private final long sequence;
+
+    /**
+     * Time in milliseconds since the epoch, when the event was recorded.
+     */
+    private final long timestamp;
+
+    private final String thread;
+    private final String event;
+    private final String subject;
+
+    /**
+     * Duration of the traced operation in microseconds, or -1 if
+     * the event is not an operation.
+     */
+    private final long durationMicros;
+}
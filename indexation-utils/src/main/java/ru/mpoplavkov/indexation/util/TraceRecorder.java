@@ -0,0 +1,163 @@
+package ru.mpoplavkov.indexation.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Low overhead recorder of events on hot paths, a replacement for per
+ * event logging.
+ *
+ * <p>Events are sampled and stored in a fixed size ring buffer, so the
+ * oldest events are overwritten by the newest ones. Recording doesn't
+ * format anything and doesn't perform any I/O: subjects of events are
+ * converted to strings only when the buffer is dumped.
+ */
+public final class TraceRecorder {
+
+    private static final int CAPACITY = 1 << 14;
+    private static final int MASK = CAPACITY - 1;
+    private static final long NO_DURATION = -1;
+
+    /**
+     * One of this many events is recorded by default, so that a sampled
+     * out event costs a single random number and hot paths don't contend
+     * on the sequence of the buffer.
+     */
+    public static final int DEFAULT_SAMPLE_RATE = 1024;
+
+    private static final AtomicReferenceArray<Slot> BUFFER = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /**
+     * Every {@code sampleRate}-th event is recorded on average. Zero
+     * disables the recording.
+     */
+    private static volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+
+    private TraceRecorder() {
+    }
+
+    /**
+     * Sets the sampling rate of the recorder.
+     *
+     * @param rate record one of {@code rate} events on average. Zero
+     *             disables the recording.
+     */
+    public static void setSampleRate(int rate) {
+        if (rate < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Sample rate '%d' is negative", rate)
+            );
+        }
+        sampleRate = rate;
+    }
+
+    public static int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Records the event, if it's sampled.
+     *
+     * @param event   name of the event. Expected to be a constant.
+     * @param subject subject of the event, e.g. the processed path.
+     */
+    public static void record(String event, Object subject) {
+        if (isSampled()) {
+            write(event, subject, NO_DURATION);
+        }
+    }
+
+    /**
+     * Records the finished operation, if it's sampled.
+     *
+     * @param event         name of the operation. Expected to be a constant.
+     * @param subject       subject of the operation, e.g. the processed path.
+     * @param durationNanos duration of the operation in nanoseconds.
+     */
+    public static void record(String event, Object subject, long durationNanos) {
+        if (isSampled()) {
+            write(event, subject, durationNanos);
+        }
+    }
+
+    /**
+     * Retrieves the recorded events, the oldest first. Events, recorded
+     * concurrently with the dump, could be omitted.
+     *
+     * @return recorded events.
+     */
+    public static List<TraceEntry> dump() {
+        long end = SEQUENCE.get();
+        long start = Math.max(0, end - CAPACITY);
+        List<TraceEntry> entries = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            Slot slot = BUFFER.get((int) (sequence & MASK));
+            // the slot could be already overwritten or not yet written
+            if (slot != null && slot.sequence == sequence) {
+                entries.add(slot.toEntry());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Removes all the recorded events.
+     */
+    public static void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            BUFFER.set(i, null);
+        }
+    }
+
+    private static boolean isSampled() {
+        int rate = sampleRate;
+        return rate == 1 || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) == 0);
+    }
+
+    private static void write(String event, Object subject, long durationNanos) {
+        long sequence = SEQUENCE.getAndIncrement();
+        Slot slot = new Slot(
+                sequence,
+                System.currentTimeMillis(),
+                Thread.currentThread().getName(),
+                event,
+                subject,
+                durationNanos
+        );
+        BUFFER.lazySet((int) (sequence & MASK), slot);
+    }
+
+    private static class Slot {
+        private final long sequence;
+        private final long timestamp;
+        private final String thread;
+        private final String event;
+        private final Object subject;
+        private final long durationNanos;
+
+        private Slot(long sequence, long timestamp, String thread, String event, Object subject, long durationNanos) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.thread = thread;
+            this.event = event;
+            this.subject = subject;
+            this.durationNanos = durationNanos;
+        }
+
+        private TraceEntry toEntry() {
+            return new TraceEntry(
+                    sequence,
+                    timestamp,
+                    thread,
+                    event,
+                    String.valueOf(subject),
+                    durationNanos == NO_DURATION ? NO_DURATION : TimeUnit.NANOSECONDS.toMicros(durationNanos)
+            );
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.mpoplavkov.indexation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BufferUtilTest {
+
+    @Test
+    public void shouldReleaseMemoryOfDirectBuffer() {
+        int size = 1 << 20;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        long usedBefore = directMemoryUsed();
+
+        assertTrue(BufferUtil.free(buffer));
+        assertTrue(directMemoryUsed() <= usedBefore - size);
+    }
+
+    @Test
+    public void shouldIgnoreHeapBuffer() {
+        assertFalse(BufferUtil.free(ByteBuffer.allocate(16)));
+    }
+
+    private static long directMemoryUsed() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)
+                .stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
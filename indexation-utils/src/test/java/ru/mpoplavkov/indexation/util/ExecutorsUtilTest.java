@@ -0,0 +1,64 @@
+package ru.mpoplavkov.indexation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutorsUtilTest {
+
+    @Test
+    public void shouldRunBlockedTasksConcurrentlyWithOrWithoutVirtualThreads() throws InterruptedException {
+        int tasks = 4;
+        CountDownLatch started = new CountDownLatch(tasks);
+        CountDownLatch finished = new CountDownLatch(tasks);
+        ExecutorService executorService = ExecutorsUtil.newVirtualThreadExecutor("test", tasks);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                executorService.execute(() -> {
+                    started.countDown();
+                    try {
+                        // every task waits for all the others
+                        started.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finished.countDown();
+                });
+            }
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCreateNamedThreadsIfVirtualThreadsAreSupported() {
+        ExecutorsUtil.virtualThreadFactory("test").ifPresent(factory -> {
+            Thread thread = factory.newThread(() -> {
+            });
+            assertTrue(thread.getName().startsWith("test-"));
+            assertTrue(thread.isDaemon());
+        });
+    }
+
+    @Test
+    public void shouldRunEveryTaskOnItsOwnThreadIfVirtualThreadsAreSupported() throws Exception {
+        if (!ExecutorsUtil.virtualThreadFactory("test").isPresent()) {
+            return;
+        }
+        ExecutorService executorService = ExecutorsUtil.newVirtualThreadExecutor("test", 1);
+        try {
+            Thread first = executorService.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+            Thread second = executorService.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+
+            assertNotSame(first, second);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.mpoplavkov.indexation.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceRecorderTest {
+
+    @BeforeEach
+    void init() {
+        TraceRecorder.clear();
+        TraceRecorder.setSampleRate(1);
+    }
+
+    @AfterEach
+    void restore() {
+        TraceRecorder.setSampleRate(1);
+    }
+
+    @Test
+    public void shouldRecordEvents() {
+        TraceRecorder.record("event1", "subject1");
+        TraceRecorder.record("event2", 2, TimeUnit.MILLISECONDS.toNanos(3));
+
+        List<TraceEntry> entries = TraceRecorder.dump();
+        TraceEntry first = entries.get(0);
+        TraceEntry second = entries.get(1);
+        Assertions.assertAll(
+                () -> assertEquals(2, entries.size()),
+                () -> assertEquals("event1", first.getEvent()),
+                () -> assertEquals("subject1", first.getSubject()),
+                () -> assertEquals(-1, first.getDurationMicros()),
+                () -> assertEquals("2", second.getSubject()),
+                () -> assertEquals(3000, second.getDurationMicros()),
+                () -> assertTrue(first.getSequence() < second.getSequence())
+        );
+    }
+
+    @Test
+    public void shouldKeepOnlyTheNewestEvents() {
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            TraceRecorder.record("event", i);
+        }
+        List<TraceEntry> entries = TraceRecorder.dump();
+        Assertions.assertAll(
+                () -> assertTrue(entries.size() < count),
+                () -> assertEquals(String.valueOf(count - 1), entries.get(entries.size() - 1).getSubject())
+        );
+    }
+
+    @Test
+    public void shouldNotRecordWhenDisabled() {
+        TraceRecorder.setSampleRate(0);
+        TraceRecorder.record("event", "subject");
+        assertTrue(TraceRecorder.dump().isEmpty());
+    }
+
+    @Test
+    public void shouldThrowOnNegativeSampleRate() {
+        assertThrows(IllegalArgumentException.class, () -> TraceRecorder.setSampleRate(-1));
+    }
+
+}